@@ -0,0 +1,224 @@
+package com.bonree.brfs.client;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bonree.brfs.common.exception.BRFSException;
+import com.bonree.brfs.common.utils.PooledThreadFactory;
+
+/**
+ * 合并写入多个线程提交的数据
+ * 
+ * 提交的数据先缓存在当前批次中，批次的数据条数达到batchSize、数据大小达到batchBytes，
+ * 或者批次创建后经过lingerMs时，整个批次通过一次请求写入。每条数据都会得到自己的fid，
+ * 写入失败时以异常结束，与{@link StorageNameStick#writeDataAsync(InputItem)}一致。
+ * 
+ * 因为大小限制写入的批次在提交数据的线程中发送，正在进行的请求达到上限时提交线程
+ * 会被阻塞；等待超时的批次交给单独的发送线程，定时线程不会因为某个批次被阻塞而
+ * 延误其他批次。
+ * 
+ * @author yupeng
+ * 
+ */
+public class BatchWriter implements Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(BatchWriter.class);
+	
+	public static final int DEFAULT_BATCH_SIZE = 100;
+	public static final long DEFAULT_BATCH_BYTES = 1024 * 1024;
+	public static final long DEFAULT_LINGER_MS = 10;
+	
+	private final StorageNameStick stick;
+	private final int batchSize;
+	private final long batchBytes;
+	private final long lingerMs;
+	
+	private final Object lock = new Object();
+	private Batch current;
+	private boolean closed;
+	
+	private final ScheduledExecutorService lingerTimer;
+	private final ExecutorService lingerSender;
+	
+	public BatchWriter(StorageNameStick stick) {
+		this(stick, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_BYTES, DEFAULT_LINGER_MS);
+	}
+	
+	/**
+	 * @param stick 写入数据的存储空间
+	 * @param batchSize 每个批次最多的数据条数
+	 * @param batchBytes 每个批次最多的数据大小
+	 * @param lingerMs 数据在批次中最多等待的时间
+	 */
+	public BatchWriter(StorageNameStick stick, int batchSize, long batchBytes, long lingerMs) {
+		if(batchSize <= 0 || batchBytes <= 0 || lingerMs < 0) {
+			throw new IllegalArgumentException("illegal batch size[" + batchSize + "], bytes[" + batchBytes + "], linger[" + lingerMs + "]");
+		}
+		
+		this.stick = stick;
+		this.batchSize = batchSize;
+		this.batchBytes = batchBytes;
+		this.lingerMs = lingerMs;
+		this.lingerTimer = Executors.newSingleThreadScheduledExecutor(new PooledThreadFactory("batch_writer_linger"));
+		this.lingerSender = Executors.newCachedThreadPool(new PooledThreadFactory("batch_writer_sender"));
+	}
+	
+	/**
+	 * 提交一条数据
+	 * 
+	 * @param item
+	 * @return 数据的fid
+	 */
+	public CompletableFuture<String> write(InputItem item) {
+		CompletableFuture<String> future = new CompletableFuture<String>();
+		Batch ready = null;
+		synchronized (lock) {
+			if(closed) {
+				future.completeExceptionally(new IllegalStateException("batch writer is closed"));
+				return future;
+			}
+			
+			if(current == null) {
+				final Batch batch = new Batch();
+				current = batch;
+				lingerTimer.schedule(new Runnable() {
+					
+					@Override
+					public void run() {
+						sendLater(takeIf(batch));
+					}
+				}, lingerMs, TimeUnit.MILLISECONDS);
+			}
+			
+			current.add(item, future);
+			if(current.items.size() >= batchSize || current.bytes >= batchBytes) {
+				ready = current;
+				current = null;
+			}
+		}
+		
+		send(ready);
+		return future;
+	}
+	
+	/**
+	 * 立即写入当前批次中的数据
+	 */
+	public void flush() {
+		Batch batch;
+		synchronized (lock) {
+			batch = current;
+			current = null;
+		}
+		
+		send(batch);
+	}
+	
+	private Batch takeIf(Batch batch) {
+		synchronized (lock) {
+			if(current != batch) {
+				//批次已经因为大小限制被写入
+				return null;
+			}
+			
+			current = null;
+			return batch;
+		}
+	}
+	
+	/**
+	 * 在发送线程中写入批次，发送可能因为请求数量达到上限而阻塞
+	 */
+	private void sendLater(final Batch batch) {
+		if(batch == null) {
+			return;
+		}
+		
+		try {
+			lingerSender.execute(new Runnable() {
+				
+				@Override
+				public void run() {
+					send(batch);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			//已经关闭时直接发送
+			send(batch);
+		}
+	}
+	
+	private void send(final Batch batch) {
+		if(batch == null) {
+			return;
+		}
+		
+		LOG.debug("send batch with [{}] items, [{}] bytes", batch.items.size(), batch.bytes);
+		CompletableFuture<String[]> result;
+		try {
+			result = stick.writeDataAsync(batch.items.toArray(new InputItem[batch.items.size()]));
+		} catch (Exception e) {
+			result = new CompletableFuture<String[]>();
+			result.completeExceptionally(e);
+		}
+		
+		result.whenComplete(new BiConsumer<String[], Throwable>() {
+			
+			@Override
+			public void accept(String[] fids, Throwable cause) {
+				for(int i = 0; i < batch.futures.size(); i++) {
+					if(cause != null) {
+						batch.futures.get(i).completeExceptionally(cause);
+						continue;
+					}
+					
+					String fid = i < fids.length ? fids[i] : null;
+					if(fid == null) {
+						batch.futures.get(i).completeExceptionally(new BRFSException("no fid is returned for the written data"));
+						continue;
+					}
+					
+					batch.futures.get(i).complete(fid);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * 写入剩余的数据，关闭后不能再提交数据
+	 */
+	@Override
+	public void close() {
+		synchronized (lock) {
+			closed = true;
+		}
+		
+		flush();
+		lingerTimer.shutdown();
+		lingerSender.shutdown();
+	}
+	
+	private static class Batch {
+		private final List<InputItem> items = new ArrayList<InputItem>();
+		private final List<CompletableFuture<String>> futures = new ArrayList<CompletableFuture<String>>();
+		private long bytes;
+		
+		void add(InputItem item, CompletableFuture<String> future) {
+			items.add(item);
+			futures.add(future);
+			
+			byte[] data = item.getBytes();
+			bytes += data == null ? 0 : data.length;
+		}
+	}
+}
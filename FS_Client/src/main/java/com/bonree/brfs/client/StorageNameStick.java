@@ -3,11 +3,49 @@ package com.bonree.brfs.client;
 import java.io.Closeable;
 import java.text.ParseException;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 
 public interface StorageNameStick extends Closeable {
 	String[] writeData(InputItem[] itemArrays);
 	String writeData(InputItem item);
+	/**
+	 * 读取数据，依次尝试各个副本
+	 * 
+	 * @param fid
+	 * @return
+	 * @throws Exception 所有副本都读取失败时抛出
+	 */
 	InputItem readData(String fid) throws Exception;
+	/**
+	 * 批量读取数据，同一个磁盘节点上的数据通过一次请求读取
+	 * 
+	 * @param fids
+	 * @return 与fids顺序一致，读取失败的数据为null
+	 * @throws Exception
+	 */
+	InputItem[] readData(String[] fids) throws Exception;
+	/**
+	 * 异步写入数据，正在进行的请求达到上限时会阻塞直到有请求完成
+	 * 
+	 * @param itemArrays
+	 * @return 与itemArrays顺序一致的fid，没有写入的数据为null；请求失败时以异常结束，
+	 *         回调在配置的回调线程池中执行
+	 */
+	CompletableFuture<String[]> writeDataAsync(InputItem[] itemArrays);
+	/**
+	 * 异步写入一条数据
+	 * 
+	 * @param item
+	 * @return 数据的fid，写入失败时以异常结束
+	 */
+	CompletableFuture<String> writeDataAsync(InputItem item);
+	/**
+	 * 异步读取数据，正在进行的请求达到上限时会阻塞直到有请求完成
+	 * 
+	 * @param fid
+	 * @return 读取失败时以异常结束，回调在配置的回调线程池中执行
+	 */
+	CompletableFuture<InputItem> readDataAsync(String fid);
 	boolean deleteData(String startTime, String endTime);
 	boolean deleteData(String startTime, String endTime,String dateForamt) throws ParseException;
 	boolean deleteData(long startTime, long endTime);
@@ -6,6 +6,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
 import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
@@ -28,6 +32,7 @@ import com.bonree.brfs.common.net.http.client.URIBuilder;
 import com.bonree.brfs.common.service.Service;
 import com.bonree.brfs.common.utils.BrStringUtils;
 import com.bonree.brfs.common.utils.CloseUtils;
+import com.bonree.brfs.common.utils.PooledThreadFactory;
 
 public class DefaultBRFileSystem implements BRFileSystem {
     private static final Logger LOG = LoggerFactory.getLogger(DefaultBRFileSystem.class);
@@ -43,6 +48,11 @@ public class DefaultBRFileSystem implements BRFileSystem {
     
     private Map<String, String> defaultHeaders = new HashMap<String, String>();
 
+    //所有存储空间共享异步请求的数量上限
+    private Semaphore inFlightRequests;
+    private Executor callbackExecutor;
+    private ExecutorService ownedCallbackExecutor;
+
     public DefaultBRFileSystem(FileSystemConfig config) throws Exception {
     	this.config = config;
         this.httpClient = new HttpClient(ClientConfig.builder()
@@ -52,6 +62,13 @@ public class DefaultBRFileSystem implements BRFileSystem {
         
         this.defaultHeaders.put("username", config.getName());
         this.defaultHeaders.put("password", config.getPasswd());
+
+        this.inFlightRequests = new Semaphore(config.getMaxInFlightRequests());
+        this.callbackExecutor = config.getCallbackExecutor();
+        if(callbackExecutor == null) {
+        	ownedCallbackExecutor = Executors.newCachedThreadPool(new PooledThreadFactory("brfs_callback"));
+        	callbackExecutor = ownedCallbackExecutor;
+        }
     	
         RetryPolicy retryPolicy = new ExponentialBackoffRetry(1000, 3);
         this.zkClient = CuratorFrameworkFactory.newClient(config.getZkAddresses(), 3000, 15000, retryPolicy);
@@ -232,7 +249,7 @@ public class DefaultBRFileSystem implements BRFileSystem {
     		            		DiskServiceSelectorCache cache = serviceSelectorManager.useDiskSelector(storageId);
     	    		            stick = new DefaultStorageNameStick(storageName, storageId,
     	    		            		httpClient, cache, serviceSelectorManager.useDuplicaSelector(),
-    	    		            		config);
+    	    		            		config, inFlightRequests, callbackExecutor);
     	    		            stickContainer.put(storageName, stick);
     	    		            
     	    		            return stick;
@@ -260,6 +277,10 @@ public class DefaultBRFileSystem implements BRFileSystem {
         CloseUtils.closeQuietly(serviceSelectorManager);
         CloseUtils.closeQuietly(zkClient);
         CloseUtils.closeQuietly(httpClient);
+
+        if(ownedCallbackExecutor != null) {
+        	ownedCallbackExecutor.shutdown();
+        }
     }
 
 }
@@ -2,12 +2,23 @@ package com.bonree.brfs.client.impl;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import org.apache.commons.lang3.time.FastDateFormat;
 import org.joda.time.DateTime;
@@ -19,21 +30,27 @@ import com.bonree.brfs.client.InputItem;
 import com.bonree.brfs.client.StorageNameStick;
 import com.bonree.brfs.client.route.DiskServiceSelectorCache;
 import com.bonree.brfs.client.route.DuplicaServiceSelector;
+import com.bonree.brfs.client.route.ServiceLatencyTracker;
 import com.bonree.brfs.client.route.ServiceMetaInfo;
 import com.bonree.brfs.client.utils.FilePathBuilder;
 import com.bonree.brfs.common.ReturnCode;
 import com.bonree.brfs.common.exception.BRFSException;
 import com.bonree.brfs.common.net.http.client.HttpClient;
 import com.bonree.brfs.common.net.http.client.HttpResponse;
+import com.bonree.brfs.common.net.http.client.ResponseHandler;
 import com.bonree.brfs.common.net.http.client.URIBuilder;
 import com.bonree.brfs.common.proto.FileDataProtos.Fid;
-import com.bonree.brfs.common.proto.FileDataProtos.FileContent;
+import com.bonree.brfs.common.read.data.BatchReadMessage;
+import com.bonree.brfs.common.read.data.BatchReadResult;
+import com.bonree.brfs.common.read.data.ReadItem;
 import com.bonree.brfs.common.service.Service;
 import com.bonree.brfs.common.utils.ProtoStuffUtils;
 import com.bonree.brfs.common.write.data.DataItem;
 import com.bonree.brfs.common.write.data.FidDecoder;
+import com.bonree.brfs.common.write.data.FileContentBuffer;
 import com.bonree.brfs.common.write.data.FileDecoder;
 import com.bonree.brfs.common.write.data.WriteDataMessage;
+import com.bonree.brfs.common.write.data.WriteResponseCodec;
 import com.google.common.base.Joiner;
 
 public class DefaultStorageNameStick implements StorageNameStick {
@@ -44,27 +61,38 @@ public class DefaultStorageNameStick implements StorageNameStick {
 
     private DiskServiceSelectorCache selector;
     private DuplicaServiceSelector dupSelector;
+    private ServiceLatencyTracker latencyTracker;
     private HttpClient client;
     
     private FileSystemConfig config;
     private Map<String, String> defaultHeaders = new HashMap<String, String>();
+    private Map<String, String> writeHeaders = new HashMap<String, String>();
+
+    private Semaphore inFlightRequests;
+    private Executor callbackExecutor;
 
     public DefaultStorageNameStick(String storageName, int storageId,
     		HttpClient client, DiskServiceSelectorCache selector,
-    		DuplicaServiceSelector dupSelector, FileSystemConfig config) {
+    		DuplicaServiceSelector dupSelector, FileSystemConfig config,
+    		Semaphore inFlightRequests, Executor callbackExecutor) {
         this.storageName = storageName;
         this.storageId = storageId;
         this.client = client;
         this.selector = selector;
+        this.latencyTracker = selector.latencyTracker();
         this.dupSelector = dupSelector;
+        this.inFlightRequests = inFlightRequests;
+        this.callbackExecutor = callbackExecutor;
         
         this.config = config;
         this.defaultHeaders.put("username", config.getName());
         this.defaultHeaders.put("password", config.getPasswd());
+
+        this.writeHeaders.putAll(defaultHeaders);
+        this.writeHeaders.put(WriteResponseCodec.HEADER_ACCEPT, WriteResponseCodec.CONTENT_TYPE_BINARY);
     }
 
-    @Override
-    public String[] writeData(InputItem[] itemArrays) {
+    private WriteDataMessage writeMessage(InputItem[] itemArrays) {
         WriteDataMessage dataMessage = new WriteDataMessage();
         dataMessage.setStorageNameId(storageId);
 
@@ -76,6 +104,13 @@ public class DefaultStorageNameStick implements StorageNameStick {
         }
         dataMessage.setItems(dataItems);
 
+        return dataMessage;
+    }
+
+    @Override
+    public String[] writeData(InputItem[] itemArrays) {
+        WriteDataMessage dataMessage = writeMessage(itemArrays);
+
         try {
             List<Service> serviceList = dupSelector.randomServiceList();
             if (serviceList.isEmpty()) {
@@ -89,7 +124,7 @@ public class DefaultStorageNameStick implements StorageNameStick {
 
                 HttpResponse response = null;
                 try {
-                    response = client.executePost(uri, defaultHeaders, ProtoStuffUtils.serialize(dataMessage));
+                    response = client.executePost(uri, writeHeaders, ProtoStuffUtils.serialize(dataMessage));
                 } catch (Exception e) {
                 	LOG.warn("write data http request failed", e);
                     continue;
@@ -100,12 +135,7 @@ public class DefaultStorageNameStick implements StorageNameStick {
                 }
 
                 if (response.isReponseOK()) {
-                    JSONArray array = JSONArray.parseArray(new String(response.getResponseBody()));
-                    String[] fids = new String[array.size()];
-                    for (int i = 0; i < array.size(); i++) {
-                        fids[i] = array.getString(i);
-                    }
-                    return fids;
+                    return parseFids(response.getResponseBody());
                 }
             }
         } catch (Exception e) {
@@ -125,6 +155,284 @@ public class DefaultStorageNameStick implements StorageNameStick {
         return null;
     }
 
+    private static String[] parseFids(byte[] responseBody) throws Exception {
+        if (!WriteResponseCodec.isJson(responseBody)) {
+            return WriteResponseCodec.decode(responseBody);
+        }
+
+        // 不支持二进制结果的服务端返回JSON数组
+        JSONArray array = JSONArray.parseArray(new String(responseBody));
+        String[] fids = new String[array.size()];
+        for (int i = 0; i < array.size(); i++) {
+            fids[i] = array.getString(i);
+        }
+        return fids;
+    }
+
+    @Override
+    public CompletableFuture<String[]> writeDataAsync(InputItem[] itemArrays) {
+        CompletableFuture<String[]> future = new CompletableFuture<String[]>();
+        if (!acquireRequest(future)) {
+            return future;
+        }
+
+        try {
+            byte[] message = ProtoStuffUtils.serialize(writeMessage(itemArrays));
+            List<Service> serviceList = dupSelector.randomServiceList();
+            if (serviceList.isEmpty()) {
+                throw new BRFSException("none disknode!!!");
+            }
+
+            writeAsync(serviceList, 0, message, null, future);
+        } catch (Exception e) {
+            LOG.error("write data error", e);
+            failRequest(future, e);
+        }
+
+        return future;
+    }
+
+    /**
+     * 依次尝试每个服务，直到写入成功，都失败时以最后一个服务的错误结束
+     */
+    private void writeAsync(final List<Service> serviceList, final int index, final byte[] message,
+            final Throwable lastCause, final CompletableFuture<String[]> future) throws Exception {
+        if (index >= serviceList.size()) {
+            LOG.error("write data failed with all services");
+            failRequest(future, new BRFSException("write data failed with all services", lastCause));
+            return;
+        }
+
+        Service service = serviceList.get(index);
+        URI uri = new URIBuilder().setScheme(config.getUrlSchema())
+                .setHost(service.getHost()).setPort(service.getPort())
+                .setPath(config.getDuplicateUrlRoot() + "/").build();
+
+        client.executePost(uri, writeHeaders, message, new ResponseHandler() {
+
+            @Override
+            public void onCompleted(HttpResponse response) {
+                try {
+                    if (response.isReponseOK()) {
+                        completeRequest(future, parseFids(response.getResponseBody()));
+                        return;
+                    }
+
+                    writeAsync(serviceList, index + 1, message,
+                            new BRFSException("write data to service[" + service + "] failed, status[" + response.getStatusCode() + "]"), future);
+                } catch (Exception e) {
+                    LOG.error("write data error", e);
+                    failRequest(future, e);
+                }
+            }
+
+            @Override
+            public void onThrowable(Throwable e) {
+                LOG.warn("write data http request failed", e);
+                try {
+                    writeAsync(serviceList, index + 1, message, e, future);
+                } catch (Exception ex) {
+                    LOG.error("write data error", ex);
+                    failRequest(future, ex);
+                }
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> writeDataAsync(InputItem item) {
+        return writeDataAsync(new InputItem[] { item }).thenApply(new Function<String[], String>() {
+
+            @Override
+            public String apply(String[] fids) {
+                if (fids.length == 0 || fids[0] == null) {
+                    throw new BRFSException("no fid is returned for the written data");
+                }
+
+                return fids[0];
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<InputItem> readDataAsync(String fid) {
+        CompletableFuture<InputItem> future = new CompletableFuture<InputItem>();
+        if (!acquireRequest(future)) {
+            return future;
+        }
+
+        try {
+            Fid fidObj = FidDecoder.build(fid);
+            if (fidObj.getStorageNameCode() != storageId) {
+                throw new IllegalAccessException("Storage name of fid is not legal!");
+            }
+
+            List<String> parts = new ArrayList<String>();
+            parts.add(fidObj.getUuid());
+            for (int serverId : fidObj.getServerIdList()) {
+                parts.add(String.valueOf(serverId));
+            }
+
+            readAsync(fidObj, Joiner.on('_').join(parts), new ArrayList<Integer>(), null, future);
+        } catch (Exception e) {
+            LOG.error("read data error", e);
+            failRequest(future, e);
+        }
+
+        return future;
+    }
+
+    /**
+     * 读取失败时排除已经尝试过的副本，最多尝试副本数个server，都失败时以最后一个副本的错误结束
+     */
+    private void readAsync(final Fid fidObj, final String partFid, final List<Integer> excludePot,
+            final Throwable lastCause, final CompletableFuture<InputItem> future) throws Exception {
+        if (excludePot.size() >= fidObj.getServerIdCount()) {
+            failRequest(future, new BRFSException("read fid[" + partFid + "] failed with all replicas", lastCause));
+            return;
+        }
+
+        final ServiceMetaInfo serviceMetaInfo = selector.readerService(partFid, excludePot);
+        final Service service = serviceMetaInfo == null ? null : serviceMetaInfo.getFirstServer();
+        if (service == null) {
+            LOG.error("none disknode to read fid[{}]", partFid);
+            failRequest(future, new BRFSException("none disknode to read fid[" + partFid + "]", lastCause));
+            return;
+        }
+
+        executeRead(fidObj, serviceMetaInfo).whenComplete(new BiConsumer<HttpResponse, Throwable>() {
+
+            @Override
+            public void accept(HttpResponse response, Throwable e) {
+                if (response != null && response.isReponseOK()) {
+                    completeRequest(future, contentItem(response.getResponseBody()));
+                    return;
+                }
+
+                Throwable cause = e;
+                if (cause != null) {
+                    LOG.warn("read data http request failed", cause);
+                } else {
+                    cause = new BRFSException("read data from service[" + service + "] failed, status[" + response.getStatusCode() + "]");
+                }
+
+                excludePot.add(serviceMetaInfo.getReplicatPot());
+                try {
+                    readAsync(fidObj, partFid, excludePot, cause, future);
+                } catch (Exception ex) {
+                    LOG.error("read data error", ex);
+                    failRequest(future, ex);
+                }
+            }
+        });
+    }
+
+    /**
+     * 向选择的副本发送读取请求，并记录节点的响应时间
+     */
+    private CompletableFuture<HttpResponse> executeRead(Fid fidObj, ServiceMetaInfo serviceMetaInfo) throws Exception {
+        final Service service = serviceMetaInfo.getFirstServer();
+        URI uri = new URIBuilder().setScheme(config.getUrlSchema())
+                .setHost(service.getHost()).setPort(service.getPort())
+                .setPath(config.getDiskUrlRoot() + FilePathBuilder.buildPath(fidObj, storageName, serviceMetaInfo.getReplicatPot()))
+                .addParameter("offset", String.valueOf(fidObj.getOffset()))
+                .addParameter("size", String.valueOf(fidObj.getSize())).build();
+
+        final CompletableFuture<HttpResponse> future = new CompletableFuture<HttpResponse>();
+        final long start = System.currentTimeMillis();
+        latencyTracker.requestStarted(service);
+        client.executeGet(uri, defaultHeaders, new ResponseHandler() {
+
+            @Override
+            public void onCompleted(HttpResponse response) {
+                latencyTracker.requestFinished(service, System.currentTimeMillis() - start, response.isReponseOK());
+                future.complete(response);
+            }
+
+            @Override
+            public void onThrowable(Throwable e) {
+                latencyTracker.requestFinished(service, System.currentTimeMillis() - start, false);
+                future.completeExceptionally(e);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * 两个请求中先成功的一个作为结果，都失败时结果为null
+     */
+    private static CompletableFuture<HttpResponse> firstSuccess(CompletableFuture<HttpResponse> first,
+            CompletableFuture<HttpResponse> second) {
+        final CompletableFuture<HttpResponse> result = new CompletableFuture<HttpResponse>();
+        final AtomicInteger remaining = new AtomicInteger(2);
+        BiConsumer<HttpResponse, Throwable> action = new BiConsumer<HttpResponse, Throwable>() {
+
+            @Override
+            public void accept(HttpResponse response, Throwable e) {
+                if (response != null && response.isReponseOK()) {
+                    result.complete(response);
+                } else if (remaining.decrementAndGet() == 0) {
+                    result.complete(null);
+                }
+            }
+        };
+
+        first.whenComplete(action);
+        second.whenComplete(action);
+        return result;
+    }
+
+    /**
+     * 获取异步请求的许可，正在进行的请求达到上限时阻塞调用线程
+     */
+    private boolean acquireRequest(CompletableFuture<?> future) {
+        try {
+            inFlightRequests.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return false;
+        }
+    }
+
+    /**
+     * 释放请求许可，并在回调线程池中完成请求
+     */
+    private <T> void completeRequest(final CompletableFuture<T> future, final T result) {
+        inFlightRequests.release();
+        try {
+            callbackExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    future.complete(result);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.complete(result);
+        }
+    }
+
+    /**
+     * 释放请求许可，并在回调线程池中以异常结束请求
+     */
+    private void failRequest(final CompletableFuture<?> future, final Throwable cause) {
+        inFlightRequests.release();
+        try {
+            callbackExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    future.completeExceptionally(cause);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(cause);
+        }
+    }
+
     @Override
     public InputItem readData(String fid) throws Exception {
         Fid fidObj = FidDecoder.build(fid);
@@ -138,51 +446,187 @@ public class DefaultStorageNameStick implements StorageNameStick {
             parts.add(String.valueOf(serverId));
         }
         
-        try {
-        	List<Integer> excludePot = new ArrayList<Integer>();
-            // 最大尝试副本数个server
-            for (int i = 0; i < parts.size() - 1; i++) {
-                ServiceMetaInfo serviceMetaInfo = selector.readerService(Joiner.on('_').join(parts), excludePot);
-                Service service = serviceMetaInfo.getFirstServer();
-                LOG.info("read service[{}]", service);
-                if (service == null) {
-                    throw new BRFSException("none disknode!!!");
+        String partFid = Joiner.on('_').join(parts);
+        List<Integer> excludePot = new ArrayList<Integer>();
+        Throwable lastCause = null;
+        // 最大尝试副本数个server
+        while (excludePot.size() < parts.size() - 1) {
+            ServiceMetaInfo serviceMetaInfo = selector.readerService(partFid, excludePot);
+            Service service = serviceMetaInfo == null ? null : serviceMetaInfo.getFirstServer();
+            LOG.info("read service[{}]", service);
+            if (service == null) {
+                LOG.error("none disknode to read fid[{}]", partFid);
+                throw new BRFSException("none disknode to read fid[" + partFid + "]", lastCause);
+            }
+
+            CompletableFuture<HttpResponse> request = executeRead(fidObj, serviceMetaInfo);
+            excludePot.add(serviceMetaInfo.getReplicatPot());
+            if (config.isHedgedRead()) {
+                try {
+                    request.get(latencyTracker.p95(service), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // 超过节点的p95响应时间还没有返回，向另一个副本再发送一次请求
+                    ServiceMetaInfo hedgedMetaInfo = selector.readerService(partFid, excludePot);
+                    if (hedgedMetaInfo != null && hedgedMetaInfo.getFirstServer() != null) {
+                        LOG.info("hedged read service[{}]", hedgedMetaInfo.getFirstServer());
+                        request = firstSuccess(request, executeRead(fidObj, hedgedMetaInfo));
+                        excludePot.add(hedgedMetaInfo.getReplicatPot());
+                    }
+                } catch (Exception e) {
+                    // 请求失败，在下面统一处理
                 }
-                URI uri = new URIBuilder().setScheme(config.getUrlSchema())
-                		.setHost(service.getHost()).setPort(service.getPort())
-                		.setPath(config.getDiskUrlRoot() + FilePathBuilder.buildPath(fidObj, storageName, serviceMetaInfo.getReplicatPot())).addParameter("offset", String.valueOf(fidObj.getOffset())).addParameter("size", String.valueOf(fidObj.getSize())).build();
-                
+            }
+
+            try {
+                HttpResponse response = request.get();
+                if (response != null && response.isReponseOK()) {
+                    return contentItem(response.getResponseBody());
+                }
+
+                lastCause = new BRFSException("read data from service[" + service + "] failed, status["
+                        + (response == null ? null : response.getStatusCode()) + "]");
+            } catch (Exception e) {
+                LOG.warn("read data from service[{}] failed", service, e);
+                lastCause = e;
+            }
+
+            // 使用选择的server没有读取到数据，已经进行了排除
+        }
+
+        LOG.error("read fid[{}] failed with all replicas", partFid, lastCause);
+        throw new BRFSException("read fid[" + partFid + "] failed with all replicas", lastCause);
+    }
+
+    @Override
+    public InputItem[] readData(String[] fids) throws Exception {
+        InputItem[] items = new InputItem[fids.length];
+
+        // 按磁盘节点对读取请求分组
+        Map<String, BatchRead> batches = new LinkedHashMap<String, BatchRead>();
+        for (int i = 0; i < fids.length; i++) {
+            Fid fidObj = FidDecoder.build(fids[i]);
+            if (fidObj.getStorageNameCode() != storageId) {
+                throw new IllegalAccessException("Storage name of fid is not legal!");
+            }
+
+            List<String> parts = new ArrayList<String>();
+            parts.add(fidObj.getUuid());
+            for (int serverId : fidObj.getServerIdList()) {
+                parts.add(String.valueOf(serverId));
+            }
+
+            ServiceMetaInfo serviceMetaInfo = selector.readerService(Joiner.on('_').join(parts), new ArrayList<Integer>());
+            Service service = serviceMetaInfo == null ? null : serviceMetaInfo.getFirstServer();
+            if (service == null) {
+                continue;
+            }
+
+            String key = service.getHost() + ":" + service.getPort();
+            BatchRead batch = batches.get(key);
+            if (batch == null) {
+                batch = new BatchRead(service);
+                batches.put(key, batch);
+            }
+
+            batch.indexes.add(i);
+            batch.items.add(new ReadItem(FilePathBuilder.buildPath(fidObj, storageName, serviceMetaInfo.getReplicatPot()),
+                    fidObj.getOffset(), (int) fidObj.getSize()));
+        }
+
+        // 各个磁盘节点的批量读取请求同时进行
+        List<CompletableFuture<Void>> requests = new ArrayList<CompletableFuture<Void>>(batches.size());
+        for (BatchRead batch : batches.values()) {
+            requests.add(batchRead(batch, items));
+        }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[requests.size()])).join();
+
+        // 批量读取失败的数据逐个读取，会尝试其他副本
+        for (int i = 0; i < fids.length; i++) {
+            if (items[i] == null) {
                 try {
-					final HttpResponse response = client.executeGet(uri, defaultHeaders);
-					
-					if (response != null && response.isReponseOK()) {
-	                    return new InputItem() {
-
-	                        @Override
-	                        public byte[] getBytes() {
-	                            try {
-	                                FileContent content = FileDecoder.contents(response.getResponseBody());
-	                                return content.getData().toByteArray();
-	                            } catch (Exception e) {
-	                                e.printStackTrace();
-	                            }
-
-	                            return null;
-	                        }
-	                    };
-	                }
-				} catch (Exception e) {
-					continue;
-				}
-                
-                // 使用选择的server没有读取到数据，需要进行排除
-                excludePot.add(serviceMetaInfo.getReplicatPot());
+                    items[i] = readData(fids[i]);
+                } catch (Exception e) {
+                    LOG.warn("read fid[{}] failed, leave it null", fids[i]);
+                }
             }
+        }
+
+        return items;
+    }
+
+    /**
+     * 向一个磁盘节点发送批量读取请求，读取到的数据放入items中对应的位置，
+     * 请求失败时不抛出异常，对应的数据保持为null
+     */
+    private CompletableFuture<Void> batchRead(final BatchRead batch, final InputItem[] items) {
+        final CompletableFuture<Void> future = new CompletableFuture<Void>();
+        LOG.info("batch read [{}] items from service[{}]", batch.items.size(), batch.service);
+        try {
+            BatchReadMessage message = new BatchReadMessage();
+            message.setItems(batch.items.toArray(new ReadItem[batch.items.size()]));
+
+            URI uri = new URIBuilder().setScheme(config.getUrlSchema())
+                    .setHost(batch.service.getHost()).setPort(batch.service.getPort())
+                    .setPath(config.getBatchReadUrlRoot() + "/").build();
+            client.executePost(uri, defaultHeaders, ProtoStuffUtils.serialize(message), new ResponseHandler() {
+
+                @Override
+                public void onCompleted(HttpResponse response) {
+                    try {
+                        if (response.isReponseOK()) {
+                            byte[][] results = BatchReadResult.decode(response.getResponseBody(), batch.items.size());
+                            for (int i = 0; i < results.length; i++) {
+                                if (results[i] != null) {
+                                    items[batch.indexes.get(i)] = contentItem(results[i]);
+                                }
+                            }
+                        }
+                    } catch (Exception e) {
+                        LOG.warn("batch read from service[{}] failed", batch.service, e);
+                    }
+
+                    future.complete(null);
+                }
+
+                @Override
+                public void onThrowable(Throwable e) {
+                    LOG.warn("batch read from service[{}] failed", batch.service, e);
+                    future.complete(null);
+                }
+            });
         } catch (Exception e) {
-            e.printStackTrace();
+            LOG.warn("batch read from service[{}] failed", batch.service, e);
+            future.complete(null);
         }
 
-        return null;
+        return future;
+    }
+
+    private static InputItem contentItem(final byte[] bytes) {
+        return new InputItem() {
+
+            @Override
+            public byte[] getBytes() {
+                try {
+                    FileContentBuffer content = FileDecoder.contents(ByteBuffer.wrap(bytes), new FileContentBuffer());
+                    return content.getDataBytes();
+                } catch (Exception e) {
+                    LOG.error("decode file content error", e);
+                }
+
+                return null;
+            }
+        };
+    }
+
+    private static class BatchRead {
+        private final Service service;
+        private final List<Integer> indexes = new ArrayList<Integer>();
+        private final List<ReadItem> items = new ArrayList<ReadItem>();
+
+        BatchRead(Service service) {
+            this.service = service;
+        }
     }
 
     @Override
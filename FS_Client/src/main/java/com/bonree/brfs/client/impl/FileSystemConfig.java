@@ -1,5 +1,7 @@
 package com.bonree.brfs.client.impl;
 
+import java.util.concurrent.Executor;
+
 import com.google.common.base.Preconditions;
 
 public class FileSystemConfig {
@@ -21,9 +23,21 @@ public class FileSystemConfig {
 	private static final String DEFAULT_DISK_URL_ROOT = "/disk";
 	private String diskUrlRoot;
 	
+	private static final String DEFAULT_BATCH_READ_URL_ROOT = "/batch";
+	private String batchReadUrlRoot;
+	
 	private static final int DEFAULT_CONNECTION_POOL_SIZE = 16;
 	private int connectionPoolSize;
 	
+	private static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 256;
+	private int maxInFlightRequests;
+	
+	//读取超过节点p95响应时间时是否向另一个副本再发送一次请求
+	private boolean hedgedRead;
+	
+	//异步请求的回调线程池，为null时使用文件系统内部的线程池
+	private Executor callbackExecutor;
+	
 	private static final String DEFAULT_DUPLICATE_SERVICE_GROUP = "duplicate_group";
 	private String duplicateServiceGroup;
 	private static final String DEFAULT_DISK_SERVICE_GROUP = "disk_group";
@@ -34,7 +48,9 @@ public class FileSystemConfig {
 		this.storageUrlRoot = DEFAULT_STORAGE_URL_ROOT;
 		this.duplicateUrlRoot = DEFAULT_DUPLICATE_URL_ROOT;
 		this.diskUrlRoot = DEFAULT_DISK_URL_ROOT;
+		this.batchReadUrlRoot = DEFAULT_BATCH_READ_URL_ROOT;
 		this.connectionPoolSize = DEFAULT_CONNECTION_POOL_SIZE;
+		this.maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
 		this.duplicateServiceGroup = DEFAULT_DUPLICATE_SERVICE_GROUP;
 		this.diskServiceGroup = DEFAULT_DISK_SERVICE_GROUP;
 	}
@@ -71,10 +87,26 @@ public class FileSystemConfig {
 		return diskUrlRoot;
 	}
 
+	public String getBatchReadUrlRoot() {
+		return batchReadUrlRoot;
+	}
+	
 	public int getConnectionPoolSize() {
 		return connectionPoolSize;
 	}
 	
+	public int getMaxInFlightRequests() {
+		return maxInFlightRequests;
+	}
+	
+	public boolean isHedgedRead() {
+		return hedgedRead;
+	}
+	
+	public Executor getCallbackExecutor() {
+		return callbackExecutor;
+	}
+	
 	public String getDuplicateServiceGroup() {
 		return duplicateServiceGroup;
 	}
@@ -134,11 +166,31 @@ public class FileSystemConfig {
 			return this;
 		}
 		
+		public Builder setBatchReadUrlRoot(String urlRoot) {
+			config.batchReadUrlRoot = urlRoot;
+			return this;
+		}
+		
 		public Builder setConnectionPoolSize(int size) {
 			config.connectionPoolSize = size;
 			return this;
 		}
 		
+		public Builder setMaxInFlightRequests(int maxRequests) {
+			config.maxInFlightRequests = maxRequests;
+			return this;
+		}
+		
+		public Builder setHedgedRead(boolean hedgedRead) {
+			config.hedgedRead = hedgedRead;
+			return this;
+		}
+		
+		public Builder setCallbackExecutor(Executor executor) {
+			config.callbackExecutor = executor;
+			return this;
+		}
+		
 		public Builder setDuplicateServiceGroup(String group) {
 			config.duplicateServiceGroup = group;
 			return this;
@@ -154,6 +206,7 @@ public class FileSystemConfig {
 			Preconditions.checkNotNull(config.passwd);
 			Preconditions.checkNotNull(config.zkAddresses);
 			Preconditions.checkNotNull(config.clusterName);
+			Preconditions.checkArgument(config.maxInFlightRequests > 0);
 			
 			return config;
 		}
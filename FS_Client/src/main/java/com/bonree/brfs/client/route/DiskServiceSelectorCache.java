@@ -21,8 +21,10 @@ public class DiskServiceSelectorCache {
     
     private RandomServiceSelector randomServerSelecor;
 
+    private ServiceLatencyTracker latencyTracker = new ServiceLatencyTracker();
+
     public DiskServiceSelectorCache(DiskServiceMetaCache diskServiceMetaCache, RouteParser routeParser) {
-        readServerSelector = new ReaderServiceSelector(diskServiceMetaCache, routeParser);
+        readServerSelector = new ReaderServiceSelector(diskServiceMetaCache, routeParser, latencyTracker);
         
         randomServerSelecor = new RandomServiceSelector(diskServiceMetaCache);
     }
@@ -35,6 +37,10 @@ public class DiskServiceSelectorCache {
         return randomServerSelecor.selectService();
     }
 
+    public ServiceLatencyTracker latencyTracker() {
+        return latencyTracker;
+    }
+
     public ServiceMetaInfo readerService(String partFid,List<Integer> excludePot) {
         return readServerSelector.selectService(partFid,excludePot);
     }
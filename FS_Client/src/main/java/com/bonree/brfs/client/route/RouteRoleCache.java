@@ -3,6 +3,7 @@ package com.bonree.brfs.client.route;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.bonree.brfs.common.rebalance.Constants;
 import com.bonree.brfs.common.rebalance.route.NormalRoute;
@@ -29,6 +30,9 @@ public class RouteRoleCache {
 
     private Map<String, VirtualRoute> virtualRouteDetail;
 
+    // 路由信息每次变化都会增加版本号
+    private final AtomicLong version = new AtomicLong();
+
     public RouteRoleCache(CuratorClient curatorClient, int storageIndex, String baseRoutePath) {
         this.curatorClient = curatorClient;
         this.storageIndex = storageIndex;
@@ -76,6 +80,20 @@ public class RouteRoleCache {
         return virtualRouteDetail;
     }
 
+    public long getVersion() {
+        return version.get();
+    }
+
+    public void putVirtualRoute(VirtualRoute route) {
+        virtualRouteDetail.put(route.getVirtualID(), route);
+        version.incrementAndGet();
+    }
+
+    public void putNormalRoute(NormalRoute route) {
+        normalRouteDetail.put(route.getSecondID(), route);
+        version.incrementAndGet();
+    }
+
     public NormalRoute getRouteRole(String secondID) {
         return normalRouteDetail.get(secondID);
     }
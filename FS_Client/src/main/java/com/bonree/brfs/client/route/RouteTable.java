@@ -0,0 +1,197 @@
+package com.bonree.brfs.client.route;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bonree.brfs.common.rebalance.Constants;
+import com.bonree.brfs.common.rebalance.route.NormalRoute;
+import com.bonree.brfs.common.rebalance.route.VirtualRoute;
+import com.bonree.brfs.common.utils.RebalanceUtils;
+
+/**
+ * 某一时刻的路由信息和存活server的快照，创建之后不再修改
+ * 
+ * 路由查找的结果只和serverID、文件的副本列表和文件名的hash值有关，
+ * 所以查找过的结果会被缓存下来，路由或存活server变化时整个快照会被替换
+ * 
+ * @author yupeng
+ * 
+ */
+public class RouteTable {
+    private static final Logger LOG = LoggerFactory.getLogger(RouteTable.class);
+
+    // 缓存的查找结果数量上限
+    private static final int MAX_RESOLVED_SIZE = 100000;
+    // 查找结果为null时缓存的值
+    private static final String NONE = "";
+
+    private final long routeVersion;
+    private final Set<String> aliveServers;
+    private final List<String> aliveServerList;
+    private final Map<String, String> virtualRoutes;
+    private final Map<String, List<String>> normalRoutes;
+
+    private final ConcurrentHashMap<String, String> resolved = new ConcurrentHashMap<String, String>();
+
+    private RouteTable(long routeVersion, List<String> aliveServerList,
+            Map<String, String> virtualRoutes, Map<String, List<String>> normalRoutes) {
+        this.routeVersion = routeVersion;
+        this.aliveServerList = aliveServerList;
+        this.aliveServers = new HashSet<String>(aliveServerList);
+        this.virtualRoutes = virtualRoutes;
+        this.normalRoutes = normalRoutes;
+    }
+
+    public static RouteTable build(RouteRoleCache routeCache, List<String> aliveServers) {
+        // 先获取版本号，构建过程中路由发生变化时下次查找会重新构建
+        long version = routeCache.getVersion();
+
+        Map<String, String> virtualRoutes = new HashMap<String, String>();
+        for (VirtualRoute route : routeCache.getVirtualRouteCache().values()) {
+            virtualRoutes.put(route.getVirtualID(), route.getNewSecondID());
+        }
+
+        Map<String, List<String>> normalRoutes = new HashMap<String, List<String>>();
+        for (NormalRoute route : routeCache.getNormalRouteCache().values()) {
+            normalRoutes.put(route.getSecondID(), Collections.unmodifiableList(new ArrayList<String>(route.getNewSecondIDs())));
+        }
+
+        return new RouteTable(version, Collections.unmodifiableList(new ArrayList<String>(aliveServers)),
+                virtualRoutes, normalRoutes);
+    }
+
+    /**
+     * 快照是否对应指定的路由版本和存活server
+     */
+    public boolean matches(long version, List<String> aliveServers) {
+        if (routeVersion != version || this.aliveServers.size() != aliveServers.size()) {
+            return false;
+        }
+
+        for (String server : aliveServers) {
+            if (!this.aliveServers.contains(server)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public String findServerID(String searchServerID, String fid, String separator) {
+        String secondID = searchServerID;
+        if (Constants.VIRTUAL_ID == searchServerID.charAt(0)) {
+            String newSecondID = virtualRoutes.get(secondID);
+            if (newSecondID == null) {
+                return secondID;
+            }
+            secondID = newSecondID;
+        }
+
+        // 说明该secondID存活，不需要路由查找
+        if (aliveServers.contains(secondID)) {
+            return secondID;
+        }
+
+        // secondID不存活，需要寻找该secondID的存活ID
+        if (!normalRoutes.containsKey(secondID)) { // 若没有迁移记录，可能没有迁移完成
+            return null;
+        }
+
+        // 文件名中只有用于hash的部分和副本列表会影响查找结果，hash部分只用到了字符和
+        int nameEnd = fid.indexOf(separator);
+        String namePart = nameEnd < 0 ? fid : fid.substring(0, nameEnd);
+        String key = new StringBuilder(searchServerID).append('|').append(separator)
+                .append('|').append(RebalanceUtils.sumName(namePart))
+                .append('|').append(nameEnd < 0 ? "" : fid.substring(nameEnd)).toString();
+
+        String result = resolved.get(key);
+        if (result == null) {
+            result = resolve(searchServerID, secondID, fid, separator);
+            if (result == null) {
+                result = NONE;
+            }
+
+            if (resolved.size() < MAX_RESOLVED_SIZE) {
+                resolved.put(key, result);
+            }
+        }
+
+        return result == NONE ? null : result;
+    }
+
+    private String resolve(String searchServerID, String secondID, String fid, String separator) {
+        // 对文件名进行分割处理
+        String[] metaArr = fid.split(separator);
+        // 提取出用于hash的部分
+        String namePart = metaArr[0];
+        // 提取副本数
+        int replicas = metaArr.length - 1;
+
+        // 提取出该文件所存储的服务
+        List<String> fileServerIds = new ArrayList<>();
+        for (int j = 1; j < metaArr.length; j++) {
+            // virtual server ID
+            if (Constants.VIRTUAL_ID == metaArr[j].charAt(0)) {
+                if (metaArr[j].equals(searchServerID)) { // 前面解析过
+                    fileServerIds.add(secondID);
+                } else { // 需要解析
+                    String newSecondID = virtualRoutes.get(secondID);
+                    if (newSecondID == null) {
+                        LOG.error("gain serverid error!something impossible!!!");
+                        return null;
+                    }
+                    fileServerIds.add(newSecondID);
+                }
+            }
+        }
+        // 提取需要查询的serverID的位置
+        int serverIDPot = fileServerIds.indexOf(secondID);
+
+        // 这里要判断一个副本是否需要进行迁移
+        // 挑选出的可迁移的servers
+        String selectMultiId = null;
+        // 可获取的server，可能包括自身
+        List<String> recoverableServerList = null;
+        // 排除掉自身或已有的servers
+        List<String> exceptionServerIds = null;
+        // 真正可选择的servers
+        List<String> selectableServerList = null;
+
+        while (RebalanceUtils.needRecover(fileServerIds, replicas, aliveServerList)) {
+            for (String deadServer : fileServerIds) {
+                if (!aliveServers.contains(deadServer)) {
+                    int pot = fileServerIds.indexOf(deadServer);
+                    recoverableServerList = normalRoutes.get(deadServer);
+                    if (recoverableServerList == null) {
+                        return null;
+                    }
+                    exceptionServerIds = new ArrayList<>();
+                    exceptionServerIds.addAll(fileServerIds);
+                    exceptionServerIds.remove(deadServer);
+                    selectableServerList = RebalanceUtils.getSelectedList(recoverableServerList, exceptionServerIds);
+                    int index = RebalanceUtils.hashFileName(namePart, selectableServerList.size());
+                    selectMultiId = selectableServerList.get(index);
+                    fileServerIds.set(pot, selectMultiId);
+
+                    // 判断选取的新节点是否存活
+                    if (aliveServers.contains(selectMultiId)) {
+                        // 判断选取的新节点是否为本节点，该serverID是否在相应的位置
+                        if (pot == serverIDPot) {
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return selectMultiId;
+    }
+}
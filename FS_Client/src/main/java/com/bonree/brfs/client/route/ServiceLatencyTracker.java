@@ -0,0 +1,126 @@
+package com.bonree.brfs.client.route;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.bonree.brfs.common.service.Service;
+
+/**
+ * 记录每个磁盘节点的读取响应时间和正在进行的请求数量
+ * 
+ * 响应时间使用EWMA平滑，长时间没有请求的节点响应时间会逐渐衰减，
+ * 避免节点偶尔变慢之后一直不被选择。请求失败按惩罚时间计算。
+ * 
+ * @author yupeng
+ * 
+ */
+public class ServiceLatencyTracker {
+    // 新样本的权重
+    private static final double ALPHA = 0.3;
+    // 响应时间衰减的时间常数
+    private static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+    // 请求失败时记录的响应时间
+    private static final long FAILURE_PENALTY_MILLIS = 1000;
+    // 计算p95使用的最近样本数量
+    private static final int WINDOW_SIZE = 128;
+    // 样本不足时p95的默认值
+    private static final long DEFAULT_P95_MILLIS = 50;
+
+    private final ConcurrentMap<String, Stats> statsMap = new ConcurrentHashMap<String, Stats>();
+
+    public void requestStarted(Service service) {
+        stats(service).inFlight.incrementAndGet();
+    }
+
+    /**
+     * 请求结束时调用，每次{@link #requestStarted(Service)}都需要对应一次调用
+     *
+     * @param service
+     * @param elapsedMillis 请求耗时
+     * @param success 请求是否成功
+     */
+    public void requestFinished(Service service, long elapsedMillis, boolean success) {
+        Stats stats = stats(service);
+        stats.inFlight.decrementAndGet();
+        stats.record(success ? elapsedMillis : Math.max(elapsedMillis, FAILURE_PENALTY_MILLIS));
+    }
+
+    /**
+     * 节点的负载评分，越小越好。没有样本的节点评分为0，会被优先尝试
+     *
+     * @param service
+     * @return
+     */
+    public double score(Service service) {
+        Stats stats = statsMap.get(service.getServiceId());
+        if (stats == null) {
+            return 0;
+        }
+
+        return stats.latency() * (stats.inFlight.get() + 1);
+    }
+
+    /**
+     * 节点最近响应时间的95分位值
+     *
+     * @param service
+     * @return
+     */
+    public long p95(Service service) {
+        Stats stats = statsMap.get(service.getServiceId());
+        return stats == null ? DEFAULT_P95_MILLIS : stats.p95();
+    }
+
+    private Stats stats(Service service) {
+        Stats stats = statsMap.get(service.getServiceId());
+        if (stats == null) {
+            Stats newStats = new Stats();
+            stats = statsMap.putIfAbsent(service.getServiceId(), newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+
+        return stats;
+    }
+
+    private static class Stats {
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private double ewma = -1;
+        private long lastUpdate;
+
+        private final long[] window = new long[WINDOW_SIZE];
+        private int sampleCount;
+
+        synchronized void record(long millis) {
+            ewma = ewma < 0 ? millis : ALPHA * millis + (1 - ALPHA) * ewma;
+            lastUpdate = System.nanoTime();
+
+            window[sampleCount % WINDOW_SIZE] = millis;
+            sampleCount++;
+        }
+
+        synchronized double latency() {
+            if (ewma < 0) {
+                return 0;
+            }
+
+            return ewma * Math.exp(-(double) (System.nanoTime() - lastUpdate) / DECAY_NANOS);
+        }
+
+        synchronized long p95() {
+            int count = Math.min(sampleCount, WINDOW_SIZE);
+            if (count < 20) {
+                return DEFAULT_P95_MILLIS;
+            }
+
+            long[] samples = Arrays.copyOf(window, count);
+            Arrays.sort(samples);
+            return samples[(int) Math.ceil(count * 0.95) - 1];
+        }
+    }
+}
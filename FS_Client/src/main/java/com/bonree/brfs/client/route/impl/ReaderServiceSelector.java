@@ -3,14 +3,17 @@ package com.bonree.brfs.client.route.impl;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bonree.brfs.client.meta.impl.DiskServiceMetaCache;
 import com.bonree.brfs.client.route.RouteParser;
+import com.bonree.brfs.client.route.ServiceLatencyTracker;
 import com.bonree.brfs.client.route.ServiceMetaInfo;
 import com.bonree.brfs.client.route.ServiceSelector_1;
+import com.bonree.brfs.common.service.Service;
 import com.google.common.base.Preconditions;
 
 public class ReaderServiceSelector implements ServiceSelector_1 {
@@ -18,20 +21,20 @@ public class ReaderServiceSelector implements ServiceSelector_1 {
     private static final Logger LOG = LoggerFactory.getLogger(ReaderServiceSelector.class);
     private DiskServiceMetaCache diskServiceMetaCache;
     private RouteParser routeParser;
+    private ServiceLatencyTracker latencyTracker;
 
     private final static String NAME_SEPARATOR = "_";
 
-    public ReaderServiceSelector(DiskServiceMetaCache diskServiceMetaCache, RouteParser routeParser) {
+    public ReaderServiceSelector(DiskServiceMetaCache diskServiceMetaCache, RouteParser routeParser, ServiceLatencyTracker latencyTracker) {
         this.diskServiceMetaCache = diskServiceMetaCache;
         this.routeParser = routeParser;
+        this.latencyTracker = latencyTracker;
     }
 
     @Override
     public ServiceMetaInfo selectService(String partFid, List<Integer> excludePot) {
         Preconditions.checkNotNull(partFid);
         ServiceMetaInfo service = null;
-        String aliveSecondID = null; // 迁移之后的serverID
-        String selectSId = null; // 未迁移之前的serverID
         String[] arrs = partFid.split(NAME_SEPARATOR);
         if (excludePot == null) {
             excludePot = new ArrayList<Integer>(16);
@@ -43,37 +46,63 @@ public class ReaderServiceSelector implements ServiceSelector_1 {
         }
         List<String> aliveServices = diskServiceMetaCache.listSecondID();
         int paras = arrs.length;
-        int pot = 1; // 默认位置
         if (paras == 2) { // 一个副本
             service = diskServiceMetaCache.getFirstServerCache(arrs[1]);
-        } else if (paras > 2) {// 多个副本时，选择一个副本
+        } else if (paras > 2) {// 多个副本时，在可用的副本中选择负载较低的一个
             int replicas = arrs.length - 1; // 除去UUID
-            int random = new Random().nextInt(replicas);
-            pot = random + 1;
-            if (!excludePot.contains(pot)) {
-                selectSId = arrs[pot];
-                LOG.info("select server id:" + selectSId);
-                aliveSecondID = routeParser.findServerID(selectSId, partFid, NAME_SEPARATOR, aliveServices);
-            }
+            List<ServiceMetaInfo> candidates = new ArrayList<ServiceMetaInfo>(replicas);
+            for (int pot = 1; pot <= replicas; pot++) {
+                if (excludePot.contains(pot)) {
+                    continue;
+                }
+
+                // 迁移之后的serverID
+                String aliveSecondID = routeParser.findServerID(arrs[pot], partFid, NAME_SEPARATOR, aliveServices);
+                if (aliveSecondID == null) {
+                    continue;
+                }
 
-            if (aliveSecondID != null) {
-                service = diskServiceMetaCache.getSecondServerCache(aliveSecondID, pot);
-            } else {
-                for (int i = 0; i < replicas - 1; i++) {
-                    random = ((random + 1) % replicas); // 尝试按顺序选择下一个service
-                    pot = random + 1;
-                    if (!excludePot.contains(pot)) {
-                        selectSId = arrs[pot];
-                        aliveSecondID = routeParser.findServerID(selectSId, partFid, NAME_SEPARATOR, aliveServices);
-                        if (aliveSecondID != null) {
-                            service = diskServiceMetaCache.getSecondServerCache(aliveSecondID, pot);
-                            break;
-                        }
-                    }
+                ServiceMetaInfo candidate = diskServiceMetaCache.getSecondServerCache(aliveSecondID, pot);
+                if (candidate.getFirstServer() != null) {
+                    candidates.add(candidate);
                 }
             }
+
+            service = choose(candidates);
         }
         return service;
     }
 
+    /**
+     * 随机选择两个副本，使用负载评分较低的一个
+     */
+    private ServiceMetaInfo choose(List<ServiceMetaInfo> candidates) {
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        Random random = ThreadLocalRandom.current();
+        ServiceMetaInfo first = candidates.get(random.nextInt(candidates.size()));
+        if (candidates.size() == 1) {
+            return first;
+        }
+
+        int secondIndex = random.nextInt(candidates.size() - 1);
+        if (candidates.get(secondIndex) == first) {
+            secondIndex = candidates.size() - 1;
+        }
+        ServiceMetaInfo second = candidates.get(secondIndex);
+
+        Service firstService = first.getFirstServer();
+        Service secondService = second.getFirstServer();
+        if (firstService == null) {
+            return second;
+        }
+        if (secondService == null) {
+            return first;
+        }
+
+        return latencyTracker.score(secondService) < latencyTracker.score(firstService) ? second : first;
+    }
+
 }
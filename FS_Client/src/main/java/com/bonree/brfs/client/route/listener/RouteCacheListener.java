@@ -43,10 +43,10 @@ public class RouteCacheListener implements TreeCacheListener {
             if (endStr.length()>16 && splitPaths.size() > 4) {
                 if (splitPaths.contains(Constants.VIRTUAL_ROUTE)) {
                     VirtualRoute route = JSON.parseObject(event.getData().getData(), VirtualRoute.class);
-                    routeRoleCache.getVirtualRouteCache().put(route.getVirtualID(), route);
+                    routeRoleCache.putVirtualRoute(route);
                 } else if (splitPaths.contains(Constants.NORMAL_ROUTE)) {
                     NormalRoute route = JSON.parseObject(event.getData().getData(), NormalRoute.class);
-                    routeRoleCache.getNormalRouteCache().put(route.getSecondID(), route);
+                    routeRoleCache.putNormalRoute(route);
                 }
             }
         }
@@ -0,0 +1,265 @@
+package com.bonree.brfs.client;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.bonree.brfs.common.exception.BRFSException;
+
+import junit.framework.TestCase;
+
+public class BatchWriterTest extends TestCase {
+	private static final long NO_LINGER = TimeUnit.HOURS.toMillis(1);
+	
+	private static class Item implements InputItem {
+		private final byte[] bytes;
+		
+		Item(String data) {
+			this.bytes = data.getBytes();
+		}
+		
+		@Override
+		public byte[] getBytes() {
+			return bytes;
+		}
+	}
+	
+	/**
+	 * 记录每个批次，返回数据内容作为fid
+	 */
+	private static class RecordingStick implements StorageNameStick {
+		private final List<Integer> batchSizes = new CopyOnWriteArrayList<Integer>();
+		
+		CompletableFuture<String[]> result(InputItem[] itemArrays) {
+			String[] fids = new String[itemArrays.length];
+			for(int i = 0; i < itemArrays.length; i++) {
+				fids[i] = "fid_" + new String(itemArrays[i].getBytes());
+			}
+			
+			return CompletableFuture.completedFuture(fids);
+		}
+		
+		@Override
+		public CompletableFuture<String[]> writeDataAsync(InputItem[] itemArrays) {
+			batchSizes.add(itemArrays.length);
+			return result(itemArrays);
+		}
+		
+		@Override
+		public String[] writeData(InputItem[] itemArrays) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public String writeData(InputItem item) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public InputItem readData(String fid) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public InputItem[] readData(String[] fids) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public CompletableFuture<String> writeDataAsync(InputItem item) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public CompletableFuture<InputItem> readDataAsync(String fid) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public boolean deleteData(String startTime, String endTime) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public boolean deleteData(String startTime, String endTime, String dateForamt) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public boolean deleteData(long startTime, long endTime) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public boolean deleteData(Date startTime, Date endTime) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void close() {
+		}
+	}
+	
+	private static List<CompletableFuture<String>> write(BatchWriter writer, String... datas) {
+		List<CompletableFuture<String>> futures = new ArrayList<CompletableFuture<String>>();
+		for(String data : datas) {
+			futures.add(writer.write(new Item(data)));
+		}
+		
+		return futures;
+	}
+	
+	private static void assertFids(List<CompletableFuture<String>> futures, String... datas) throws Exception {
+		for(int i = 0; i < datas.length; i++) {
+			assertEquals("fid_" + datas[i], futures.get(i).get(1, TimeUnit.SECONDS));
+		}
+	}
+	
+	public void testFlushOnCount() throws Exception {
+		RecordingStick stick = new RecordingStick();
+		BatchWriter writer = new BatchWriter(stick, 3, Long.MAX_VALUE, NO_LINGER);
+		
+		List<CompletableFuture<String>> futures = write(writer, "a", "b");
+		assertTrue(stick.batchSizes.isEmpty());
+		assertFalse(futures.get(0).isDone());
+		
+		futures.addAll(write(writer, "c"));
+		assertEquals(1, stick.batchSizes.size());
+		assertEquals(Integer.valueOf(3), stick.batchSizes.get(0));
+		assertFids(futures, "a", "b", "c");
+		
+		writer.close();
+	}
+	
+	public void testFlushOnBytes() throws Exception {
+		RecordingStick stick = new RecordingStick();
+		BatchWriter writer = new BatchWriter(stick, 100, 10, NO_LINGER);
+		
+		List<CompletableFuture<String>> futures = write(writer, "1234", "5678");
+		assertTrue(stick.batchSizes.isEmpty());
+		
+		futures.addAll(write(writer, "9012"));
+		assertEquals(1, stick.batchSizes.size());
+		assertEquals(Integer.valueOf(3), stick.batchSizes.get(0));
+		assertFids(futures, "1234", "5678", "9012");
+		
+		writer.close();
+	}
+	
+	public void testFlushOnLinger() throws Exception {
+		RecordingStick stick = new RecordingStick();
+		BatchWriter writer = new BatchWriter(stick, 100, Long.MAX_VALUE, 10);
+		
+		List<CompletableFuture<String>> futures = write(writer, "a", "b");
+		assertFids(futures, "a", "b");
+		assertEquals(1, stick.batchSizes.size());
+		
+		writer.close();
+	}
+	
+	public void testFlushOnClose() throws Exception {
+		RecordingStick stick = new RecordingStick();
+		BatchWriter writer = new BatchWriter(stick, 100, Long.MAX_VALUE, NO_LINGER);
+		
+		List<CompletableFuture<String>> futures = write(writer, "a", "b");
+		writer.close();
+		assertFids(futures, "a", "b");
+		
+		//关闭后提交的数据直接失败
+		try {
+			writer.write(new Item("c")).get(1, TimeUnit.SECONDS);
+			fail("write after close should fail");
+		} catch(ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+	
+	public void testBatchErrorFailsEveryItem() throws Exception {
+		BRFSException error = new BRFSException("write failed");
+		RecordingStick stick = new RecordingStick() {
+			
+			@Override
+			CompletableFuture<String[]> result(InputItem[] itemArrays) {
+				CompletableFuture<String[]> future = new CompletableFuture<String[]>();
+				future.completeExceptionally(error);
+				return future;
+			}
+		};
+		BatchWriter writer = new BatchWriter(stick, 2, Long.MAX_VALUE, NO_LINGER);
+		
+		for(CompletableFuture<String> future : write(writer, "a", "b")) {
+			try {
+				future.get(1, TimeUnit.SECONDS);
+				fail("item of a failed batch should fail");
+			} catch(ExecutionException e) {
+				assertSame(error, e.getCause());
+			}
+		}
+		
+		writer.close();
+	}
+	
+	public void testMissingFidFailsOnlyThatItem() throws Exception {
+		RecordingStick stick = new RecordingStick() {
+			
+			@Override
+			CompletableFuture<String[]> result(InputItem[] itemArrays) {
+				return CompletableFuture.completedFuture(new String[] {"fid_a", null});
+			}
+		};
+		BatchWriter writer = new BatchWriter(stick, 3, Long.MAX_VALUE, NO_LINGER);
+		
+		List<CompletableFuture<String>> futures = write(writer, "a", "b", "c");
+		assertEquals("fid_a", futures.get(0).get(1, TimeUnit.SECONDS));
+		for(int i = 1; i < futures.size(); i++) {
+			try {
+				futures.get(i).get(1, TimeUnit.SECONDS);
+				fail("item without fid should fail");
+			} catch(ExecutionException e) {
+				assertTrue(e.getCause() instanceof BRFSException);
+			}
+		}
+		
+		writer.close();
+	}
+	
+	public void testBlockedSendNotDelayOtherLingerBatches() throws Exception {
+		CountDownLatch sending = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingStick stick = new RecordingStick() {
+			
+			@Override
+			CompletableFuture<String[]> result(InputItem[] itemArrays) {
+				if("blocked".equals(new String(itemArrays[0].getBytes()))) {
+					//模拟正在进行的请求达到上限时的阻塞
+					sending.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				
+				return super.result(itemArrays);
+			}
+		};
+		BatchWriter writer = new BatchWriter(stick, 100, Long.MAX_VALUE, 10);
+		
+		List<CompletableFuture<String>> blocked = write(writer, "blocked");
+		assertTrue(sending.await(1, TimeUnit.SECONDS));
+		
+		List<CompletableFuture<String>> futures = write(writer, "a");
+		assertFids(futures, "a");
+		assertFalse(blocked.get(0).isDone());
+		
+		release.countDown();
+		assertFids(blocked, "blocked");
+		
+		writer.close();
+	}
+}
@@ -11,6 +11,7 @@ public enum ReturnCode {
     STORAGE_NAME_ERROR(40010),// storage name错误
     STORAGE_REPLICATION_ERROR(40011), // storage name副本错误
     STORAGE_TTL_ERROR(40012), // storage nameTTL错误
+    STORAGE_COMPRESS_ERROR(40013), // storage name压缩方式错误
     STORAGE_NONEXIST_ERROR(4002),   // storage name不存在
     STORAGE_UPDATE_ERROR(4003),     // 更新storage name发生错误
     STORAGE_REMOVE_ERROR(4004), // 移除storage name发生错误
@@ -73,6 +74,8 @@ public enum ReturnCode {
             throw new BRFSException(storageName + " replication illegal!!!!");
         } else if (code.equals(ReturnCode.STORAGE_TTL_ERROR)) {
             throw new BRFSException(storageName + " ttl illegal!!!!");
+        } else if (code.equals(ReturnCode.STORAGE_COMPRESS_ERROR)) {
+            throw new BRFSException(storageName + " compress illegal!!!!");
         } else if (code.equals(ReturnCode.USER_FORBID)) {
             throw new BRFSException("User is forbidden!!!!");
         } else if (code.equals(ReturnCode.INVALID_CODE)) {
@@ -0,0 +1,79 @@
+package com.bonree.brfs.common.net.http;
+
+import java.nio.channels.FileChannel;
+
+/**
+ * 以文件区域的形式表示的响应数据，Http服务会把文件中的这段
+ * 数据直接发送到网络，不再经过内存中的字节数组
+ * 
+ * @author chen
+ * 
+ */
+public class FileRegionData {
+	private final String filePath;
+	private final FileChannel channel;
+	private final long offset;
+	private final long length;
+	private final Runnable releaser;
+	
+	public FileRegionData(String filePath, long offset, long length) {
+		this(filePath, null, offset, length, null);
+	}
+	
+	/**
+	 * 使用已经打开的文件句柄发送数据，句柄不会被关闭，发送结束后
+	 * 通过releaser交还给句柄的持有者
+	 * 
+	 * @param filePath
+	 * @param channel 已打开的文件句柄
+	 * @param offset
+	 * @param length
+	 * @param releaser 发送结束或者发送失败后调用一次
+	 */
+	public FileRegionData(String filePath, FileChannel channel, long offset, long length, Runnable releaser) {
+		this.filePath = filePath;
+		this.channel = channel;
+		this.offset = offset;
+		this.length = length;
+		this.releaser = releaser;
+	}
+	
+	public String getFilePath() {
+		return filePath;
+	}
+	
+	/**
+	 * @return 已打开的文件句柄，为null时需要自己打开文件
+	 */
+	public FileChannel getChannel() {
+		return channel;
+	}
+	
+	public long getOffset() {
+		return offset;
+	}
+	
+	public long getLength() {
+		return length;
+	}
+	
+	/**
+	 * 交还文件句柄
+	 */
+	public void release() {
+		if(releaser != null) {
+			releaser.run();
+		}
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[").append(filePath)
+		       .append(", ").append(offset)
+		       .append(", ").append(length)
+		       .append("]");
+		
+		return builder.toString();
+	}
+}
@@ -10,6 +10,8 @@ public class HandleResult {
 	private boolean success;
 	private Throwable cause;
 	private byte[] data;
+	//以文件区域形式返回的数据，设置后data会被忽略
+	private FileRegionData fileRegion;
 	
 	public HandleResult() {
 		this(true);
@@ -42,4 +44,12 @@ public class HandleResult {
 	public void setData(byte[] data) {
 		this.data = data;
 	}
+	
+	public FileRegionData getFileRegion() {
+		return fileRegion;
+	}
+	
+	public void setFileRegion(FileRegionData fileRegion) {
+		this.fileRegion = fileRegion;
+	}
 }
@@ -1,5 +1,6 @@
 package com.bonree.brfs.common.net.http;
 
+import java.io.InputStream;
 import java.util.Map;
 
 public interface HttpMessage {
@@ -7,6 +8,12 @@ public interface HttpMessage {
 	String getPath();
 	//获取参数
 	Map<String, String> getParams();
-	//获取正文数据
+	//获取请求头，不存在时返回null
+	String getHeader(String name);
+	//获取正文数据，会把正文复制为字节数组
 	byte[] getContent();
+	//获取正文长度
+	int getContentLength();
+	//以流的形式读取正文数据，不会复制正文，每次调用返回一个新的流
+	InputStream getContentStream();
 }
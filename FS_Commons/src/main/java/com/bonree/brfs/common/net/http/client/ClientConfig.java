@@ -9,8 +9,14 @@ public class ClientConfig {
 	private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
 	private int bufferSize;
 	
+	private static final int DEFAULT_IDLE_TIMEOUT = 30 * 1000;
 	private int idleTimeout;
 	
+	private boolean keepAlive;
+	
+	private static final int DEFAULT_EVICT_INTERVAL = 5 * 1000;
+	private int connectionEvictInterval;
+	
 	private static final int DEFAULT_SEND_BUFFER_SIZE = 64 * 1024;
 	private int socketSendBufferSize;
 	private static final int DEFAULT_RECV_BUFFER_SIZE = 512 * 1024;
@@ -33,7 +39,9 @@ public class ClientConfig {
 		this.maxConnection = DEFAULT_MAX_CONNECTION;
 		this.maxConnectionPerRoute = DEFAULT_MAX_CONNECTION_PER_ROUTE;
 		this.bufferSize = DEFAULT_BUFFER_SIZE;
-		this.idleTimeout = 0;
+		this.idleTimeout = DEFAULT_IDLE_TIMEOUT;
+		this.keepAlive = true;
+		this.connectionEvictInterval = DEFAULT_EVICT_INTERVAL;
 		this.socketSendBufferSize = DEFAULT_SEND_BUFFER_SIZE;
 		this.socketRecvBufferSize = DEFAULT_RECV_BUFFER_SIZE;
 		this.socketTimeout = DEFAULT_SOCKET_TIMEOUT;
@@ -58,6 +66,14 @@ public class ClientConfig {
 		return idleTimeout;
 	}
 	
+	public boolean isKeepAlive() {
+		return keepAlive;
+	}
+	
+	public int getConnectionEvictInterval() {
+		return connectionEvictInterval;
+	}
+	
 	public int getSocketSendBufferSize() {
 		return socketSendBufferSize;
 	}
@@ -104,8 +120,29 @@ public class ClientConfig {
 			return this;
 		}
 		
+		/**
+		 * 设置连接池中空闲连接的保留时间，超过此时间的空闲连接会被关闭，
+		 * 默认为30秒
+		 * 
+		 * @param idleTimeout 毫秒，必须大于0
+		 * @throws IllegalArgumentException idleTimeout不大于0时
+		 */
 		public Builder setIdleTimeout(int idleTimeout) {
-			config.idleTimeout = idleTimeout > 0 ? idleTimeout : 0;
+			if(idleTimeout <= 0) {
+				throw new IllegalArgumentException("idle timeout must be positive, but got " + idleTimeout);
+			}
+			
+			config.idleTimeout = idleTimeout;
+			return this;
+		}
+		
+		public Builder setKeepAlive(boolean keepAlive) {
+			config.keepAlive = keepAlive;
+			return this;
+		}
+		
+		public Builder setConnectionEvictInterval(int evictInterval) {
+			config.connectionEvictInterval = evictInterval > 0 ? evictInterval : DEFAULT_EVICT_INTERVAL;
 			return this;
 		}
 		
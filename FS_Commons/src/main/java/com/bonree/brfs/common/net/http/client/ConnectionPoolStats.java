@@ -0,0 +1,78 @@
+package com.bonree.brfs.common.net.http.client;
+
+/**
+ * Http客户端连接池的统计信息
+ * 
+ * @author chen
+ * 
+ */
+public class ConnectionPoolStats {
+	//已发送的请求数
+	private final long requestCount;
+	//已建立的连接数
+	private final long createdConnections;
+	//正在使用的连接数
+	private final int leased;
+	//空闲可复用的连接数
+	private final int available;
+	//等待连接的请求数
+	private final int pending;
+	private final int max;
+	
+	public ConnectionPoolStats(long requestCount, long createdConnections, int leased, int available, int pending, int max) {
+		this.requestCount = requestCount;
+		this.createdConnections = createdConnections;
+		this.leased = leased;
+		this.available = available;
+		this.pending = pending;
+		this.max = max;
+	}
+	
+	public long getRequestCount() {
+		return requestCount;
+	}
+	
+	public long getCreatedConnections() {
+		return createdConnections;
+	}
+	
+	/**
+	 * 复用已有连接的请求数
+	 * 
+	 * @return
+	 */
+	public long getReusedCount() {
+		return Math.max(0, requestCount - createdConnections);
+	}
+	
+	public int getLeased() {
+		return leased;
+	}
+	
+	public int getAvailable() {
+		return available;
+	}
+	
+	public int getPending() {
+		return pending;
+	}
+	
+	public int getMax() {
+		return max;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[requests=").append(requestCount)
+		.append(", created=").append(createdConnections)
+		.append(", reused=").append(getReusedCount())
+		.append(", leased=").append(leased)
+		.append(", available=").append(available)
+		.append(", pending=").append(pending)
+		.append(", max=").append(max)
+		.append("]");
+		
+		return builder.toString();
+	}
+}
@@ -8,10 +8,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.http.ConnectionReuseStrategy;
 import org.apache.http.Consts;
 import org.apache.http.Header;
 import org.apache.http.client.methods.HttpDelete;
@@ -23,17 +27,51 @@ import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.config.ConnectionConfig;
 import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.DefaultConnectionReuseStrategy;
+import org.apache.http.impl.NoConnectionReuseStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.ManagedNHttpClientConnectionFactory;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
 import org.apache.http.impl.nio.reactor.IOReactorConfig;
 import org.apache.http.nio.client.util.HttpAsyncClientUtils;
+import org.apache.http.nio.conn.ManagedNHttpClientConnection;
+import org.apache.http.nio.conn.NHttpConnectionFactory;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bonree.brfs.common.utils.PooledThreadFactory;
 
 public class HttpClient implements Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(HttpClient.class);
+	
+	//所有客户端共用的空闲连接清理线程
+	private static final ScheduledExecutorService connectionEvictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		private final ThreadFactory factory = new PooledThreadFactory("http_connection_evictor");
+		
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = factory.newThread(r);
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
 	
 	private CloseableHttpAsyncClient client;
 	private ClientConfig clientConfig;
 	
+	private PoolingNHttpClientConnectionManager connectionManager;
+	private ScheduledFuture<?> evictFuture;
+	
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong createdConnections = new AtomicLong();
+	
 	public HttpClient() {
 		this(ClientConfig.DEFAULT);
 	}
@@ -47,7 +85,7 @@ public class HttpClient implements Closeable {
                 .build();
 		
 		IOReactorConfig ioConfig = IOReactorConfig.custom()
-				.setSoKeepAlive(false)
+				.setSoKeepAlive(clientConfig.isKeepAlive())
 				.setConnectTimeout(clientConfig.getConnectTimeout())
 				.setSndBufSize(clientConfig.getSocketSendBufferSize())
 				.setRcvBufSize(clientConfig.getSocketRecvBufferSize())
@@ -55,27 +93,30 @@ public class HttpClient implements Closeable {
 				.setTcpNoDelay(true)
 				.build();
 		
+		try {
+			connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioConfig),
+					new CountingConnectionFactory());
+		} catch (IOReactorException e) {
+			throw new IllegalStateException("can not create io reactor", e);
+		}
+		
+		connectionManager.setMaxTotal(clientConfig.getMaxConnection());
+		connectionManager.setDefaultMaxPerRoute(clientConfig.getMaxConnectionPerRoute());
+		connectionManager.setDefaultConnectionConfig(connectionConfig);
+		
 		List<Header> defaultHeaders = new ArrayList<Header>();
 //		defaultHeaders.add(new BasicHeader("Connection", "keep-alive"));
 		
 		client = HttpAsyncClientBuilder.create()
-		           .setMaxConnPerRoute(clientConfig.getMaxConnectionPerRoute())
-		           .setMaxConnTotal(clientConfig.getMaxConnection())
-		           .setDefaultConnectionConfig(connectionConfig)
-		           .setDefaultIOReactorConfig(ioConfig)
-		           .setConnectionReuseStrategy(new ConnectionReuseStrategy() {
-
-					@Override
-					public boolean keepAlive(org.apache.http.HttpResponse response, HttpContext context) {
-						return false;
-					}
-					
-				})
+		           .setConnectionManager(connectionManager)
+		           .setConnectionReuseStrategy(clientConfig.isKeepAlive() ? DefaultConnectionReuseStrategy.INSTANCE : NoConnectionReuseStrategy.INSTANCE)
 				.setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
 					
 					@Override
 					public long getKeepAliveDuration(org.apache.http.HttpResponse response, HttpContext context) {
-						return clientConfig.getIdleTimeout();
+						//优先使用服务端指定的Keep-Alive时间
+						long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+						return duration > 0 ? Math.min(duration, clientConfig.getIdleTimeout()) : clientConfig.getIdleTimeout();
 					}
 					
 				})
@@ -83,6 +124,51 @@ public class HttpClient implements Closeable {
 				.build();
 		
 		client.start();
+		
+		if(clientConfig.isKeepAlive()) {
+			int interval = clientConfig.getConnectionEvictInterval();
+			evictFuture = connectionEvictor.scheduleWithFixedDelay(new Runnable() {
+				
+				@Override
+				public void run() {
+					try {
+						//关闭过期及空闲时间过长的连接，避免复用已被服务端关闭的连接
+						connectionManager.closeExpiredConnections();
+						connectionManager.closeIdleConnections(clientConfig.getIdleTimeout(), TimeUnit.MILLISECONDS);
+					} catch (Exception e) {
+						LOG.warn("evict http connections error", e);
+					}
+				}
+			}, interval, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	/**
+	 * 获取连接池的统计信息
+	 * 
+	 * @return
+	 */
+	public ConnectionPoolStats getConnectionPoolStats() {
+		PoolStats stats = connectionManager.getTotalStats();
+		return new ConnectionPoolStats(requestCount.get(),
+				createdConnections.get(),
+				stats.getLeased(),
+				stats.getAvailable(),
+				stats.getPending(),
+				stats.getMax());
+	}
+	
+	/**
+	 * 统计新建连接数的连接工厂
+	 */
+	private class CountingConnectionFactory implements NHttpConnectionFactory<ManagedNHttpClientConnection> {
+		
+		@Override
+		public ManagedNHttpClientConnection create(IOSession session, ConnectionConfig config) {
+			createdConnections.incrementAndGet();
+			return ManagedNHttpClientConnectionFactory.INSTANCE.create(session, config);
+		}
+		
 	}
 	
 	public HttpResponse executeGet(URI uri) throws Exception {
@@ -327,6 +413,7 @@ public class HttpClient implements Closeable {
 	}
 	
 	private HttpResponse executeInner(HttpUriRequest request, long timeout, TimeUnit unit) throws Exception {
+		requestCount.incrementAndGet();
 		Future<org.apache.http.HttpResponse> future = client.execute(request, new FutureCallback<org.apache.http.HttpResponse>() {
 
 			@Override
@@ -346,6 +433,7 @@ public class HttpClient implements Closeable {
 	}
 	
 	private void executeInner(HttpUriRequest request, ResponseHandler handler) {
+		requestCount.incrementAndGet();
 		client.execute(request, new HttpResponseReceiver(handler));
 	}
 	
@@ -375,6 +463,10 @@ public class HttpClient implements Closeable {
 
 	@Override
 	public void close() throws IOException {
+		if(evictFuture != null) {
+			evictFuture.cancel(false);
+		}
+		
 		HttpAsyncClientUtils.closeQuietly(client);
 	}
 }
@@ -3,26 +3,55 @@ package com.bonree.brfs.common.net.http.netty;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
 
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bonree.brfs.common.net.http.FileRegionData;
 import com.bonree.brfs.common.net.http.HandleResult;
 import com.bonree.brfs.common.net.http.HandleResultCallback;
 import com.bonree.brfs.common.utils.BrStringUtils;
+import com.bonree.brfs.common.utils.CloseUtils;
 import com.google.common.primitives.Bytes;
 
 public class DefaultNettyHandleResultCallback implements HandleResultCallback {
+	private static final Logger LOG = LoggerFactory.getLogger(DefaultNettyHandleResultCallback.class);
+	
 	private ChannelHandlerContext context;
+	private boolean keepAlive;
 	
 	public DefaultNettyHandleResultCallback(ChannelHandlerContext ctx) {
+		this(ctx, false);
+	}
+	
+	public DefaultNettyHandleResultCallback(ChannelHandlerContext ctx, boolean keepAlive) {
 		this.context = ctx;
+		this.keepAlive = keepAlive;
 	}
 
 	@Override
 	public void completed(HandleResult result) {
+		if(result.getFileRegion() != null) {
+			if(result.isSuccess()) {
+				sendFileRegion(result.getFileRegion());
+				return;
+			}
+			
+			result.getFileRegion().release();
+		}
+		
 		HttpResponseStatus status = result.isSuccess() ? HttpResponseStatus.OK : HttpResponseStatus.INTERNAL_SERVER_ERROR;
 		
 		byte[] errorBytes = result.getCause() != null ? BrStringUtils.toUtf8Bytes(result.getCause().toString()) : new byte[0];
@@ -33,7 +62,58 @@ public class DefaultNettyHandleResultCallback implements HandleResultCallback {
 		FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, content);
         response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain");
         response.headers().set(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
-        ResponseSender.sendResponse(context, response);
+        //处理失败时关闭连接，避免客户端复用状态未知的连接
+        ResponseSender.sendResponse(context, response, keepAlive && result.isSuccess());
+	}
+	
+	private void sendFileRegion(FileRegionData region) {
+		if(region.getChannel() != null) {
+			sendSharedFileRegion(region);
+			return;
+		}
+		
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(region.getFilePath(), "r");
+			long length = Math.min(region.getLength(), Math.max(0, file.length() - region.getOffset()));
+			
+			HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+			response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain");
+			response.headers().set(HttpHeaderNames.CONTENT_LENGTH, length);
+			
+			//文件会在FileRegion释放时关闭
+			ResponseSender.sendResponse(context, response, new DefaultFileRegion(file.getChannel(), region.getOffset(), length), keepAlive);
+		} catch (IOException e) {
+			LOG.error("send file region{} error", region, e);
+			CloseUtils.closeQuietly(file);
+			ResponseSender.sendError(context, HttpResponseStatus.INTERNAL_SERVER_ERROR, e.toString());
+		}
+	}
+	
+	/**
+	 * 使用已打开的文件句柄发送数据，FileRegion释放时交还句柄而不是关闭
+	 */
+	private void sendSharedFileRegion(FileRegionData region) {
+		try {
+			FileChannel channel = region.getChannel();
+			long length = Math.min(region.getLength(), Math.max(0, channel.size() - region.getOffset()));
+			
+			HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+			response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain");
+			response.headers().set(HttpHeaderNames.CONTENT_LENGTH, length);
+			
+			ResponseSender.sendResponse(context, response, new DefaultFileRegion(channel, region.getOffset(), length) {
+				
+				@Override
+				protected void deallocate() {
+					region.release();
+				}
+			}, keepAlive);
+		} catch (IOException e) {
+			LOG.error("send file region{} error", region, e);
+			region.release();
+			ResponseSender.sendError(context, HttpResponseStatus.INTERNAL_SERVER_ERROR, e.toString());
+		}
 	}
 	
 }
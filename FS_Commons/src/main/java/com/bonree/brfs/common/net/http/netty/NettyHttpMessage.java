@@ -0,0 +1,84 @@
+package com.bonree.brfs.common.net.http.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.bonree.brfs.common.net.http.HttpMessage;
+
+/**
+ * 直接引用Netty请求正文的HttpMessage，正文保存在Netty的池化内存中，
+ * 读取正文时不需要先复制到堆内存。
+ * 
+ * 正文内存在请求处理完成后通过{@link #release()}释放
+ * 
+ * @author chen
+ * 
+ */
+public class NettyHttpMessage implements HttpMessage {
+	private final String path;
+	private final String uri;
+	private final HttpHeaders headers;
+	private final ByteBuf content;
+	
+	private volatile byte[] contentBytes;
+	private final AtomicBoolean released = new AtomicBoolean(false);
+	
+	NettyHttpMessage(String path, String uri, HttpHeaders headers, ByteBuf content) {
+		this.path = path;
+		this.uri = uri;
+		this.headers = headers;
+		this.content = content;
+	}
+	
+	@Override
+	public String getPath() {
+		return path;
+	}
+	
+	@Override
+	public Map<String, String> getParams() {
+		return HttpParamsDecoder.decodeFromUri(uri);
+	}
+	
+	@Override
+	public String getHeader(String name) {
+		return headers.get(name);
+	}
+	
+	@Override
+	public byte[] getContent() {
+		byte[] bytes = contentBytes;
+		if(bytes == null) {
+			bytes = new byte[content.readableBytes()];
+			content.getBytes(content.readerIndex(), bytes);
+			contentBytes = bytes;
+		}
+		
+		return bytes;
+	}
+	
+	@Override
+	public int getContentLength() {
+		return content.readableBytes();
+	}
+	
+	@Override
+	public InputStream getContentStream() {
+		return new ByteBufInputStream(content.duplicate());
+	}
+	
+	/**
+	 * 释放正文占用的内存，多次调用只会释放一次
+	 */
+	void release() {
+		if(released.compareAndSet(false, true)) {
+			ReferenceCountUtil.release(content);
+		}
+	}
+}
@@ -4,6 +4,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.QueryStringDecoder;
 import io.netty.util.CharsetUtil;
 
@@ -14,7 +15,8 @@ import java.util.concurrent.ExecutorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.bonree.brfs.common.net.http.HttpMessage;
+import com.bonree.brfs.common.net.http.HandleResult;
+import com.bonree.brfs.common.net.http.HandleResultCallback;
 import com.bonree.brfs.common.net.http.MessageHandler;
 
 /**
@@ -48,28 +50,9 @@ public class NettyHttpRequestHandler {
 		}
 		
 		String path = new QueryStringDecoder(request.uri(), CharsetUtil.UTF_8, true).path();
-		String uri = request.uri();
-		byte[] content = new byte[request.content().readableBytes()];
-		request.content().readBytes(content);
-		
-		HttpMessage message = new HttpMessage() {
-
-			@Override
-			public String getPath() {
-				return path;
-			}
-
-			@Override
-			public Map<String, String> getParams() {
-				return HttpParamsDecoder.decodeFromUri(uri);
-			}
-
-			@Override
-			public byte[] getContent() {
-				return content;
-			}
-			
-		};
+		boolean keepAlive = HttpUtil.isKeepAlive(request);
+		//正文直接引用请求的池化内存，处理完成后再释放
+		NettyHttpMessage message = new NettyHttpMessage(path, request.uri(), request.headers(), request.content().retain());
 		
 		executors.submit(new Runnable() {
 			
@@ -78,13 +61,23 @@ public class NettyHttpRequestHandler {
 				try {
 					if(!handler.isValidRequest(message)) {
 						LOG.error("Exception context[{}] method[{}] invalid request message[{}]", ctx.toString(), message.getPath());
+						message.release();
 						ResponseSender.sendError(ctx, HttpResponseStatus.BAD_REQUEST, HttpResponseStatus.BAD_REQUEST.reasonPhrase());
 						return;
 					}
 					
-					handler.handle(message, new DefaultNettyHandleResultCallback(ctx));
+					HandleResultCallback callback = new DefaultNettyHandleResultCallback(ctx, keepAlive);
+					handler.handle(message, new HandleResultCallback() {
+						
+						@Override
+						public void completed(HandleResult result) {
+							message.release();
+							callback.completed(result);
+						}
+					});
 				} catch (Exception e) {
 					LOG.error("message handle error", e);
+					message.release();
 					ResponseSender.sendError(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR, e.toString());
 				}
 			}
@@ -1,14 +1,18 @@
 package com.bonree.brfs.common.net.http.netty;
 
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.FileRegion;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
 
 import com.bonree.brfs.common.utils.BrStringUtils;
 
@@ -29,6 +33,46 @@ public class ResponseSender {
 	}
 	
 	public static void sendResponse(ChannelHandlerContext ctx, HttpResponse response) {
-		ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+		sendResponse(ctx, response, false);
+	}
+	
+	/**
+	 * 发送响应，keepAlive为true时发送完成后保留连接以供客户端复用
+	 * 
+	 * @param ctx
+	 * @param response
+	 * @param keepAlive
+	 */
+	public static void sendResponse(ChannelHandlerContext ctx, HttpResponse response, boolean keepAlive) {
+		setConnectionHeader(response, keepAlive);
+		closeIfNeeded(ctx.writeAndFlush(response), keepAlive);
+	}
+	
+	/**
+	 * 发送以文件区域为内容的响应，文件数据直接从文件发送到网络
+	 * 
+	 * @param ctx
+	 * @param response 响应头，需要设置Content-Length
+	 * @param region 响应内容
+	 */
+	public static void sendResponse(ChannelHandlerContext ctx, HttpResponse response, FileRegion region) {
+		sendResponse(ctx, response, region, false);
+	}
+	
+	public static void sendResponse(ChannelHandlerContext ctx, HttpResponse response, FileRegion region, boolean keepAlive) {
+		setConnectionHeader(response, keepAlive);
+		ctx.write(response);
+		ctx.write(region);
+		closeIfNeeded(ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT), keepAlive);
+	}
+	
+	private static void setConnectionHeader(HttpResponse response, boolean keepAlive) {
+		response.headers().set(HttpHeaderNames.CONNECTION, keepAlive ? HttpHeaderValues.KEEP_ALIVE : HttpHeaderValues.CLOSE);
+	}
+	
+	private static void closeIfNeeded(ChannelFuture future, boolean keepAlive) {
+		if(!keepAlive) {
+			future.addListener(ChannelFutureListener.CLOSE);
+		}
 	}
 }
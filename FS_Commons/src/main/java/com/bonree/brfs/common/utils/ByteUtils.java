@@ -1,5 +1,6 @@
 package com.bonree.brfs.common.utils;
 
+import java.nio.ByteBuffer;
 import java.util.zip.CRC32;
 
 public final class ByteUtils {;
@@ -14,4 +15,15 @@ public final class ByteUtils {;
 		
 		return crc32.getValue();
 	}
+	
+	public static long crc(ByteBuffer buf, int offset, int length) {
+		ByteBuffer data = buf.duplicate();
+		data.limit(offset + length);
+		data.position(offset);
+		
+		CRC32 crc32 = new CRC32();
+		crc32.update(data);
+		
+		return crc32.getValue();
+	}
 }
@@ -19,6 +19,9 @@ public final class DiskNodeConfigs {
 			ConfigUnit.ofString("disknode.data.root",
 					new File(System.getProperty(SystemProperties.PROP_BRFS_HOME, "."), "datas").getAbsolutePath());
 	
+	public static final ConfigUnit<String> CONFIG_DATA_EXTRA_ROOTS =
+			ConfigUnit.ofString("disknode.data.extra.roots", "");
+			
 	public static final ConfigUnit<Integer> CONFIG_WRITER_WORKER_NUM =
 			ConfigUnit.ofInt("disknode.writer.worker.num", Runtime.getRuntime().availableProcessors());
 	
@@ -28,11 +31,35 @@ public final class DiskNodeConfigs {
 	public static final ConfigUnit<Integer> CONFIG_WRITER_RECORD_CACHE_SIZE =
 			ConfigUnit.ofInt("disknode.writer.record.cache", 64 * 1024);
 	
+	public static final ConfigUnit<Boolean> CONFIG_WRITER_GROUP_COMMIT =
+			ConfigUnit.ofBoolean("disknode.writer.group.commit", false);
+			
 	public static final ConfigUnit<Integer> CONFIG_FILE_FLUSH_TIMEOUT =
 			ConfigUnit.ofInt("disknode.file.idle.timeout.seconds", 3);
 	
+	public static final ConfigUnit<Boolean> CONFIG_READ_ZERO_COPY =
+			ConfigUnit.ofBoolean("disknode.reader.zero.copy", true);
+			
+	public static final ConfigUnit<Long> CONFIG_READ_CACHE_SIZE =
+			ConfigUnit.ofLong("disknode.reader.cache.size", 128 * 1024 * 1024L);
+			
+	public static final ConfigUnit<Integer> CONFIG_READ_CACHE_BLOCK_SIZE =
+			ConfigUnit.ofInt("disknode.reader.cache.block.size", 64 * 1024);
+			
+	public static final ConfigUnit<Integer> CONFIG_READ_OPEN_FILES =
+			ConfigUnit.ofInt("disknode.reader.open.files", 1024);
+			
+	public static final ConfigUnit<Integer> CONFIG_READ_OPEN_FILES_IDLE_SECONDS =
+			ConfigUnit.ofInt("disknode.reader.open.files.idle.seconds", 60);
+			
 	public static final ConfigUnit<Integer> CONFIG_REQUEST_HANDLER_NUM =
 			ConfigUnit.ofInt("disknode.request.handler.num", Runtime.getRuntime().availableProcessors());
+			
+	public static final ConfigUnit<Boolean> CONFIG_TCP_ENABLE =
+			ConfigUnit.ofBoolean("disknode.tcp.enable", false);
+			
+	public static final ConfigUnit<Integer> CONFIG_TCP_PORT_OFFSET =
+			ConfigUnit.ofInt("disknode.tcp.port.offset", 10);
 
 	private DiskNodeConfigs() {}
 }
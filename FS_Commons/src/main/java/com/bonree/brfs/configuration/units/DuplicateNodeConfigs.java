@@ -38,9 +38,24 @@ public final class DuplicateNodeConfigs {
 	public static final ConfigUnit<Long> CONFIG_FILE_PATITION_INTERVAL_MINUTES =
 			ConfigUnit.ofLong("duplicatenode.file.patition.interval.minutes", 60);
 	
-	public static final ConfigUnit<Integer> CONFIG_WRITER_CONCURRENT_FILE_NUM =
-			ConfigUnit.ofInt("duplicatenode.writer.concurrent.file.num", Runtime.getRuntime().availableProcessors() / 2);
-	
+	public static final ConfigUnit<Integer> CONFIG_FILE_PREALLOCATE_COUNT =
+			ConfigUnit.ofInt("duplicatenode.file.preallocate.count", 2);
+			
+	public static final ConfigUnit<Integer> CONFIG_FILE_PREALLOCATE_THREADS =
+			ConfigUnit.ofInt("duplicatenode.file.preallocate.threads", 2);
+			
+	public static final ConfigUnit<Integer> CONFIG_FILE_TRANSFER_THREADS =
+			ConfigUnit.ofInt("duplicatenode.file.transfer.threads", 4);
+			
+	public static final ConfigUnit<Integer> CONFIG_FILE_TRANSFER_BATCH_SIZE =
+			ConfigUnit.ofInt("duplicatenode.file.transfer.batch.size", 64);
+			
+	public static final ConfigUnit<Integer> CONFIG_FILE_SYNC_THREADS =
+			ConfigUnit.ofInt("duplicatenode.file.sync.threads", 4);
+			
+	public static final ConfigUnit<Integer> CONFIG_FILE_SYNC_NODE_CONCURRENCY =
+			ConfigUnit.ofInt("duplicatenode.file.sync.node.concurrency", 2);
+			
 	public static final ConfigUnit<Integer> CONFIG_WRITER_WORKER_NUM =
 			ConfigUnit.ofInt("duplicatenode.writer.worker.num", Runtime.getRuntime().availableProcessors());
 	
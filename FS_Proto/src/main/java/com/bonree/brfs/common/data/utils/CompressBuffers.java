@@ -0,0 +1,38 @@
+package com.bonree.brfs.common.data.utils;
+
+import java.util.Arrays;
+
+/**
+ * 压缩时使用的线程私有缓存
+ * 
+ * @author yupeng
+ * 
+ */
+class CompressBuffers {
+    //超过此大小的缓存不保存，防止个别大数据长期占用内存
+    private static final int MAX_CACHED_SIZE = 4 * 1024 * 1024;
+
+    static byte[] get(ThreadLocal<byte[]> local, int size) {
+        byte[] buffer = local.get();
+        if (buffer != null && buffer.length >= size) {
+            return buffer;
+        }
+        buffer = new byte[size];
+        if (size <= MAX_CACHED_SIZE) {
+            local.set(buffer);
+        }
+        return buffer;
+    }
+
+    static int[] get(ThreadLocal<int[]> local, int size, int fill) {
+        int[] table = local.get();
+        if (table == null || table.length < size) {
+            table = new int[size];
+            local.set(table);
+        }
+        Arrays.fill(table, 0, size, fill);
+        return table;
+    }
+
+    private CompressBuffers() {}
+}
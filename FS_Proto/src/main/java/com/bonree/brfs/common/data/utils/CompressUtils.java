@@ -0,0 +1,155 @@
+package com.bonree.brfs.common.data.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 数据压缩方式，取值与FileContent和Fid中的compress字段一致
+ * 
+ * @author yupeng
+ * 
+ */
+public class CompressUtils {
+    public static final int NONE = 0;
+    public static final int GZIP = 1;
+    public static final int SNAPPY = 2;
+    public static final int LZ4 = 3;
+
+    private static final String[] NAMES = { "none", "gzip", "snappy", "lz4" };
+
+    public static boolean isValid(int compress) {
+        return compress >= NONE && compress <= LZ4;
+    }
+
+    /**
+     * 概述：解析压缩方式，支持名称（如snappy）和数字
+     * @param value
+     * @return 无法解析时返回-1
+     */
+    public static int parse(String value) {
+        if (value == null) {
+            return -1;
+        }
+        String name = value.trim().toLowerCase();
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        try {
+            int compress = Integer.parseInt(name);
+            return isValid(compress) ? compress : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public static String nameOf(int compress) {
+        return isValid(compress) ? NAMES[compress] : String.valueOf(compress);
+    }
+
+    /**
+     * 概述：按指定方式压缩数据
+     * @param compress 压缩方式
+     * @param data
+     * @return
+     * @throws Exception
+     */
+    public static byte[] compress(int compress, byte[] data) throws Exception {
+        switch (compress) {
+        case NONE:
+            return data;
+        case GZIP:
+            return GZipUtils.compress(data);
+        case SNAPPY:
+            return SnappyUtils.compress(data);
+        case LZ4:
+            return LZ4Utils.compress(data);
+        default:
+            throw new IllegalArgumentException("unknown compress type[" + compress + "]");
+        }
+    }
+
+    /**
+     * 概述：按指定方式压缩数据，snappy和lz4的结果保存在线程私有的缓存中，
+     * 返回的数据在当前线程下一次调用此方法前有效
+     * @param compress 压缩方式
+     * @param data
+     * @param offset
+     * @param length
+     * @return
+     * @throws Exception
+     */
+    public static ByteBuffer compressToBuffer(int compress, byte[] data, int offset, int length) throws Exception {
+        switch (compress) {
+        case NONE:
+            return ByteBuffer.wrap(data, offset, length);
+        case GZIP:
+            return ByteBuffer.wrap(GZipUtils.compress(Arrays.copyOfRange(data, offset, offset + length)));
+        case SNAPPY:
+            return SnappyUtils.compressToBuffer(data, offset, length);
+        case LZ4:
+            return LZ4Utils.compressToBuffer(data, offset, length);
+        default:
+            throw new IllegalArgumentException("unknown compress type[" + compress + "]");
+        }
+    }
+
+    /**
+     * 概述：按指定方式解压数据
+     * @param compress 压缩方式
+     * @param data
+     * @return
+     * @throws Exception
+     */
+    public static byte[] decompress(int compress, byte[] data) throws Exception {
+        switch (compress) {
+        case NONE:
+            return data;
+        case GZIP:
+            return GZipUtils.decompress(data);
+        case SNAPPY:
+            return SnappyUtils.decompress(data);
+        case LZ4:
+            return LZ4Utils.decompress(data);
+        default:
+            throw new IllegalArgumentException("unknown compress type[" + compress + "]");
+        }
+    }
+
+    /**
+     * 概述：按指定方式解压ByteBuffer中剩余的数据，不改变ByteBuffer的位置
+     * @param compress 压缩方式
+     * @param data
+     * @return
+     * @throws Exception
+     */
+    public static byte[] decompress(int compress, ByteBuffer data) throws Exception {
+        byte[] bytes;
+        int offset;
+        if (data.hasArray()) {
+            bytes = data.array();
+            offset = data.arrayOffset() + data.position();
+        } else {
+            bytes = new byte[data.remaining()];
+            data.duplicate().get(bytes);
+            offset = 0;
+        }
+        int length = data.remaining();
+
+        switch (compress) {
+        case NONE:
+            return Arrays.copyOfRange(bytes, offset, offset + length);
+        case GZIP:
+            return GZipUtils.decompress(Arrays.copyOfRange(bytes, offset, offset + length));
+        case SNAPPY:
+            return SnappyUtils.decompress(bytes, offset, length);
+        case LZ4:
+            return LZ4Utils.decompress(bytes, offset, length);
+        default:
+            throw new IllegalArgumentException("unknown compress type[" + compress + "]");
+        }
+    }
+
+    private CompressUtils() {}
+}
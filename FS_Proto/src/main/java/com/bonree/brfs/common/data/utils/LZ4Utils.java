@@ -0,0 +1,290 @@
+package com.bonree.brfs.common.data.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * LZ4压缩工具类
+ * 
+ * 压缩结果为4字节的原始数据长度（大端）加上标准的LZ4 block格式数据，
+ * 压缩使用线程私有的哈希表和输出缓存，不会在每次压缩时分配临时内存
+ * 
+ * @author yupeng
+ * 
+ */
+public class LZ4Utils {
+    private static final int LENGTH_SIZE = 4;
+
+    private static final int MIN_MATCH = 4;
+    //最后5个字节必须是literal
+    private static final int LAST_LITERALS = 5;
+    //最后一个match的起始位置距离数据结尾至少12个字节
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_DISTANCE = 65535;
+    //连续找不到match时逐渐增大查找步长，加快不可压缩数据的处理
+    private static final int SKIP_STRENGTH = 6;
+
+    private static final int HASH_LOG = 12;
+    private static final int HASH_TABLE_SIZE = 1 << HASH_LOG;
+
+    private static final int ML_BITS = 4;
+    private static final int ML_MASK = (1 << ML_BITS) - 1;
+    private static final int RUN_MASK = ML_MASK;
+
+    private static final ThreadLocal<int[]> HASH_TABLE = new ThreadLocal<int[]>();
+    private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>();
+
+    /**
+     * 压缩后的最大长度，不包括原始长度字段
+     *
+     * @param length
+     * @return
+     */
+    public static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * 数据压缩
+     *
+     * @param data
+     * @return
+     */
+    public static byte[] compress(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        ByteBuffer buffer = compressToBuffer(data, 0, data.length);
+        return Arrays.copyOf(buffer.array(), buffer.remaining());
+    }
+
+    /**
+     * 压缩数据到线程私有的缓存中，返回的数据在当前线程下一次压缩前有效
+     *
+     * @param data
+     * @param offset
+     * @param length
+     * @return
+     */
+    static ByteBuffer compressToBuffer(byte[] data, int offset, int length) {
+        byte[] buffer = CompressBuffers.get(BUFFER, LENGTH_SIZE + maxCompressedLength(length));
+        writeInt(buffer, 0, length);
+        int compressedLength = compress(data, offset, length, buffer, LENGTH_SIZE);
+        return ByteBuffer.wrap(buffer, 0, LENGTH_SIZE + compressedLength);
+    }
+
+    /**
+     * 数据解压缩
+     *
+     * @param data
+     * @return
+     * @throws Exception
+     */
+    public static byte[] decompress(byte[] data) throws Exception {
+        if (data == null) {
+            return null;
+        }
+        return decompress(data, 0, data.length);
+    }
+
+    public static byte[] decompress(byte[] data, int offset, int length) throws Exception {
+        if (length < LENGTH_SIZE) {
+            throw new IllegalArgumentException("lz4 data is too short");
+        }
+        byte[] result = new byte[readInt(data, offset)];
+        decompress(data, offset + LENGTH_SIZE, length - LENGTH_SIZE, result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * 把数据压缩为LZ4 block格式，输出空间至少为{@link #maxCompressedLength(int)}
+     *
+     * @return 压缩后的数据长度
+     */
+    public static int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff) {
+        final int srcEnd = srcOff + srcLen;
+        final int matchLimit = srcEnd - LAST_LITERALS;
+        final int mfLimit = srcEnd - MF_LIMIT;
+
+        int dp = destOff;
+        int anchor = srcOff;
+
+        if (srcLen > MF_LIMIT) {
+            int[] table = CompressBuffers.get(HASH_TABLE, HASH_TABLE_SIZE, -1);
+
+            int ip = srcOff;
+            int searchCount = 1 << SKIP_STRENGTH;
+            while (ip < mfLimit) {
+                int sequence = readIntLE(src, ip);
+                int h = hash(sequence);
+                int ref = table[h];
+                table[h] = ip;
+
+                if (ref < 0 || ip - ref > MAX_DISTANCE || readIntLE(src, ref) != sequence) {
+                    ip += searchCount++ >>> SKIP_STRENGTH;
+                    continue;
+                }
+
+                //向前扩展match
+                while (ip > anchor && ref > srcOff && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+
+                //向后扩展match
+                int matchLen = MIN_MATCH;
+                while (ip + matchLen < matchLimit && src[ip + matchLen] == src[ref + matchLen]) {
+                    matchLen++;
+                }
+
+                dp = writeSequence(src, anchor, ip - anchor, ip - ref, matchLen, dest, dp);
+                ip += matchLen;
+                anchor = ip;
+                searchCount = 1 << SKIP_STRENGTH;
+            }
+        }
+
+        //剩余的数据全部作为literal
+        return writeLastLiterals(src, anchor, srcEnd - anchor, dest, dp) - destOff;
+    }
+
+    /**
+     * 解压LZ4 block格式的数据
+     *
+     * @return 解压后的数据长度
+     */
+    public static int decompress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int destLen) {
+        final int srcEnd = srcOff + srcLen;
+        final int destEnd = destOff + destLen;
+
+        int sp = srcOff;
+        int dp = destOff;
+        while (sp < srcEnd) {
+            int token = src[sp++] & 0xFF;
+
+            int literalLen = token >>> ML_BITS;
+            if (literalLen == RUN_MASK) {
+                int b;
+                do {
+                    checkRange(sp < srcEnd);
+                    b = src[sp++] & 0xFF;
+                    literalLen += b;
+                } while (b == 255);
+            }
+
+            checkRange(sp + literalLen <= srcEnd && dp + literalLen <= destEnd);
+            System.arraycopy(src, sp, dest, dp, literalLen);
+            sp += literalLen;
+            dp += literalLen;
+
+            if (sp == srcEnd) {
+                //最后一个sequence只有literal
+                break;
+            }
+
+            checkRange(sp + 2 <= srcEnd);
+            int offset = (src[sp] & 0xFF) | ((src[sp + 1] & 0xFF) << 8);
+            sp += 2;
+            checkRange(offset > 0 && dp - offset >= destOff);
+
+            int matchLen = token & ML_MASK;
+            if (matchLen == ML_MASK) {
+                int b;
+                do {
+                    checkRange(sp < srcEnd);
+                    b = src[sp++] & 0xFF;
+                    matchLen += b;
+                } while (b == 255);
+            }
+            matchLen += MIN_MATCH;
+
+            checkRange(dp + matchLen <= destEnd);
+            int ref = dp - offset;
+            if (offset >= matchLen) {
+                System.arraycopy(dest, ref, dest, dp, matchLen);
+                dp += matchLen;
+            } else {
+                //match与输出重叠，需要逐字节复制
+                for (int i = 0; i < matchLen; i++) {
+                    dest[dp++] = dest[ref++];
+                }
+            }
+        }
+
+        checkRange(dp == destEnd);
+        return dp - destOff;
+    }
+
+    private static int writeSequence(byte[] src, int literalOff, int literalLen, int offset, int matchLen, byte[] dest, int dp) {
+        int tokenPos = dp++;
+        int token = 0;
+
+        if (literalLen >= RUN_MASK) {
+            token = RUN_MASK << ML_BITS;
+            dp = writeLength(literalLen - RUN_MASK, dest, dp);
+        } else {
+            token = literalLen << ML_BITS;
+        }
+        System.arraycopy(src, literalOff, dest, dp, literalLen);
+        dp += literalLen;
+
+        dest[dp++] = (byte) offset;
+        dest[dp++] = (byte) (offset >>> 8);
+
+        int matchCode = matchLen - MIN_MATCH;
+        if (matchCode >= ML_MASK) {
+            token |= ML_MASK;
+            dp = writeLength(matchCode - ML_MASK, dest, dp);
+        } else {
+            token |= matchCode;
+        }
+
+        dest[tokenPos] = (byte) token;
+        return dp;
+    }
+
+    private static int writeLastLiterals(byte[] src, int literalOff, int literalLen, byte[] dest, int dp) {
+        if (literalLen >= RUN_MASK) {
+            dest[dp++] = (byte) (RUN_MASK << ML_BITS);
+            dp = writeLength(literalLen - RUN_MASK, dest, dp);
+        } else {
+            dest[dp++] = (byte) (literalLen << ML_BITS);
+        }
+        System.arraycopy(src, literalOff, dest, dp, literalLen);
+        return dp + literalLen;
+    }
+
+    private static int writeLength(int length, byte[] dest, int dp) {
+        while (length >= 255) {
+            dest[dp++] = (byte) 255;
+            length -= 255;
+        }
+        dest[dp++] = (byte) length;
+        return dp;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static int readIntLE(byte[] buf, int pos) {
+        return (buf[pos] & 0xFF) | ((buf[pos + 1] & 0xFF) << 8) | ((buf[pos + 2] & 0xFF) << 16) | ((buf[pos + 3] & 0xFF) << 24);
+    }
+
+    private static int readInt(byte[] buf, int pos) {
+        return ((buf[pos] & 0xFF) << 24) | ((buf[pos + 1] & 0xFF) << 16) | ((buf[pos + 2] & 0xFF) << 8) | (buf[pos + 3] & 0xFF);
+    }
+
+    private static void writeInt(byte[] buf, int pos, int value) {
+        buf[pos] = (byte) (value >>> 24);
+        buf[pos + 1] = (byte) (value >>> 16);
+        buf[pos + 2] = (byte) (value >>> 8);
+        buf[pos + 3] = (byte) value;
+    }
+
+    private static void checkRange(boolean valid) {
+        if (!valid) {
+            throw new IllegalArgumentException("malformed lz4 data");
+        }
+    }
+}
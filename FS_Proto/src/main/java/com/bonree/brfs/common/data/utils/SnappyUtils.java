@@ -0,0 +1,64 @@
+package com.bonree.brfs.common.data.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.iq80.snappy.Snappy;
+
+/**
+ * snappy压缩工具类
+ * 
+ * 压缩时先写入线程私有的缓存中，再复制出实际长度的数据，避免每次压缩都分配最大长度的数组
+ * 
+ * @author yupeng
+ * 
+ */
+public class SnappyUtils {
+    private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>();
+
+    /**
+     * 数据压缩
+     *
+     * @param data
+     * @return
+     */
+    public static byte[] compress(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        ByteBuffer buffer = compressToBuffer(data, 0, data.length);
+        return Arrays.copyOf(buffer.array(), buffer.remaining());
+    }
+
+    /**
+     * 压缩数据到线程私有的缓存中，返回的数据在当前线程下一次压缩前有效
+     *
+     * @param data
+     * @param offset
+     * @param length
+     * @return
+     */
+    static ByteBuffer compressToBuffer(byte[] data, int offset, int length) {
+        byte[] buffer = CompressBuffers.get(BUFFER, Snappy.maxCompressedLength(length));
+        int compressedLength = Snappy.compress(data, offset, length, buffer, 0);
+        return ByteBuffer.wrap(buffer, 0, compressedLength);
+    }
+
+    /**
+     * 数据解压缩
+     *
+     * @param data
+     * @return
+     * @throws Exception
+     */
+    public static byte[] decompress(byte[] data) throws Exception {
+        if (data == null) {
+            return null;
+        }
+        return decompress(data, 0, data.length);
+    }
+
+    public static byte[] decompress(byte[] data, int offset, int length) throws Exception {
+        return Snappy.uncompress(data, offset, length);
+    }
+}
@@ -0,0 +1,19 @@
+package com.bonree.brfs.common.read.data;
+
+/**
+ * 发送给磁盘节点的批量读取请求
+ * 
+ * @author yupeng
+ * 
+ */
+public class BatchReadMessage {
+	private ReadItem[] items;
+	
+	public ReadItem[] getItems() {
+		return items;
+	}
+	
+	public void setItems(ReadItem[] items) {
+		this.items = items;
+	}
+}
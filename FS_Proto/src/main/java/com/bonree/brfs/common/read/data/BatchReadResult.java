@@ -0,0 +1,76 @@
+package com.bonree.brfs.common.read.data;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 批量读取结果的编解码
+ * 
+ * 结果按请求的顺序排列，每条结果为4个字节的长度加上数据内容，
+ * 读取失败的结果长度为-1，没有数据内容
+ * 
+ * @author yupeng
+ * 
+ */
+public final class BatchReadResult {
+	private static final int FAILED = -1;
+	
+	private BatchReadResult() {
+	}
+	
+	/**
+	 * 编码读取结果
+	 * 
+	 * @param results 读取失败的结果为null
+	 * @return
+	 */
+	public static byte[] encode(byte[][] results) {
+		int length = 0;
+		for(byte[] result : results) {
+			length += 4 + (result == null ? 0 : result.length);
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		for(byte[] result : results) {
+			if(result == null) {
+				buffer.putInt(FAILED);
+				continue;
+			}
+			
+			buffer.putInt(result.length);
+			buffer.put(result);
+		}
+		
+		return buffer.array();
+	}
+	
+	/**
+	 * 解码读取结果
+	 * 
+	 * @param bytes
+	 * @param count 请求的数量
+	 * @return 读取失败的结果为null
+	 */
+	public static byte[][] decode(byte[] bytes, int count) {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		byte[][] results = new byte[count][];
+		for(int i = 0; i < count; i++) {
+			if(buffer.remaining() < 4) {
+				throw new IllegalArgumentException("result of item[" + i + "] is missing");
+			}
+			
+			int length = buffer.getInt();
+			if(length == FAILED) {
+				continue;
+			}
+			
+			if(length < 0 || length > buffer.remaining()) {
+				throw new IllegalArgumentException("illegal result length[" + length + "] of item[" + i + "]");
+			}
+			
+			results[i] = new byte[length];
+			buffer.get(results[i]);
+		}
+		
+		return results;
+	}
+}
@@ -0,0 +1,47 @@
+package com.bonree.brfs.common.read.data;
+
+/**
+ * 批量读取中的一条读取请求
+ * 
+ * @author yupeng
+ * 
+ */
+public class ReadItem {
+	//数据文件的逻辑路径
+	private String filePath;
+	private long offset;
+	private int size;
+	
+	public ReadItem() {
+	}
+	
+	public ReadItem(String filePath, long offset, int size) {
+		this.filePath = filePath;
+		this.offset = offset;
+		this.size = size;
+	}
+	
+	public String getFilePath() {
+		return filePath;
+	}
+	
+	public void setFilePath(String filePath) {
+		this.filePath = filePath;
+	}
+	
+	public long getOffset() {
+		return offset;
+	}
+	
+	public void setOffset(long offset) {
+		this.offset = offset;
+	}
+	
+	public int getSize() {
+		return size;
+	}
+	
+	public void setSize(int size) {
+		this.size = size;
+	}
+}
@@ -1,5 +1,7 @@
 package com.bonree.brfs.common.write.data;
 
+import java.nio.ByteBuffer;
+
 /**
  * *****************************************************************************
  * 版权信息：博睿宏远科技发展有限公司
@@ -80,15 +82,12 @@ public class FSCode {
      * @user <a href=mailto:zhangnl@bonree.com>张念礼</a>
      */
     public static String ByteToHex(byte[] bytes, int pos, int length) {
-        String hex = "";
-        int totalLength = pos + length;
-        for (int i = pos; i < totalLength; i++) {
-            int high = (bytes[i] & 0xF0) >> 4;
-            int low = bytes[i] & 0x0F;
-            hex += String.valueOf(hexStr.charAt(high)); // 字节高4位
-            hex += String.valueOf(hexStr.charAt(low)); // 字节低4位
+        char[] hex = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            hex[2 * i] = hexStr.charAt((bytes[pos + i] & 0xF0) >> 4); // 字节高4位
+            hex[2 * i + 1] = hexStr.charAt(bytes[pos + i] & 0x0F); // 字节低4位
         }
-        return hex;
+        return new String(hex);
     }
 
     /**
@@ -200,6 +199,63 @@ public class FSCode {
         return count;
     }
 
+    /**
+     * 概述：moreFlag编码后占用的字节数
+     * @param value 要编码的数字
+     * @param length moreflag后面可以表示其长度的位数
+     * @return
+     */
+    public static int moreFlagSize(long value, int length) {
+        int size = 1;
+        long limit = 1L << length;
+        while (value >= limit) {
+            size++;
+            limit <<= 7;
+        }
+        return size;
+    }
+
+    /**
+     * 概述：moreFlag编码，直接写入ByteBuffer的当前位置，格式与{@link #moreFlagEncoder(long, int)}一致
+     * @param dest 目标ByteBuffer
+     * @param value 要编码的数字
+     * @param length moreflag后面可以表示其长度的位数
+     */
+    public static void moreFlagEncoder(ByteBuffer dest, long value, int length) {
+        int count = moreFlagSize(value, length) - 1;
+        if (count == 0) {
+            dest.put((byte) value);
+            return;
+        }
+        dest.put((byte) ((1 << length) | (value >> (count * 7))));
+        for (int i = count - 1; i > 0; i--) {
+            dest.put((byte) (0x80 | ((value >> (i * 7)) & 0x7F)));
+        }
+        dest.put((byte) (value & 0x7F));
+    }
+
+    /**
+     * 概述：moreFlag解码，从ByteBuffer的当前位置读取并移动位置
+     * @param src 源ByteBuffer
+     * @param length moreflag后面可以表示其长度的位数
+     * @return
+     */
+    public static long moreFlagDecoder(ByteBuffer src, int length) {
+        int first = src.get() & 0xFF;
+        long value = first & ((1 << length) - 1);
+        if (((first >> length) & 0x01) == 0) {
+            return value;
+        }
+        while (src.hasRemaining()) {
+            int temp = src.get() & 0xFF;
+            value = (value << 7) | (temp & 0x7F);
+            if (temp >> 7 == 0) {
+                break;
+            }
+        }
+        return value;
+    }
+
     /**
      * 概述：合并数组
      * @param src 待合并的数组集合
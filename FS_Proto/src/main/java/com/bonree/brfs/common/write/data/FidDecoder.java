@@ -1,6 +1,5 @@
 package com.bonree.brfs.common.write.data;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import com.bonree.brfs.common.data.utils.Base64;
@@ -36,7 +35,7 @@ public class FidDecoder {
             fid.setUuid(uuid(bytes));
             fid.setOffset(offset(bytes));
             fid.setSize(size(bytes));
-            fid.addAllServerId(serverId(bytes));
+            serverId(bytes, fid);
         }
         return fid.build();
     }
@@ -123,19 +122,28 @@ public class FidDecoder {
      * @user <a href=mailto:zhangnl@bonree.com>张念礼</a>
      */
     public static List<Integer> serverId(byte[] bytes) {
+        Fid.Builder fid = Fid.newBuilder();
+        serverId(bytes, fid);
+        return fid.getServerIdList();
+    }
+
+    /**
+     * 概述：解码serverId，直接添加到Fid中
+     * @param bytes
+     * @param fid
+     */
+    private static void serverId(byte[] bytes, Fid.Builder fid) {
         int temp = 0;
-        List<Integer> sidList = new ArrayList<Integer>();
         for (int i = 33; i < bytes.length; i++) {
             int sid = bytes[i] & 0xFF;
             if (sid >> 7 == 0) {
                 temp <<= 7;
-                sidList.add(temp | (sid & 0x7F));
+                fid.addServerId(temp | (sid & 0x7F));
                 temp = 0;
             } else {
                 temp = sid & 0x7F;
             }
         }
-        return sidList;
     }
 
 }
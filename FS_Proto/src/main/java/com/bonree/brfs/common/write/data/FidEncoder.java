@@ -1,7 +1,5 @@
 package com.bonree.brfs.common.write.data;
 
-import java.util.List;
-
 import com.bonree.brfs.common.data.utils.Base64;
 import com.bonree.brfs.common.proto.FileDataProtos.Fid;
 import com.bonree.brfs.common.proto.ReturnCodeProtos.ReturnCodeEnum;
@@ -26,142 +24,130 @@ public class FidEncoder {
      * @user <a href=mailto:zhangnl@bonree.com>张念礼</a>
      */
     public static String build(Fid fid) throws Exception {
-        ReturnCodeEnum valicateCode = validate(fid);
+        int[] serverIds = new int[fid.getServerIdCount()];
+        for (int i = 0; i < serverIds.length; i++) {
+            serverIds[i] = fid.getServerId(i);
+        }
+
+        ReturnCodeEnum valicateCode = validate(fid.getVersion(), fid.getCompress(), fid.getStorageNameCode(), fid.getUuid(), fid.getTime(), serverIds);
+        if (ReturnCodeEnum.SUCCESS.equals(valicateCode)) {
+            valicateCode = validate(fid.getOffset(), fid.getSize());
+        }
         if (!ReturnCodeEnum.SUCCESS.equals(valicateCode)) {
             throw new Exception("Fid encoder failed! " + valicateCode);
         }
-        byte[] header = header(fid.getVersion(), fid.getCompress());
-        byte[] storageName = storageName(fid.getStorageNameCode());
-        byte[] uuid = uuid(fid.getUuid());
-        byte[] time = time(fid.getTime() / 1000 / 60);
-        byte[] offset = offset(fid.getOffset());
-        byte[] size = size(fid.getSize());
-        byte[] serverId = serverId(fid.getServerIdList());
-        // 封装fid
-        byte[] fidByte = FSCode.addBytes(FSCode.start, header, storageName, uuid, time, offset, size, serverId, FSCode.tail);
+
+        // 直接按顺序写入fid的各个字段
+        byte[] fidByte = new byte[length(fid.getUuid(), serverIds)];
+        int offsetPos = writeHeader(fidByte, fid.getVersion(), fid.getCompress(), fid.getStorageNameCode(), fid.getUuid(), fid.getTime());
+        writeLong(fidByte, offsetPos, fid.getOffset(), 4); // 定长4字节
+        writeLong(fidByte, offsetPos + 4, fid.getSize(), 4); // 定长4字节
+        writeServerIds(fidByte, offsetPos + 8, serverIds);
         return Base64.encodeToString(fidByte, Base64.DEFAULT);
     }
 
     /**
-     * 概述：fid相关属性验证
-     * @param fid
+     * 概述：除offset和size以外的fid属性验证
      * @return
      * @user <a href=mailto:zhangnl@bonree.com>张念礼</a>
      */
-    private static ReturnCodeEnum validate(Fid fid) {
-        if (fid.getVersion() < 0 || fid.getVersion() > 7) { // version取值范围0~7
+    static ReturnCodeEnum validate(int version, int compress, long storageNameCode, String uuid, long time, int[] serverIds) {
+        if (version < 0 || version > 7) { // version取值范围0~7
             return ReturnCodeEnum.FID_VERSION_ERROR;
         }
-        if (fid.getCompress() < 0 || fid.getCompress() > 3) { // compress取值范围0~3
+        if (compress < 0 || compress > 3) { // compress取值范围0~3
             return ReturnCodeEnum.FID_COMPRESS_ERROR;
         }
-        if (fid.getStorageNameCode() < 0 || fid.getStorageNameCode() > 65535) { // storageNameCode取值范围0~65535
+        if (storageNameCode < 0 || storageNameCode > 65535) { // storageNameCode取值范围0~65535
             return ReturnCodeEnum.FID_STORAGE_NAME_CODE_ERROR;
         }
-        if (fid.getUuid() == null || fid.getUuid().length() > 32 || fid.getUuid().length() % 2 != 0) { // uuid长度为32字节
+        if (uuid == null || uuid.length() > 32 || uuid.length() % 2 != 0) { // uuid长度为32字节
             return ReturnCodeEnum.FID_UUID_ERROR;
         }
-        if (fid.getTime() <= 0 || fid.getTime() > 4701945540000L) { // time取值范围可到2118-12-31 23:59
+        if (time <= 0 || time > 4701945540000L) { // time取值范围可到2118-12-31 23:59
             return ReturnCodeEnum.FID_TIME_ERROR;
         }
-        if (fid.getServerIdCount() == 0) {
+        if (serverIds.length == 0) {
             return ReturnCodeEnum.FID_SERVERID_ERROR;
         } else {
-            for (int sid : fid.getServerIdList()) {
+            for (int sid : serverIds) {
                 if (sid > 16383) { // serverId取值范围是0~16383
                     return ReturnCodeEnum.FID_SERVERID_ERROR;
                 }
             }
         }
-        if (fid.getOffset() < 0 || fid.getOffset() > 4294967295L) { // offset取值范围0~4294967295
-            return ReturnCodeEnum.FID_OFFSET_ERROR;
-        }
-        if (fid.getSize() <= 0 || fid.getSize() > 4294967295L) { // size取值范围0~4294967295
-            return ReturnCodeEnum.FID_SIZE_ERROR;
-        }
         return ReturnCodeEnum.SUCCESS;
     }
 
     /**
-     * 概述： 封装header
-     * @param version 版本号
-     * @param compress 压缩标识
-     * @return
-     * @user <a href=mailto:zhangnl@bonree.com>张念礼</a>
-     */
-    private static byte[] header(int version, int compress) {
-        int v = version << 5;
-        int c = compress << 3;
-        return new byte[] { (byte) (v | c) };
-    }
-
-    /**
-     * 概述：封装存储空间
-     * @param snCode 存储空间编码
+     * 概述：offset和size验证
+     * @param offset
+     * @param size
      * @return
-     * @user <a href=mailto:zhangnl@bonree.com>张念礼</a>
      */
-    private static byte[] storageName(long snCode) {
-        return FSCode.LongToByte(snCode, 2); // 定长2字节
+    static ReturnCodeEnum validate(long offset, long size) {
+        if (offset < 0 || offset > 4294967295L) { // offset取值范围0~4294967295
+            return ReturnCodeEnum.FID_OFFSET_ERROR;
+        }
+        if (size <= 0 || size > 4294967295L) { // size取值范围0~4294967295
+            return ReturnCodeEnum.FID_SIZE_ERROR;
+        }
+        return ReturnCodeEnum.SUCCESS;
     }
 
     /**
-     * 概述：封装uuid
-     * @param uuid 唯一码
+     * 概述：编码后fid的字节数
+     * @param uuid
+     * @param serverIds
      * @return
-     * @user <a href=mailto:zhangnl@bonree.com>张念礼</a>
      */
-    private static byte[] uuid(String uuid) {
-        return FSCode.HexToByte(uuid);
+    static int length(String uuid, int[] serverIds) {
+        // 开始标识、header、存储空间、uuid、时间、offset、size、结束标识
+        int length = 1 + 1 + 2 + uuid.length() / 2 + 5 + 4 + 4 + 1;
+        for (int sid : serverIds) {
+            length += FSCode.moreFlagSize(sid, 7);
+        }
+        return length;
     }
 
     /**
-     * 概述：封装时间
-     * @param time 时间,精确到分钟
-     * @return
-     * @user <a href=mailto:zhangnl@bonree.com>张念礼</a>
+     * 概述：写入开始标识、header、存储空间、uuid和时间
+     * @return offset的位置
      */
-    private static byte[] time(long time) {
-        return FSCode.LongToByte(time, 5); // 定长5字节
+    static int writeHeader(byte[] dest, int version, int compress, long storageNameCode, String uuid, long time) {
+        int pos = 0;
+        dest[pos++] = FSCode.start[0];
+        dest[pos++] = (byte) (version << 5 | compress << 3);
+        pos = writeLong(dest, pos, storageNameCode, 2); // 定长2字节
+        for (int i = 0; i < uuid.length(); i += 2) {
+            dest[pos++] = (byte) (Character.digit(uuid.charAt(i), 16) << 4 | Character.digit(uuid.charAt(i + 1), 16));
+        }
+        return writeLong(dest, pos, time / 1000 / 60, 5); // 时间精确到分钟，定长5字节
     }
 
     /**
-     * 概述：封装ServerId
-     * @param fid 服务标识集合
-     * @return
-     * @throws Exception 
-     * @user <a href=mailto:zhangnl@bonree.com>张念礼</a>
+     * 概述：写入ServerId和结束标识
      */
-    private static byte[] serverId(List<Integer> sidList) throws Exception {
-        byte[] sidBytes = null;
-        for (int sid : sidList) {
-            byte[] tempArr = FSCode.moreFlagEncoder(sid, 7);
-            if (sidBytes == null) {
-                sidBytes = tempArr;
+    static void writeServerIds(byte[] dest, int pos, int[] serverIds) {
+        for (int sid : serverIds) {
+            if (sid >= 128) {
+                dest[pos++] = (byte) (0x80 | sid >> 7);
+                dest[pos++] = (byte) (sid & 0x7F);
             } else {
-                sidBytes = FSCode.addBytes(sidBytes, tempArr);
+                dest[pos++] = (byte) sid;
             }
         }
-        return sidBytes;
-    }
-
-    /**
-     * 概述：封装offset
-     * @param offset
-     * @return
-     * @user <a href=mailto:zhangnl@bonree.com>张念礼</a>
-     */
-    private static byte[] offset(long offset) {
-        return FSCode.LongToByte(offset, 4); // 定长4字节
+        dest[pos] = FSCode.tail[0];
     }
 
     /**
-     * 概述：封装size
-     * @param size
-     * @return
-     * @user <a href=mailto:zhangnl@bonree.com>张念礼</a>
+     * 概述：按小端写入定长的数字，与{@link FSCode#LongToByte(long, int)}一致
+     * @return 写入后的位置
      */
-    private static byte[] size(long size) {
-        return FSCode.LongToByte(size, 4); // 定长4字节
+    static int writeLong(byte[] dest, int pos, long value, int length) {
+        for (int i = 0; i < length; i++) {
+            dest[pos++] = (byte) (value >> (i * 8));
+        }
+        return pos;
     }
 }
@@ -0,0 +1,120 @@
+package com.bonree.brfs.common.write.data;
+
+import com.bonree.brfs.common.data.utils.Base64;
+import com.bonree.brfs.common.proto.ReturnCodeProtos.ReturnCodeEnum;
+
+/**
+ * 同一个文件中所有数据的fid只有offset和size不同，模板预先编码好其他字段，
+ * 生成fid时只编码offset和size所在的Base64分组，结果与{@link FidEncoder#build}一致
+ * 
+ * @author yupeng
+ * 
+ */
+public class FidTemplate {
+    private static final char[] BASE64_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    // Base64.DEFAULT每行最多编码的字节数
+    private static final int LINE_BYTES = 57;
+
+    private final byte[] template;
+    private final int offsetPos;
+    private final int sizePos;
+
+    // offset和size所在的Base64分组范围
+    private final int variableStart;
+    private final int variableEnd;
+    private final char[] prefix;
+    private final char[] suffix;
+
+    private FidTemplate(byte[] template, int offsetPos) {
+        this.template = template;
+        this.offsetPos = offsetPos;
+        this.sizePos = offsetPos + 4;
+        this.variableStart = offsetPos / 3 * 3;
+        this.variableEnd = (sizePos + 4 + 2) / 3 * 3;
+
+        if (template.length <= LINE_BYTES) {
+            this.prefix = Base64.encodeToString(template, 0, variableStart, Base64.NO_WRAP).toCharArray();
+            // offset和size所在分组已经到达末尾时，Base64.DEFAULT仍会在结果末尾加换行符
+            this.suffix = variableEnd < template.length
+                    ? Base64.encodeToString(template, variableEnd, template.length - variableEnd, Base64.DEFAULT).toCharArray()
+                    : new char[] { '\n' };
+        } else {
+            // 需要换行时直接编码整个fid
+            this.prefix = null;
+            this.suffix = null;
+        }
+    }
+
+    /**
+     * 概述：创建fid模板
+     * @param version 版本号
+     * @param compress 压缩标识
+     * @param storageNameCode 存储空间编码
+     * @param uuid 唯一码
+     * @param time 时间戳
+     * @param serverIds 服务标识
+     * @return
+     * @throws Exception 字段不合法时抛出
+     */
+    public static FidTemplate create(int version, int compress, long storageNameCode, String uuid, long time, int[] serverIds) throws Exception {
+        ReturnCodeEnum code = FidEncoder.validate(version, compress, storageNameCode, uuid, time, serverIds);
+        if (!ReturnCodeEnum.SUCCESS.equals(code)) {
+            throw new Exception("Fid encoder failed! " + code);
+        }
+
+        byte[] template = new byte[FidEncoder.length(uuid, serverIds)];
+        int offsetPos = FidEncoder.writeHeader(template, version, compress, storageNameCode, uuid, time);
+        FidEncoder.writeServerIds(template, offsetPos + 8, serverIds);
+
+        return new FidTemplate(template, offsetPos);
+    }
+
+    /**
+     * 概述：生成指定offset和size的fid
+     * @param offset
+     * @param size
+     * @return
+     * @throws Exception offset或size不合法时抛出
+     */
+    public String encode(long offset, long size) throws Exception {
+        ReturnCodeEnum code = FidEncoder.validate(offset, size);
+        if (!ReturnCodeEnum.SUCCESS.equals(code)) {
+            throw new Exception("Fid encoder failed! " + code);
+        }
+
+        if (prefix == null) {
+            byte[] bytes = template.clone();
+            FidEncoder.writeLong(bytes, offsetPos, offset, 4);
+            FidEncoder.writeLong(bytes, sizePos, size, 4);
+            return Base64.encodeToString(bytes, Base64.DEFAULT);
+        }
+
+        char[] chars = new char[prefix.length + (variableEnd - variableStart) / 3 * 4 + suffix.length];
+        System.arraycopy(prefix, 0, chars, 0, prefix.length);
+        int charPos = prefix.length;
+        for (int i = variableStart; i < variableEnd; i += 3) {
+            int group = (byteAt(i, offset, size) & 0xFF) << 16
+                    | (byteAt(i + 1, offset, size) & 0xFF) << 8
+                    | (byteAt(i + 2, offset, size) & 0xFF);
+            chars[charPos++] = BASE64_CHARS[(group >> 18) & 0x3F];
+            chars[charPos++] = BASE64_CHARS[(group >> 12) & 0x3F];
+            chars[charPos++] = BASE64_CHARS[(group >> 6) & 0x3F];
+            chars[charPos++] = BASE64_CHARS[group & 0x3F];
+        }
+        System.arraycopy(suffix, 0, chars, charPos, suffix.length);
+
+        return new String(chars);
+    }
+
+    private byte byteAt(int pos, long offset, long size) {
+        if (pos >= offsetPos && pos < sizePos) {
+            return (byte) (offset >> ((pos - offsetPos) * 8));
+        }
+
+        if (pos >= sizePos && pos < sizePos + 4) {
+            return (byte) (size >> ((pos - sizePos) * 8));
+        }
+
+        return template[pos];
+    }
+}
@@ -0,0 +1,70 @@
+package com.bonree.brfs.common.write.data;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 解码后的一条消息
+ * 
+ * 数据没有压缩时，description和data是源ByteBuffer的视图，不复制数据，
+ * 源数据被修改后内容也会改变
+ * 
+ * @author yupeng
+ * 
+ */
+public class FileContentBuffer {
+    private int compress;
+    private boolean crcFlag;
+    private long crcCheckCode;
+    private ByteBuffer description;
+    private ByteBuffer data;
+
+    public int getCompress() {
+        return compress;
+    }
+
+    void setCompress(int compress) {
+        this.compress = compress;
+    }
+
+    public boolean getCrcFlag() {
+        return crcFlag;
+    }
+
+    void setCrcFlag(boolean crcFlag) {
+        this.crcFlag = crcFlag;
+    }
+
+    public long getCrcCheckCode() {
+        return crcCheckCode;
+    }
+
+    void setCrcCheckCode(long crcCheckCode) {
+        this.crcCheckCode = crcCheckCode;
+    }
+
+    public ByteBuffer getDescription() {
+        return description;
+    }
+
+    void setDescription(ByteBuffer description) {
+        this.description = description;
+    }
+
+    public ByteBuffer getData() {
+        return data;
+    }
+
+    void setData(ByteBuffer data) {
+        this.data = data;
+    }
+
+    /**
+     * 概述：复制消息内容
+     * @return
+     */
+    public byte[] getDataBytes() {
+        byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -1,9 +1,10 @@
 package com.bonree.brfs.common.write.data;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.bonree.brfs.common.data.utils.GZipUtils;
+import com.bonree.brfs.common.data.utils.CompressUtils;
 import com.bonree.brfs.common.proto.FileDataProtos.FileContent;
 import com.google.protobuf.ByteString;
 
@@ -49,56 +50,89 @@ public class FileDecoder {
      * @user <a href=mailto:zhangnl@bonree.com>张念礼</a>
      */
     public static FileContent contents(byte[] bytes) throws Exception {
-        FileContent.Builder file = FileContent.newBuilder();
+        FileContentBuffer buffer = contents(ByteBuffer.wrap(bytes), new FileContentBuffer());
 
-        // 获取一条消息
-        int dataLength = (int) FSCode.moreFlagDecoder(bytes, 7, 0); // 一条数据的长度
-        int dataMoreFlagLength = FSCode.moreFlagLength(dataLength, 7) + 1;  // 扩展次数加上moreFlag所在的一个字节.
-        byte[] dataBytes = FSCode.subBytes(bytes, dataMoreFlagLength, dataLength);
-
-        // 1.获取压缩标识
-        int compressFlag = (dataBytes[0] & 0xFF) >> 6;
-
-        int describeLength = (int) FSCode.moreFlagDecoder(dataBytes, 4);// 描述信息的长度
-        int describeMoreFlagLength = FSCode.moreFlagLength(describeLength, 4) + 1;// 扩展次数加上moreFlag所在的一个字节.
-        byte[] destResult = FSCode.subBytes(dataBytes, describeMoreFlagLength, describeLength);
-
-        int contestStart = describeLength + describeMoreFlagLength; // 内容的开始位置(包含moreflag)
-        int contentLength = (int) FSCode.moreFlagDecoder(dataBytes, 7, contestStart); // 内容的长度
-        int contentMoreFlagLength = FSCode.moreFlagLength(contentLength, 7) + 1;  // 扩展次数加上moreFlag所在的一个字节.
-        contestStart += contentMoreFlagLength;      // 内容的开始位置
-        byte[] data = FSCode.subBytes(dataBytes, contestStart, contentLength);
-
-        if (compressFlag == 1) {        // gzip解压
-            destResult = GZipUtils.decompress(destResult);
-            data = GZipUtils.decompress(data);
-        } else if (compressFlag == 2) { // snappy解压
-            // destResult =
-            // data =
-        }
-        file.setCompress(compressFlag);
+        FileContent.Builder file = FileContent.newBuilder();
+        file.setCompress(buffer.getCompress());
 
         // 2.封装描述信息
-        if (destResult != null && destResult.length != 0) {
-            file.setDescription(new String(destResult));
+        ByteBuffer description = buffer.getDescription();
+        if (description.hasRemaining()) {
+            file.setDescription(new String(description.array(), description.arrayOffset() + description.position(), description.remaining(), "utf-8"));
         }
 
         // 3.封装数据内容
-        if (data != null && data.length != 0) {
-            file.setData(ByteString.copyFrom(data));
+        if (buffer.getData().hasRemaining()) {
+            file.setData(ByteString.copyFrom(buffer.getData()));
         }
 
         // 4.校验码标识
-        int crcFlag = (dataBytes[0] & 0x3F) >> 5;
-        if (crcFlag == 1) {
-            int crcStart = contestStart + contentLength;
-            long crcCode = FSCode.moreFlagDecoder(dataBytes, 7, crcStart);
-            file.setCrcCheckCode(crcCode);
+        if (buffer.getCrcFlag()) {
+            file.setCrcCheckCode(buffer.getCrcCheckCode());
             file.setCrcFlag(true);
         }
         return file.build();
     }
 
+    /**
+     * 概述：从ByteBuffer的当前位置解码一条消息，解码后位置移动到消息结尾。
+     * 数据没有压缩时不复制数据，结果中的内容是源ByteBuffer的视图
+     * @param src 源数据
+     * @param result 保存解码结果的对象，可以重复使用
+     * @return
+     * @throws Exception
+     */
+    public static FileContentBuffer contents(ByteBuffer src, FileContentBuffer result) throws Exception {
+        int dataLength = (int) FSCode.moreFlagDecoder(src, 7); // 一条数据的长度
+        int end = src.position() + dataLength;
+        if (dataLength <= 0 || end > src.limit()) {
+            throw new IllegalArgumentException("invalid data length[" + dataLength + "]");
+        }
+
+        // 1.获取压缩标识和校验码标识
+        int flags = src.get(src.position()) & 0xFF;
+        int compressFlag = flags >> 6;
+        boolean crcFlag = ((flags >> 5) & 0x01) == 1;
+
+        int describeLength = (int) FSCode.moreFlagDecoder(src, 4); // 描述信息的长度
+        ByteBuffer description = slice(src, describeLength);
+        int contentLength = (int) FSCode.moreFlagDecoder(src, 7); // 内容的长度
+        ByteBuffer data = slice(src, contentLength);
+
+        long crcCode = 0;
+        if (crcFlag) {
+            crcCode = FSCode.moreFlagDecoder(src, 7);
+        }
+        if (src.position() != end) {
+            throw new IllegalArgumentException("content length does not match data length[" + dataLength + "]");
+        }
+
+        // 空的描述信息没有压缩
+        if (compressFlag != CompressUtils.NONE) {
+            if (describeLength > 0) {
+                description = ByteBuffer.wrap(CompressUtils.decompress(compressFlag, description));
+            }
+            data = ByteBuffer.wrap(CompressUtils.decompress(compressFlag, data));
+        }
+
+        result.setCompress(compressFlag);
+        result.setCrcFlag(crcFlag);
+        result.setCrcCheckCode(crcCode);
+        result.setDescription(description);
+        result.setData(data);
+        return result;
+    }
+
+    private static ByteBuffer slice(ByteBuffer src, int length) {
+        if (length < 0 || length > src.remaining()) {
+            throw new IllegalArgumentException("invalid length[" + length + "]");
+        }
+        ByteBuffer slice = src.duplicate();
+        slice.limit(slice.position() + length);
+        src.position(src.position() + length);
+        return slice.slice();
+    }
+
     /**
      * 概述：获取大文件校验码
      * @param bytes 源数据字节数组
@@ -111,46 +145,35 @@ public class FileDecoder {
     }
 
     /**
-     * 概述：获取文件offset偏移量
-     * @param index 开始位置
-     * @param bytes 文件内容
-     * @return
+     * 概述：获取指定位置的一条消息的总长度（包括长度字段），只解析长度信息，不复制数据
+     * @param src 源数据
+     * @param pos 消息的起始位置
+     * @return 消息不完整或格式错误时返回0
      */
-    private static int getOffsets(int index, byte[] bytes) {
-        int size = 0;
+    public static int recordSize(ByteBuffer src, int pos) {
         try {
-            int dataLength = (int) FSCode.moreFlagDecoder(bytes, 7, index); // 一条数据的长度
-            if (dataLength == 0) {
+            ByteBuffer buf = src.duplicate();
+            buf.position(pos);
+            int dataLength = (int) FSCode.moreFlagDecoder(buf, 7); // 一条数据的长度
+            int end = buf.position() + dataLength;
+            if (dataLength <= 0 || end > buf.limit()) {
                 return 0;
             }
-            int dataMoreFlagLength = FSCode.moreFlagLength(dataLength, 7) + 1;  // moreFlag扩展的次数,加上moreFlag所在的一个字节.
-            byte[] dataBytes = FSCode.subBytes(bytes, dataMoreFlagLength + index, dataLength);
-
-            int describeLength = (int) FSCode.moreFlagDecoder(dataBytes, 4);// 描述信息的长度
-            int describeMoreFlagLength = FSCode.moreFlagLength(describeLength, 4) + 1;// moreFlag扩展的次数,加上moreFlag所在的一个字节.
-
-            int totalLength = describeLength + describeMoreFlagLength; // 内容的开始位置(包含moreflag)
-            int contentLength = (int) FSCode.moreFlagDecoder(dataBytes, 7, totalLength); // 内容的长度
-            int contentMoreFlagLength = FSCode.moreFlagLength(contentLength, 7) + 1;  // moreFlag扩展的次数,加上moreFlag所在的一个字节.
-            totalLength += contentMoreFlagLength;      // 内容的开始位置
-            totalLength += contentLength;
 
             // 校验码标识
-            int crcFlag = (dataBytes[0] & 0x3F) >> 5;
-            if (crcFlag == 1) {
-                long crcCode = FSCode.moreFlagDecoder(dataBytes, 7, totalLength);
-                int crcMoreFlagLength = FSCode.moreFlagLength(crcCode, 7) + 1;
-                totalLength += crcMoreFlagLength;
+            boolean crcFlag = ((buf.get(buf.position()) >> 5) & 0x01) == 1;
+            int describeLength = (int) FSCode.moreFlagDecoder(buf, 4); // 描述信息的长度
+            buf.position(buf.position() + describeLength);
+            int contentLength = (int) FSCode.moreFlagDecoder(buf, 7); // 内容的长度
+            buf.position(buf.position() + contentLength);
+            if (crcFlag) {
+                FSCode.moreFlagDecoder(buf, 7);
             }
-            totalLength += dataMoreFlagLength;
-            size = dataLength + dataMoreFlagLength;
 
-            if (totalLength != size) {
-                return 0;
-            }
-        } catch (Exception ex) {
+            return buf.position() == end ? end - pos : 0;
+        } catch (RuntimeException e) {
+            return 0;
         }
-        return size;
     }
 
     /**
@@ -160,10 +183,11 @@ public class FileDecoder {
      */
     public static List<String> getOffsets(byte[] bytes) {
         List<String> offsetList = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
         int begin = 2;
         while (begin < bytes.length) {
             try {
-                int size = getOffsets(begin, bytes);
+                int size = recordSize(buffer, begin);
                 if (size == 0) {
                     break;
                 }
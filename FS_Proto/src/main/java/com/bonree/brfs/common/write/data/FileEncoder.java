@@ -1,6 +1,8 @@
 package com.bonree.brfs.common.write.data;
 
-import com.bonree.brfs.common.data.utils.GZipUtils;
+import java.nio.ByteBuffer;
+
+import com.bonree.brfs.common.data.utils.CompressUtils;
 import com.bonree.brfs.common.proto.FileDataProtos.FileContent;
 
 /**
@@ -14,6 +16,7 @@ import com.bonree.brfs.common.proto.FileDataProtos.FileContent;
  *****************************************************************************
  */
 public class FileEncoder {
+    private static final ByteBuffer EMPTY = ByteBuffer.wrap(new byte[0]);
 
     /**
      * 概述：消息开头
@@ -65,56 +68,9 @@ public class FileEncoder {
      * @user <a href=mailto:zhangnl@bonree.com>张念礼</a>
      */
     public static byte[] contents(FileContent file) throws Exception {
-        byte[] content = file.getData().toByteArray();
-        if (content == null || content.length == 0) {
-            return new byte[0];
-        }
-        int dataLength = 0;
-        byte[] describeByte = null;
-        int compressFlag = file.getCompress();
-        String description = file.getDescription();
-        // 1.压缩
-        int compress = compressFlag << 6;
-
-        // 2.描述
-        if (description == null) {
-            describeByte = new byte[0];
-        } else {
-            describeByte = description.getBytes("utf-8");
-        }
-
-        // 3.内容
-        byte[] contentByte = content;
-        if (compressFlag == 1) {        // gzip压缩
-            describeByte = GZipUtils.compress(describeByte);
-            contentByte = GZipUtils.compress(content);
-        } else if (compressFlag == 2) { // snappy压缩
-            // describeByte =
-            // contentByte =
-        }
-        dataLength = describeByte.length + contentByte.length;
-
-        byte[] describeLengthByte = FSCode.moreFlagEncoder(describeByte.length, 4);
-        dataLength += describeLengthByte.length;
-        byte[] contentLengthByte = FSCode.moreFlagEncoder(contentByte.length, 7);
-        dataLength += contentLengthByte.length;
-
-        // 4.检验码
-        byte[] validateByte = null;
-        int crcFlag = 0; // 标识校验码开关
-        if (file.getCrcFlag()) {
-            validateByte = FSCode.moreFlagEncoder(file.getCrcCheckCode(), 7);
-            crcFlag = 1 << 5; // 标识校验码开关
-            dataLength += validateByte.length;
-        }
-        int describeLength = describeLengthByte[0] & 0xFF;
-        describeLengthByte[0] = (byte) (compress | crcFlag | describeLength);
-        
-        byte[] dataLengthByte = FSCode.moreFlagEncoder(dataLength, 7);
-
-        return FSCode.addBytes(dataLengthByte, describeLengthByte, describeByte, contentLengthByte, contentByte, validateByte);
+        return contents(file.getCompress(), description(file), file.getData().toByteArray(), file.getCrcFlag(), file.getCrcCheckCode());
     }
-    
+
     /**
      * 概述：编码一条消息
      * @param file 消息内容
@@ -123,53 +79,111 @@ public class FileEncoder {
      * @user <a href=mailto:zhangnl@bonree.com>张念礼</a>
      */
     public static byte[] contents1(FileContent file) throws Exception {
-        byte[] content = file.getData().toByteArray();
-        if (content == null || content.length == 0) {
+        return contents(file);
+    }
+
+    /**
+     * 概述：编码一条消息，结果数组按编码后的长度一次分配
+     * @param compress 压缩标识 0:不压缩 1:gzip 2:snappy 3:lz4
+     * @param description 描述信息，可以为null
+     * @param data 消息内容
+     * @param crcFlag 是否包含校验码
+     * @param crcCode 校验码
+     * @return
+     * @throws Exception
+     */
+    public static byte[] contents(int compress, byte[] description, byte[] data, boolean crcFlag, long crcCode) throws Exception {
+        if (data == null || data.length == 0) {
             return new byte[0];
         }
-        int dataLength = 0;
-        byte[] describeByte = null;
-        int compressFlag = file.getCompress();
-        String description = file.getDescription();
-        // 1.压缩
-        int compress = compressFlag << 6;
-
-        // 2.描述
-        if (description == null) {
-            describeByte = new byte[0];
-        } else {
-            describeByte = description.getBytes("utf-8");
+        ByteBuffer describe = compressDescription(compress, description);
+        ByteBuffer content = CompressUtils.compressToBuffer(compress, data, 0, data.length);
+
+        byte[] result = new byte[contentsLength(describe.remaining(), content.remaining(), crcFlag, crcCode)];
+        writeContents(ByteBuffer.wrap(result), compress, describe, content, crcFlag, crcCode);
+        return result;
+    }
+
+    /**
+     * 概述：编码一条消息并写入ByteBuffer的当前位置，空间不足时抛出BufferOverflowException
+     * @param dest 目标ByteBuffer
+     * @param compress 压缩标识 0:不压缩 1:gzip 2:snappy 3:lz4
+     * @param description 描述信息，可以为null
+     * @param data 消息内容
+     * @param offset 消息内容的开始位置
+     * @param length 消息内容的长度
+     * @param crcFlag 是否包含校验码
+     * @param crcCode 校验码
+     * @return 写入的字节数
+     * @throws Exception
+     */
+    public static int contents(ByteBuffer dest, int compress, byte[] description, byte[] data, int offset, int length,
+            boolean crcFlag, long crcCode) throws Exception {
+        if (length == 0) {
+            return 0;
         }
+        ByteBuffer describe = compressDescription(compress, description);
+        ByteBuffer content = CompressUtils.compressToBuffer(compress, data, offset, length);
+
+        int start = dest.position();
+        writeContents(dest, compress, describe, content, crcFlag, crcCode);
+        return dest.position() - start;
+    }
+
+    /**
+     * 概述：计算一条消息编码后的长度
+     * @param describeLength 描述信息的长度（压缩后）
+     * @param contentLength 消息内容的长度（压缩后）
+     * @param crcFlag 是否包含校验码
+     * @param crcCode 校验码
+     * @return
+     */
+    public static int contentsLength(int describeLength, int contentLength, boolean crcFlag, long crcCode) {
+        int dataLength = dataLength(describeLength, contentLength, crcFlag, crcCode);
+        return FSCode.moreFlagSize(dataLength, 7) + dataLength;
+    }
 
-        // 3.内容
-        byte[] contentByte = content;
-        if (compressFlag == 1) {        // gzip压缩
-            describeByte = GZipUtils.compress(describeByte);
-            contentByte = GZipUtils.compress(content);
-        } else if (compressFlag == 2) { // snappy压缩
-            // describeByte =
-            // contentByte =
+    private static int dataLength(int describeLength, int contentLength, boolean crcFlag, long crcCode) {
+        int dataLength = FSCode.moreFlagSize(describeLength, 4) + describeLength
+                + FSCode.moreFlagSize(contentLength, 7) + contentLength;
+        if (crcFlag) {
+            dataLength += FSCode.moreFlagSize(crcCode, 7);
         }
-        dataLength = describeByte.length + contentByte.length;
-
-        byte[] describeLengthByte = FSCode.moreFlagEncoder(describeByte.length, 4);
-        dataLength += describeLengthByte.length;
-        byte[] contentLengthByte = FSCode.moreFlagEncoder(contentByte.length, 7);
-        dataLength += contentLengthByte.length;
-
-        // 4.检验码
-        byte[] validateByte = null;
-        int crcFlag = 0; // 标识校验码开关
-        if (file.getCrcFlag()) {
-            validateByte = FSCode.moreFlagEncoder(file.getCrcCheckCode(), 7);
-            crcFlag = 1 << 5; // 标识校验码开关
-            dataLength += validateByte.length;
+        return dataLength;
+    }
+
+    private static byte[] description(FileContent file) throws Exception {
+        String description = file.getDescription();
+        return description == null ? null : description.getBytes("utf-8");
+    }
+
+    private static ByteBuffer compressDescription(int compress, byte[] description) throws Exception {
+        // 空的描述信息不压缩
+        if (description == null || description.length == 0) {
+            return EMPTY;
         }
-        int describeLength = describeLengthByte[0] & 0xFF;
-        describeLengthByte[0] = (byte) (compress | crcFlag | describeLength);
-        
-        byte[] dataLengthByte = FSCode.moreFlagEncoder(dataLength, 7);
+        return ByteBuffer.wrap(CompressUtils.compress(compress, description));
+    }
 
-        return FSCode.addBytes(dataLengthByte, describeLengthByte, describeByte, contentLengthByte, contentByte, validateByte);
+    private static void writeContents(ByteBuffer dest, int compress, ByteBuffer describe, ByteBuffer content,
+            boolean crcFlag, long crcCode) {
+        int describeLength = describe.remaining();
+        int contentLength = content.remaining();
+
+        FSCode.moreFlagEncoder(dest, dataLength(describeLength, contentLength, crcFlag, crcCode), 7);
+
+        // 描述信息长度的首字节高3位保存压缩标识和校验码开关
+        int flagPos = dest.position();
+        FSCode.moreFlagEncoder(dest, describeLength, 4);
+        int flags = (compress << 6) | (crcFlag ? 1 << 5 : 0);
+        dest.put(flagPos, (byte) (dest.get(flagPos) | flags));
+        dest.put(describe.duplicate());
+
+        FSCode.moreFlagEncoder(dest, contentLength, 7);
+        dest.put(content.duplicate());
+
+        if (crcFlag) {
+            FSCode.moreFlagEncoder(dest, crcCode, 7);
+        }
     }
 }
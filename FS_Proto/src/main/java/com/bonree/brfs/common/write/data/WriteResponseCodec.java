@@ -0,0 +1,70 @@
+package com.bonree.brfs.common.write.data;
+
+import com.bonree.brfs.common.proto.FileDataProtos.DataWriteResponse;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * 写入结果的二进制编解码，使用{@link DataWriteResponse}保存fid列表
+ * 
+ * 客户端通过Accept请求头声明支持二进制结果，不支持的服务端依然返回JSON数组，
+ * JSON数组以'['开头，二进制结果的第一个字节不会是'['，所以可以直接区分两种格式
+ * 
+ * @author yupeng
+ * 
+ */
+public final class WriteResponseCodec {
+    public static final String HEADER_ACCEPT = "Accept";
+    public static final String CONTENT_TYPE_BINARY = "application/x-protobuf";
+
+    private WriteResponseCodec() {
+    }
+
+    /**
+     * 概述：判断请求是否接受二进制结果
+     * @param accept Accept请求头
+     * @return
+     */
+    public static boolean acceptBinary(String accept) {
+        return accept != null && accept.contains(CONTENT_TYPE_BINARY);
+    }
+
+    /**
+     * 概述：编码写入结果
+     * @param fids 写入失败的fid为null
+     * @return
+     */
+    public static byte[] encode(String[] fids) {
+        DataWriteResponse.Builder builder = DataWriteResponse.newBuilder();
+        for (String fid : fids) {
+            builder.addFid(fid == null ? "" : fid);
+        }
+
+        return builder.build().toByteArray();
+    }
+
+    /**
+     * 概述：判断结果是否为旧的JSON格式
+     * @param bytes
+     * @return
+     */
+    public static boolean isJson(byte[] bytes) {
+        return bytes.length > 0 && bytes[0] == '[';
+    }
+
+    /**
+     * 概述：解码写入结果
+     * @param bytes
+     * @return 写入失败的fid为null
+     * @throws InvalidProtocolBufferException
+     */
+    public static String[] decode(byte[] bytes) throws InvalidProtocolBufferException {
+        DataWriteResponse response = DataWriteResponse.parseFrom(bytes);
+        String[] fids = new String[response.getFidCount()];
+        for (int i = 0; i < fids.length; i++) {
+            String fid = response.getFid(i);
+            fids[i] = fid.isEmpty() ? null : fid;
+        }
+
+        return fids;
+    }
+}
@@ -0,0 +1,141 @@
+package com.bonree.brfs.common.data.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class LZ4UtilsTest extends TestCase {
+    // 以下数据由liblz4 1.9.4的LZ4_compress_default压缩生成，不包含长度字段
+    private static final String LIBLZ4_EMPTY = "AA==";
+    private static final String LIBLZ4_SHORT = "QGJyZnM=";
+    private static final String LIBLZ4_TEXT = "X2JyZnMgBQApUGJyZnMh";
+    private static final String LIBLZ4_PATTERN =
+            "/+wAAQIDBAUGBwgJCgsMDQ4PEBESExQVFhcYGRobHB0eHyAhIiMkJSYnKCkqKywtLi8wMTIzNDU2Nzg5Ojs8PT4/QEFCQ0RF"
+            + "RkdISUpLTE1OT1BRUlNUVVZXWFlaW1xdXl9gYWJjZGVmZ2hpamtsbW5vcHFyc3R1dnd4eXp7fH1+f4CBgoOEhYaHiImKi4yN"
+            + "jo+QkZKTlJWWl5iZmpucnZ6foKGio6SlpqeoqaqrrK2ur7CxsrO0tba3uLm6u7y9vr/AwcLDxMXGx8jJysvMzc7P0NHS09TV"
+            + "1tfY2drb3N3e3+Dh4uPk5ebn6Onq6+zt7u/w8fLz9PX29/j5+vsA////////////////////////////////////////////"
+            + "////////////////////////////////////////////////////////////////////////////////////////////////"
+            + "////////////////////////////////////////////////////////////////////////////////////////////////"
+            + "////////////////////////////////////////////////////////////////////////////////////////////////"
+            + "////////////////////////////////////////////////////////////////////////////////////////////////"
+            + "/////////////////////////////////////////////////////////////////////////////////////////////xRQ"
+            + "YWJjZGU=";
+
+    private static final String TEXT = "brfs brfs brfs brfs brfs brfs brfs brfs brfs brfs brfs brfs brfs brfs!";
+
+    /**
+     * 100000字节，第i个字节为i % 251
+     */
+    private static byte[] pattern() {
+        byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 251);
+        }
+        return data;
+    }
+
+    private static byte[] random(int length) {
+        byte[] data = new byte[length];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] withLength(int length, byte[] block) {
+        return ByteBuffer.allocate(4 + block.length).putInt(length).put(block).array();
+    }
+
+    private static void assertRoundTrip(byte[] data) throws Exception {
+        byte[] compressed = LZ4Utils.compress(data);
+        assertEquals(data.length, ByteBuffer.wrap(compressed).getInt());
+        assertTrue(compressed.length <= 4 + LZ4Utils.maxCompressedLength(data.length));
+        assertTrue(Arrays.equals(data, LZ4Utils.decompress(compressed)));
+    }
+
+    public void testRoundTrip() throws Exception {
+        assertRoundTrip(new byte[0]);
+        assertRoundTrip("brfs".getBytes("UTF-8"));
+        assertRoundTrip(new byte[13]);
+        assertRoundTrip(TEXT.getBytes("UTF-8"));
+        assertRoundTrip(pattern());
+    }
+
+    public void testIncompressible() throws Exception {
+        byte[] data = random(70000);
+        assertRoundTrip(data);
+        assertTrue(LZ4Utils.compress(data).length > data.length);
+    }
+
+    public void testLargeInput() throws Exception {
+        // 重复数据的距离超过64KB，不能作为match
+        byte[] block = random(70000);
+        byte[] data = new byte[block.length * 2];
+        System.arraycopy(block, 0, data, 0, block.length);
+        System.arraycopy(block, 0, data, block.length, block.length);
+        assertRoundTrip(data);
+
+        byte[] compressed = LZ4Utils.compress(pattern());
+        assertTrue(compressed.length < 1024);
+    }
+
+    public void testLengthPrefix() throws Exception {
+        byte[] data = pattern();
+        byte[] compressed = LZ4Utils.compress(data);
+
+        // 原始长度100000 = 0x000186A0，大端存储
+        assertEquals(0x00, compressed[0]);
+        assertEquals(0x01, compressed[1]);
+        assertEquals((byte) 0x86, compressed[2]);
+        assertEquals((byte) 0xA0, compressed[3]);
+
+        byte[] block = new byte[data.length];
+        assertEquals(data.length, LZ4Utils.decompress(compressed, 4, compressed.length - 4, block, 0, block.length));
+        assertTrue(Arrays.equals(data, block));
+    }
+
+    public void testDecompressReferenceBlocks() throws Exception {
+        assertTrue(Arrays.equals(new byte[0], LZ4Utils.decompress(withLength(0, Base64.decode(LIBLZ4_EMPTY, Base64.DEFAULT)))));
+        assertTrue(Arrays.equals("brfs".getBytes("UTF-8"), LZ4Utils.decompress(withLength(4, Base64.decode(LIBLZ4_SHORT, Base64.DEFAULT)))));
+
+        byte[] text = TEXT.getBytes("UTF-8");
+        assertTrue(Arrays.equals(text, LZ4Utils.decompress(withLength(text.length, Base64.decode(LIBLZ4_TEXT, Base64.DEFAULT)))));
+
+        byte[] data = pattern();
+        assertTrue(Arrays.equals(data, LZ4Utils.decompress(withLength(data.length, Base64.decode(LIBLZ4_PATTERN, Base64.DEFAULT)))));
+    }
+
+    public void testCompressToBuffer() throws Exception {
+        byte[] data = TEXT.getBytes("UTF-8");
+        ByteBuffer buffer = LZ4Utils.compressToBuffer(data, 5, data.length - 5);
+        byte[] compressed = Arrays.copyOfRange(buffer.array(), buffer.position(), buffer.limit());
+        assertTrue(Arrays.equals(Arrays.copyOfRange(data, 5, data.length), LZ4Utils.decompress(compressed)));
+        assertTrue(Arrays.equals(data, CompressUtils.decompress(CompressUtils.LZ4, CompressUtils.compress(CompressUtils.LZ4, data))));
+    }
+
+    public void testMalformedData() throws Exception {
+        try {
+            LZ4Utils.decompress(new byte[] { 0, 0, 0 });
+            fail("data without length should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        byte[] compressed = LZ4Utils.compress(TEXT.getBytes("UTF-8"));
+        try {
+            LZ4Utils.decompress(Arrays.copyOf(compressed, compressed.length - 3));
+            fail("truncated data should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        // 长度字段比实际数据长
+        compressed[3]++;
+        try {
+            LZ4Utils.decompress(compressed);
+            fail("wrong length should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.bonree.brfs.common.write.data;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import com.bonree.brfs.common.data.utils.Base64;
+import com.bonree.brfs.common.proto.FileDataProtos.Fid;
+
+/**
+ * fid编解码的性能测试，对比原来经过Fid对象和数组拼接的方式、单次写入数组的方式和
+ * 使用文件模板的方式，输出每个fid的耗时和内存分配量
+ * 
+ * @author yupeng
+ * 
+ */
+public class FidCodecBenchmark {
+    private static final int ITERATIONS = 1000000;
+
+    public static void main(String[] args) throws Exception {
+        final String uuid = UUID.randomUUID().toString().replaceAll("-", "");
+        final long time = System.currentTimeMillis() / 60000 * 60000;
+        final int[] serverIds = { 10, 200 };
+        final FidTemplate template = FidTemplate.create(0, 2, 7, uuid, time, serverIds);
+
+        //各种方式的编解码结果必须一致
+        Random random = new Random();
+        for (int i = 0; i < 100000; i++) {
+            long offset = random.nextInt(Integer.MAX_VALUE);
+            int size = random.nextInt(Integer.MAX_VALUE - 1) + 1;
+            String legacy = legacyEncode(uuid, time, serverIds, offset, size);
+            if (!legacy.equals(FidEncoder.build(fid(uuid, time, serverIds, offset, size)))
+                    || !legacy.equals(template.encode(offset, size))) {
+                throw new IllegalStateException("encoded fid mismatch at offset " + offset + ", size " + size);
+            }
+
+            if (!legacyDecode(legacy).equals(FidDecoder.build(legacy))) {
+                throw new IllegalStateException("decoded fid mismatch " + legacy);
+            }
+        }
+
+        final String encoded = template.encode(1024, 100);
+        run("legacy encode", new Task() {
+
+            @Override
+            public void run(int i) throws Exception {
+                legacyEncode(uuid, time, serverIds, i, 100);
+            }
+        });
+        run("single encode", new Task() {
+
+            @Override
+            public void run(int i) throws Exception {
+                FidEncoder.build(fid(uuid, time, serverIds, i, 100));
+            }
+        });
+        run("template encode", new Task() {
+
+            @Override
+            public void run(int i) throws Exception {
+                template.encode(i, 100);
+            }
+        });
+        run("legacy decode", new Task() {
+
+            @Override
+            public void run(int i) throws Exception {
+                legacyDecode(encoded);
+            }
+        });
+        run("single decode", new Task() {
+
+            @Override
+            public void run(int i) throws Exception {
+                FidDecoder.build(encoded);
+            }
+        });
+    }
+
+    private static void run(String name, Task task) throws Exception {
+        //预热
+        for (int i = 0; i < ITERATIONS; i++) {
+            task.run(i);
+        }
+
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            task.run(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated = allocatedBytes() - allocated;
+
+        System.out.println(String.format("%-16s %8.1f ns/op %10.1f bytes/op",
+                name, (double) elapsed / ITERATIONS, (double) allocated / ITERATIONS));
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static Fid fid(String uuid, long time, int[] serverIds, long offset, long size) {
+        Fid.Builder builder = Fid.newBuilder()
+                .setVersion(0)
+                .setCompress(2)
+                .setStorageNameCode(7)
+                .setUuid(uuid)
+                .setTime(time)
+                .setOffset(offset)
+                .setSize(size);
+        for (int sid : serverIds) {
+            builder.addServerId(sid);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 原来FidBuilder和FidEncoder中的编码流程
+     */
+    private static String legacyEncode(String uuid, long time, int[] serverIds, long offset, long size) throws Exception {
+        Fid fid = fid(uuid, time, serverIds, offset, size);
+        byte[] header = new byte[] { (byte) ((fid.getVersion() << 5) | (fid.getCompress() << 3)) };
+        byte[] storageName = FSCode.LongToByte(fid.getStorageNameCode(), 2);
+        byte[] uuidBytes = FSCode.HexToByte(fid.getUuid());
+        byte[] timeBytes = FSCode.LongToByte(fid.getTime() / 1000 / 60, 5);
+        byte[] offsetBytes = FSCode.LongToByte(fid.getOffset(), 4);
+        byte[] sizeBytes = FSCode.LongToByte(fid.getSize(), 4);
+        byte[] sidBytes = null;
+        for (int sid : fid.getServerIdList()) {
+            byte[] tempArr = FSCode.moreFlagEncoder(sid, 7);
+            sidBytes = sidBytes == null ? tempArr : FSCode.addBytes(sidBytes, tempArr);
+        }
+
+        byte[] fidByte = FSCode.addBytes(FSCode.start, header, storageName, uuidBytes, timeBytes, offsetBytes, sizeBytes, sidBytes, FSCode.tail);
+        return Base64.encodeToString(fidByte, Base64.DEFAULT);
+    }
+
+    /**
+     * 原来FidDecoder中的解码流程
+     */
+    private static Fid legacyDecode(String fidStr) throws Exception {
+        byte[] bytes = Base64.decode(fidStr, Base64.DEFAULT);
+        String uuid = "";
+        for (int i = 4; i < 20; i++) {
+            uuid += String.valueOf("0123456789ABCDEF".charAt((bytes[i] & 0xF0) >> 4));
+            uuid += String.valueOf("0123456789ABCDEF".charAt(bytes[i] & 0x0F));
+        }
+
+        List<Integer> sidList = new ArrayList<Integer>();
+        int temp = 0;
+        for (int i = 33; i < bytes.length; i++) {
+            int sid = bytes[i] & 0xFF;
+            if (sid >> 7 == 0) {
+                temp <<= 7;
+                sidList.add(temp | (sid & 0x7F));
+                temp = 0;
+            } else {
+                temp = sid & 0x7F;
+            }
+        }
+
+        return Fid.newBuilder()
+                .setVersion(FidDecoder.version(bytes))
+                .setCompress(FidDecoder.compress(bytes))
+                .setStorageNameCode(FidDecoder.storageName(bytes))
+                .setTime(FidDecoder.time(bytes))
+                .setUuid(uuid)
+                .setOffset(FidDecoder.offset(bytes))
+                .setSize(FidDecoder.size(bytes))
+                .addAllServerId(sidList)
+                .build();
+    }
+
+    private static interface Task {
+        void run(int i) throws Exception;
+    }
+}
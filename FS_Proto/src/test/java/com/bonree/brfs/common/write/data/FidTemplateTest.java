@@ -0,0 +1,81 @@
+package com.bonree.brfs.common.write.data;
+
+import com.bonree.brfs.common.proto.FileDataProtos.Fid;
+
+import junit.framework.TestCase;
+
+public class FidTemplateTest extends TestCase {
+    private static final long TIME = 1539820800000L;
+    private static final String UUID = "0123456789abcdef0123456789abcdef";
+
+    private static Fid fid(String uuid, int[] serverIds, long offset, long size) {
+        Fid.Builder builder = Fid.newBuilder()
+                .setVersion(0)
+                .setCompress(2)
+                .setStorageNameCode(7)
+                .setUuid(uuid)
+                .setTime(TIME)
+                .setOffset(offset)
+                .setSize(size);
+        for (int sid : serverIds) {
+            builder.addServerId(sid);
+        }
+        return builder.build();
+    }
+
+    private static void assertSameAsEncoder(String uuid, int[] serverIds, long offset, long size) throws Exception {
+        FidTemplate template = FidTemplate.create(0, 2, 7, uuid, TIME, serverIds);
+        assertEquals("uuid[" + uuid + "], serverIds " + serverIds.length + ", offset " + offset + ", size " + size,
+                FidEncoder.build(fid(uuid, serverIds, offset, size)), template.encode(offset, size));
+    }
+
+    public void testSameAsEncoder() throws Exception {
+        long[][] offsetAndSizes = { { 0, 1 }, { 100, 200 }, { 65535, 65536 }, { 4294967295L, 4294967295L } };
+        for (long[] offsetAndSize : offsetAndSizes) {
+            assertSameAsEncoder(UUID, new int[] { 1, 2 }, offsetAndSize[0], offsetAndSize[1]);
+            assertSameAsEncoder(UUID, new int[] { 16383, 200, 3 }, offsetAndSize[0], offsetAndSize[1]);
+        }
+    }
+
+    public void testVariableGroupsAtEnd() throws Exception {
+        // 2字节的uuid和1字节的serverId使offset和size所在分组正好到达末尾
+        String uuid = "abcd";
+        int[] serverIds = { 5 };
+        assertEquals(21, FidEncoder.length(uuid, serverIds));
+
+        assertSameAsEncoder(uuid, serverIds, 1024, 2048);
+        assertTrue(FidTemplate.create(0, 2, 7, uuid, TIME, serverIds).encode(1024, 2048).endsWith("\n"));
+    }
+
+    public void testAllLayouts() throws Exception {
+        // 覆盖所有uuid长度和serverId字节数，包括需要换行的情况
+        for (int uuidLength = 0; uuidLength <= UUID.length(); uuidLength += 2) {
+            String uuid = UUID.substring(0, uuidLength);
+            for (int count = 1; count <= 12; count++) {
+                int[] serverIds = new int[count];
+                for (int i = 0; i < count; i++) {
+                    serverIds[i] = i % 2 == 0 ? i : 1000 + i;
+                }
+
+                assertSameAsEncoder(uuid, serverIds, 123456, 789);
+            }
+        }
+    }
+
+    public void testInvalidOffsetAndSize() throws Exception {
+        FidTemplate template = FidTemplate.create(0, 2, 7, UUID, TIME, new int[] { 1 });
+        try {
+            template.encode(-1, 10);
+            fail("negative offset should be rejected");
+        } catch (Exception e) {
+            // expected
+        }
+
+        try {
+            template.encode(0, 0);
+            fail("zero size should be rejected");
+        } catch (Exception e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.bonree.brfs.common.write.data;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.bonree.brfs.common.proto.FileDataProtos.FileContent;
+import com.google.protobuf.ByteString;
+
+/**
+ * 消息编解码的性能测试，对比原来经过FileContent和数组拼接的方式与直接读写ByteBuffer的方式，
+ * 输出每条消息的耗时和内存分配量
+ * 
+ * @author yupeng
+ * 
+ */
+public class FileCodecBenchmark {
+    private static final int[] DATA_SIZES = { 128, 1024, 16 * 1024 };
+    private static final int ITERATIONS = 200000;
+
+    public static void main(String[] args) throws Exception {
+        for (int size : DATA_SIZES) {
+            byte[] data = new byte[size];
+            new Random(size).nextBytes(data);
+
+            //两种方式的编码结果必须一致
+            byte[] legacy = legacyEncode(data);
+            if (!Arrays.equals(legacy, FileEncoder.contents(0, null, data, false, 0))) {
+                throw new IllegalStateException("encoded bytes mismatch for size " + size);
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(legacy.length);
+            FileContentBuffer content = new FileContentBuffer();
+
+            run("legacy encode", size, new Task() {
+
+                @Override
+                public void run() throws Exception {
+                    legacyEncode(data);
+                }
+            });
+            run("buffer encode", size, new Task() {
+
+                @Override
+                public void run() throws Exception {
+                    buffer.clear();
+                    FileEncoder.contents(buffer, 0, null, data, 0, data.length, false, 0);
+                }
+            });
+            run("legacy decode", size, new Task() {
+
+                @Override
+                public void run() throws Exception {
+                    legacyDecode(legacy);
+                }
+            });
+            run("buffer decode", size, new Task() {
+
+                @Override
+                public void run() throws Exception {
+                    buffer.clear();
+                    FileDecoder.contents(buffer, content);
+                }
+            });
+        }
+    }
+
+    private static void run(String name, int size, Task task) throws Exception {
+        //预热
+        for (int i = 0; i < ITERATIONS; i++) {
+            task.run();
+        }
+
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            task.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated = allocatedBytes() - allocated;
+
+        System.out.println(String.format("%-14s size[%6d] %8.1f ns/op %10.1f bytes/op",
+                name, size, (double) elapsed / ITERATIONS, (double) allocated / ITERATIONS));
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * 原来WriteDataMessageHandler中的编码流程
+     */
+    private static byte[] legacyEncode(byte[] data) throws Exception {
+        FileContent file = FileContent.newBuilder()
+                .setCompress(0)
+                .setDescription("")
+                .setData(ByteString.copyFrom(data))
+                .setCrcFlag(false)
+                .setCrcCheckCode(0)
+                .build();
+
+        byte[] content = file.getData().toByteArray();
+        byte[] describeByte = file.getDescription().getBytes("utf-8");
+        int dataLength = describeByte.length + content.length;
+
+        byte[] describeLengthByte = FSCode.moreFlagEncoder(describeByte.length, 4);
+        dataLength += describeLengthByte.length;
+        byte[] contentLengthByte = FSCode.moreFlagEncoder(content.length, 7);
+        dataLength += contentLengthByte.length;
+
+        int describeLength = describeLengthByte[0] & 0xFF;
+        describeLengthByte[0] = (byte) ((file.getCompress() << 6) | describeLength);
+        byte[] dataLengthByte = FSCode.moreFlagEncoder(dataLength, 7);
+
+        return FSCode.addBytes(dataLengthByte, describeLengthByte, describeByte, contentLengthByte, content);
+    }
+
+    /**
+     * 原来FileDecoder中的解码流程
+     */
+    private static byte[] legacyDecode(byte[] bytes) {
+        int dataLength = (int) FSCode.moreFlagDecoder(bytes, 7, 0);
+        int dataMoreFlagLength = FSCode.moreFlagLength(dataLength, 7) + 1;
+        byte[] dataBytes = FSCode.subBytes(bytes, dataMoreFlagLength, dataLength);
+
+        int describeLength = (int) FSCode.moreFlagDecoder(dataBytes, 4);
+        int describeMoreFlagLength = FSCode.moreFlagLength(describeLength, 4) + 1;
+        FSCode.subBytes(dataBytes, describeMoreFlagLength, describeLength);
+
+        int contestStart = describeLength + describeMoreFlagLength;
+        int contentLength = (int) FSCode.moreFlagDecoder(dataBytes, 7, contestStart);
+        contestStart += FSCode.moreFlagLength(contentLength, 7) + 1;
+        byte[] data = FSCode.subBytes(dataBytes, contestStart, contentLength);
+
+        return ByteString.copyFrom(data).toByteArray();
+    }
+
+    private static interface Task {
+        void run() throws Exception;
+    }
+}
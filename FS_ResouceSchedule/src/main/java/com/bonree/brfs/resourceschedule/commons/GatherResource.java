@@ -4,6 +4,7 @@ import java.io.File;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -91,9 +92,22 @@ public class GatherResource {
 	 * @user <a href=mailto:zhucg@bonree.com>朱成岗</a>
 	 */
 	public static StateMetaServerModel gatherResource(String dataDir, String ip){
+		if(BrStringUtils.isEmpty(dataDir)){
+			return null;
+		}
+		return gatherResource(Collections.singletonList(dataDir), ip);
+	}
+	
+	/**
+	 * 概述：采集状态信息，分区信息包括所有数据目录所在的分区
+	 * @param dataDirs
+	 * @param ip
+	 * @return
+	 */
+	public static StateMetaServerModel gatherResource(Collection<String> dataDirs, String ip){
 		StateMetaServerModel obj = new StateMetaServerModel();
 		try {
-			if(BrStringUtils.isEmpty(dataDir) || BrStringUtils.isMathNumeric(ip)){
+			if(dataDirs == null || dataDirs.isEmpty() || BrStringUtils.isMathNumeric(ip)){
 				return null;
 			}
 			int cpuCore = SigarUtils.instance.gatherCpuCoreCount();
@@ -109,7 +123,7 @@ public class GatherResource {
 				obj.setNetRByte(netData.getKey());
 				obj.setNetTByte(netData.getValue());
 			}
-			Map<Integer,Map<String,Long>> partition = SigarUtils.instance.gatherPartitionInfo(dataDir);
+			Map<Integer,Map<String,Long>> partition = SigarUtils.instance.gatherPartitionInfo(dataDirs);
 			if(partition.containsKey(0)){
 				obj.setPartitionTotalSizeMap(partition.get(0));
 			}
@@ -136,6 +150,16 @@ public class GatherResource {
 	 * @user <a href=mailto:zhucg@bonree.com>朱成岗</a>
 	 */
 	public static BaseMetaServerModel gatherBase(String serverId, String dataDir){
+		return gatherBase(serverId, Collections.singletonList(dataDir));
+	}
+	
+	/**
+	 * 概述：基本信息，磁盘大小为所有数据目录所在分区的总和
+	 * @param serverId
+	 * @param dataDirs
+	 * @return
+	 */
+	public static BaseMetaServerModel gatherBase(String serverId, Collection<String> dataDirs){
 		BaseMetaServerModel obj = new BaseMetaServerModel();
 		try {
 			int cpuCore = SigarUtils.instance.gatherCpuCoreCount();
@@ -143,7 +167,7 @@ public class GatherResource {
 		
 			long memorySize = SigarUtils.instance.gatherMemSize();
 			obj.setMemoryTotalSize(memorySize);
-			Map<Integer,Map<String,Long>> partition = SigarUtils.instance.gatherPartitionInfo(dataDir);
+			Map<Integer,Map<String,Long>> partition = SigarUtils.instance.gatherPartitionInfo(dataDirs);
 			if(partition.containsKey(0)){
 				long totalDiskSize = CalcUtils.collectDataMap(partition.get(0));
 				obj.setDiskTotalSize(totalDiskSize);
@@ -193,7 +217,19 @@ public class GatherResource {
 	 * @user <a href=mailto:zhucg@bonree.com>朱成岗</a>
 	 */
 	public static StatServerModel calcStatServerModel(final List<StatServerModel> arrays, List<String> snList, long inverTime, String dataPath){
-		if(arrays == null || arrays.isEmpty()){
+		return calcStatServerModel(arrays, snList, inverTime, Collections.singletonList(dataPath));
+	}
+	
+	/**
+	 * 概述：统计原始信息，storagename在多个数据目录中时匹配第一个找到的分区
+	 * @param arrays
+	 * @param snList
+	 * @param inverTime
+	 * @param dataPaths
+	 * @return
+	 */
+	public static StatServerModel calcStatServerModel(final List<StatServerModel> arrays, List<String> snList, long inverTime, List<String> dataPaths){
+		if(arrays == null || arrays.isEmpty() || dataPaths == null || dataPaths.isEmpty()){
 			return null;
 		}
 		StatServerModel obj = null;
@@ -204,9 +240,9 @@ public class GatherResource {
 			}
 			obj = tmp.sum(obj);
 		}
-		obj.calc(snList,  dataPath, inverTime);
+		obj.calc(snList,  dataPaths.get(0), inverTime);
 		
-		Map<String,String> snToDiskMap = matchSnToPatition(snList,obj.getPartitionTotalSizeMap().keySet(),dataPath);
+		Map<String,String> snToDiskMap = matchSnToPatition(snList,obj.getPartitionTotalSizeMap().keySet(),dataPaths);
 		if(snToDiskMap !=null && !snToDiskMap.isEmpty()){
 			obj.setStorageNameOnPartitionMap(snToDiskMap);
 		}
@@ -310,22 +346,34 @@ public class GatherResource {
      * @user <a href=mailto:zhucg@bonree.com>朱成岗</a>
      */
     public static Map<String,String> matchSnToPatition(Collection<String> snList, Collection<String> mountPoints, String dataDir){
+    	return matchSnToPatition(snList, mountPoints, Collections.singletonList(dataDir));
+    }
+    /**
+     * 概述：匹配sn与分区，依次在每个数据目录中匹配
+     * @param snList sn目录信息
+     * @param mountPoints 挂载点目录信息
+     * @param dataDirs 数据目录
+     * @return
+     */
+    public static Map<String,String> matchSnToPatition(Collection<String> snList, Collection<String> mountPoints, Collection<String> dataDirs){
     	Map<String, String> objMap = new ConcurrentHashMap<String,String>();
-    	if(snList == null || mountPoints == null){
+    	if(snList == null || mountPoints == null || dataDirs == null){
     		return objMap;
     	}
     	// 获取每个sn对应的空间大小
 		String mountPoint = null;
 		String path = null;
 		// 匹配sn与挂载点
-		for(String sn : snList){
-			path = dataDir +File.separator +sn;
-			mountPoint = DiskUtils.selectPartOfDisk(path, mountPoints);
-			if(BrStringUtils.isEmpty(mountPoint)){
-				continue;
-			}
-			if(!objMap.containsKey(sn)){
-				objMap.put(sn, mountPoint);
+		for(String dataDir : dataDirs){
+			for(String sn : snList){
+				path = dataDir +File.separator +sn;
+				mountPoint = DiskUtils.selectPartOfDisk(path, mountPoints);
+				if(BrStringUtils.isEmpty(mountPoint)){
+					continue;
+				}
+				if(!objMap.containsKey(sn)){
+					objMap.put(sn, mountPoint);
+				}
 			}
 		}
 		return objMap;
@@ -239,6 +239,28 @@ public enum SigarUtils {
         }
         return objMap;
     }
+    /**
+     * 概述：采集多个数据目录所在分区的信息，多个目录在同一分区时只统计一次
+     * @param rootPaths
+     * @return
+     * @throws SigarException
+     */
+    public Map<Integer,Map<String,Long>> gatherPartitionInfo(Collection<String> rootPaths) throws SigarException {
+        Map<Integer,Map<String,Long>> objMap = new ConcurrentHashMap<Integer, Map<String, Long>>();
+        if(rootPaths == null){
+            return objMap;
+        }
+        for(String rootPath : rootPaths){
+            for(Map.Entry<Integer,Map<String,Long>> typeEntry : gatherPartitionInfo(rootPath).entrySet()){
+                for(Map.Entry<String,Long> entry : typeEntry.getValue().entrySet()){
+                    if(!objMap.containsKey(typeEntry.getKey()) || !objMap.get(typeEntry.getKey()).containsKey(entry.getKey())){
+                        addDataToMap(objMap, typeEntry.getKey(), entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        }
+        return objMap;
+    }
     /**
      * 概述：汇总信息
      * @param objMap
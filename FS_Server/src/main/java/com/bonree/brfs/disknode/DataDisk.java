@@ -0,0 +1,93 @@
+package com.bonree.brfs.disknode;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bonree.brfs.common.process.LifeCycle;
+import com.bonree.brfs.disknode.data.write.worker.WriteWorkerGroup;
+
+/**
+ * 磁盘节点管理的一块数据磁盘，每块磁盘使用独立的写Worker，
+ * 磁盘之间的写入不会相互阻塞
+ * 
+ * @author yupeng
+ * 
+ */
+public class DataDisk implements LifeCycle {
+	private static final Logger LOG = LoggerFactory.getLogger(DataDisk.class);
+	
+	//磁盘出错后暂停分配新文件的时间
+	private static final long UNHEALTHY_DURATION_MILLIS = TimeUnit.MINUTES.toMillis(1);
+	
+	private final String rootDir;
+	private final WriteWorkerGroup workerGroup;
+	
+	private volatile long unhealthyUntil = 0;
+	
+	public DataDisk(String rootDir, int workerNum, boolean groupCommit) {
+		this.rootDir = new File(rootDir).getAbsolutePath();
+		this.workerGroup = new WriteWorkerGroup(workerNum, groupCommit);
+	}
+	
+	public String getRootDir() {
+		return rootDir;
+	}
+	
+	public WriteWorkerGroup getWorkerGroup() {
+		return workerGroup;
+	}
+	
+	/**
+	 * 判断真实路径是否在此磁盘中
+	 * 
+	 * @param path
+	 * @return
+	 */
+	public boolean contains(String path) {
+		return path.startsWith(rootDir)
+				&& (path.length() == rootDir.length() || path.charAt(rootDir.length()) == File.separatorChar);
+	}
+	
+	public long usableSpace() {
+		return new File(rootDir).getUsableSpace();
+	}
+	
+	public int pendingTaskCount() {
+		return workerGroup.pendingTaskCount();
+	}
+	
+	public boolean isHealthy() {
+		if(System.currentTimeMillis() < unhealthyUntil) {
+			return false;
+		}
+		
+		File root = new File(rootDir);
+		return root.isDirectory() && root.canWrite();
+	}
+	
+	/**
+	 * 磁盘读写出错后标记为不可用，一段时间内不再分配新文件
+	 */
+	public void markUnhealthy() {
+		LOG.warn("disk[{}] is marked unhealthy", rootDir);
+		unhealthyUntil = System.currentTimeMillis() + UNHEALTHY_DURATION_MILLIS;
+	}
+	
+	@Override
+	public void start() {
+		workerGroup.start();
+	}
+	
+	@Override
+	public void stop() {
+		workerGroup.stop();
+	}
+	
+	@Override
+	public String toString() {
+		return rootDir;
+	}
+}
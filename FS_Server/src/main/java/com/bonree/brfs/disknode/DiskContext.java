@@ -1,36 +1,259 @@
 package com.bonree.brfs.disknode;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.bonree.brfs.configuration.Configs;
+import com.bonree.brfs.configuration.units.DiskNodeConfigs;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 public class DiskContext {
 	public static final String URI_PING_PONG_ROOT = "/ping";
 	public static final String URI_DISK_NODE_ROOT = "/disk";
+	public static final String URI_BATCH_READ_ROOT = "/batch";
 	public static final String URI_FLUSH_NODE_ROOT = "/flush";
 	public static final String URI_SEQUENCE_NODE_ROOT = "sequence";
 	public static final String URI_SEQ_BYTE_NODE_ROOT = "/bytes";
+	public static final String URI_SEQ_RANGE_BYTE_NODE_ROOT = "/rangebytes";
 	public static final String URI_COPY_NODE_ROOT = "/copy";
 	public static final String URI_LIST_NODE_ROOT = "/list";
 	public static final String URI_META_NODE_ROOT = "/metadata";
 	public static final String URI_RECOVER_NODE_ROOT = "/recover";
 	
-	private String workDirectory;
+	private static final int DEFAULT_LOCATION_CACHE_SIZE = 100000;
+	
+	private List<DataDisk> disks;
+	
+	//文件所在磁盘的缓存，避免每次访问都要在所有磁盘中查找
+	private Cache<String, DataDisk> fileLocations = CacheBuilder.newBuilder()
+			.maximumSize(DEFAULT_LOCATION_CACHE_SIZE)
+			.build();
+	
+	private final List<EvictListener> evictListeners = new CopyOnWriteArrayList<EvictListener>();
+	
+	/**
+	 * 路径被删除或重写时的通知接口，用于清理基于文件的读缓存
+	 */
+	public interface EvictListener {
+		/**
+		 * @param path 磁盘上的真实路径，可能是文件或目录
+		 */
+		void evicted(String path);
+	}
 	
 	public DiskContext(String workDir) {
-		this.workDirectory = new File(workDir).getAbsolutePath();
+		this(Collections.singletonList(workDir));
+	}
+	
+	/**
+	 * 管理多块磁盘的上下文，第一个目录是主目录
+	 * 
+	 * @param workDirs
+	 */
+	public DiskContext(List<String> workDirs) {
+		if(workDirs.isEmpty()) {
+			throw new IllegalArgumentException("no data root is specified");
+		}
+		
+		int workerNum = Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_WRITER_WORKER_NUM);
+		boolean groupCommit = Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_WRITER_GROUP_COMMIT);
+		List<DataDisk> diskList = new ArrayList<DataDisk>();
+		for(String workDir : workDirs) {
+			diskList.add(new DataDisk(workDir, workerNum, groupCommit));
+		}
+		
+		this.disks = Collections.unmodifiableList(diskList);
+	}
+	
+	/**
+	 * 配置中的所有数据目录，第一个目录是主目录
+	 * 
+	 * @return
+	 */
+	public static List<String> getConfiguredRootDirs() {
+		List<String> rootDirs = new ArrayList<String>();
+		rootDirs.add(Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_DATA_ROOT));
+		rootDirs.addAll(Splitter.on(',').omitEmptyStrings().trimResults()
+				.splitToList(Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_DATA_EXTRA_ROOTS)));
+				
+		return rootDirs;
 	}
 	
 	public String getRootDir() {
-		return this.workDirectory;
+		return disks.get(0).getRootDir();
 	}
 	
 	/**
-	 * 从用户使用的逻辑路径转换为实际磁盘中的真实路径
+	 * 所有磁盘的数据目录，第一个目录是主目录
+	 * 
+	 * @return
+	 */
+	public List<String> getRootDirs() {
+		List<String> rootDirs = new ArrayList<String>();
+		for(DataDisk disk : disks) {
+			rootDirs.add(disk.getRootDir());
+		}
+		
+		return rootDirs;
+	}
+	
+	public List<DataDisk> getDisks() {
+		return disks;
+	}
+	
+	/**
+	 * 获取真实路径所在的磁盘
+	 * 
+	 * @param path
+	 * @return
+	 */
+	public DataDisk getDiskOf(String path) {
+		for(DataDisk disk : disks) {
+			if(disk.contains(path)) {
+				return disk;
+			}
+		}
+		
+		throw new IllegalArgumentException("path[" + path + "] isn't in any data disk");
+	}
+	
+	/**
+	 * 从用户使用的逻辑路径转换为实际磁盘中的真实路径，文件不存在时
+	 * 返回主目录下的路径
 	 * 
 	 * @param logicPath
 	 * @return
 	 */
 	public String getConcreteFilePath(String logicPath) {
-		return new File(workDirectory, logicPath).getAbsolutePath();
+		DataDisk disk = locate(logicPath);
+		return new File(disk != null ? disk.getRootDir() : getRootDir(), logicPath).getAbsolutePath();
+	}
+	
+	/**
+	 * 获取逻辑路径在所有磁盘中存在的真实路径，用于目录这种
+	 * 会分布在多块磁盘中的路径
+	 * 
+	 * @param logicPath
+	 * @return
+	 */
+	public List<String> getConcreteFilePaths(String logicPath) {
+		List<String> paths = new ArrayList<String>();
+		for(DataDisk disk : disks) {
+			File file = new File(disk.getRootDir(), logicPath);
+			if(file.exists()) {
+				paths.add(file.getAbsolutePath());
+			}
+		}
+		
+		return paths;
+	}
+	
+	/**
+	 * 为新文件选择磁盘并返回真实路径，文件已经存在时返回已有的路径。
+	 * 
+	 * 优先选择写入队列短、剩余空间大的磁盘
+	 * 
+	 * @param logicPath
+	 * @return
+	 */
+	public String allocateFilePath(String logicPath) {
+		DataDisk disk = locate(logicPath);
+		if(disk == null) {
+			disk = selectDisk();
+			fileLocations.put(locationKey(logicPath), disk);
+		}
+		
+		return new File(disk.getRootDir(), logicPath).getAbsolutePath();
+	}
+	
+	public void addEvictListener(EvictListener listener) {
+		evictListeners.add(listener);
+	}
+	
+	/**
+	 * 文件被删除后需要移除逻辑路径及其下所有路径的位置缓存，
+	 * 否则重新创建的文件可能还会使用原来的磁盘。
+	 * 
+	 * 所有删除或截断文件的地方都通过这里通知读缓存，逻辑路径在每块磁盘中
+	 * 对应的真实路径都会通知给{@link EvictListener}
+	 * 
+	 * @param logicPath
+	 */
+	public void evict(String logicPath) {
+		String key = locationKey(logicPath);
+		String dirPrefix = key.endsWith(File.separator) ? key : key + File.separator;
+		Iterator<String> iterator = fileLocations.asMap().keySet().iterator();
+		while(iterator.hasNext()) {
+			String path = iterator.next();
+			if(path.equals(key) || path.startsWith(dirPrefix)) {
+				iterator.remove();
+			}
+		}
+		
+		for(DataDisk disk : disks) {
+			String path = new File(disk.getRootDir(), logicPath).getAbsolutePath();
+			for(EvictListener listener : evictListeners) {
+				listener.evicted(path);
+			}
+		}
+	}
+	
+	private DataDisk locate(String logicPath) {
+		if(disks.size() == 1) {
+			return disks.get(0);
+		}
+		
+		String key = locationKey(logicPath);
+		DataDisk disk = fileLocations.getIfPresent(key);
+		if(disk != null) {
+			return disk;
+		}
+		
+		for(DataDisk candidate : disks) {
+			if(new File(candidate.getRootDir(), logicPath).exists()) {
+				fileLocations.put(key, candidate);
+				return candidate;
+			}
+		}
+		
+		return null;
+	}
+	
+	//统一逻辑路径的格式，如"a/b"和"/a/b/"都对应"/a/b"
+	private static String locationKey(String logicPath) {
+		return new File(File.separator, logicPath).getPath();
+	}
+	
+	private DataDisk selectDisk() {
+		if(disks.size() == 1) {
+			return disks.get(0);
+		}
+		
+		DataDisk selected = null;
+		double selectedScore = -1;
+		for(DataDisk disk : disks) {
+			if(!disk.isHealthy()) {
+				continue;
+			}
+			
+			double score = (double) disk.usableSpace() / (1 + disk.pendingTaskCount());
+			if(score > selectedScore) {
+				selected = disk;
+				selectedScore = score;
+			}
+		}
+		
+		if(selected == null) {
+			throw new IllegalStateException("no healthy data disk is available");
+		}
+		
+		return selected;
 	}
 	
 	/**
@@ -40,10 +263,12 @@ public class DiskContext {
 	 * @return
 	 */
 	public String getLogicFilePath(String path) {
-		if(!path.startsWith(workDirectory)) {
-			throw new IllegalArgumentException("path[" + path + "] isn't illegal real path");
+		for(DataDisk disk : disks) {
+			if(disk.contains(path)) {
+				return path.substring(disk.getRootDir().length());
+			}
 		}
 		
-		return path.substring(workDirectory.length());
+		throw new IllegalArgumentException("path[" + path + "] isn't illegal real path");
 	}
 }
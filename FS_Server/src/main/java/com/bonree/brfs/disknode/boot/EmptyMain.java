@@ -3,6 +3,7 @@ package com.bonree.brfs.disknode.boot;
 import java.io.File;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,9 +19,14 @@ import com.bonree.brfs.common.utils.PooledThreadFactory;
 import com.bonree.brfs.configuration.Configs;
 import com.bonree.brfs.configuration.SystemProperties;
 import com.bonree.brfs.configuration.units.DiskNodeConfigs;
+import com.bonree.brfs.disknode.DataDisk;
 import com.bonree.brfs.disknode.DiskContext;
+import com.bonree.brfs.disknode.DiskContext.EvictListener;
+import com.bonree.brfs.disknode.data.read.BlockCache;
+import com.bonree.brfs.disknode.data.read.FileChannelCache;
 import com.bonree.brfs.disknode.data.write.FileWriterManager;
 import com.bonree.brfs.disknode.data.write.record.RecordCollectionManager;
+import com.bonree.brfs.disknode.server.handler.BatchReadMessageHandler;
 import com.bonree.brfs.disknode.server.handler.CloseMessageHandler;
 import com.bonree.brfs.disknode.server.handler.DeleteMessageHandler;
 import com.bonree.brfs.disknode.server.handler.FileCopyMessageHandler;
@@ -34,7 +40,11 @@ import com.bonree.brfs.disknode.server.handler.SequenceNumberCache;
 import com.bonree.brfs.disknode.server.handler.WriteMessageHandler;
 import com.bonree.brfs.disknode.server.handler.WritingBytesMessageHandler;
 import com.bonree.brfs.disknode.server.handler.WritingMetaDataMessageHandler;
+import com.bonree.brfs.disknode.server.handler.WritingRangeBytesMessageHandler;
 import com.bonree.brfs.disknode.server.handler.WritingSequenceMessageHandler;
+import com.bonree.brfs.disknode.server.tcp.TcpWriteHandler;
+import com.bonree.brfs.disknode.server.tcp.TcpWriteServer;
+import com.bonree.brfs.disknode.server.tcp.WriteProtocol;
 
 public class EmptyMain implements LifeCycle {
 	private static final Logger LOG = LoggerFactory.getLogger(EmptyMain.class);
@@ -42,10 +52,14 @@ public class EmptyMain implements LifeCycle {
 	private NettyHttpServer server;
 	private HttpConfig httpConfig;
 	
+	private TcpWriteServer tcpServer;
+	
 	private DiskContext diskContext;
 	
 	private FileWriterManager writerManager;
 	private ServiceManager serviceManager;
+	private FileChannelCache channelCache;
+	private BlockCache blockCache;
 	
 	private ExecutorService requestHandlerExecutor;
 	
@@ -53,7 +67,7 @@ public class EmptyMain implements LifeCycle {
 	private ServiceStateListener serviceStateListener;
 	
 	public EmptyMain(ServiceManager serviceManager) {
-		this.diskContext = new DiskContext(Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_DATA_ROOT));
+		this.diskContext = new DiskContext(DiskContext.getConfiguredRootDirs());
 		this.serviceManager = serviceManager;
 		
 		int workerThreadNum = Integer.parseInt(System.getProperty(SystemProperties.PROP_NET_IO_WORKER_NUM,
@@ -80,6 +94,10 @@ public class EmptyMain implements LifeCycle {
 		};
 	}
 
+	public DiskContext getDiskContext() {
+		return diskContext;
+	}
+	
 	@Override
 	public void start() throws Exception {
 		LOG.info("Empty Main--port[{}]", httpConfig.getPort());
@@ -87,10 +105,30 @@ public class EmptyMain implements LifeCycle {
 		checkDiskContextPath();
 		
 		RecordCollectionManager recorderManager = new RecordCollectionManager();
-		writerManager = new FileWriterManager(recorderManager);
+		writerManager = new FileWriterManager(diskContext, recorderManager);
 		writerManager.start();
 		
-		writerManager.rebuildFileWriterbyDir(diskContext.getRootDir());
+		for(DataDisk disk : diskContext.getDisks()) {
+			writerManager.rebuildFileWriterbyDir(disk.getRootDir());
+		}
+		
+		channelCache = new FileChannelCache(Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_READ_OPEN_FILES),
+				Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_READ_OPEN_FILES_IDLE_SECONDS), TimeUnit.SECONDS);
+		channelCache.start();
+		//删除任务和删除请求都通过位置缓存的清理通知读缓存
+		diskContext.addEvictListener(new EvictListener() {
+			
+			@Override
+			public void evicted(String path) {
+				channelCache.invalidate(path);
+			}
+		});
+		
+		long readCacheSize = Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_READ_CACHE_SIZE);
+		if(readCacheSize > 0) {
+			blockCache = new BlockCache(readCacheSize, Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_READ_CACHE_BLOCK_SIZE), channelCache);
+			blockCache.start();
+		}
 		
 		serviceManager.addServiceStateListener(DISKNODE_SERVICE_GROUP, serviceStateListener);
 		
@@ -101,12 +139,17 @@ public class EmptyMain implements LifeCycle {
 		
 		NettyHttpRequestHandler requestHandler = new NettyHttpRequestHandler(requestHandlerExecutor);
 		requestHandler.addMessageHandler("PUT", new OpenMessageHandler(diskContext, writerManager));
-		requestHandler.addMessageHandler("POST", new WriteMessageHandler(diskContext, writerManager));
-		requestHandler.addMessageHandler("GET", new ReadMessageHandler(diskContext));
-		requestHandler.addMessageHandler("CLOSE", new CloseMessageHandler(diskContext, writerManager));
+		WriteMessageHandler writeMessageHandler = new WriteMessageHandler(diskContext, writerManager);
+		requestHandler.addMessageHandler("POST", writeMessageHandler);
+		requestHandler.addMessageHandler("GET", new ReadMessageHandler(diskContext, blockCache, channelCache));
+		requestHandler.addMessageHandler("CLOSE", new CloseMessageHandler(diskContext, writerManager, channelCache));
 		requestHandler.addMessageHandler("DELETE", new DeleteMessageHandler(diskContext, writerManager));
 		server.addContextHandler(DiskContext.URI_DISK_NODE_ROOT, requestHandler);
 		
+		NettyHttpRequestHandler batchReadRequestHandler = new NettyHttpRequestHandler(requestHandlerExecutor);
+		batchReadRequestHandler.addMessageHandler("POST", new BatchReadMessageHandler(diskContext, channelCache));
+		server.addContextHandler(DiskContext.URI_BATCH_READ_ROOT, batchReadRequestHandler);
+		
 		NettyHttpRequestHandler flushRequestHandler = new NettyHttpRequestHandler(requestHandlerExecutor);
 		flushRequestHandler.addMessageHandler("POST", new FlushMessageHandler(diskContext, writerManager));
 		server.addContextHandler(DiskContext.URI_FLUSH_NODE_ROOT, flushRequestHandler);
@@ -121,6 +164,10 @@ public class EmptyMain implements LifeCycle {
 		bytesRequestHandler.addMessageHandler("GET", new WritingBytesMessageHandler(diskContext, cache));
 		server.addContextHandler(DiskContext.URI_SEQ_BYTE_NODE_ROOT, bytesRequestHandler);
 		
+		NettyHttpRequestHandler rangeBytesRequestHandler = new NettyHttpRequestHandler(requestHandlerExecutor);
+		rangeBytesRequestHandler.addMessageHandler("GET", new WritingRangeBytesMessageHandler(diskContext, cache, channelCache));
+		server.addContextHandler(DiskContext.URI_SEQ_RANGE_BYTE_NODE_ROOT, rangeBytesRequestHandler);
+		
 		NettyHttpRequestHandler metaRequestHandler = new NettyHttpRequestHandler(requestHandlerExecutor);
 		metaRequestHandler.addMessageHandler("GET", new WritingMetaDataMessageHandler(diskContext, writerManager));
 		server.addContextHandler(DiskContext.URI_META_NODE_ROOT, metaRequestHandler);
@@ -134,7 +181,7 @@ public class EmptyMain implements LifeCycle {
 		server.addContextHandler(DiskContext.URI_LIST_NODE_ROOT, listRequestHandler);
 		
 		NettyHttpRequestHandler recoverRequestHandler = new NettyHttpRequestHandler(requestHandlerExecutor);
-		recoverRequestHandler.addMessageHandler("POST", new RecoveryMessageHandler(diskContext, serviceManager, writerManager, recorderManager));
+		recoverRequestHandler.addMessageHandler("POST", new RecoveryMessageHandler(diskContext, serviceManager, writerManager, recorderManager, channelCache));
 		server.addContextHandler(DiskContext.URI_RECOVER_NODE_ROOT, recoverRequestHandler);
 		
 		NettyHttpRequestHandler pingRequestHandler = new NettyHttpRequestHandler(requestHandlerExecutor);
@@ -142,20 +189,43 @@ public class EmptyMain implements LifeCycle {
 		server.addContextHandler(DiskContext.URI_PING_PONG_ROOT, pingRequestHandler);
 		
 		server.start();
+		
+		if(Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_TCP_ENABLE)) {
+			tcpServer = new TcpWriteServer(httpConfig.getHost(),
+					WriteProtocol.tcpPort(httpConfig.getPort()),
+					httpConfig.getRequestHandleWorkerNum(),
+					new TcpWriteHandler(diskContext, writeMessageHandler, requestHandlerExecutor));
+			tcpServer.start();
+		}
 	}
 	
 	private void checkDiskContextPath() {
-		if(!new File(diskContext.getRootDir()).exists()) {
-			throw new IllegalArgumentException("Disk context path[" + diskContext.getRootDir() + "] is not existed!");
+		for(DataDisk disk : diskContext.getDisks()) {
+			if(!new File(disk.getRootDir()).exists()) {
+				throw new IllegalArgumentException("Disk context path[" + disk.getRootDir() + "] is not existed!");
+			}
 		}
 	}
 
 	@Override
 	public void stop() throws Exception {
 		server.stop();
+		
+		if(tcpServer != null) {
+			tcpServer.stop();
+		}
+		
 		serviceManager.removeServiceStateListener(DISKNODE_SERVICE_GROUP, serviceStateListener);
 		writerManager.stop();
 		
+		if(blockCache != null) {
+			blockCache.stop();
+		}
+		
+		if(channelCache != null) {
+			channelCache.stop();
+		}
+		
 		if(requestHandlerExecutor != null) {
 			requestHandlerExecutor.shutdown();
 		}
@@ -4,6 +4,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.bonree.brfs.disknode.server.handler.data.FileInfo;
 import com.bonree.brfs.disknode.server.handler.data.WriteData;
@@ -19,6 +20,16 @@ public interface DiskNodeClient extends Closeable {
 	
 	WriteResult[] writeDatas(String path, WriteData[] dataList) throws IOException;
 	
+	/**
+	 * 异步写入数据，调用线程不等待磁盘节点的响应
+	 * 
+	 * @param path
+	 * @param dataList
+	 * @return 写入结果，磁盘节点返回写入失败时结果为null，
+	 *         请求无法发送或者没有响应时以异常结束
+	 */
+	CompletableFuture<WriteResult[]> writeDatasAsync(String path, WriteData[] dataList);
+	
 	boolean flush(String file) throws IOException;
 	
 	byte[] readData(String path, int offset, int size) throws IOException;
@@ -41,6 +52,17 @@ public interface DiskNodeClient extends Closeable {
 	
 	byte[] getBytesBySequence(String path, int sequence);
 	
+	/**
+	 * 获取序列号在[startSequence, startSequence + count)范围内的数据，
+	 * 数据量较大时只返回范围中前面的一部分
+	 * 
+	 * @param path
+	 * @param startSequence
+	 * @param count
+	 * @return 按序列号升序排列的数据，失败时返回null
+	 */
+	WriteData[] getBytesBySequenceRange(String path, int startSequence, int count);
+	
 	void copyFrom(String host, int port, String remotePath, String localPath) throws Exception;
 	void copyTo(String host, int port, String localPath, String remotePath) throws Exception;
 }
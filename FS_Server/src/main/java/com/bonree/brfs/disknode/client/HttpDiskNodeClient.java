@@ -5,6 +5,7 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,10 +15,12 @@ import com.alibaba.fastjson.JSONObject;
 import com.bonree.brfs.common.net.http.client.ClientConfig;
 import com.bonree.brfs.common.net.http.client.HttpClient;
 import com.bonree.brfs.common.net.http.client.HttpResponse;
+import com.bonree.brfs.common.net.http.client.ResponseHandler;
 import com.bonree.brfs.common.net.http.client.URIBuilder;
 import com.bonree.brfs.common.utils.BrStringUtils;
 import com.bonree.brfs.common.utils.ProtoStuffUtils;
 import com.bonree.brfs.disknode.DiskContext;
+import com.bonree.brfs.disknode.server.handler.WritingRangeBytesMessageHandler;
 import com.bonree.brfs.disknode.server.handler.data.FileCopyMessage;
 import com.bonree.brfs.disknode.server.handler.data.FileInfo;
 import com.bonree.brfs.disknode.server.handler.data.WriteData;
@@ -135,6 +138,53 @@ public class HttpDiskNodeClient implements DiskNodeClient {
 		return null;
 	}
 	
+	@Override
+	public CompletableFuture<WriteResult[]> writeDatasAsync(String path, WriteData[] dataList) {
+		CompletableFuture<WriteResult[]> future = new CompletableFuture<WriteResult[]>();
+		WriteDataList datas = new WriteDataList();
+		datas.setDatas(dataList);
+		
+		URI uri = new URIBuilder()
+		.setScheme(DEFAULT_SCHEME)
+		.setHost(host)
+		.setPort(port)
+		.setPath(DiskContext.URI_DISK_NODE_ROOT + path)
+		.build();
+		
+		try {
+			LOG.info("write file[{}] with {} datas to {}:{}", path, dataList.length, host, port);
+			client.executePost(uri, ProtoStuffUtils.serialize(datas), new ResponseHandler() {
+				
+				@Override
+				public void onCompleted(HttpResponse response) {
+					LOG.info("write file[{}] response[{}]", path, response.getStatusCode());
+					if(!response.isReponseOK()) {
+						future.complete(null);
+						return;
+					}
+					
+					try {
+						WriteResultList resultList = ProtoStuffUtils.deserialize(response.getResponseBody(), WriteResultList.class);
+						future.complete(resultList.getWriteResults());
+					} catch (Exception e) {
+						future.completeExceptionally(e);
+					}
+				}
+				
+				@Override
+				public void onThrowable(Throwable e) {
+					LOG.error("write file[{}] to {}:{} error", path, host, port, e);
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (Exception e) {
+			LOG.error("write file[{}] to {}:{} error", path, host, port, e);
+			future.completeExceptionally(e);
+		}
+		
+		return future;
+	}
+	
 	@Override
 	public boolean flush(String path) {
 		URI uri = new URIBuilder()
@@ -353,6 +403,32 @@ public class HttpDiskNodeClient implements DiskNodeClient {
 		return null;
 	}
 
+	@Override
+	public WriteData[] getBytesBySequenceRange(String path, int startSequence, int count) {
+		URI uri = new URIBuilder()
+	    .setScheme(DEFAULT_SCHEME)
+	    .setHost(host)
+	    .setPort(port)
+	    .setPath(DiskContext.URI_SEQ_RANGE_BYTE_NODE_ROOT + path)
+	    .addParameter(WritingRangeBytesMessageHandler.PARAM_SEQUENCE, String.valueOf(startSequence))
+	    .addParameter(WritingRangeBytesMessageHandler.PARAM_COUNT, String.valueOf(count))
+	    .build();
+	
+		try {
+			LOG.info("get bytes from file[{}] by sequence[{}, {}) to {}:{}", path, startSequence, startSequence + count, host, port);
+			HttpResponse response = client.executeGet(uri);
+			LOG.info("get range bytes from file[{}] response[{}]", path, response.getStatusCode());
+			if(response.isReponseOK()) {
+				WriteDataList dataList = ProtoStuffUtils.deserialize(response.getResponseBody(), WriteDataList.class);
+				return dataList.getDatas() == null ? new WriteData[0] : dataList.getDatas();
+			}
+		} catch (Exception e) {
+			LOG.error("get bytes of file[{}] with seq[{}, {}) at {}:{} error", path, startSequence, startSequence + count, host, port, e);
+		}
+		
+		return null;
+	}
+	
 	@Override
 	public List<FileInfo> listFiles(String path, int level) {
 		URI uri = new URIBuilder()
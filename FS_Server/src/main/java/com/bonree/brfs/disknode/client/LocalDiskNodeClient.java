@@ -5,6 +5,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.bonree.brfs.common.utils.CloseUtils;
 import com.bonree.brfs.disknode.data.read.DataFileReader;
@@ -66,6 +67,11 @@ public class LocalDiskNodeClient implements DiskNodeClient {
 	public byte[] getBytesBySequence(String path, int sequence) {
 		return null;
 	}
+	
+	@Override
+	public WriteData[] getBytesBySequenceRange(String path, int startSequence, int count) {
+		return null;
+	}
 
 	@Override
 	public void copyFrom(String host, int port, String remotePath,
@@ -119,6 +125,18 @@ public class LocalDiskNodeClient implements DiskNodeClient {
 			throws IOException {
 		return null;
 	}
+	
+	@Override
+	public CompletableFuture<WriteResult[]> writeDatasAsync(String path, WriteData[] dataList) {
+		CompletableFuture<WriteResult[]> future = new CompletableFuture<WriteResult[]>();
+		try {
+			future.complete(writeDatas(path, dataList));
+		} catch (IOException e) {
+			future.completeExceptionally(e);
+		}
+		
+		return future;
+	}
 
 	@Override
 	public boolean ping() {
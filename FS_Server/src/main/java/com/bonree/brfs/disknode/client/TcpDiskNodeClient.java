@@ -0,0 +1,323 @@
+package com.bonree.brfs.disknode.client;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bonree.brfs.common.utils.CloseUtils;
+import com.bonree.brfs.disknode.server.handler.data.FileInfo;
+import com.bonree.brfs.disknode.server.handler.data.WriteData;
+import com.bonree.brfs.disknode.server.handler.data.WriteResult;
+import com.bonree.brfs.disknode.server.tcp.WriteProtocol;
+
+/**
+ * 通过二进制协议写数据的磁盘节点客户端。
+ * 
+ * 写数据请求通过一个长连接发送，多个写请求可以同时在连接上传输，
+ * 通过请求ID匹配响应；其他操作仍然通过Http客户端完成。
+ * 
+ * @author chen
+ * 
+ */
+public class TcpDiskNodeClient implements DiskNodeClient {
+	private static final Logger LOG = LoggerFactory.getLogger(TcpDiskNodeClient.class);
+	
+	private final String host;
+	private final int port;
+	private final long responseTimeout;
+	
+	private final DiskNodeClient httpClient;
+	private Channel channel;
+	
+	private final AtomicInteger requestIdBuilder = new AtomicInteger(0);
+	private final ConcurrentHashMap<Integer, CompletableFuture<WriteProtocol.Response>> pendingRequests = new ConcurrentHashMap<Integer, CompletableFuture<WriteProtocol.Response>>();
+	
+	public TcpDiskNodeClient(String host, int port, long responseTimeout, DiskNodeClient httpClient) {
+		this.host = host;
+		this.port = port;
+		this.responseTimeout = responseTimeout;
+		this.httpClient = httpClient;
+	}
+	
+	/**
+	 * 建立写数据的长连接
+	 * 
+	 * @param group
+	 * @param connectTimeout
+	 * @throws IOException
+	 */
+	public void connect(EventLoopGroup group, int connectTimeout) throws IOException {
+		Bootstrap bootstrap = new Bootstrap();
+		bootstrap.group(group);
+		bootstrap.channel(NioSocketChannel.class);
+		bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
+		bootstrap.option(ChannelOption.TCP_NODELAY, true);
+		bootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout);
+		bootstrap.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+		bootstrap.handler(new ChannelInitializer<SocketChannel>() {
+			
+			@Override
+			protected void initChannel(SocketChannel ch) throws Exception {
+				ch.pipeline().addLast(WriteProtocol.newFrameDecoder());
+				ch.pipeline().addLast(WriteProtocol.newFramePrepender());
+				ch.pipeline().addLast(new ResponseHandler());
+			}
+		});
+		
+		ChannelFuture future = bootstrap.connect(host, port).awaitUninterruptibly();
+		if(!future.isSuccess()) {
+			throw new IOException("can not connect to " + host + ":" + port, future.cause());
+		}
+		
+		channel = future.channel();
+	}
+	
+	public boolean isActive() {
+		return channel != null && channel.isActive();
+	}
+	
+	@Override
+	public boolean ping() {
+		return isActive() && httpClient.ping();
+	}
+	
+	@Override
+	public int openFile(String path, int capacity) {
+		return httpClient.openFile(path, capacity);
+	}
+	
+	@Override
+	public WriteResult writeData(String path, int sequence, byte[] bytes) throws IOException {
+		WriteData writeItem = new WriteData();
+		writeItem.setDiskSequence(sequence);
+		writeItem.setBytes(bytes);
+		
+		WriteResult[] results = writeDatas(path, new WriteData[] {writeItem});
+		
+		return results != null ? results[0] : null;
+	}
+	
+	@Override
+	public WriteResult writeData(String path, int sequence, byte[] bytes, int offset, int size) throws IOException {
+		int length = Math.min(size, bytes.length - offset);
+		byte[] copy = new byte[length];
+		System.arraycopy(bytes, offset, copy, 0, length);
+		
+		return writeData(path, sequence, copy);
+	}
+	
+	@Override
+	public WriteResult[] writeDatas(String path, WriteData[] dataList) throws IOException {
+		try {
+			return writeDatasAsync(path, dataList).get();
+		} catch (Exception e) {
+			LOG.error("write file[{}] to {}:{} error", path, host, port, e);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * 发送写数据请求后立即返回，不等待响应，同一个连接上可以同时有多个请求在传输
+	 * 
+	 * @param path
+	 * @param dataList
+	 * @return 写入结果，节点返回写入失败时结果为null；连接不可用、发送失败
+	 *         或者响应超时时以异常结束
+	 */
+	@Override
+	public CompletableFuture<WriteResult[]> writeDatasAsync(String path, WriteData[] dataList) {
+		CompletableFuture<WriteResult[]> resultFuture = new CompletableFuture<WriteResult[]>();
+		if(!isActive()) {
+			LOG.error("write file[{}] to {}:{} error, channel is not active", path, host, port);
+			resultFuture.completeExceptionally(new IOException("channel to " + host + ":" + port + " is not active"));
+			return resultFuture;
+		}
+		
+		int requestId = requestIdBuilder.getAndIncrement();
+		CompletableFuture<WriteProtocol.Response> future = new CompletableFuture<WriteProtocol.Response>();
+		pendingRequests.put(requestId, future);
+		
+		//超时由连接的事件线程检查，不占用等待的线程
+		ScheduledFuture<?> timeoutFuture = channel.eventLoop().schedule(new Runnable() {
+			
+			@Override
+			public void run() {
+				future.completeExceptionally(new TimeoutException("write file[" + path + "] to "
+						+ host + ":" + port + " timeout, request[" + requestId + "]"));
+			}
+		}, responseTimeout, TimeUnit.MILLISECONDS);
+		
+		future.whenComplete(new BiConsumer<WriteProtocol.Response, Throwable>() {
+			
+			@Override
+			public void accept(WriteProtocol.Response response, Throwable cause) {
+				pendingRequests.remove(requestId);
+				timeoutFuture.cancel(false);
+				
+				if(cause != null) {
+					LOG.error("write file[{}] to {}:{} error, request[{}]", path, host, port, requestId, cause);
+					resultFuture.completeExceptionally(cause);
+					return;
+				}
+				
+				if(!response.isSuccess()) {
+					LOG.error("write file[{}] to {}:{} failed, request[{}]", path, host, port, requestId);
+					resultFuture.complete(null);
+					return;
+				}
+				
+				resultFuture.complete(response.getResults());
+			}
+		});
+		
+		try {
+			LOG.debug("write file[{}] with {} datas to {}:{}, request[{}]", path, dataList.length, host, port, requestId);
+			channel.writeAndFlush(WriteProtocol.encodeRequest(channel.alloc(), requestId, path, dataList))
+			.addListener(new ChannelFutureListener() {
+				
+				@Override
+				public void operationComplete(ChannelFuture writeFuture) throws Exception {
+					if(!writeFuture.isSuccess()) {
+						future.completeExceptionally(writeFuture.cause());
+					}
+				}
+			});
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+		
+		return resultFuture;
+	}
+	
+	@Override
+	public boolean flush(String file) throws IOException {
+		return httpClient.flush(file);
+	}
+	
+	@Override
+	public byte[] readData(String path, int offset, int size) throws IOException {
+		return httpClient.readData(path, offset, size);
+	}
+	
+	@Override
+	public boolean closeFile(String path) {
+		return httpClient.closeFile(path);
+	}
+	
+	@Override
+	public List<FileInfo> listFiles(String path, int level) {
+		return httpClient.listFiles(path, level);
+	}
+	
+	@Override
+	public boolean deleteFile(String path, boolean force) {
+		return httpClient.deleteFile(path, force);
+	}
+	
+	@Override
+	public boolean deleteDir(String path, boolean force, boolean recursive) {
+		return httpClient.deleteDir(path, force, recursive);
+	}
+	
+	@Override
+	public BitSet getWritingSequence(String path) {
+		return httpClient.getWritingSequence(path);
+	}
+	
+	@Override
+	public int[] getWritingFileMetaInfo(String path) {
+		return httpClient.getWritingFileMetaInfo(path);
+	}
+	
+	@Override
+	public boolean recover(String path, RecoverInfo infos) {
+		return httpClient.recover(path, infos);
+	}
+	
+	@Override
+	public byte[] getBytesBySequence(String path, int sequence) {
+		return httpClient.getBytesBySequence(path, sequence);
+	}
+	
+	@Override
+	public WriteData[] getBytesBySequenceRange(String path, int startSequence, int count) {
+		return httpClient.getBytesBySequenceRange(path, startSequence, count);
+	}
+	
+	@Override
+	public void copyFrom(String host, int port, String remotePath, String localPath) throws Exception {
+		httpClient.copyFrom(host, port, remotePath, localPath);
+	}
+	
+	@Override
+	public void copyTo(String host, int port, String localPath, String remotePath) throws Exception {
+		httpClient.copyTo(host, port, localPath, remotePath);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if(channel != null) {
+			channel.close();
+		}
+		
+		CloseUtils.closeQuietly(httpClient);
+	}
+	
+	private class ResponseHandler extends SimpleChannelInboundHandler<ByteBuf> {
+		
+		@Override
+		protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) throws Exception {
+			WriteProtocol.Response response = WriteProtocol.decodeResponse(frame);
+			CompletableFuture<WriteProtocol.Response> future = pendingRequests.get(response.getRequestId());
+			if(future == null) {
+				LOG.warn("no pending request[{}] from {}:{}, maybe timeout", response.getRequestId(), host, port);
+				return;
+			}
+			
+			future.complete(response);
+		}
+		
+		@Override
+		public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+			LOG.info("write channel to {}:{} is closed", host, port);
+			//连接断开后未完成的请求都不会再有响应
+			IOException cause = new IOException("channel to " + host + ":" + port + " is closed");
+			for(CompletableFuture<WriteProtocol.Response> future : pendingRequests.values()) {
+				future.completeExceptionally(cause);
+			}
+			
+			super.channelInactive(ctx);
+		}
+		
+		@Override
+		public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+			LOG.error("write channel to {}:{} error", host, port, cause);
+			ctx.close();
+		}
+	}
+}
@@ -0,0 +1,327 @@
+package com.bonree.brfs.disknode.data.read;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bonree.brfs.common.process.LifeCycle;
+import com.bonree.brfs.common.utils.PooledThreadFactory;
+import com.bonree.brfs.disknode.data.read.FileChannelCache.ChannelRef;
+import com.bonree.brfs.disknode.data.read.FileChannelCache.InvalidateListener;
+import com.bonree.brfs.disknode.utils.BufferUtils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+
+/**
+ * 数据文件的读缓存
+ * 
+ * 文件按固定大小的块缓存在堆外内存中，以LRU的方式淘汰。只缓存已经完整写入
+ * 磁盘的数据块，文件末尾不满一块的数据每次都从文件读取，所以正在写入的文件
+ * 也可以使用缓存。文件被重写或删除时需要调用{@link #invalidate(String)}。
+ * 
+ * 数据块使用引用计数，被淘汰或失效后等正在进行的读取都结束才会回收。
+ * 回收的堆外内存放入空闲列表供下一次未命中时使用，空闲列表满时直接释放，
+ * 不依赖GC回收堆外内存。
+ * 
+ * @author yupeng
+ * 
+ */
+public class BlockCache implements LifeCycle {
+	private static final Logger LOG = LoggerFactory.getLogger(BlockCache.class);
+	
+	//单次读取最多使用的数据块数量，更大的读取不经过缓存
+	private static final int MAX_BLOCKS_PER_READ = 16;
+	private static final int STATS_LOG_INTERVAL_SECONDS = 60;
+	//空闲列表中最多保留的数据块数量
+	private static final int MAX_FREE_BLOCKS = MAX_BLOCKS_PER_READ * 2;
+	
+	private final int blockSize;
+	private final Cache<BlockKey, Block> blocks;
+	private final BlockingQueue<ByteBuffer> freeBuffers = new ArrayBlockingQueue<ByteBuffer>(MAX_FREE_BLOCKS);
+	private final FileChannelCache channelCache;
+	
+	private ScheduledExecutorService statsLogger;
+	
+	/**
+	 * @param capacity 缓存的最大字节数
+	 * @param blockSize 数据块大小
+	 * @param channelCache 文件句柄缓存，文件句柄失效时数据块也会失效
+	 */
+	public BlockCache(long capacity, int blockSize, FileChannelCache channelCache) {
+		if(blockSize <= 0) {
+			throw new IllegalArgumentException("illegal block size[" + blockSize + "]");
+		}
+		
+		this.blockSize = blockSize;
+		this.channelCache = channelCache;
+		this.blocks = CacheBuilder.newBuilder()
+				.maximumWeight(capacity)
+				.weigher(new Weigher<BlockKey, Block>() {
+					
+					@Override
+					public int weigh(BlockKey key, Block block) {
+						return block.buffer.capacity();
+					}
+				})
+				.removalListener(new RemovalListener<BlockKey, Block>() {
+					
+					@Override
+					public void onRemoval(RemovalNotification<BlockKey, Block> notification) {
+						//释放缓存持有的引用
+						notification.getValue().release();
+					}
+				})
+				.recordStats()
+				.build();
+				
+		channelCache.addInvalidateListener(new InvalidateListener() {
+			
+			@Override
+			public void invalidated(String path) {
+				invalidate(path);
+			}
+		});
+	}
+	
+	public int getBlockSize() {
+		return blockSize;
+	}
+	
+	/**
+	 * 判断指定长度的读取是否使用缓存
+	 * 
+	 * @param length
+	 * @return
+	 */
+	public boolean isCacheable(int length) {
+		return length <= blockSize * MAX_BLOCKS_PER_READ;
+	}
+	
+	/**
+	 * 读取文件数据，与{@link DataFileReader#readFile(String, int, int)}一致，
+	 * 读取失败时返回空数组
+	 * 
+	 * @param filePath
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public byte[] read(String filePath, int offset, int length) {
+		ChannelRef ref = null;
+		try {
+			ref = channelCache.acquire(filePath);
+			long fileLength = ref.channel().size();
+			offset = Math.max(0, offset);
+			if(offset >= fileLength) {
+				return new byte[0];
+			}
+			
+			int size = (int) Math.min(length, fileLength - offset);
+			byte[] bytes = new byte[size];
+			long end = (long) offset + size;
+			for(long index = offset / blockSize; index * blockSize < end; index++) {
+				long blockStart = index * blockSize;
+				int blockLength = (int) Math.min(blockSize, fileLength - blockStart);
+				
+				int from = (int) (Math.max(offset, blockStart) - blockStart);
+				int to = (int) (Math.min(end, blockStart + blockLength) - blockStart);
+				Block block = getBlock(ref, new BlockKey(filePath, index), blockStart, blockLength);
+				try {
+					ByteBuffer view = block.buffer.duplicate();
+					view.limit(to).position(from);
+					view.get(bytes, (int) (blockStart + from - offset), to - from);
+				} finally {
+					block.release();
+				}
+			}
+			
+			return bytes;
+		} catch (ClosedChannelException e) {
+			LOG.warn("channel of file[{}] is closed", filePath);
+			channelCache.discard(ref);
+		} catch (IOException e) {
+			LOG.error("read file[{}] with offset[{}], size[{}] error", filePath, offset, length, e);
+		} finally {
+			if(ref != null) {
+				ref.release();
+			}
+		}
+		
+		return new byte[0];
+	}
+	
+	/**
+	 * 获取数据块，使用完成后必须调用{@link Block#release()}
+	 * 
+	 * 只有完整的数据块会放入缓存，文件末尾不满一块的数据使用堆内存
+	 */
+	private Block getBlock(ChannelRef ref, BlockKey key, long blockStart, int blockLength) throws IOException {
+		Block block = blocks.getIfPresent(key);
+		if(block != null && block.retain()) {
+			return block;
+		}
+		
+		boolean full = blockLength == blockSize;
+		block = new Block(full ? allocate() : ByteBuffer.allocate(blockLength));
+		try {
+			ref.read(block.buffer, blockStart);
+			block.buffer.flip();
+		} catch (IOException e) {
+			block.release();
+			throw e;
+		}
+		
+		if(full && block.retain()) {
+			blocks.put(key, block);
+		}
+		
+		return block;
+	}
+	
+	private ByteBuffer allocate() {
+		ByteBuffer buffer = freeBuffers.poll();
+		if(buffer == null) {
+			return ByteBuffer.allocateDirect(blockSize);
+		}
+		
+		buffer.clear();
+		return buffer;
+	}
+	
+	private void recycle(ByteBuffer buffer) {
+		if(!buffer.isDirect()) {
+			return;
+		}
+		
+		if(!freeBuffers.offer(buffer)) {
+			BufferUtils.release(buffer);
+		}
+	}
+	
+	/**
+	 * 空闲列表中的数据块数量
+	 */
+	int freeBlockCount() {
+		return freeBuffers.size();
+	}
+	
+	/**
+	 * 使文件或目录下所有文件的缓存失效
+	 * 
+	 * @param path
+	 */
+	public void invalidate(String path) {
+		String dirPrefix = path.endsWith(File.separator) ? path : path + File.separator;
+		blocks.asMap().keySet().removeIf(new Predicate<BlockKey>() {
+			
+			@Override
+			public boolean test(BlockKey key) {
+				return key.filePath.equals(path) || key.filePath.startsWith(dirPrefix);
+			}
+		});
+	}
+	
+	public CacheStats stats() {
+		return blocks.stats();
+	}
+	
+	@Override
+	public void start() {
+		statsLogger = Executors.newSingleThreadScheduledExecutor(new PooledThreadFactory("block_cache_stats"));
+		statsLogger.scheduleAtFixedRate(new Runnable() {
+			
+			@Override
+			public void run() {
+				CacheStats stats = blocks.stats();
+				LOG.info("block cache size[{}], hit[{}], miss[{}], hit rate[{}], eviction[{}]",
+						blocks.size(), stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount());
+			}
+		}, STATS_LOG_INTERVAL_SECONDS, STATS_LOG_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+	
+	@Override
+	public void stop() {
+		if(statsLogger != null) {
+			statsLogger.shutdown();
+		}
+		
+		blocks.invalidateAll();
+		
+		ByteBuffer buffer;
+		while((buffer = freeBuffers.poll()) != null) {
+			BufferUtils.release(buffer);
+		}
+	}
+	
+	/**
+	 * 带引用计数的数据块
+	 */
+	private class Block {
+		private final ByteBuffer buffer;
+		//创建者持有一个引用
+		private final AtomicInteger refCount = new AtomicInteger(1);
+		
+		Block(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+		
+		private boolean retain() {
+			while(true) {
+				int count = refCount.get();
+				if(count <= 0) {
+					return false;
+				}
+				
+				if(refCount.compareAndSet(count, count + 1)) {
+					return true;
+				}
+			}
+		}
+		
+		void release() {
+			if(refCount.decrementAndGet() == 0) {
+				recycle(buffer);
+			}
+		}
+	}
+	
+	private static class BlockKey {
+		private final String filePath;
+		private final long index;
+		
+		BlockKey(String filePath, long index) {
+			this.filePath = filePath;
+			this.index = index;
+		}
+		
+		@Override
+		public int hashCode() {
+			return filePath.hashCode() * 31 + (int) (index ^ (index >>> 32));
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof BlockKey)) {
+				return false;
+			}
+			
+			BlockKey other = (BlockKey) obj;
+			return index == other.index && filePath.equals(other.filePath);
+		}
+	}
+}
@@ -0,0 +1,306 @@
+package com.bonree.brfs.disknode.data.read;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bonree.brfs.common.process.LifeCycle;
+import com.bonree.brfs.common.utils.CloseUtils;
+import com.bonree.brfs.common.utils.PooledThreadFactory;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * 读数据文件时使用的只读文件句柄缓存
+ * 
+ * 缓存的句柄使用引用计数，句柄被淘汰或失效后，等正在进行的读取都结束才会
+ * 真正关闭，所以删除和重写文件时只需要调用{@link #invalidate(String)}。
+ * 读取使用基于位置的读操作，不需要映射和释放内存。
+ * 
+ * 一段时间没有读取的句柄会被关闭，避免已经删除但没有失效的文件一直
+ * 被打开而无法释放磁盘空间。
+ * 
+ * @author yupeng
+ * 
+ */
+public class FileChannelCache implements LifeCycle {
+	private static final Logger LOG = LoggerFactory.getLogger(FileChannelCache.class);
+	
+	private static final int STATS_LOG_INTERVAL_SECONDS = 60;
+	private static final int DEFAULT_IDLE_SECONDS = 60;
+	
+	private final boolean cacheEnabled;
+	private final long idleMillis;
+	private final Cache<String, ChannelRef> channels;
+	private final List<InvalidateListener> listeners = new CopyOnWriteArrayList<InvalidateListener>();
+	
+	private ScheduledExecutorService scheduler;
+	
+	/**
+	 * 文件失效时的通知接口，用于清理基于文件的其他缓存
+	 */
+	public interface InvalidateListener {
+		void invalidated(String path);
+	}
+	
+	/**
+	 * @param maxOpenFiles 最多缓存的文件句柄数量，为0时每次读取都重新打开文件
+	 */
+	public FileChannelCache(int maxOpenFiles) {
+		this(maxOpenFiles, DEFAULT_IDLE_SECONDS, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * @param maxOpenFiles 最多缓存的文件句柄数量，为0时每次读取都重新打开文件
+	 * @param idleTime 句柄多长时间没有读取后关闭
+	 * @param unit
+	 */
+	public FileChannelCache(int maxOpenFiles, long idleTime, TimeUnit unit) {
+		this.cacheEnabled = maxOpenFiles > 0;
+		this.idleMillis = Math.max(unit.toMillis(idleTime), 1);
+		this.channels = CacheBuilder.newBuilder()
+				.maximumSize(Math.max(maxOpenFiles, 0))
+				.expireAfterAccess(idleMillis, TimeUnit.MILLISECONDS)
+				.removalListener(new RemovalListener<String, ChannelRef>() {
+					
+					@Override
+					public void onRemoval(RemovalNotification<String, ChannelRef> notification) {
+						//释放缓存持有的引用
+						notification.getValue().release();
+					}
+				})
+				.recordStats()
+				.build();
+	}
+	
+	public void addInvalidateListener(InvalidateListener listener) {
+		listeners.add(listener);
+	}
+	
+	/**
+	 * 获取文件的句柄，使用完成后必须调用{@link ChannelRef#release()}
+	 * 
+	 * @param filePath
+	 * @return
+	 * @throws IOException
+	 */
+	public ChannelRef acquire(String filePath) throws IOException {
+		if(!cacheEnabled) {
+			//不缓存时只有调用者持有引用
+			return new ChannelRef(filePath, new RandomAccessFile(filePath, "r").getChannel());
+		}
+		
+		while(true) {
+			ChannelRef ref;
+			try {
+				ref = channels.get(filePath, new Callable<ChannelRef>() {
+					
+					@Override
+					public ChannelRef call() throws Exception {
+						return new ChannelRef(filePath, new RandomAccessFile(filePath, "r").getChannel());
+					}
+				});
+			} catch (ExecutionException e) {
+				if(e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				
+				throw new IOException(e.getCause());
+			}
+			
+			if(ref.retain()) {
+				return ref;
+			}
+			
+			//句柄刚好被关闭
+			channels.asMap().remove(filePath, ref);
+		}
+	}
+	
+	/**
+	 * 丢弃已经不可用的句柄，比如读取线程被中断导致句柄被关闭
+	 * 
+	 * @param ref
+	 */
+	public void discard(ChannelRef ref) {
+		channels.asMap().remove(ref.filePath, ref);
+	}
+	
+	/**
+	 * 读取文件数据，与{@link DataFileReader#readFile(String, int, int)}一致，
+	 * 读取失败时返回空数组
+	 * 
+	 * @param filePath
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public byte[] read(String filePath, int offset, int length) {
+		//线程被中断时句柄会被关闭，这时重新打开文件再读一次
+		for(int retry = 0; retry < 2; retry++) {
+			ChannelRef ref = null;
+			try {
+				ref = acquire(filePath);
+				long fileLength = ref.channel().size();
+				offset = Math.max(0, offset);
+				if(offset >= fileLength) {
+					return new byte[0];
+				}
+				
+				byte[] bytes = new byte[(int) Math.min(length, fileLength - offset)];
+				ref.read(ByteBuffer.wrap(bytes), offset);
+				return bytes;
+			} catch (ClosedChannelException e) {
+				LOG.warn("channel of file[{}] is closed", filePath);
+				discard(ref);
+			} catch (IOException e) {
+				LOG.error("read file[{}] with offset[{}], size[{}] error", filePath, offset, length, e);
+				break;
+			} finally {
+				if(ref != null) {
+					ref.release();
+				}
+			}
+		}
+		
+		return new byte[0];
+	}
+	
+	/**
+	 * 使文件或目录下所有文件的句柄失效
+	 * 
+	 * @param path
+	 */
+	public void invalidate(String path) {
+		String dirPrefix = path.endsWith(File.separator) ? path : path + File.separator;
+		channels.asMap().keySet().removeIf(new Predicate<String>() {
+			
+			@Override
+			public boolean test(String filePath) {
+				return filePath.equals(path) || filePath.startsWith(dirPrefix);
+			}
+		});
+		
+		for(InvalidateListener listener : listeners) {
+			listener.invalidated(path);
+		}
+	}
+	
+	/**
+	 * 命中次数即为避免的文件打开次数
+	 * 
+	 * @return
+	 */
+	public CacheStats stats() {
+		return channels.stats();
+	}
+	
+	/**
+	 * 关闭空闲的句柄，缓存只在访问时清理过期的数据，没有读取时需要定时清理
+	 */
+	void cleanUp() {
+		channels.cleanUp();
+	}
+	
+	@Override
+	public void start() {
+		scheduler = Executors.newSingleThreadScheduledExecutor(new PooledThreadFactory("channel_cache"));
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			
+			@Override
+			public void run() {
+				cleanUp();
+			}
+		}, idleMillis, idleMillis, TimeUnit.MILLISECONDS);
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			
+			@Override
+			public void run() {
+				CacheStats stats = channels.stats();
+				LOG.info("channel cache size[{}], opens avoided[{}], opens[{}], eviction[{}]",
+						channels.size(), stats.hitCount(), stats.loadCount(), stats.evictionCount());
+			}
+		}, STATS_LOG_INTERVAL_SECONDS, STATS_LOG_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+	
+	@Override
+	public void stop() {
+		if(scheduler != null) {
+			scheduler.shutdown();
+		}
+		
+		channels.invalidateAll();
+	}
+	
+	/**
+	 * 带引用计数的文件句柄
+	 */
+	public static class ChannelRef {
+		private final String filePath;
+		private final FileChannel channel;
+		//缓存本身持有一个引用
+		private final AtomicInteger refCount = new AtomicInteger(1);
+		
+		private ChannelRef(String filePath, FileChannel channel) {
+			this.filePath = filePath;
+			this.channel = channel;
+		}
+		
+		public FileChannel channel() {
+			return channel;
+		}
+		
+		/**
+		 * 从指定位置读满缓存
+		 * 
+		 * @param dest
+		 * @param position
+		 * @throws IOException
+		 */
+		public void read(ByteBuffer dest, long position) throws IOException {
+			long start = position - dest.position();
+			while(dest.hasRemaining()) {
+				if(channel.read(dest, start + dest.position()) < 0) {
+					throw new IOException("unexpected end of file[" + filePath + "] at " + (start + dest.position()));
+				}
+			}
+		}
+		
+		private boolean retain() {
+			while(true) {
+				int count = refCount.get();
+				if(count <= 0) {
+					return false;
+				}
+				
+				if(refCount.compareAndSet(count, count + 1)) {
+					return true;
+				}
+			}
+		}
+		
+		public void release() {
+			if(refCount.decrementAndGet() == 0) {
+				CloseUtils.closeQuietly(channel);
+			}
+		}
+	}
+}
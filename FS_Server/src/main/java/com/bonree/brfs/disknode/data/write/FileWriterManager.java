@@ -4,7 +4,11 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
@@ -20,53 +24,54 @@ import com.bonree.brfs.common.utils.CloseUtils;
 import com.bonree.brfs.common.write.data.FileDecoder;
 import com.bonree.brfs.configuration.Configs;
 import com.bonree.brfs.configuration.units.DiskNodeConfigs;
-import com.bonree.brfs.disknode.data.read.DataFileReader;
+import com.bonree.brfs.disknode.DataDisk;
+import com.bonree.brfs.disknode.DiskContext;
 import com.bonree.brfs.disknode.data.write.buf.ByteArrayFileBuffer;
+import com.bonree.brfs.disknode.data.write.record.RecordCollection;
 import com.bonree.brfs.disknode.data.write.record.RecordCollectionManager;
 import com.bonree.brfs.disknode.data.write.record.RecordElement;
 import com.bonree.brfs.disknode.data.write.record.RecordFileBuilder;
+import com.bonree.brfs.disknode.data.write.record.RecordIndex;
 import com.bonree.brfs.disknode.data.write.worker.RandomWriteWorkerSelector;
 import com.bonree.brfs.disknode.data.write.worker.WriteTask;
 import com.bonree.brfs.disknode.data.write.worker.WriteWorker;
-import com.bonree.brfs.disknode.data.write.worker.WriteWorkerGroup;
 import com.bonree.brfs.disknode.data.write.worker.WriteWorkerSelector;
+import com.bonree.brfs.disknode.utils.BufferUtils;
 import com.bonree.brfs.disknode.utils.Pair;
-import com.google.common.base.Splitter;
 
 public class FileWriterManager implements LifeCycle {
 	private static final Logger LOG = LoggerFactory.getLogger(FileWriterManager.class);
 
-	// 默认的写Worker线程数量
-	private WriteWorkerGroup workerGroup;
+	private DiskContext diskContext;
 	private WriteWorkerSelector workerSelector;
 	private RecordCollectionManager recorderManager;
 
 	private static int recordCacheSize = Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_WRITER_RECORD_CACHE_SIZE);
 	private static int dataCacheSize = Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_WRITER_DATA_CACHE_SIZE);
+	//组提交模式下，数据在每个写入批次结束时同步到磁盘
+	private static boolean groupCommit = Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_WRITER_GROUP_COMMIT);
 
 	private ConcurrentHashMap<String, Pair<RecordFileWriter, WriteWorker>> runningWriters = new ConcurrentHashMap<String, Pair<RecordFileWriter, WriteWorker>>();
 
 	private WheelTimer<String> timeoutWheel = new WheelTimer<String>(
 			Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_FILE_FLUSH_TIMEOUT));
 
-	public FileWriterManager(RecordCollectionManager recorderManager) {
-		this(Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_WRITER_WORKER_NUM), recorderManager);
+	public FileWriterManager(DiskContext diskContext, RecordCollectionManager recorderManager) {
+		this(diskContext, new RandomWriteWorkerSelector(), recorderManager);
 	}
 
-	public FileWriterManager(int workerNum, RecordCollectionManager recorderManager) {
-		this(workerNum, new RandomWriteWorkerSelector(), recorderManager);
-	}
-
-	public FileWriterManager(int workerNum, WriteWorkerSelector selector,
+	public FileWriterManager(DiskContext diskContext, WriteWorkerSelector selector,
 			RecordCollectionManager recorderManager) {
-		this.workerGroup = new WriteWorkerGroup(workerNum);
+		this.diskContext = diskContext;
 		this.workerSelector = selector;
 		this.recorderManager = recorderManager;
 	}
 
 	@Override
 	public void start() throws Exception {
-		workerGroup.start();
+		for(DataDisk disk : diskContext.getDisks()) {
+			disk.start();
+		}
 
 		timeoutWheel.setTimeout(new Timeout<String>() {
 
@@ -85,9 +90,15 @@ public class FileWriterManager implements LifeCycle {
 	}
 	
 	public void flushIfNeeded(String filePath) {
+		if(groupCommit) {
+			//组提交模式下数据已经在批次结束时同步
+			return;
+		}
+		
 		timeoutWheel.update(filePath);
 	}
 	
+	
 	public void flushFile(String path) throws FileNotFoundException {
 		Pair<RecordFileWriter, WriteWorker> binding = getBinding(path, false);
 		if(binding == null) {
@@ -160,7 +171,9 @@ public class FileWriterManager implements LifeCycle {
 				LOG.error("stop to flush file[{}] error", entry.getKey(), e);
 			}
 		}
-		workerGroup.stop();
+		for(DataDisk disk : diskContext.getDisks()) {
+			disk.stop();
+		}
 	}
 
 	public Pair<RecordFileWriter, WriteWorker> getBinding(String path, boolean createIfNeeded) {
@@ -179,15 +192,20 @@ public class FileWriterManager implements LifeCycle {
 	
 	public void rebuildFileWriter(File dataFile) throws IOException {
 		RecordFileWriter writer = new RecordFileWriter(
-				recorderManager.getRecordCollection(dataFile, true, recordCacheSize, true),
-						new BufferedFileWriter(dataFile, true, new ByteArrayFileBuffer(dataCacheSize)));
+				recorderManager.getRecordCollection(dataFile.getAbsolutePath(), true, recordCacheSize, groupCommit, true),
+						new BufferedFileWriter(dataFile, true, new ByteArrayFileBuffer(dataCacheSize, groupCommit)));
 
 		Pair<RecordFileWriter, WriteWorker> binding = new Pair<RecordFileWriter, WriteWorker>(
-				writer, workerSelector.select(workerGroup.getWorkerList()));
+				writer, selectWorker(dataFile.getAbsolutePath()));
 		
 		runningWriters.put(dataFile.getAbsolutePath(), binding);
 	}
 
+	//文件只由所在磁盘的Worker写入
+	private WriteWorker selectWorker(String filePath) {
+		return workerSelector.select(diskContext.getDiskOf(filePath).getWorkerGroup().getWorkerList());
+	}
+	
 	private Pair<RecordFileWriter, WriteWorker> buildDiskWriter(String filePath) {
 		Pair<RecordFileWriter, WriteWorker> binding = runningWriters.get(filePath);
 
@@ -202,16 +220,16 @@ public class FileWriterManager implements LifeCycle {
 						}
 						
 						RecordFileWriter writer = new RecordFileWriter(
-								recorderManager.getRecordCollection(filePath, false, recordCacheSize, true),
-								new BufferedFileWriter(filePath, new ByteArrayFileBuffer(dataCacheSize)));
+								recorderManager.getRecordCollection(filePath, false, recordCacheSize, groupCommit, true),
+								new BufferedFileWriter(filePath, new ByteArrayFileBuffer(dataCacheSize, groupCommit)));
 
 						binding = new Pair<RecordFileWriter, WriteWorker>(
-								writer, workerSelector.select(workerGroup
-										.getWorkerList()));
+								writer, selectWorker(filePath));
 						
 						runningWriters.put(filePath, binding);
 					} catch (Exception e) {
 						LOG.error("build disk writer error", e);
+						diskContext.getDiskOf(filePath).markUnhealthy();
 					}
 				}
 			}
@@ -220,60 +238,51 @@ public class FileWriterManager implements LifeCycle {
 		return binding;
 	}
 	
-	//获取缺失或多余的日志记录信息
-	private List<RecordElement> validElements(String filepath, List<RecordElement> originElements) {
-		byte[] bytes = DataFileReader.readFile(filepath, 0);
-		List<String> offsets = FileDecoder.getOffsets(bytes);
-		
-		List<RecordElement> validElmentList = new ArrayList<RecordElement>();
-		RecordElement element = originElements.get(0);
-		if(element.getSequence() != 0) {
+	/**
+	 * 获取与数据文件一致的日志记录数量。日志记录和数据都是顺序追加的，不一致只会出现在
+	 * 文件末尾，所以通过二分查找定位数据完整的记录，只校验末尾记录的CRC
+	 */
+	private int validCount(String filepath, RecordIndex index, ByteBuffer data) {
+		if(index.sequence(0) != 0) {
 			//没有文件头的日志记录，不应该发生的
 			throw new IllegalStateException("no header record in file[" + filepath + "]");
 		}
 		
-		validElmentList.add(element);
-		int index = 0;
-		int originSize = originElements.size();
-		for(index = 0; index < offsets.size(); index++) {
-			List<String> parts = Splitter.on("|").splitToList(offsets.get(index));
-			int offset = Integer.parseInt(parts.get(0));
-			int size = Integer.parseInt(parts.get(1));
-			long crc = ByteUtils.crc(bytes, offset, size);
-			
-			if(index + 1 >= originSize) {
-				//数据文件还有数据，但日志文件没有记录
-				validElmentList.add(new RecordElement(index + 1, offset, size, crc));
-				continue;
-			}
-			
-			element = originElements.get(index + 1);
-			if(index + 1 != element.getSequence()) {
-				//序列号不一致，到此中断
-				//因为数据文件里获取的信息不包含文件头的，所以这里需要加上1
-				LOG.warn("excepted sequence number[{}], but get number[{}] for file[{}]", index + 1, element.getSequence(), filepath);
-				break;
-			}
-			
-			if(element.getOffset() != offset) {
-				LOG.warn("excepted offset[{}], but get offset[{}] for file[{}]", offset, element.getOffset(), filepath);
-				break;
-			}
-			
-			if(element.getSize() != size) {
-				LOG.warn("excepted size[{}], but get size[{}] for file[{}]", size, element.getSize(), filepath);
-				break;
+		//序列号与位置一致并且数据已经写入文件的记录是连续的一段
+		int low = 1;
+		int high = index.size();
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(index.sequence(mid) == mid && index.offset(mid) + index.recordSize(mid) <= data.limit()) {
+				low = mid + 1;
+			} else {
+				high = mid;
 			}
-			
-			if(element.getCrc() != crc) {
-				LOG.warn("excepted crc[{}], but get crc[{}] for file[{}]", crc, element.getCrc(), filepath);
+		}
+		
+		if(low < index.size()) {
+			LOG.warn("excepted record count[{}], but get count[{}] for file[{}]", index.size(), low, filepath);
+		}
+		
+		int count = low;
+		while(count > 1) {
+			int last = count - 1;
+			long offset = index.offset(last);
+			int size = index.recordSize(last);
+			if(offset != index.offset(last - 1) + index.recordSize(last - 1)) {
+				LOG.warn("excepted offset[{}], but get offset[{}] for file[{}]", index.offset(last - 1) + index.recordSize(last - 1), offset, filepath);
+			} else if(FileDecoder.recordSize(data, (int) offset) != size) {
+				LOG.warn("excepted size[{}], but get size[{}] for file[{}]", FileDecoder.recordSize(data, (int) offset), size, filepath);
+			} else if(ByteUtils.crc(data, (int) offset, size) != index.crc(last)) {
+				LOG.warn("excepted crc[{}], but get crc[{}] for file[{}]", ByteUtils.crc(data, (int) offset, size), index.crc(last), filepath);
+			} else {
 				break;
 			}
 			
-			validElmentList.add(element);
+			count--;
 		}
 		
-		return validElmentList;
+		return count;
 	}
 	
 	public void adjustFileWriter(String filePath) throws IOException {
@@ -282,38 +291,59 @@ public class FileWriterManager implements LifeCycle {
 			throw new IllegalStateException("no writer of " + filePath + " is found for adjust");
 		}
 		
-		List<RecordElement> originElements = binding.first().getRecordCollection().getRecordElementList();
-		if(originElements.isEmpty()) {
-			//没有数据写入成功，不需要任何协调
-			return;
-		}
-		
-		List<RecordElement> elements = validElements(filePath, originElements);
-		LOG.info("adjust file get elements size[{}] for file[{}]", elements.size(), filePath);
-		RecordElement lastElement = elements.get(elements.size() - 1);
-		long validPosition = lastElement.getOffset() + lastElement.getSize();
-		System.out.println(lastElement);
-		System.out.println(binding.first().position());
-		
-		boolean needFlush = false;
-		if(validPosition != binding.first().position()) {
-			LOG.info("rewrite file content of file[{}]", filePath);
-			//数据文件的内容和日志信息不一致，需要调整数据文件
-			binding.first().position(validPosition);
-			needFlush = true;
-		}
-		
-		if(elements.size() != originElements.size()) {
-			LOG.info("rewrite file records of file[{}]", filePath);
-			binding.first().getRecordCollection().clear();
-			for(RecordElement element : elements) {
-				binding.first().getRecordCollection().put(element);
+		RecordCollection recordSet = binding.first().getRecordCollection();
+		RecordIndex index = recordSet.getRecordIndex();
+		RandomAccessFile file = null;
+		MappedByteBuffer data = null;
+		try {
+			if(index.size() == 0) {
+				//没有数据写入成功，不需要任何协调
+				return;
 			}
-			needFlush = true;
-		}
-		
-		if(needFlush) {
-			binding.first().flush();
+			
+			file = new RandomAccessFile(filePath, "r");
+			data = file.getChannel().map(MapMode.READ_ONLY, 0, file.length());
+			
+			int count = validCount(filePath, index, data);
+			RecordElement lastElement = index.get(count - 1);
+			List<RecordElement> lostElements = Collections.emptyList();
+			if(count == index.size()) {
+				//数据文件还有数据，但日志文件没有记录
+				long end = lastElement.getOffset() + lastElement.getSize();
+				lostElements = RecordIndex.scan(data, (int) end, lastElement.getSequence() + 1);
+				if(!lostElements.isEmpty()) {
+					lastElement = lostElements.get(lostElements.size() - 1);
+				}
+			}
+			LOG.info("adjust file get elements size[{}] for file[{}]", count + lostElements.size(), filePath);
+			
+			long validPosition = lastElement.getOffset() + lastElement.getSize();
+			boolean needFlush = false;
+			if(validPosition != binding.first().position()) {
+				LOG.info("rewrite file content of file[{}]", filePath);
+				//数据文件的内容和日志信息不一致，需要调整数据文件
+				binding.first().position(validPosition);
+				//截断的位置之后会写入新的数据，读缓存中的旧数据需要失效
+				diskContext.evict(diskContext.getLogicFilePath(filePath));
+				needFlush = true;
+			}
+			
+			if(count != index.size() || !lostElements.isEmpty()) {
+				LOG.info("rewrite file records of file[{}]", filePath);
+				recordSet.truncate(count);
+				for(RecordElement element : lostElements) {
+					recordSet.put(element);
+				}
+				needFlush = true;
+			}
+			
+			if(needFlush) {
+				binding.first().flush();
+			}
+		} finally {
+			CloseUtils.closeQuietly(file);
+			BufferUtils.release(data);
+			index.close();
 		}
 	}
 
@@ -13,7 +13,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bonree.brfs.common.utils.CloseUtils;
-import com.bonree.brfs.common.utils.ProtoStuffUtils;
 import com.bonree.brfs.disknode.data.write.FileWriter;
 
 /**
@@ -62,12 +61,52 @@ public class RecordCollection implements Closeable {
 	 * @throws IOException
 	 */
 	public void put(RecordElement element) throws IOException {
-		recordWriter.write(ProtoStuffUtils.serialize(element));
+		recordWriter.write(RecordIndex.encode(element));
 	}
 	
 	public void clear() throws IOException {
+		truncate(0);
+	}
+	
+	/**
+	 * 只保留前count条日志记录
+	 * 
+	 * @param count
+	 * @throws IOException
+	 */
+	public void truncate(int count) throws IOException {
 		recordWriter.flush();
-		recordWriter.position(0);
+		recordWriter.position(RecordIndex.HEADER_SIZE + (long) count * RecordIndex.ENTRY_SIZE);
+	}
+	
+	/**
+	 * 为新的日志文件写入文件头，旧版本格式的日志记录会被转换为当前格式
+	 * 
+	 * @throws IOException
+	 */
+	void prepare() throws IOException {
+		if(recordWriter.position() == 0) {
+			recordWriter.write(RecordIndex.header());
+			recordWriter.flush();
+			return;
+		}
+		
+		if(RecordIndex.isCurrentFormat(recordFile)) {
+			return;
+		}
+		
+		LOG.info("convert legacy record file[{}]", recordFile.getAbsolutePath());
+		RecordIndex index = RecordIndex.open(recordFile);
+		try {
+			recordWriter.position(0);
+			recordWriter.write(RecordIndex.header());
+			for(int i = 0; i < index.size(); i++) {
+				put(index.get(i));
+			}
+			recordWriter.flush();
+		} finally {
+			index.close();
+		}
 	}
 	
 	/**
@@ -79,6 +118,16 @@ public class RecordCollection implements Closeable {
 		recordWriter.flush();
 	}
 	
+	/**
+	 * 读取已经同步到文件的日志记录
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	public RecordIndex getRecordIndex() throws IOException {
+		return RecordIndex.open(recordFile);
+	}
+	
 	public RecordElementReader getRecordElementReader() {
 		return new RecordElementReader(recordFile);
 	}
@@ -61,12 +61,26 @@ public class RecordCollectionManager {
 	 * @return
 	 */
 	public RecordCollection getRecordCollection(String dataFilePath, boolean append, int bufferSize, boolean deleteOnClose) {
+		return getRecordCollection(dataFilePath, append, bufferSize, false, deleteOnClose);
+	}
+	
+	/**
+	 * 获取与数据文件名相对应的写入日志记录文件处理对象
+	 * 
+	 * @param dataFilePath 数据文件路径
+	 * @param forceWhenSync 同步日志记录时是否强制写入磁盘
+	 * @return
+	 */
+	public RecordCollection getRecordCollection(String dataFilePath, boolean append, int bufferSize, boolean forceWhenSync, boolean deleteOnClose) {
 		File recordFile = RecordFileBuilder.buildFrom(dataFilePath);
 		try {
-			FileWriter writer = bufferSize > 0 ? new BufferedFileWriter(recordFile, append, new ByteArrayFileBuffer(bufferSize))
+			FileWriter writer = bufferSize > 0 ? new BufferedFileWriter(recordFile, append, new ByteArrayFileBuffer(bufferSize, forceWhenSync))
 			                                   : new DirectFileWriter(recordFile, append);
 			
-			return new RecordCollection(recordFile, writer, deleteOnClose);
+			RecordCollection recordCollection = new RecordCollection(recordFile, writer, deleteOnClose);
+			recordCollection.prepare();
+			
+			return recordCollection;
 		} catch (IOException e) {
 			LOG.error("getRecordCollection error", e);
 		}
@@ -1,25 +1,21 @@
 package com.bonree.brfs.disknode.data.write.record;
 
-import java.io.BufferedInputStream;
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bonree.brfs.common.utils.CloseUtils;
-import com.bonree.brfs.common.utils.ProtoStuffUtils;
 
 public class RecordElementReader implements Iterable<RecordElement>, Closeable {
 	private static final Logger LOG = LoggerFactory.getLogger(RecordElementReader.class);
 	
 	private File recordFile;
-	private InputStream fileInput;
+	private RecordIndex index;
 	
 	public RecordElementReader(File recordFile) {
 		this.recordFile = recordFile;
@@ -27,44 +23,41 @@ public class RecordElementReader implements Iterable<RecordElement>, Closeable {
 
 	@Override
 	public Iterator<RecordElement> iterator() {
+		CloseUtils.closeQuietly(index);
 		try {
-			fileInput = new BufferedInputStream(new FileInputStream(recordFile));
-		} catch (FileNotFoundException e) {
+			index = RecordIndex.open(recordFile);
+		} catch (IOException e) {
 			LOG.error("open RecordElementIterator[{}] error..", recordFile.getAbsolutePath(), e);
 		}
 		
-		return new RecordElementIterator(fileInput);
+		return new RecordElementIterator(index);
 	}
 
 	@Override
 	public void close() throws IOException {
-		CloseUtils.closeQuietly(fileInput);
+		CloseUtils.closeQuietly(index);
 	}
 	
 	private class RecordElementIterator implements Iterator<RecordElement> {
-		private InputStream recordInput;
-		private RecordElement next;
+		private RecordIndex index;
+		private int next;
 		
-		public RecordElementIterator(InputStream recordInput) {
-			this.recordInput = recordInput;
-			readNext();
+		public RecordElementIterator(RecordIndex index) {
+			this.index = index;
 		}
 
 		@Override
 		public boolean hasNext() {
-			return next != null;
+			return index != null && next < index.size();
 		}
 
 		@Override
 		public RecordElement next() {
-			RecordElement result = next;
-			readNext();
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
 			
-			return result;
-		}
-		
-		private void readNext() {
-			next = ProtoStuffUtils.readFrom(recordInput, RecordElement.class);
+			return index.get(next++);
 		}
 	}
 }
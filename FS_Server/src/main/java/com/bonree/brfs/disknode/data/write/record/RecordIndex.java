@@ -0,0 +1,290 @@
+package com.bonree.brfs.disknode.data.write.record;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bonree.brfs.common.utils.ByteUtils;
+import com.bonree.brfs.common.utils.CloseUtils;
+import com.bonree.brfs.common.utils.ProtoStuffUtils;
+import com.bonree.brfs.common.write.data.FileDecoder;
+import com.bonree.brfs.disknode.utils.BufferUtils;
+
+/**
+ * 数据文件的记录索引
+ * 
+ * 索引文件以{@link #HEADER_SIZE}个字节的文件头开始：魔数(4)、版本号(4)，之后
+ * 每条记录固定{@link #ENTRY_SIZE}个字节：序列号(4)、偏移量(8)、大小(4)、CRC(8)，
+ * 记录按序列号递增的顺序写入，可以直接通过二分查找定位。
+ * 
+ * 没有文件头的索引文件是旧版本以protostuff格式写入的日志记录，读取时会转换
+ * 为当前格式。
+ * 
+ * 索引文件会被截断，所以打开索引时把内容读入内存，而不是映射文件，读取的内容
+ * 不包括之后写入的记录。
+ * 
+ * @author yupeng
+ * 
+ */
+public class RecordIndex implements Closeable {
+	//首字节大于0x7F，不会和旧版本日志记录的长度前缀冲突
+	private static final int MAGIC = 0xBF524458;
+	private static final int VERSION = 1;
+	
+	public static final int HEADER_SIZE = 8;
+	public static final int ENTRY_SIZE = 24;
+	
+	private static final int OFFSET_POS = 4;
+	private static final int SIZE_POS = 12;
+	private static final int CRC_POS = 16;
+	
+	private ByteBuffer entries;
+	private int size;
+	
+	private RecordIndex(ByteBuffer entries) {
+		this.entries = entries;
+		this.size = entries.limit() / ENTRY_SIZE;
+	}
+	
+	/**
+	 * 读取索引文件，文件不存在时返回空索引
+	 * 
+	 * @param indexFile
+	 * @return
+	 * @throws IOException
+	 */
+	public static RecordIndex open(File indexFile) throws IOException {
+		if(!indexFile.exists()) {
+			return new RecordIndex(ByteBuffer.allocate(0));
+		}
+		
+		byte[] bytes = Files.readAllBytes(indexFile.toPath());
+		if(!hasHeader(bytes)) {
+			return new RecordIndex(decodeLegacy(bytes));
+		}
+		
+		int version = ByteBuffer.wrap(bytes).getInt(4);
+		if(version != VERSION) {
+			throw new IOException("unsupported version[" + version + "] of record file[" + indexFile.getAbsolutePath() + "]");
+		}
+		
+		//末尾不完整的记录是写入中断导致的，直接忽略
+		int length = bytes.length - HEADER_SIZE;
+		return new RecordIndex(ByteBuffer.wrap(bytes, HEADER_SIZE, length - length % ENTRY_SIZE).slice());
+	}
+	
+	/**
+	 * 判断索引文件是否是当前格式，空文件也认为是当前格式
+	 * 
+	 * @param indexFile
+	 * @return
+	 * @throws IOException
+	 */
+	public static boolean isCurrentFormat(File indexFile) throws IOException {
+		if(!indexFile.exists() || indexFile.length() == 0) {
+			return true;
+		}
+		
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(indexFile, "r");
+			byte[] bytes = new byte[(int) Math.min(HEADER_SIZE, file.length())];
+			file.readFully(bytes);
+			
+			return hasHeader(bytes);
+		} finally {
+			CloseUtils.closeQuietly(file);
+		}
+	}
+	
+	private static boolean hasHeader(byte[] bytes) {
+		return bytes.length >= 4 && ByteBuffer.wrap(bytes).getInt(0) == MAGIC;
+	}
+	
+	/**
+	 * 解析旧版本的日志记录，末尾不完整的记录会被忽略
+	 */
+	private static ByteBuffer decodeLegacy(byte[] bytes) {
+		List<RecordElement> elements = new ArrayList<RecordElement>();
+		ByteArrayInputStream input = new ByteArrayInputStream(bytes);
+		while(input.available() > 0) {
+			RecordElement element = ProtoStuffUtils.readFrom(input, RecordElement.class);
+			if(element == null) {
+				break;
+			}
+			
+			elements.add(element);
+		}
+		
+		return encode(elements);
+	}
+	
+	/**
+	 * 索引文件的文件头
+	 * 
+	 * @return
+	 */
+	static byte[] header() {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		
+		return header.array();
+	}
+	
+	/**
+	 * 没有索引文件时通过解析数据文件建立索引，数据文件只做内存映射，
+	 * 不会整体读入堆内存
+	 * 
+	 * @param dataFile
+	 * @return 数据文件不存在或者没有文件头时返回空索引
+	 * @throws IOException
+	 */
+	public static RecordIndex build(File dataFile) throws IOException {
+		if(!dataFile.exists()) {
+			return new RecordIndex(ByteBuffer.allocate(0));
+		}
+		
+		RandomAccessFile file = null;
+		MappedByteBuffer data = null;
+		try {
+			file = new RandomAccessFile(dataFile, "r");
+			data = file.getChannel().map(MapMode.READ_ONLY, 0, file.length());
+			if(data.limit() < 2 || (data.get(0) & 0xFF) != 0xAC || data.get(1) != 0) {
+				return new RecordIndex(ByteBuffer.allocate(0));
+			}
+			
+			List<RecordElement> elements = new ArrayList<RecordElement>();
+			elements.add(new RecordElement(0, 0, 2, ByteUtils.crc(data, 0, 2)));
+			elements.addAll(scan(data, 2, 1));
+			
+			return new RecordIndex(encode(elements));
+		} finally {
+			CloseUtils.closeQuietly(file);
+			BufferUtils.release(data);
+		}
+	}
+	
+	/**
+	 * 从数据的指定位置开始解析没有索引的数据记录，直到数据结尾或者
+	 * 遇到不完整的记录
+	 * 
+	 * @param data 数据文件内容
+	 * @param position 开始解析的位置
+	 * @param sequence 第一条记录的序列号
+	 * @return
+	 */
+	public static List<RecordElement> scan(ByteBuffer data, int position, int sequence) {
+		List<RecordElement> elements = new ArrayList<RecordElement>();
+		while(position < data.limit()) {
+			int size = FileDecoder.recordSize(data, position);
+			if(size == 0) {
+				break;
+			}
+			
+			elements.add(new RecordElement(sequence++, position, size, ByteUtils.crc(data, position, size)));
+			position += size;
+		}
+		
+		return elements;
+	}
+	
+	private static ByteBuffer encode(List<RecordElement> elements) {
+		ByteBuffer entries = ByteBuffer.allocate(elements.size() * ENTRY_SIZE);
+		for(RecordElement element : elements) {
+			entries.put(encode(element));
+		}
+		entries.flip();
+		
+		return entries;
+	}
+	
+	static byte[] encode(RecordElement element) {
+		ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+		entry.putInt(element.getSequence());
+		entry.putLong(element.getOffset());
+		entry.putInt(element.getSize());
+		entry.putLong(element.getCrc());
+		
+		return entry.array();
+	}
+	
+	/**
+	 * 索引中的记录数量
+	 * 
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+	
+	public int sequence(int index) {
+		return entries.getInt(index * ENTRY_SIZE);
+	}
+	
+	public long offset(int index) {
+		return entries.getLong(index * ENTRY_SIZE + OFFSET_POS);
+	}
+	
+	public int recordSize(int index) {
+		return entries.getInt(index * ENTRY_SIZE + SIZE_POS);
+	}
+	
+	public long crc(int index) {
+		return entries.getLong(index * ENTRY_SIZE + CRC_POS);
+	}
+	
+	public RecordElement get(int index) {
+		if(index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index[" + index + "] of size[" + size + "]");
+		}
+		
+		return new RecordElement(sequence(index), offset(index), recordSize(index), crc(index));
+	}
+	
+	/**
+	 * 获取指定序列号的记录
+	 * 
+	 * @param sequence
+	 * @return 不存在时返回null
+	 */
+	public RecordElement find(int sequence) {
+		//序列号通常是连续的，记录的位置就是序列号
+		if(sequence >= 0 && sequence < size && sequence(sequence) == sequence) {
+			return get(sequence);
+		}
+		
+		int low = 0;
+		int high = size - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			int midSequence = sequence(mid);
+			if(midSequence < sequence) {
+				low = mid + 1;
+			} else if(midSequence > sequence) {
+				high = mid - 1;
+			} else {
+				return get(mid);
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * 关闭后不能再访问索引
+	 */
+	@Override
+	public void close() {
+		entries = ByteBuffer.allocate(0);
+		size = 0;
+	}
+}
@@ -0,0 +1,67 @@
+package com.bonree.brfs.disknode.data.write.worker;
+
+import com.bonree.brfs.disknode.data.write.FileWriter;
+
+/**
+ * 支持组提交的写任务。
+ * 
+ * 组提交模式下，{@link WriteWorker}会先执行一个批次中所有任务的写入操作，
+ * 然后对批次中涉及的文件统一进行一次磁盘同步，同步完成后才会通知任务的
+ * 执行结果。
+ * 
+ * @author yupeng
+ * 
+ * @param <Result>
+ */
+public abstract class GroupCommitTask<Result> extends WriteTask<Result> {
+	private Result result;
+	private Throwable cause;
+	
+	/**
+	 * 任务写入数据的目标文件，批次结束时会对此文件进行同步
+	 * 
+	 * @return
+	 */
+	protected abstract FileWriter commitTarget();
+	
+	/**
+	 * 数据已写入但同步到磁盘失败时调用，默认按任务失败处理
+	 * 
+	 * @param e
+	 */
+	protected void onCommitFailed(Throwable e) {
+		onFailed(e);
+	}
+	
+	/**
+	 * 执行写入操作，但不通知结果
+	 */
+	void write() {
+		try {
+			onPreExecute();
+			
+			result = execute();
+		} catch(Exception e) {
+			cause = e;
+		}
+	}
+	
+	/**
+	 * 批次同步结束后通知任务结果
+	 * 
+	 * @param commitError 同步过程中的异常，同步成功为null
+	 */
+	void complete(Throwable commitError) {
+		if(cause != null) {
+			onFailed(cause);
+			return;
+		}
+		
+		if(commitError != null) {
+			onCommitFailed(commitError);
+			return;
+		}
+		
+		onPostExecute(result);
+	}
+}
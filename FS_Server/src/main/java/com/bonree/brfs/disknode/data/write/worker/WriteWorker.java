@@ -1,14 +1,25 @@
 package com.bonree.brfs.disknode.data.write.worker;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.bonree.brfs.disknode.data.write.FileWriter;
+
 /**
  * 负责写数据到文件的Worker类，一个worker对应一个线程。
  * 
+ * 开启组提交模式后，worker每次会取出队列中所有的任务作为一个批次，
+ * 批次中的写入任务完成后对涉及的文件只进行一次同步。
+ * 
  * @author yupeng
  *
  */
@@ -22,8 +33,15 @@ public class WriteWorker implements Runnable {
 	private static AtomicInteger idBuilder = new AtomicInteger(0);
 	private final int id;
 	
+	private final boolean groupCommit;
+	
 	public WriteWorker() {
+		this(false);
+	}
+	
+	public WriteWorker(boolean groupCommit) {
 		this.id = idBuilder.getAndIncrement();
+		this.groupCommit = groupCommit;
 	}
 	
 	public <R> void put(WriteTask<R> task) {
@@ -34,6 +52,15 @@ public class WriteWorker implements Runnable {
 		}
 	}
 	
+	/**
+	 * 队列中等待执行的任务数量
+	 * 
+	 * @return
+	 */
+	public int pendingTaskCount() {
+		return taskQueue.size();
+	}
+	
 	public void quit() {
 		isQuit = true;
 	}
@@ -41,6 +68,7 @@ public class WriteWorker implements Runnable {
 	@Override
 	public void run() {
 		LOG.info("Woker[{}] started.", id);
+		List<Runnable> batch = new ArrayList<Runnable>();
 		//只有当退出标志被设置并且任务队列为空时线程才能结束
 		while(!isQuit || !taskQueue.isEmpty()) {
 			Runnable task = null;
@@ -54,15 +82,83 @@ public class WriteWorker implements Runnable {
 				continue;
 			}
 			
+			if(!groupCommit) {
+				runTask(task);
+				continue;
+			}
+			
+			batch.add(task);
+			taskQueue.drainTo(batch);
 			try {
-				task.run();
-			} catch (Exception e) {
-				LOG.error("task running error", e);
+				runBatch(batch);
+			} finally {
+				batch.clear();
 			}
 		}
 		LOG.info("Woker[{}] quit.", id);
 	}
 	
+	private void runTask(Runnable task) {
+		try {
+			task.run();
+		} catch (Exception e) {
+			LOG.error("task running error", e);
+		}
+	}
+	
+	private void runBatch(List<Runnable> batch) {
+		List<GroupCommitTask<?>> pendingTasks = new ArrayList<GroupCommitTask<?>>();
+		Set<FileWriter> pendingWriters = new LinkedHashSet<FileWriter>();
+		
+		for(Runnable task : batch) {
+			if(!(task instanceof GroupCommitTask)) {
+				//普通任务可能依赖之前写入的数据，需要先提交已写入的数据
+				commit(pendingTasks, pendingWriters);
+				runTask(task);
+				continue;
+			}
+			
+			GroupCommitTask<?> commitTask = (GroupCommitTask<?>) task;
+			commitTask.write();
+			pendingTasks.add(commitTask);
+			
+			FileWriter writer = commitTask.commitTarget();
+			if(writer != null) {
+				pendingWriters.add(writer);
+			}
+		}
+		
+		commit(pendingTasks, pendingWriters);
+	}
+	
+	private void commit(List<GroupCommitTask<?>> pendingTasks, Set<FileWriter> pendingWriters) {
+		if(pendingTasks.isEmpty()) {
+			return;
+		}
+		
+		LOG.debug("Worker[{}] commit {} tasks with {} files", id, pendingTasks.size(), pendingWriters.size());
+		Map<FileWriter, Throwable> errors = new HashMap<FileWriter, Throwable>();
+		for(FileWriter writer : pendingWriters) {
+			try {
+				writer.flush();
+			} catch (Exception e) {
+				LOG.error("commit file[{}] error", writer.getPath(), e);
+				errors.put(writer, e);
+			}
+		}
+		
+		for(GroupCommitTask<?> task : pendingTasks) {
+			try {
+				task.complete(errors.get(task.commitTarget()));
+			} catch (Exception e) {
+				LOG.error("task completing error", e);
+			}
+		}
+		
+		pendingTasks.clear();
+		pendingWriters.clear();
+	}
+	
 	@Override
 	public String toString() {
 		return WriteWorker.class.getSimpleName() + "#" + id;
@@ -18,6 +18,10 @@ public class WriteWorkerGroup implements LifeCycle {
 	private List<WriteWorker> workerList = new ArrayList<WriteWorker>();
 	
 	public WriteWorkerGroup(int threadNum) {
+		this(threadNum, false);
+	}
+	
+	public WriteWorkerGroup(int threadNum, boolean groupCommit) {
 		this.workerThreads = new ThreadPoolExecutor(threadNum,
 				threadNum,
                 0L,
@@ -26,7 +30,7 @@ public class WriteWorkerGroup implements LifeCycle {
                 new PooledThreadFactory("write_worker"));
 		
 		for(int i = 0; i < threadNum; i++) {
-			workerList.add(new WriteWorker());
+			workerList.add(new WriteWorker(groupCommit));
 		}
 	}
 	
@@ -34,6 +38,15 @@ public class WriteWorkerGroup implements LifeCycle {
 		return workerList;
 	}
 	
+	public int pendingTaskCount() {
+		int count = 0;
+		for(WriteWorker worker : workerList) {
+			count += worker.pendingTaskCount();
+		}
+		
+		return count;
+	}
+	
 	@Override
 	public void start() {
 		workerList.forEach(new Consumer<WriteWorker>() {
@@ -0,0 +1,134 @@
+package com.bonree.brfs.disknode.server.handler;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bonree.brfs.common.net.http.HandleResult;
+import com.bonree.brfs.common.net.http.HandleResultCallback;
+import com.bonree.brfs.common.net.http.HttpMessage;
+import com.bonree.brfs.common.net.http.MessageHandler;
+import com.bonree.brfs.common.read.data.BatchReadMessage;
+import com.bonree.brfs.common.read.data.BatchReadResult;
+import com.bonree.brfs.common.read.data.ReadItem;
+import com.bonree.brfs.common.utils.ProtoStuffUtils;
+import com.bonree.brfs.disknode.DiskContext;
+import com.bonree.brfs.disknode.data.read.FileChannelCache;
+import com.bonree.brfs.disknode.data.read.FileChannelCache.ChannelRef;
+
+/**
+ * 批量读取多个文件中的数据
+ * 
+ * 同一个文件的读取按偏移量排序后使用同一个文件句柄依次读取，
+ * 结果按请求的顺序返回
+ * 
+ * @author yupeng
+ * 
+ */
+public class BatchReadMessageHandler implements MessageHandler {
+	private static final Logger LOG = LoggerFactory.getLogger(BatchReadMessageHandler.class);
+	
+	private DiskContext diskContext;
+	private FileChannelCache channelCache;
+	
+	public BatchReadMessageHandler(DiskContext context, FileChannelCache channelCache) {
+		this.diskContext = context;
+		this.channelCache = channelCache;
+	}
+	
+	@Override
+	public void handle(HttpMessage msg, HandleResultCallback callback) {
+		HandleResult result = new HandleResult();
+		
+		try {
+			BatchReadMessage message = ProtoStuffUtils.deserialize(msg.getContent(), BatchReadMessage.class);
+			ReadItem[] items = message.getItems() == null ? new ReadItem[0] : message.getItems();
+			LOG.info("batch read [{}] items", items.length);
+			
+			Map<String, List<Integer>> fileItems = new HashMap<String, List<Integer>>();
+			for(int i = 0; i < items.length; i++) {
+				String filePath = diskContext.getConcreteFilePath(items[i].getFilePath());
+				List<Integer> indexes = fileItems.get(filePath);
+				if(indexes == null) {
+					indexes = new ArrayList<Integer>();
+					fileItems.put(filePath, indexes);
+				}
+				
+				indexes.add(i);
+			}
+			
+			byte[][] results = new byte[items.length][];
+			for(Map.Entry<String, List<Integer>> entry : fileItems.entrySet()) {
+				readFile(entry.getKey(), items, entry.getValue(), results);
+			}
+			
+			result.setSuccess(true);
+			result.setData(BatchReadResult.encode(results));
+		} catch (Exception e) {
+			LOG.error("batch read message error", e);
+			result.setSuccess(false);
+		} finally {
+			callback.completed(result);
+		}
+	}
+	
+	/**
+	 * 按偏移量的顺序读取同一个文件中的数据，读取失败的结果为null
+	 */
+	private void readFile(String filePath, final ReadItem[] items, List<Integer> indexes, byte[][] results) {
+		Collections.sort(indexes, new Comparator<Integer>() {
+			
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				return Long.compare(items[i1].getOffset(), items[i2].getOffset());
+			}
+		});
+		
+		ChannelRef ref = null;
+		try {
+			ref = channelCache.acquire(filePath);
+			long fileLength = ref.channel().size();
+			for(int index : indexes) {
+				long offset = Math.max(0, items[index].getOffset());
+				if(offset >= fileLength) {
+					continue;
+				}
+				
+				byte[] bytes = new byte[(int) Math.min(items[index].getSize(), fileLength - offset)];
+				if(bytes.length == 0) {
+					continue;
+				}
+				
+				ref.read(ByteBuffer.wrap(bytes), offset);
+				results[index] = bytes;
+			}
+		} catch (FileNotFoundException e) {
+			LOG.warn("batch read file[{}] is not found", filePath);
+		} catch (ClosedChannelException e) {
+			LOG.warn("channel of file[{}] is closed", filePath);
+			channelCache.discard(ref);
+		} catch (IOException e) {
+			LOG.error("batch read file[{}] error", filePath, e);
+		} finally {
+			if(ref != null) {
+				ref.release();
+			}
+		}
+	}
+	
+	@Override
+	public boolean isValidRequest(HttpMessage message) {
+		return true;
+	}
+	
+}
@@ -12,6 +12,7 @@ import com.bonree.brfs.common.net.http.MessageHandler;
 import com.bonree.brfs.common.utils.ByteUtils;
 import com.bonree.brfs.common.write.data.FileEncoder;
 import com.bonree.brfs.disknode.DiskContext;
+import com.bonree.brfs.disknode.data.read.FileChannelCache;
 import com.bonree.brfs.disknode.data.read.DataFileReader;
 import com.bonree.brfs.disknode.data.write.FileWriterManager;
 import com.bonree.brfs.disknode.data.write.RecordFileWriter;
@@ -24,10 +25,12 @@ public class CloseMessageHandler implements MessageHandler {
 	
 	private DiskContext diskContext;
 	private FileWriterManager writerManager;
+	private FileChannelCache channelCache;
 
-	public CloseMessageHandler(DiskContext context, FileWriterManager nodeManager) {
+	public CloseMessageHandler(DiskContext context, FileWriterManager nodeManager, FileChannelCache channelCache) {
 		this.diskContext = context;
 		this.writerManager = nodeManager;
+		this.channelCache = channelCache;
 	}
 
 	@Override
@@ -57,6 +60,9 @@ public class CloseMessageHandler implements MessageHandler {
 			
 			LOG.info("close over for file[{}]", filePath);
 			writerManager.close(filePath);
+			if(channelCache != null) {
+				channelCache.invalidate(filePath);
+			}
 			result.setSuccess(true);
 		} catch (IOException e) {
 			result.setSuccess(false);
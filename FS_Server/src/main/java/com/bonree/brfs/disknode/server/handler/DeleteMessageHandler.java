@@ -1,7 +1,9 @@
 package com.bonree.brfs.disknode.server.handler;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 
@@ -32,8 +34,6 @@ public class DeleteMessageHandler implements MessageHandler {
 		HandleResult result = new HandleResult();
 		
 		try {
-			String filePath = diskContext.getConcreteFilePath(msg.getPath());
-			
 			Map<String, String> params = msg.getParams();
 			LOG.info("delete params--{}", params);
 			
@@ -41,32 +41,42 @@ public class DeleteMessageHandler implements MessageHandler {
 			data.setForceClose(params.containsKey("force") ? true : false);
 			data.setRecursive(params.containsKey("recursive") ? true : false);
 			
-			LOG.info("deleting path[{}], force[{}], recursive[{}]", filePath, data.isForceClose(), data.isRecursive());
-			File targetFile = new File(filePath);
-			if(targetFile.isFile()) {
-				try {
-					closeFile(targetFile, data.isForceClose());
-					
-					result.setSuccess(true);
-				} catch (Exception e) {
-					result.setSuccess(false);
-					result.setCause(e);
-					return;
-				}
-			} else {
-				try {
-					closeDir(targetFile, data.isRecursive(), data.isForceClose());
-					result.setSuccess(true);
-				} catch (Exception e) {
-					result.setSuccess(false);
-					result.setCause(e);
-					return;
+			//目录可能分布在多块磁盘中，需要在每块磁盘中删除
+			List<String> filePaths = diskContext.getConcreteFilePaths(msg.getPath());
+			if(filePaths.isEmpty()) {
+				filePaths = Collections.singletonList(diskContext.getConcreteFilePath(msg.getPath()));
+			}
+			
+			for(String filePath : filePaths) {
+				LOG.info("deleting path[{}], force[{}], recursive[{}]", filePath, data.isForceClose(), data.isRecursive());
+				File targetFile = new File(filePath);
+				if(targetFile.isFile()) {
+					try {
+						closeFile(targetFile, data.isForceClose());
+						
+						result.setSuccess(true);
+					} catch (Exception e) {
+						result.setSuccess(false);
+						result.setCause(e);
+						return;
+					}
+				} else {
+					try {
+						closeDir(targetFile, data.isRecursive(), data.isForceClose());
+						result.setSuccess(true);
+					} catch (Exception e) {
+						result.setSuccess(false);
+						result.setCause(e);
+						return;
+					}
 				}
 			}
 		} catch(Exception e) {
 			LOG.error("delete message error", e);
 			result.setSuccess(false);
 		} finally {
+			//删除失败时文件也可能已经被部分删除，统一移除位置缓存和读缓存
+			diskContext.evict(msg.getPath());
 			callback.completed(result);
 		}
 	}
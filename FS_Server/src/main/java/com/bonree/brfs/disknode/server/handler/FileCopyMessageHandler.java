@@ -1,6 +1,7 @@
 package com.bonree.brfs.disknode.server.handler;
 
 import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 
@@ -35,8 +36,9 @@ public class FileCopyMessageHandler implements MessageHandler {
 	public void handle(HttpMessage msg, HandleResultCallback callback) {
 		HandleResult result = new HandleResult();
 		
-		FileCopyMessage copyMessage = ProtoStuffUtils.deserialize(msg.getContent(), FileCopyMessage.class);
-		String localPath = context.getConcreteFilePath(copyMessage.getLocalPath());
+		FileCopyMessage copyMessage = ProtoStuffUtils.readFrom(msg.getContentStream(), FileCopyMessage.class);
+		String localPath = copyMessage.getDirect() == FileCopyMessage.DIRECT_FROM_REMOTE
+				? context.allocateFilePath(copyMessage.getLocalPath()) : context.getConcreteFilePath(copyMessage.getLocalPath());
 		
 		if(copyMessage.getDirect() == FileCopyMessage.DIRECT_FROM_REMOTE) {
 			LOG.info("copy from remote[{}] to local[{}]", copyMessage.getRemotePath(), copyMessage.getLocalPath());
@@ -45,6 +47,10 @@ public class FileCopyMessageHandler implements MessageHandler {
 			try {
 				client = new HttpDiskNodeClient(copyMessage.getRemoteHost(), copyMessage.getRemotePort());
 				byte[] bytes = client.readData(copyMessage.getRemotePath(), 0, Integer.MAX_VALUE);
+				File localFile = new File(localPath);
+				if(!localFile.getParentFile().exists()) {
+					localFile.getParentFile().mkdirs();
+				}
 				output = new BufferedOutputStream(new FileOutputStream(localPath), FROM_BUFFER_SIZE);
 				output.write(bytes);
 				output.flush();
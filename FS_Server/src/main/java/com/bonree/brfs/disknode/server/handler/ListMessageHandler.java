@@ -3,7 +3,10 @@ package com.bonree.brfs.disknode.server.handler;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,28 +37,31 @@ public class ListMessageHandler implements MessageHandler {
 		HandleResult result = new HandleResult();
 		String dirPath = null;
 		try {
-			dirPath = context.getConcreteFilePath(msg.getPath());
+			dirPath = msg.getPath();
 			int level = Integer.parseInt(msg.getParams().getOrDefault("level", "1"));
 			
-			File dir = new File(dirPath);
-			if(!dir.exists()) {
+			//目录中的文件可能分布在多块磁盘中
+			List<String> dirPaths = context.getConcreteFilePaths(dirPath);
+			if(dirPaths.isEmpty()) {
 				result.setSuccess(false);
 				result.setCause(new FileNotFoundException(msg.getPath()));
 				return;
 			}
 			
-			if(!dir.isDirectory()) {
-				result.setSuccess(false);
-				result.setCause(new IllegalAccessException("[" + msg.getPath() + "] is not directory"));
-				return;
+			for(String path : dirPaths) {
+				if(!new File(path).isDirectory()) {
+					result.setSuccess(false);
+					result.setCause(new IllegalAccessException("[" + msg.getPath() + "] is not directory"));
+					return;
+				}
+				
+				FileInfo dirInfo = new FileInfo();
+				dirInfo.setLevel(0);
+				dirInfo.setType(FileInfo.TYPE_DIR);
+				dirInfo.setPath(path);
+				fileList.addLast(dirInfo);
 			}
 			
-			FileInfo dirInfo = new FileInfo();
-			dirInfo.setLevel(0);
-			dirInfo.setType(FileInfo.TYPE_DIR);
-			dirInfo.setPath(dirPath);
-			fileList.addLast(dirInfo);
-			
 			ArrayList<FileInfo> fileInfoList = new ArrayList<FileInfo>();
 			traverse(level, fileInfoList);
 			result.setSuccess(true);
@@ -70,6 +76,7 @@ public class ListMessageHandler implements MessageHandler {
 	}
 	
 	private void traverse(int level, ArrayList<FileInfo> fileInfoList) {
+		Set<String> listedPaths = new HashSet<String>();
 		while(!fileList.isEmpty()) {
 			FileInfo fileInfo = fileList.remove();
 			
@@ -87,7 +94,9 @@ public class ListMessageHandler implements MessageHandler {
 			}
 			
 			fileInfo.setPath(context.getLogicFilePath(fileInfo.getPath()));
-			fileInfoList.add(fileInfo);
+			if(listedPaths.add(fileInfo.getPath())) {
+				fileInfoList.add(fileInfo);
+			}
 		}
 	}
 	
@@ -43,7 +43,7 @@ public class OpenMessageHandler implements MessageHandler {
 		HandleResult result = new HandleResult();
 		String realPath = null;
 		try {
-			realPath = diskContext.getConcreteFilePath(msg.getPath());
+			realPath = diskContext.allocateFilePath(msg.getPath());
 			int capacity = Integer.parseInt(msg.getParams().get("capacity"));
 			LOG.info("open file [{}] with capacity[{}]", realPath, capacity);
 			
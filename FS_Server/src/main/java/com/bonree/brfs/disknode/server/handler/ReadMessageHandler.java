@@ -1,14 +1,24 @@
 package com.bonree.brfs.disknode.server.handler;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.bonree.brfs.common.net.http.FileRegionData;
 import com.bonree.brfs.common.net.http.HandleResult;
 import com.bonree.brfs.common.net.http.HandleResultCallback;
 import com.bonree.brfs.common.net.http.HttpMessage;
 import com.bonree.brfs.common.net.http.MessageHandler;
+import com.bonree.brfs.configuration.Configs;
+import com.bonree.brfs.configuration.units.DiskNodeConfigs;
 import com.bonree.brfs.disknode.DiskContext;
+import com.bonree.brfs.disknode.data.read.BlockCache;
 import com.bonree.brfs.disknode.data.read.DataFileReader;
+import com.bonree.brfs.disknode.data.read.FileChannelCache;
+import com.bonree.brfs.disknode.data.read.FileChannelCache.ChannelRef;
 
 public class ReadMessageHandler implements MessageHandler {
 	private static final Logger LOG = LoggerFactory.getLogger(ReadMessageHandler.class);
@@ -17,9 +27,27 @@ public class ReadMessageHandler implements MessageHandler {
 	public static final String PARAM_READ_LENGTH = "size";
 	
 	private DiskContext diskContext;
+	private final boolean zeroCopy;
+	private BlockCache blockCache;
+	private FileChannelCache channelCache;
 	
 	public ReadMessageHandler(DiskContext context) {
+		this(context, null, null);
+	}
+	
+	public ReadMessageHandler(DiskContext context, BlockCache blockCache, FileChannelCache channelCache) {
+		this(context, Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_READ_ZERO_COPY), blockCache, channelCache);
+	}
+	
+	/**
+	 * @param blockCache 读缓存，为null时不使用缓存
+	 * @param channelCache 文件句柄缓存，为null时每次读取都打开文件
+	 */
+	public ReadMessageHandler(DiskContext context, boolean zeroCopy, BlockCache blockCache, FileChannelCache channelCache) {
 		this.diskContext = context;
+		this.zeroCopy = zeroCopy;
+		this.blockCache = blockCache;
+		this.channelCache = channelCache;
 	}
 
 	@Override
@@ -34,7 +62,24 @@ public class ReadMessageHandler implements MessageHandler {
 			
 			LOG.info("read data offset[{}], size[{}]", offset, length);
 			
-			byte[] data = DataFileReader.readFile(diskContext.getConcreteFilePath(msg.getPath()), offset, length);
+			String filePath = diskContext.getConcreteFilePath(msg.getPath());
+			if(blockCache != null && blockCache.isCacheable(length)) {
+				byte[] data = blockCache.read(filePath, offset, length);
+				result.setSuccess(data.length != 0);
+				result.setData(data);
+				return;
+			}
+			
+			if(zeroCopy) {
+				//文件数据由Http服务直接发送，不需要读入内存，有句柄缓存时使用缓存的句柄
+				FileRegionData region = getFileRegion(filePath, offset, length);
+				result.setSuccess(region != null);
+				result.setFileRegion(region);
+				return;
+			}
+			
+			byte[] data = channelCache != null ? channelCache.read(filePath, offset, length)
+					: DataFileReader.readFile(filePath, offset, length);
 			
 			result.setSuccess(data.length == 0 ? false : true);
 			result.setData(data);
@@ -47,6 +92,57 @@ public class ReadMessageHandler implements MessageHandler {
 		
 	}
 	
+	FileRegionData getFileRegion(String filePath, int offset, int length) throws IOException {
+		if(channelCache == null) {
+			File file = new File(filePath);
+			if(!file.isFile()) {
+				return null;
+			}
+			
+			long size = regionSize(file.length(), offset, length);
+			return size > 0 ? new FileRegionData(filePath, Math.max(0, offset), size) : null;
+		}
+		
+		//线程被中断时句柄会被关闭，这时重新打开文件再试一次
+		for(int retry = 0; retry < 2; retry++) {
+			ChannelRef ref = channelCache.acquire(filePath);
+			try {
+				long size = regionSize(ref.channel().size(), offset, length);
+				if(size <= 0) {
+					ref.release();
+					return null;
+				}
+				
+				//句柄的引用在数据发送结束后释放
+				return new FileRegionData(filePath, ref.channel(), Math.max(0, offset), size, new Runnable() {
+					
+					@Override
+					public void run() {
+						ref.release();
+					}
+				});
+			} catch (ClosedChannelException e) {
+				LOG.warn("channel of file[{}] is closed", filePath);
+				channelCache.discard(ref);
+				ref.release();
+			} catch (IOException e) {
+				ref.release();
+				throw e;
+			}
+		}
+		
+		return null;
+	}
+	
+	private static long regionSize(long fileLength, int offset, int length) {
+		offset = Math.max(0, offset);
+		if(offset >= fileLength) {
+			return 0;
+		}
+		
+		return Math.min(length, fileLength - offset);
+	}
+	
 	@Override
 	public boolean isValidRequest(HttpMessage message) {
 		return true;
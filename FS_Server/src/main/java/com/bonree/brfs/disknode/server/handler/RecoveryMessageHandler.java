@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
 import java.util.Map.Entry;
@@ -28,6 +29,7 @@ import com.bonree.brfs.disknode.client.AvailableSequenceInfo;
 import com.bonree.brfs.disknode.client.DiskNodeClient;
 import com.bonree.brfs.disknode.client.HttpDiskNodeClient;
 import com.bonree.brfs.disknode.client.RecoverInfo;
+import com.bonree.brfs.disknode.data.read.FileChannelCache;
 import com.bonree.brfs.disknode.data.write.BufferedFileWriter;
 import com.bonree.brfs.disknode.data.write.FileWriterManager;
 import com.bonree.brfs.disknode.data.write.RecordFileWriter;
@@ -38,24 +40,31 @@ import com.bonree.brfs.disknode.data.write.record.RecordElement;
 import com.bonree.brfs.disknode.data.write.record.RecordElementReader;
 import com.bonree.brfs.disknode.data.write.record.RecordFileBuilder;
 import com.bonree.brfs.disknode.data.write.worker.WriteWorker;
+import com.bonree.brfs.disknode.server.handler.data.WriteData;
 import com.bonree.brfs.disknode.utils.Pair;
 
 public class RecoveryMessageHandler implements MessageHandler {
 	private static final Logger LOG = LoggerFactory.getLogger(RecoveryMessageHandler.class);
 	
+	//一次批量获取的序列号数量
+	private static final int MAX_FETCH_SEQUENCE_COUNT = 256;
+	
 	private DiskContext context;
 	private ServiceManager serviceManager;
 	private FileWriterManager writerManager;
 	private RecordCollectionManager recorderManager;
+	private FileChannelCache channelCache;
 	
 	public RecoveryMessageHandler(DiskContext context,
 			ServiceManager serviceManager,
 			FileWriterManager writerManager,
-			RecordCollectionManager recorderManager) {
+			RecordCollectionManager recorderManager,
+			FileChannelCache channelCache) {
 		this.context = context;
 		this.serviceManager = serviceManager;
 		this.writerManager = writerManager;
 		this.recorderManager = recorderManager;
+		this.channelCache = channelCache;
 	}
 
 	@Override
@@ -66,7 +75,7 @@ public class RecoveryMessageHandler implements MessageHandler {
 			filePath = context.getConcreteFilePath(msg.getPath());
 			LOG.info("starting recover file[{}]", filePath);
 			
-			RecoverInfo info = ProtoStuffUtils.deserialize(msg.getContent(), RecoverInfo.class);
+			RecoverInfo info = ProtoStuffUtils.readFrom(msg.getContentStream(), RecoverInfo.class);
 			List<AvailableSequenceInfo> seqInfos = info.getInfoList();
 			BitSet lack = new BitSet();
 			lack.set(0, info.getMaxSeq() + 1);
@@ -104,41 +113,40 @@ public class RecoveryMessageHandler implements MessageHandler {
 			LOG.info("starting... file[{}] lack seq number-->{}", filePath, lack.cardinality());
 			
 			try {
-				for(AvailableSequenceInfo seqInfo : seqInfos) {
-					if(lack.cardinality() ==  0) {
+				List<AvailableSequenceInfo> candidates = new ArrayList<AvailableSequenceInfo>(seqInfos);
+				while(lack.cardinality() != 0 && !candidates.isEmpty()) {
+					//优先从能补全最多缺失数据的副本获取
+					AvailableSequenceInfo seqInfo = null;
+					BitSet availableSeq = null;
+					for(AvailableSequenceInfo candidate : candidates) {
+						BitSet candidateSeq = BitSetUtils.intersect(candidate.getAvailableSequence(), lack);
+						if(availableSeq == null || candidateSeq.cardinality() > availableSeq.cardinality()) {
+							seqInfo = candidate;
+							availableSeq = candidateSeq;
+						}
+					}
+					candidates.remove(seqInfo);
+					
+					LOG.info("this loop available size{}, lack size{}", availableSeq.cardinality(), lack.cardinality());
+					if(availableSeq.cardinality() == 0) {
 						break;
 					}
 					
-					BitSet seqSet = seqInfo.getAvailableSequence();
-					LOG.info("this loop available size{}, lack size{}", seqSet.cardinality(), lack.cardinality());
-					BitSet availableSeq = BitSetUtils.intersect(seqSet, lack);
-					if(availableSeq.cardinality() != 0) {
-						Service service = serviceManager.getServiceById(seqInfo.getServiceGroup(), seqInfo.getServiceId());
-						if(service == null) {
-							LOG.error("can not get service with[{}:{}]", seqInfo.getServiceGroup(), seqInfo.getServiceId());
-							continue;
-						}
-						
-						DiskNodeClient client = null;
-						try {
-							LOG.info("get data from{} to recover...", service);
-							client = new HttpDiskNodeClient(service.getHost(), service.getPort());
-							
-							for(int i = availableSeq.nextSetBit(0); i != -1; i = availableSeq.nextSetBit(++i)) {
-								byte[] bytes = client.getBytesBySequence(seqInfo.getFilePath(), i);
-								if(bytes == null) {
-									break;
-								}
-								
-								lack.set(i, false);
-								datas.put(i, bytes);
-							}
-						} catch (Exception e) {
-							LOG.error("recover file[{}] error", filePath, e);
-						} finally {
-							CloseUtils.closeQuietly(client);
-						}
-						
+					Service service = serviceManager.getServiceById(seqInfo.getServiceGroup(), seqInfo.getServiceId());
+					if(service == null) {
+						LOG.error("can not get service with[{}:{}]", seqInfo.getServiceGroup(), seqInfo.getServiceId());
+						continue;
+					}
+					
+					DiskNodeClient client = null;
+					try {
+						LOG.info("get data from{} to recover...", service);
+						client = new HttpDiskNodeClient(service.getHost(), service.getPort());
+						fetchSequences(client, seqInfo.getFilePath(), availableSeq, lack, datas);
+					} catch (Exception e) {
+						LOG.error("recover file[{}] error", filePath, e);
+					} finally {
+						CloseUtils.closeQuietly(client);
 					}
 				}
 			} catch (Exception e) {
@@ -167,6 +175,49 @@ public class RecoveryMessageHandler implements MessageHandler {
 		}
 	}
 	
+	/**
+	 * 按连续的序列号范围批量获取数据，对方不支持批量获取时逐个序列号获取
+	 * 
+	 * 一个范围内没有获取到数据时跳过这个范围，继续获取后面的范围
+	 */
+	static void fetchSequences(DiskNodeClient client, String remotePath, BitSet availableSeq, BitSet lack, SortedMap<Integer, byte[]> datas) {
+		int next = availableSeq.nextSetBit(0);
+		while(next != -1) {
+			int count = Math.min(availableSeq.nextClearBit(next) - next, MAX_FETCH_SEQUENCE_COUNT);
+			WriteData[] results = client.getBytesBySequenceRange(remotePath, next, count);
+			if(results == null) {
+				break;
+			}
+			
+			if(results.length == 0) {
+				next = availableSeq.nextSetBit(next + count);
+				continue;
+			}
+			
+			int maxSeq = next;
+			for(WriteData result : results) {
+				if(lack.get(result.getDiskSequence())) {
+					lack.set(result.getDiskSequence(), false);
+					datas.put(result.getDiskSequence(), result.getBytes());
+				}
+				
+				maxSeq = Math.max(maxSeq, result.getDiskSequence());
+			}
+			
+			next = availableSeq.nextSetBit(maxSeq + 1);
+		}
+		
+		for(int i = next; i != -1; i = availableSeq.nextSetBit(++i)) {
+			byte[] bytes = client.getBytesBySequence(remotePath, i);
+			if(bytes == null) {
+				break;
+			}
+			
+			lack.set(i, false);
+			datas.put(i, bytes);
+		}
+	}
+	
 	private class DataFileRewriter {
 		private static final String REWRITE_SUFFIX = "_rewrite";
 		
@@ -215,6 +266,9 @@ public class RecoveryMessageHandler implements MessageHandler {
 				
 				rewriteFile.renameTo(originFile);
 				rewriteFileRd.renameTo(originFileRd);
+				if(channelCache != null) {
+					channelCache.invalidate(filePath);
+				}
 				
 				writerManager.rebuildFileWriter(originFile);
 				
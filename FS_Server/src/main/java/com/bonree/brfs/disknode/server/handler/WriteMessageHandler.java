@@ -1,6 +1,8 @@
 package com.bonree.brfs.disknode.server.handler;
 
 import java.io.IOException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,9 +15,10 @@ import com.bonree.brfs.common.utils.ProtoStuffUtils;
 import com.bonree.brfs.disknode.DiskContext;
 import com.bonree.brfs.disknode.client.WriteDataList;
 import com.bonree.brfs.disknode.client.WriteResultList;
+import com.bonree.brfs.disknode.data.write.FileWriter;
 import com.bonree.brfs.disknode.data.write.FileWriterManager;
 import com.bonree.brfs.disknode.data.write.RecordFileWriter;
-import com.bonree.brfs.disknode.data.write.worker.WriteTask;
+import com.bonree.brfs.disknode.data.write.worker.GroupCommitTask;
 import com.bonree.brfs.disknode.data.write.worker.WriteWorker;
 import com.bonree.brfs.disknode.server.handler.data.WriteData;
 import com.bonree.brfs.disknode.server.handler.data.WriteResult;
@@ -38,15 +41,34 @@ public class WriteMessageHandler implements MessageHandler {
 			String realPath = diskContext.getConcreteFilePath(msg.getPath());
 			LOG.debug("writing to file [{}]", realPath);
 			
-			Pair<RecordFileWriter, WriteWorker> binding = writerManager.getBinding(realPath, false);
-			if(binding == null) {
-				//运行到这，可能时打开文件时失败，导致写数据节点找不到writer
-				LOG.warn("no file writer is found, maybe the file[{}] is not opened.", realPath);
+			boolean accepted = write(realPath, new Supplier<WriteData[]>() {
+				
+				@Override
+				public WriteData[] get() {
+					WriteDataList dataList = ProtoStuffUtils.readFrom(msg.getContentStream(), WriteDataList.class);
+					return dataList.getDatas();
+				}
+			}, new Consumer<WriteResult[]>() {
+				
+				@Override
+				public void accept(WriteResult[] results) {
+					HandleResult handleResult = new HandleResult();
+					handleResult.setSuccess(true);
+					try {
+						WriteResultList resultList = new WriteResultList();
+						resultList.setWriteResults(results);
+						handleResult.setData(ProtoStuffUtils.serialize(resultList));
+					} catch (IOException e) {
+						LOG.error("serialize write result error", e);
+					}
+					
+					callback.completed(handleResult);
+				}
+			});
+			
+			if(!accepted) {
 				callback.completed(new HandleResult(false));
-				return;
 			}
-			
-			binding.second().put(new DataWriteTask(binding, msg, callback));
 		} catch (Exception e) {
 			LOG.error("EEEERRRRRR", e);
 			HandleResult handleResult = new HandleResult();
@@ -56,22 +78,46 @@ public class WriteMessageHandler implements MessageHandler {
 		}
 	}
 	
-	private class DataWriteTask extends WriteTask<WriteResult[]> {
-		private HttpMessage message;
+	/**
+	 * 把数据提交给文件对应的写线程，数据在写线程中才会被获取
+	 * 
+	 * @param realPath 文件的实际路径
+	 * @param dataSupplier 待写入的数据
+	 * @param resultConsumer 接收写入结果，写入失败的数据对应的结果为null
+	 * @return 文件没有打开时返回false
+	 */
+	public boolean write(String realPath, Supplier<WriteData[]> dataSupplier, Consumer<WriteResult[]> resultConsumer) {
+		Pair<RecordFileWriter, WriteWorker> binding = writerManager.getBinding(realPath, false);
+		if(binding == null) {
+			//运行到这，可能时打开文件时失败，导致写数据节点找不到writer
+			LOG.warn("no file writer is found, maybe the file[{}] is not opened.", realPath);
+			return false;
+		}
+		
+		binding.second().put(new DataWriteTask(binding, dataSupplier, resultConsumer));
+		return true;
+	}
+	
+	private class DataWriteTask extends GroupCommitTask<WriteResult[]> {
+		private Supplier<WriteData[]> dataSupplier;
 		private WriteResult[] results;
 		private Pair<RecordFileWriter, WriteWorker> binding;
-		private HandleResultCallback callback;
+		private Consumer<WriteResult[]> resultConsumer;
 		
-		public DataWriteTask(Pair<RecordFileWriter, WriteWorker> binding, HttpMessage message, HandleResultCallback callback) {
+		public DataWriteTask(Pair<RecordFileWriter, WriteWorker> binding, Supplier<WriteData[]> dataSupplier, Consumer<WriteResult[]> resultConsumer) {
 			this.binding = binding;
-			this.message = message;
-			this.callback = callback;
+			this.dataSupplier = dataSupplier;
+			this.resultConsumer = resultConsumer;
 		}
 
+		@Override
+		protected FileWriter commitTarget() {
+			return binding.first();
+		}
+		
 		@Override
 		protected WriteResult[] execute() throws Exception {
-			WriteDataList dataList = ProtoStuffUtils.deserialize(message.getContent(), WriteDataList.class);
-			WriteData[] datas = dataList.getDatas();
+			WriteData[] datas = dataSupplier.get();
 			
 			results = new WriteResult[datas.length];
 			
@@ -98,38 +144,26 @@ public class WriteMessageHandler implements MessageHandler {
 
 		@Override
 		protected void onPostExecute(WriteResult[] result) {
-			HandleResult handleResult = new HandleResult();
-			handleResult.setSuccess(true);
-			try {
-				WriteResultList resultList = new WriteResultList();
-				resultList.setWriteResults(results);
-				handleResult.setData(ProtoStuffUtils.serialize(resultList));
-			} catch (IOException e) {
-				LOG.error("onPostExecute error", e);
-			}
-			
-			callback.completed(handleResult);
+			resultConsumer.accept(results);
 		}
 
 		@Override
 		protected void onFailed(Throwable cause) {
-			HandleResult handleResult = new HandleResult();
-			handleResult.setSuccess(true);
-			try {
-				WriteResultList resultList = new WriteResultList();
-				resultList.setWriteResults(results);
-				handleResult.setData(ProtoStuffUtils.serialize(resultList));
-			} catch (IOException e) {
-				LOG.error("onFailed error", e);
-			}
-			
-			callback.completed(handleResult);
+			resultConsumer.accept(results);
+		}
+		
+		@Override
+		protected void onCommitFailed(Throwable cause) {
+			//数据没有同步到磁盘，所有数据都按写入失败处理
+			LOG.error("commit file[{}] error", binding.first().getPath(), cause);
+			results = new WriteResult[results.length];
+			onFailed(cause);
 		}
 		
 	}
 
 	@Override
 	public boolean isValidRequest(HttpMessage message) {
-		return message.getContent().length != 0;
+		return message.getContentLength() != 0;
 	}
 }
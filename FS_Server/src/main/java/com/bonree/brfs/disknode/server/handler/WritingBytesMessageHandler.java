@@ -1,7 +1,5 @@
 package com.bonree.brfs.disknode.server.handler;
 
-import java.util.Map;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,6 +10,7 @@ import com.bonree.brfs.common.net.http.MessageHandler;
 import com.bonree.brfs.disknode.DiskContext;
 import com.bonree.brfs.disknode.data.read.DataFileReader;
 import com.bonree.brfs.disknode.data.write.record.RecordElement;
+import com.bonree.brfs.disknode.data.write.record.RecordIndex;
 import com.bonree.brfs.disknode.server.handler.SequenceNumberCache.CacheCallback;
 
 public class WritingBytesMessageHandler implements MessageHandler {
@@ -51,7 +50,7 @@ public class WritingBytesMessageHandler implements MessageHandler {
 		cache.get(filePath, new CacheCallback() {
 			
 			@Override
-			public void elementReceived(Map<Integer, RecordElement> recordInfo) {
+			public void elementReceived(RecordIndex recordInfo) {
 				if(recordInfo == null) {
 					LOG.error("Can not get record elements for file[{}]", filePath);
 					result.setSuccess(false);
@@ -61,8 +60,8 @@ public class WritingBytesMessageHandler implements MessageHandler {
 				}
 				
 				LOG.info("get data by sequence[{}] from file[{}]", sequenceNumber, filePath);
-				RecordElement element = recordInfo.get(sequenceNumber);
-				byte[] bytes = DataFileReader.readFile(filePath, (int) element.getOffset(), element.getSize());
+				RecordElement element = recordInfo.find(sequenceNumber);
+				byte[] bytes = element == null ? null : DataFileReader.readFile(filePath, (int) element.getOffset(), element.getSize());
 				
 				if(bytes != null) {
 					LOG.info("sequence[{}] get all bytes[{}]", sequenceNumber, bytes.length);
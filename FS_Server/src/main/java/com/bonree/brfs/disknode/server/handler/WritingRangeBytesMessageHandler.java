@@ -0,0 +1,181 @@
+package com.bonree.brfs.disknode.server.handler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bonree.brfs.common.net.http.HandleResult;
+import com.bonree.brfs.common.net.http.HandleResultCallback;
+import com.bonree.brfs.common.net.http.HttpMessage;
+import com.bonree.brfs.common.net.http.MessageHandler;
+import com.bonree.brfs.common.utils.ProtoStuffUtils;
+import com.bonree.brfs.disknode.DiskContext;
+import com.bonree.brfs.disknode.client.WriteDataList;
+import com.bonree.brfs.disknode.data.read.FileChannelCache;
+import com.bonree.brfs.disknode.data.read.FileChannelCache.ChannelRef;
+import com.bonree.brfs.disknode.data.write.record.RecordElement;
+import com.bonree.brfs.disknode.data.write.record.RecordIndex;
+import com.bonree.brfs.disknode.server.handler.SequenceNumberCache.CacheCallback;
+import com.bonree.brfs.disknode.server.handler.data.WriteData;
+
+/**
+ * 一次返回一段序列号范围内的数据，用于文件恢复时批量获取缺失的数据
+ * 
+ * 只返回文件中存在的序列号，数据总量超过上限时只返回前面的部分，
+ * 请求方需要从返回的最大序列号之后继续获取
+ * 
+ * @author yupeng
+ * 
+ */
+public class WritingRangeBytesMessageHandler implements MessageHandler {
+	private static final Logger LOG = LoggerFactory.getLogger(WritingRangeBytesMessageHandler.class);
+	
+	public static final String PARAM_SEQUENCE = "seq";
+	public static final String PARAM_COUNT = "count";
+	
+	//一次返回的数据总量上限
+	private static final int MAX_RESPONSE_BYTES = 8 * 1024 * 1024;
+	//一次查找的序列号数量上限
+	private static final int MAX_SEQUENCE_COUNT = 4096;
+	
+	private DiskContext context;
+	private SequenceNumberCache cache;
+	private FileChannelCache channelCache;
+	
+	public WritingRangeBytesMessageHandler(DiskContext context, SequenceNumberCache cache, FileChannelCache channelCache) {
+		this.context = context;
+		this.cache = cache;
+		this.channelCache = channelCache;
+	}
+	
+	private int getIntParam(HttpMessage msg, String name) {
+		String value = msg.getParams().get(name);
+		if(value == null) {
+			return -1;
+		}
+		
+		try {
+			return Integer.parseInt(value);
+		} catch(NumberFormatException e) {
+			LOG.error("param[{}] error", name, e);
+		}
+		
+		return -1;
+	}
+	
+	@Override
+	public void handle(HttpMessage msg, HandleResultCallback callback) {
+		int startSequence = getIntParam(msg, PARAM_SEQUENCE);
+		int count = Math.min(getIntParam(msg, PARAM_COUNT), MAX_SEQUENCE_COUNT);
+		
+		String filePath = context.getConcreteFilePath(msg.getPath());
+		LOG.info("GET bytes of sequence[{}, {}) from file[{}]", startSequence, startSequence + count, filePath);
+		cache.get(filePath, new CacheCallback() {
+			
+			@Override
+			public void elementReceived(RecordIndex recordInfo) {
+				HandleResult result = new HandleResult();
+				if(recordInfo == null) {
+					LOG.error("Can not get record elements for file[{}]", filePath);
+					result.setSuccess(false);
+					result.setCause(new IllegalStateException("The record file of {" + filePath + "} is not existed"));
+					callback.completed(result);
+					return;
+				}
+				
+				List<RecordElement> elements = new ArrayList<RecordElement>();
+				long totalSize = 0;
+				for(int seq = startSequence; seq < startSequence + count; seq++) {
+					RecordElement element = recordInfo.find(seq);
+					if(element == null) {
+						continue;
+					}
+					
+					if(!elements.isEmpty() && totalSize + element.getSize() > MAX_RESPONSE_BYTES) {
+						break;
+					}
+					
+					elements.add(element);
+					totalSize += element.getSize();
+				}
+				
+				try {
+					WriteData[] datas = readElements(filePath, elements);
+					WriteDataList dataList = new WriteDataList();
+					dataList.setDatas(datas);
+					
+					LOG.info("get [{}] sequences with [{}] bytes from file[{}]", datas.length, totalSize, filePath);
+					result.setSuccess(true);
+					result.setData(ProtoStuffUtils.serialize(dataList));
+				} catch (Exception e) {
+					LOG.error("read sequence bytes from file[{}] error", filePath, e);
+					result.setSuccess(false);
+					result.setCause(e);
+				}
+				
+				callback.completed(result);
+			}
+		});
+	}
+	
+	/**
+	 * 使用缓存的文件句柄按位置读取每条记录的数据
+	 * 
+	 * 索引可能比数据文件新，只读取到文件当前长度，超出文件长度的记录不返回
+	 */
+	WriteData[] readElements(String filePath, List<RecordElement> elements) throws IOException {
+		if(elements.isEmpty()) {
+			return new WriteData[0];
+		}
+		
+		//线程被中断时句柄会被关闭，这时重新打开文件再试一次
+		ClosedChannelException closed = null;
+		for(int retry = 0; retry < 2; retry++) {
+			ChannelRef ref = channelCache.acquire(filePath);
+			try {
+				return readElements(ref, elements);
+			} catch (ClosedChannelException e) {
+				LOG.warn("channel of file[{}] is closed", filePath);
+				channelCache.discard(ref);
+				closed = e;
+			} finally {
+				ref.release();
+			}
+		}
+		
+		throw closed;
+	}
+	
+	private static WriteData[] readElements(ChannelRef ref, List<RecordElement> elements) throws IOException {
+		long length = ref.channel().size();
+		List<RecordElement> available = new ArrayList<RecordElement>();
+		for(RecordElement element : elements) {
+			if(element.getOffset() + element.getSize() <= length) {
+				available.add(element);
+			}
+		}
+		
+		WriteData[] datas = new WriteData[available.size()];
+		for(int i = 0; i < datas.length; i++) {
+			RecordElement element = available.get(i);
+			byte[] bytes = new byte[element.getSize()];
+			ref.read(ByteBuffer.wrap(bytes), element.getOffset());
+			
+			datas[i] = new WriteData();
+			datas[i].setDiskSequence(element.getSequence());
+			datas[i].setBytes(bytes);
+		}
+		
+		return datas;
+	}
+	
+	@Override
+	public boolean isValidRequest(HttpMessage message) {
+		return getIntParam(message, PARAM_SEQUENCE) >= 0 && getIntParam(message, PARAM_COUNT) > 0;
+	}
+}
@@ -1,7 +1,6 @@
 package com.bonree.brfs.disknode.server.handler;
 
 import java.util.BitSet;
-import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,7 +10,7 @@ import com.bonree.brfs.common.net.http.HandleResultCallback;
 import com.bonree.brfs.common.net.http.HttpMessage;
 import com.bonree.brfs.common.net.http.MessageHandler;
 import com.bonree.brfs.disknode.DiskContext;
-import com.bonree.brfs.disknode.data.write.record.RecordElement;
+import com.bonree.brfs.disknode.data.write.record.RecordIndex;
 import com.bonree.brfs.disknode.server.handler.SequenceNumberCache.CacheCallback;
 
 public class WritingSequenceMessageHandler implements MessageHandler {
@@ -35,7 +34,7 @@ public class WritingSequenceMessageHandler implements MessageHandler {
 		cache.get(filePath, true, new CacheCallback() {
 			
 			@Override
-			public void elementReceived(Map<Integer, RecordElement> recordInfo) {
+			public void elementReceived(RecordIndex recordInfo) {
 				if(recordInfo == null) {
 					LOG.info("can not get record elements of file[{}]", filePath);
 					callback.completed(new HandleResult(false));
@@ -45,8 +44,8 @@ public class WritingSequenceMessageHandler implements MessageHandler {
 				//获取所有文件序列号
 				BitSet seqSet = new BitSet();
 				if(recordInfo != null) {
-					for(Integer seq : recordInfo.keySet()) {
-						seqSet.set(seq);
+					for(int i = 0; i < recordInfo.size(); i++) {
+						seqSet.set(recordInfo.sequence(i));
 					}
 				}
 				
@@ -0,0 +1,92 @@
+package com.bonree.brfs.disknode.server.tcp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bonree.brfs.disknode.DiskContext;
+import com.bonree.brfs.disknode.server.handler.WriteMessageHandler;
+import com.bonree.brfs.disknode.server.handler.data.WriteData;
+import com.bonree.brfs.disknode.server.handler.data.WriteResult;
+
+/**
+ * 处理二进制写数据请求，写入结果按请求ID返回给客户端
+ * 
+ * @author chen
+ * 
+ */
+@Sharable
+public class TcpWriteHandler extends SimpleChannelInboundHandler<ByteBuf> {
+	private static final Logger LOG = LoggerFactory.getLogger(TcpWriteHandler.class);
+	
+	private DiskContext diskContext;
+	private WriteMessageHandler writeHandler;
+	private ExecutorService executor;
+	
+	public TcpWriteHandler(DiskContext diskContext, WriteMessageHandler writeHandler, ExecutorService executor) {
+		this.diskContext = diskContext;
+		this.writeHandler = writeHandler;
+		this.executor = executor;
+	}
+	
+	@Override
+	protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) throws Exception {
+		WriteProtocol.Request request = WriteProtocol.decodeRequest(frame);
+		if(request.getType() != WriteProtocol.TYPE_WRITE) {
+			LOG.error("unknown request type[{}] from {}", request.getType(), ctx.channel().remoteAddress());
+			sendResponse(ctx, request.getRequestId(), WriteProtocol.STATUS_FAILED, null);
+			return;
+		}
+		
+		//写线程的任务队列满时会阻塞，不能在IO线程中提交
+		executor.execute(new Runnable() {
+			
+			@Override
+			public void run() {
+				try {
+					String realPath = diskContext.getConcreteFilePath(request.getPath());
+					LOG.debug("writing to file [{}] with request[{}]", realPath, request.getRequestId());
+					
+					boolean accepted = writeHandler.write(realPath, new Supplier<WriteData[]>() {
+						
+						@Override
+						public WriteData[] get() {
+							return request.getDatas();
+						}
+					}, new Consumer<WriteResult[]>() {
+						
+						@Override
+						public void accept(WriteResult[] results) {
+							sendResponse(ctx, request.getRequestId(), WriteProtocol.STATUS_OK, results);
+						}
+					});
+					
+					if(!accepted) {
+						sendResponse(ctx, request.getRequestId(), WriteProtocol.STATUS_FAILED, null);
+					}
+				} catch (Exception e) {
+					LOG.error("handle write request[{}] error", request.getRequestId(), e);
+					sendResponse(ctx, request.getRequestId(), WriteProtocol.STATUS_FAILED, null);
+				}
+			}
+		});
+	}
+	
+	private void sendResponse(ChannelHandlerContext ctx, int requestId, byte status, WriteResult[] results) {
+		ctx.writeAndFlush(WriteProtocol.encodeResponse(ctx.alloc(), requestId, status, results));
+	}
+	
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+		LOG.error("write channel[{}] error", ctx.channel().remoteAddress(), cause);
+		ctx.close();
+	}
+}
@@ -0,0 +1,80 @@
+package com.bonree.brfs.disknode.server.tcp;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+
+import java.net.InetSocketAddress;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bonree.brfs.common.process.LifeCycle;
+
+/**
+ * 接收二进制写数据请求的TCP服务
+ * 
+ * @author chen
+ * 
+ */
+public class TcpWriteServer implements LifeCycle {
+	private static final Logger LOG = LoggerFactory.getLogger(TcpWriteServer.class);
+	
+	private String host;
+	private int port;
+	
+	private TcpWriteHandler writeHandler;
+	
+	private EventLoopGroup bossGroup;
+	private EventLoopGroup workerGroup;
+	private ChannelFuture channelFuture;
+	
+	public TcpWriteServer(String host, int port, int workerNum, TcpWriteHandler writeHandler) {
+		this.host = host;
+		this.port = port;
+		this.writeHandler = writeHandler;
+		this.bossGroup = new NioEventLoopGroup(1);
+		this.workerGroup = new NioEventLoopGroup(workerNum);
+	}
+	
+	@Override
+	public void start() throws Exception {
+		ServerBootstrap serverBootstrap = new ServerBootstrap();
+		serverBootstrap.group(bossGroup, workerGroup);
+		serverBootstrap.channel(NioServerSocketChannel.class);
+		serverBootstrap.childHandler(new ChannelInitializer<SocketChannel>() {
+			
+			@Override
+			protected void initChannel(SocketChannel ch) throws Exception {
+				ChannelPipeline pipeline = ch.pipeline();
+				pipeline.addLast(WriteProtocol.newFrameDecoder());
+				pipeline.addLast(WriteProtocol.newFramePrepender());
+				pipeline.addLast(writeHandler);
+			}
+		});
+		serverBootstrap.childOption(ChannelOption.SO_KEEPALIVE, true);
+		serverBootstrap.childOption(ChannelOption.TCP_NODELAY, true);
+		serverBootstrap.childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+		
+		InetSocketAddress address = (host == null ? new InetSocketAddress(port) : new InetSocketAddress(host, port));
+		channelFuture = serverBootstrap.bind(address).sync();
+		LOG.info("tcp write server started at {}", address);
+	}
+	
+	@Override
+	public void stop() throws Exception {
+		try {
+			channelFuture.channel().close().sync();
+		} finally {
+			workerGroup.shutdownGracefully();
+			bossGroup.shutdownGracefully();
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package com.bonree.brfs.disknode.server.tcp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+
+import com.bonree.brfs.common.utils.BrStringUtils;
+import com.bonree.brfs.configuration.Configs;
+import com.bonree.brfs.configuration.units.DiskNodeConfigs;
+import com.bonree.brfs.disknode.server.handler.data.WriteData;
+import com.bonree.brfs.disknode.server.handler.data.WriteResult;
+
+/**
+ * 文件服务节点与磁盘节点之间的二进制写数据协议。
+ * 
+ * 每个数据帧以4字节的帧长度开头，帧内容格式如下：
+ * 
+ * 请求：requestId(int) | type(byte) | pathLength(int) | path | count(int) | [sequence(int) | length(int) | bytes]...
+ * 响应：requestId(int) | status(byte) | count(int) | [exists(byte) | sequence(int) | size(int)]...
+ * 
+ * 响应通过requestId与请求对应，同一个连接上可以同时存在多个未完成的请求，
+ * 响应的顺序不一定与请求的顺序一致。
+ * 
+ * @author chen
+ * 
+ */
+public final class WriteProtocol {
+	public static final byte TYPE_WRITE = 1;
+	
+	public static final byte STATUS_OK = 0;
+	public static final byte STATUS_FAILED = 1;
+	
+	private static final int LENGTH_FIELD_SIZE = 4;
+	private static final int MAX_FRAME_LENGTH = 128 * 1024 * 1024;
+	
+	/**
+	 * 根据磁盘节点的服务端口获取TCP写数据端口
+	 * 
+	 * @param servicePort
+	 * @return
+	 */
+	public static int tcpPort(int servicePort) {
+		return servicePort + Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_TCP_PORT_OFFSET);
+	}
+	
+	public static LengthFieldBasedFrameDecoder newFrameDecoder() {
+		return new LengthFieldBasedFrameDecoder(MAX_FRAME_LENGTH, 0, LENGTH_FIELD_SIZE, 0, LENGTH_FIELD_SIZE);
+	}
+	
+	public static LengthFieldPrepender newFramePrepender() {
+		return new LengthFieldPrepender(LENGTH_FIELD_SIZE);
+	}
+	
+	public static ByteBuf encodeRequest(ByteBufAllocator allocator, int requestId, String path, WriteData[] datas) {
+		byte[] pathBytes = BrStringUtils.toUtf8Bytes(path);
+		
+		int size = 4 + 1 + 4 + pathBytes.length + 4;
+		for(WriteData data : datas) {
+			size += 8 + data.getBytes().length;
+		}
+		
+		ByteBuf buf = allocator.buffer(size);
+		buf.writeInt(requestId);
+		buf.writeByte(TYPE_WRITE);
+		buf.writeInt(pathBytes.length);
+		buf.writeBytes(pathBytes);
+		buf.writeInt(datas.length);
+		for(WriteData data : datas) {
+			buf.writeInt(data.getDiskSequence());
+			buf.writeInt(data.getBytes().length);
+			buf.writeBytes(data.getBytes());
+		}
+		
+		return buf;
+	}
+	
+	public static Request decodeRequest(ByteBuf buf) {
+		Request request = new Request();
+		request.requestId = buf.readInt();
+		request.type = buf.readByte();
+		
+		byte[] pathBytes = new byte[buf.readInt()];
+		buf.readBytes(pathBytes);
+		request.path = BrStringUtils.fromUtf8Bytes(pathBytes);
+		
+		WriteData[] datas = new WriteData[buf.readInt()];
+		for(int i = 0; i < datas.length; i++) {
+			WriteData data = new WriteData();
+			data.setDiskSequence(buf.readInt());
+			
+			byte[] bytes = new byte[buf.readInt()];
+			buf.readBytes(bytes);
+			data.setBytes(bytes);
+			
+			datas[i] = data;
+		}
+		request.datas = datas;
+		
+		return request;
+	}
+	
+	public static ByteBuf encodeResponse(ByteBufAllocator allocator, int requestId, byte status, WriteResult[] results) {
+		int count = results != null ? results.length : 0;
+		
+		ByteBuf buf = allocator.buffer(4 + 1 + 4 + count * 9);
+		buf.writeInt(requestId);
+		buf.writeByte(status);
+		buf.writeInt(count);
+		for(int i = 0; i < count; i++) {
+			WriteResult result = results[i];
+			buf.writeBoolean(result != null);
+			buf.writeInt(result != null ? result.getSequence() : 0);
+			buf.writeInt(result != null ? result.getSize() : 0);
+		}
+		
+		return buf;
+	}
+	
+	public static Response decodeResponse(ByteBuf buf) {
+		Response response = new Response();
+		response.requestId = buf.readInt();
+		response.status = buf.readByte();
+		
+		WriteResult[] results = new WriteResult[buf.readInt()];
+		for(int i = 0; i < results.length; i++) {
+			boolean exists = buf.readBoolean();
+			int sequence = buf.readInt();
+			int size = buf.readInt();
+			
+			if(exists) {
+				WriteResult result = new WriteResult();
+				result.setSequence(sequence);
+				result.setSize(size);
+				results[i] = result;
+			}
+		}
+		response.results = results;
+		
+		return response;
+	}
+	
+	public static class Request {
+		private int requestId;
+		private byte type;
+		private String path;
+		private WriteData[] datas;
+		
+		public int getRequestId() {
+			return requestId;
+		}
+		
+		public byte getType() {
+			return type;
+		}
+		
+		public String getPath() {
+			return path;
+		}
+		
+		public WriteData[] getDatas() {
+			return datas;
+		}
+	}
+	
+	public static class Response {
+		private int requestId;
+		private byte status;
+		private WriteResult[] results;
+		
+		public int getRequestId() {
+			return requestId;
+		}
+		
+		public boolean isSuccess() {
+			return status == STATUS_OK;
+		}
+		
+		public WriteResult[] getResults() {
+			return results;
+		}
+	}
+	
+	private WriteProtocol() {}
+}
@@ -5,6 +5,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
@@ -32,14 +33,15 @@ import com.bonree.brfs.configuration.units.DiskNodeConfigs;
 import com.bonree.brfs.configuration.units.DuplicateNodeConfigs;
 import com.bonree.brfs.duplication.coordinator.FileCoordinator;
 import com.bonree.brfs.duplication.coordinator.FileNodeSinkManager;
-import com.bonree.brfs.duplication.coordinator.FileNodeStorer;
-import com.bonree.brfs.duplication.coordinator.zk.RandomFileNodeServiceSelector;
+import com.bonree.brfs.duplication.coordinator.zk.BatchedZkFileNodeStorer;
+import com.bonree.brfs.duplication.coordinator.zk.LeastLoadFileNodeServiceSelector;
 import com.bonree.brfs.duplication.coordinator.zk.ZkFileCoordinatorPaths;
 import com.bonree.brfs.duplication.coordinator.zk.ZkFileNodeSinkManager;
-import com.bonree.brfs.duplication.coordinator.zk.ZkFileNodeStorer;
 import com.bonree.brfs.duplication.datastream.DuplicateWriter;
+import com.bonree.brfs.duplication.datastream.connection.DiskNodeConnectionPool;
 import com.bonree.brfs.duplication.datastream.connection.FilteredDiskNodeConnectionPool;
 import com.bonree.brfs.duplication.datastream.connection.http.HttpDiskNodeConnectionPool;
+import com.bonree.brfs.duplication.datastream.connection.tcp.TcpDiskNodeConnectionPool;
 import com.bonree.brfs.duplication.datastream.connection.virtual.VirtualDiskNodeConnectionPool;
 import com.bonree.brfs.duplication.datastream.file.DefaultFileLoungeFactory;
 import com.bonree.brfs.duplication.datastream.file.FileLimiterCloser;
@@ -109,8 +111,12 @@ public class BootStrap {
             
             finalizer.add(storageNameManager);
 
-            FileNodeStorer storer = new ZkFileNodeStorer(client.usingNamespace(zookeeperPaths.getBaseClusterName().substring(1)), ZkFileCoordinatorPaths.COORDINATOR_FILESTORE);
-            FileNodeSinkManager sinkManager = new ZkFileNodeSinkManager(client.usingNamespace(zookeeperPaths.getBaseClusterName().substring(1)), serviceManager, storer, new RandomFileNodeServiceSelector());
+            BatchedZkFileNodeStorer storer = new BatchedZkFileNodeStorer(client.usingNamespace(zookeeperPaths.getBaseClusterName().substring(1)), ZkFileCoordinatorPaths.COORDINATOR_FILESTORE);
+            storer.start();
+
+            finalizer.add(storer);
+
+            FileNodeSinkManager sinkManager = new ZkFileNodeSinkManager(client.usingNamespace(zookeeperPaths.getBaseClusterName().substring(1)), serviceManager, storer, new LeastLoadFileNodeServiceSelector(storer));
             sinkManager.start();
             
             finalizer.add(sinkManager);
@@ -119,7 +125,10 @@ public class BootStrap {
 
             FilteredDiskNodeConnectionPool connectionPool = new FilteredDiskNodeConnectionPool();
             connectionPool.addFactory(DuplicationEnvironment.VIRTUAL_SERVICE_GROUP, new VirtualDiskNodeConnectionPool());
-            connectionPool.addFactory(Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_SERVICE_GROUP_NAME), new HttpDiskNodeConnectionPool(serviceManager));
+            DiskNodeConnectionPool diskConnectionPool = Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_TCP_ENABLE) ?
+            		new TcpDiskNodeConnectionPool(serviceManager, Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_WRITER_WORKER_NUM))
+            		: new HttpDiskNodeConnectionPool(serviceManager);
+            connectionPool.addFactory(Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_SERVICE_GROUP_NAME), diskConnectionPool);
             finalizer.add(connectionPool);
 
             FileSynchronizer fileSynchronizer = new DefaultFileSynchronier(connectionPool, serviceManager, idManager);
@@ -133,7 +142,19 @@ public class BootStrap {
             
             FileLimiterStateRebuilder fileRebuilder = new FileLimiterStateRebuilder(connectionPool, idManager);
 
-            FileLoungeFactory fileLoungeFactory = new DefaultFileLoungeFactory(service, fileCoordinator, nodeSelector, storageNameManager, idManager, connectionPool, fileSynchronizer, fileRebuilder);
+            ScheduledExecutorService filePreallocateExecutor = Executors.newScheduledThreadPool(
+            		Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_FILE_PREALLOCATE_THREADS),
+            		new PooledThreadFactory("file_preallocator"));
+
+            finalizer.add(new Closeable() {
+				
+				@Override
+				public void close() throws IOException {
+					filePreallocateExecutor.shutdownNow();
+				}
+			});
+			
+            FileLoungeFactory fileLoungeFactory = new DefaultFileLoungeFactory(service, fileCoordinator, nodeSelector, storageNameManager, idManager, connectionPool, fileSynchronizer, fileRebuilder, filePreallocateExecutor);
             DuplicateWriter writer = new DuplicateWriter(service, fileLoungeFactory, fileCoordinator, fileSynchronizer, idManager, connectionPool, fileLimiterCloser, storageNameManager, fileRebuilder);
             
             int workerThreadNum = Integer.parseInt(System.getProperty(SystemProperties.PROP_NET_IO_WORKER_NUM,
@@ -1,42 +1,68 @@
 package com.bonree.brfs.duplication;
 
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.bonree.brfs.common.proto.FileDataProtos.Fid;
-import com.bonree.brfs.common.write.data.FidEncoder;
+import com.bonree.brfs.common.write.data.FidTemplate;
 import com.bonree.brfs.duplication.coordinator.FileNode;
 import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 public class FidBuilder {
 	private static final Logger LOG = LoggerFactory.getLogger(FidBuilder.class);
 	
-	public static String getFid(FileNode node, long offset, int size) {
-		Fid.Builder builder = Fid.newBuilder()
-				.setCompress(0)
-				.setStorageNameCode(node.getStorageId())
-				.setTime(node.getCreateTime())
-				.setOffset(offset)
-				.setSize(size)
-				.setReplica(node.getDuplicateNodes().length)
-				.setVersion(0);
-		
-		List<String> nameParts = Splitter.on("_").splitToList(node.getName());
-		builder.setUuid(nameParts.get(0));
-		for(int i = 1; i < nameParts.size(); i++) {
-			builder.addServerId(Integer.parseInt(nameParts.get(i)));
-		}
-		
-		Fid fid = builder.build();
-		
+	//压缩标识的取值范围0~3
+	private static final int COMPRESS_TYPES = 4;
+	
+	//每个文件节点按压缩方式缓存fid模板，文件节点不再使用后自动清理
+	private static final Cache<FileNode, FidTemplate[]> templates = CacheBuilder.newBuilder()
+			.weakKeys()
+			.build();
+			
+	public static String getFid(FileNode node, int compress, long offset, int size) {
 		try {
-			return FidEncoder.build(fid);
+			return template(node, compress).encode(offset, size);
 		} catch (Exception e) {
 			LOG.error("error create FID: file[{}], offset[{}], size[{}]", node.getName(), offset, size, e);
 		}
 		
 		return null;
 	}
+	
+	private static FidTemplate template(FileNode node, int compress) throws Exception {
+		if(compress < 0 || compress >= COMPRESS_TYPES) {
+			return createTemplate(node, compress);
+		}
+		
+		FidTemplate[] nodeTemplates = templates.get(node, new Callable<FidTemplate[]>() {
+			
+			@Override
+			public FidTemplate[] call() throws Exception {
+				return new FidTemplate[COMPRESS_TYPES];
+			}
+		});
+		
+		FidTemplate template = nodeTemplates[compress];
+		if(template == null) {
+			//并发创建的模板内容相同，不需要同步
+			template = createTemplate(node, compress);
+			nodeTemplates[compress] = template;
+		}
+		
+		return template;
+	}
+	
+	private static FidTemplate createTemplate(FileNode node, int compress) throws Exception {
+		List<String> nameParts = Splitter.on("_").splitToList(node.getName());
+		int[] serverIds = new int[nameParts.size() - 1];
+		for(int i = 1; i < nameParts.size(); i++) {
+			serverIds[i - 1] = Integer.parseInt(nameParts.get(i));
+		}
+		
+		return FidTemplate.create(0, compress, node.getStorageId(), nameParts.get(0), node.getCreateTime(), serverIds);
+	}
 }
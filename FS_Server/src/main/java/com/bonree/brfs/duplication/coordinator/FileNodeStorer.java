@@ -42,6 +42,15 @@ public interface FileNodeStorer {
 	 */
 	void update(FileNode fileNode) throws Exception;
 	
+	/**
+	 * 批量更新文件节点信息，所有文件节点一起更新，
+	 * 有一个节点更新失败时所有节点都不会被更新
+	 * 
+	 * @param fileNodes
+	 * @throws Exception
+	 */
+	void update(List<FileNode> fileNodes) throws Exception;
+	
 	/**
 	 * 列举当前仓库中的文件节点，可以使用过滤器对
 	 * 节点进行筛选
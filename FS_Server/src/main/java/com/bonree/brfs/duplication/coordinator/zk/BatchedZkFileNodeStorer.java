@@ -0,0 +1,423 @@
+package com.bonree.brfs.duplication.coordinator.zk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache.StartMode;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bonree.brfs.common.process.LifeCycle;
+import com.bonree.brfs.common.utils.JsonUtils;
+import com.bonree.brfs.duplication.coordinator.FileNode;
+import com.bonree.brfs.duplication.coordinator.FileNodeFilter;
+import com.bonree.brfs.duplication.coordinator.FileNodeStorer;
+
+/**
+ * 批量提交文件节点变化的存储中心
+ * 
+ * 文件节点的创建和删除操作先进入队列，由后台线程把队列中的创建操作合并成一个
+ * zookeeper事务提交，创建操作会等待所在的事务完成。删除操作在事务之外异步执行，
+ * 不需要等待，节点不存在也不会导致其他操作失败。
+ * 
+ * 文件节点的查询通过本地缓存完成，缓存由zookeeper的子节点监听维护。正在删除的
+ * 节点不会被迟到的监听事件重新加入缓存。
+ * 
+ * @author yupeng
+ * 
+ */
+public class BatchedZkFileNodeStorer implements FileNodeStorer, LifeCycle {
+	private static final Logger LOG = LoggerFactory.getLogger(BatchedZkFileNodeStorer.class);
+	
+	//一个事务中最多包含的操作数量
+	private static final int MAX_BATCH_SIZE = 128;
+	//等待创建操作完成的最长时间
+	private static final long SAVE_TIMEOUT_SECONDS = 30;
+	
+	//通知提交线程退出的操作
+	private static final Operation STOP = new Operation(false, null, null);
+	
+	private CuratorFramework client;
+	private String storePath;
+	
+	private PathChildrenCache childrenCache;
+	//文件名到文件节点的本地缓存
+	private ConcurrentHashMap<String, FileNode> fileNodes = new ConcurrentHashMap<String, FileNode>();
+	//已提交但还没有完成删除的文件名
+	private Set<String> pendingDeletes = ConcurrentHashMap.newKeySet();
+	
+	private BlockingQueue<Operation> operations = new LinkedBlockingQueue<Operation>();
+	private Thread committer;
+	private volatile boolean running = false;
+	
+	public BatchedZkFileNodeStorer(CuratorFramework client, String nodePath) throws Exception {
+		this.client = client;
+		this.storePath = ZKPaths.makePath(ZkFileCoordinatorPaths.COORDINATOR_ROOT, nodePath);
+		this.client.createContainers(storePath);
+		this.childrenCache = new PathChildrenCache(client, storePath, true);
+		this.childrenCache.getListenable().addListener(new FileNodeCacheListener());
+	}
+	
+	@Override
+	public void start() throws Exception {
+		childrenCache.start(StartMode.BUILD_INITIAL_CACHE);
+		for(ChildData child : childrenCache.getCurrentData()) {
+			cache(child);
+		}
+		
+		running = true;
+		committer = new Thread(new Runnable() {
+			
+			@Override
+			public void run() {
+				commitLoop();
+			}
+		}, "filenode_committer");
+		committer.setDaemon(true);
+		committer.start();
+	}
+	
+	@Override
+	public void stop() throws Exception {
+		boolean stopCommitter = false;
+		synchronized(operations) {
+			//之后提交的操作都会直接执行，不会再进入队列
+			stopCommitter = running;
+			running = false;
+			if(stopCommitter) {
+				operations.add(STOP);
+			}
+		}
+		
+		//提交线程会处理完STOP之前的所有操作再退出
+		if(stopCommitter) {
+			committer.join();
+		}
+		
+		childrenCache.close();
+	}
+	
+	@Override
+	public void save(FileNode fileNode) {
+		Operation operation = new Operation(true, fileNode.getName(), JsonUtils.toJsonBytes(fileNode));
+		submit(operation);
+		
+		try {
+			operation.result.get(SAVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} catch (TimeoutException e) {
+			throw new RuntimeException("save file node[" + fileNode.getName() + "] timeout", e);
+		}
+		
+		fileNodes.put(fileNode.getName(), fileNode);
+	}
+	
+	@Override
+	public void delete(String fileName) {
+		pendingDeletes.add(fileName);
+		fileNodes.remove(fileName);
+		submit(new Operation(false, fileName, null));
+	}
+	
+	private void submit(Operation operation) {
+		synchronized(operations) {
+			if(running) {
+				operations.add(operation);
+				return;
+			}
+		}
+		
+		//后台线程没有运行时直接提交
+		if(operation.create) {
+			commitSingle(operation);
+		} else {
+			commitDelete(operation);
+		}
+	}
+	
+	@Override
+	public FileNode getFileNode(String fileName) {
+		FileNode fileNode = fileNodes.get(fileName);
+		if(fileNode != null || pendingDeletes.contains(fileName)) {
+			return fileNode;
+		}
+		
+		String fileNodePath = ZKPaths.makePath(storePath, fileName);
+		try {
+			byte[] bytes = client.getData().forPath(fileNodePath);
+			return JsonUtils.toObject(bytes, FileNode.class);
+		} catch (Exception e) {
+			LOG.error("get file node[{}] error", fileName, e);
+			throw new RuntimeException(e);
+		}
+	}
+	
+	@Override
+	public void update(FileNode fileNode) {
+		String fileNodePath = ZKPaths.makePath(storePath, fileNode.getName());
+		
+		try {
+			client.setData().forPath(fileNodePath, JsonUtils.toJsonBytes(fileNode));
+			fileNodes.put(fileNode.getName(), fileNode);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	/**
+	 * 所有文件节点在一个zookeeper事务中更新
+	 */
+	@SuppressWarnings("deprecation")
+	@Override
+	public void update(List<FileNode> fileNodes) {
+		if(fileNodes.isEmpty()) {
+			return;
+		}
+		
+		try {
+			CuratorTransactionFinal transaction = null;
+			for(FileNode fileNode : fileNodes) {
+				CuratorTransaction current = transaction == null ? client.inTransaction() : transaction;
+				transaction = current.setData().forPath(ZKPaths.makePath(storePath, fileNode.getName()), JsonUtils.toJsonBytes(fileNode)).and();
+			}
+			
+			transaction.commit();
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		
+		for(FileNode fileNode : fileNodes) {
+			this.fileNodes.put(fileNode.getName(), fileNode);
+		}
+	}
+	
+	@Override
+	public List<FileNode> listFileNodes(FileNodeFilter filter) {
+		List<FileNode> result = new ArrayList<FileNode>();
+		for(FileNode node : fileNodes.values()) {
+			if(filter != null && !filter.filter(node)) {
+				continue;
+			}
+			
+			result.add(node);
+		}
+		
+		return result;
+	}
+	
+	private void cache(ChildData child) {
+		if(child.getData() == null) {
+			return;
+		}
+		
+		try {
+			FileNode fileNode = JsonUtils.toObject(child.getData(), FileNode.class);
+			if(pendingDeletes.contains(fileNode.getName())) {
+				return;
+			}
+			
+			fileNodes.put(fileNode.getName(), fileNode);
+		} catch (Exception e) {
+			LOG.error("parse file node[{}] error", child.getPath(), e);
+		}
+	}
+	
+	private void commitLoop() {
+		List<Operation> batch = new ArrayList<Operation>();
+		boolean stopped = false;
+		while(!stopped) {
+			try {
+				batch.add(operations.take());
+			} catch (InterruptedException e) {
+				break;
+			}
+			
+			operations.drainTo(batch, MAX_BATCH_SIZE - 1);
+			stopped = batch.remove(STOP);
+			commit(batch);
+			batch = new ArrayList<Operation>();
+		}
+	}
+	
+	/**
+	 * 按顺序处理一批操作，连续的创建操作合并成一个事务提交，删除操作在事务之外异步执行
+	 * 
+	 * 删除的节点如果在当前未提交的创建操作中，需要先提交这些创建操作以保证操作顺序
+	 */
+	private void commit(List<Operation> batch) {
+		List<Operation> creates = new ArrayList<Operation>();
+		Set<String> createNames = new HashSet<String>();
+		for(Operation operation : batch) {
+			if(operation.create) {
+				creates.add(operation);
+				createNames.add(operation.fileName);
+				continue;
+			}
+			
+			if(createNames.contains(operation.fileName)) {
+				commitCreates(creates);
+				creates = new ArrayList<Operation>();
+				createNames.clear();
+			}
+			
+			commitDelete(operation);
+		}
+		
+		commitCreates(creates);
+	}
+	
+	/**
+	 * 把一批创建操作作为一个事务提交，事务失败时逐个重新提交以确定每个操作的结果
+	 * 
+	 * 使用的zookeeper 3.4客户端不支持异步的multi操作，所以事务在提交线程中同步执行
+	 */
+	@SuppressWarnings("deprecation")
+	private void commitCreates(List<Operation> creates) {
+		if(creates.isEmpty()) {
+			return;
+		}
+		
+		if(creates.size() == 1) {
+			commitSingle(creates.get(0));
+			return;
+		}
+		
+		try {
+			CuratorTransactionFinal transaction = null;
+			for(Operation operation : creates) {
+				CuratorTransaction current = transaction == null ? client.inTransaction() : transaction;
+				transaction = current.create().forPath(ZKPaths.makePath(storePath, operation.fileName), operation.data).and();
+			}
+			
+			transaction.commit();
+			for(Operation operation : creates) {
+				operation.result.complete(null);
+			}
+		} catch (Exception e) {
+			LOG.warn("commit [{}] file node creations failed, retry one by one", creates.size(), e);
+			for(Operation operation : creates) {
+				commitSingle(operation);
+			}
+		}
+	}
+	
+	private void commitSingle(Operation operation) {
+		String path = ZKPaths.makePath(storePath, operation.fileName);
+		try {
+			client.create().creatingParentsIfNeeded().forPath(path, operation.data);
+			operation.result.complete(null);
+		} catch (KeeperException.NodeExistsException e) {
+			//失败的事务可能已经由其他途径创建了相同的节点，数据相同时认为创建成功
+			completeIfSameData(operation, path, e);
+		} catch (Exception e) {
+			LOG.error("create file node[{}] error", operation.fileName, e);
+			operation.result.completeExceptionally(e);
+		}
+	}
+	
+	private void completeIfSameData(Operation operation, String path, Exception cause) {
+		try {
+			if(Arrays.equals(client.getData().forPath(path), operation.data)) {
+				operation.result.complete(null);
+				return;
+			}
+		} catch (Exception e) {
+			LOG.warn("get data of file node[{}] error", operation.fileName, e);
+		}
+		
+		LOG.error("create file node[{}] error", operation.fileName, cause);
+		operation.result.completeExceptionally(cause);
+	}
+	
+	private void commitDelete(Operation operation) {
+		String path = ZKPaths.makePath(storePath, operation.fileName);
+		try {
+			client.delete().quietly().inBackground(new BackgroundCallback() {
+				
+				@Override
+				public void processResult(CuratorFramework client, CuratorEvent event) throws Exception {
+					deleteCompleted(operation, event.getResultCode());
+				}
+			}).forPath(path);
+		} catch (Exception e) {
+			LOG.error("delete file node[{}] error", operation.fileName, e);
+			pendingDeletes.remove(operation.fileName);
+			operation.result.completeExceptionally(e);
+		}
+	}
+	
+	private void deleteCompleted(Operation operation, int resultCode) {
+		pendingDeletes.remove(operation.fileName);
+		if(resultCode == Code.OK.intValue() || resultCode == Code.NONODE.intValue()) {
+			operation.result.complete(null);
+			return;
+		}
+		
+		KeeperException cause = KeeperException.create(Code.get(resultCode), ZKPaths.makePath(storePath, operation.fileName));
+		LOG.error("delete file node[{}] error", operation.fileName, cause);
+		operation.result.completeExceptionally(cause);
+	}
+	
+	private static class Operation {
+		private final boolean create;
+		private final String fileName;
+		private final byte[] data;
+		private final CompletableFuture<Void> result = new CompletableFuture<Void>();
+		
+		Operation(boolean create, String fileName, byte[] data) {
+			this.create = create;
+			this.fileName = fileName;
+			this.data = data;
+		}
+	}
+	
+	private class FileNodeCacheListener implements PathChildrenCacheListener {
+		
+		@Override
+		public void childEvent(CuratorFramework client, PathChildrenCacheEvent event) throws Exception {
+			ChildData data = event.getData();
+			if(data == null) {
+				return;
+			}
+			
+			switch(event.getType()) {
+			case CHILD_ADDED:
+			case CHILD_UPDATED:
+				cache(data);
+				break;
+			case CHILD_REMOVED:
+				fileNodes.remove(ZKPaths.getNodeFromPath(data.getPath()));
+				break;
+			default:
+				break;
+			}
+		}
+		
+	}
+}
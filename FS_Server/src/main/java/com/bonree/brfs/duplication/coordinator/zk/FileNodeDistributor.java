@@ -1,10 +1,20 @@
 package com.bonree.brfs.duplication.coordinator.zk;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
+import org.apache.zookeeper.KeeperException.NodeExistsException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,6 +43,10 @@ class FileNodeDistributor implements Runnable, ServiceStateListener {
 	
 	private FileNodeSinkSelector serviceSelector;
 	
+	private ExecutorService transferExecutor;
+	//一个事务中转移的文件数量
+	private int batchSize;
+	
 	private CuratorFramework client;
 	private FileNodeStorer fileStorer;
 	private ServiceManager serviceManager;
@@ -40,13 +54,21 @@ class FileNodeDistributor implements Runnable, ServiceStateListener {
 	private volatile boolean isQuit = false;
 	
 	private AtomicBoolean runningState = new AtomicBoolean(false);
+	
+	//文件转移的累计统计
+	private AtomicLong transferredCount = new AtomicLong();
+	private AtomicLong failedCount = new AtomicLong();
+	private AtomicInteger pendingCount = new AtomicInteger();
 	private Thread currentThread;
 	
-	public FileNodeDistributor(CuratorFramework client, FileNodeStorer fileStorer, ServiceManager serviceManager, FileNodeSinkSelector serviceSelector) {
+	public FileNodeDistributor(CuratorFramework client, FileNodeStorer fileStorer, ServiceManager serviceManager, FileNodeSinkSelector serviceSelector,
+			ExecutorService transferExecutor, int batchSize) {
 		this.client = client;
 		this.fileStorer = fileStorer;
 		this.serviceManager = serviceManager;
 		this.serviceSelector = serviceSelector;
+		this.transferExecutor = transferExecutor;
+		this.batchSize = batchSize;
 	}
 	
 	public boolean isStarted() {
@@ -61,38 +83,186 @@ class FileNodeDistributor implements Runnable, ServiceStateListener {
 	}
 	
 	//检测出所有失效的文件节点，并对其进行转移
-	private void handleInvalidFileNode() {
+	private void handleInvalidFileNode() throws InterruptedException {
 		for(Service service : serviceManager.getServiceListByGroup(Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_SERVICE_GROUP_NAME))) {
 			serviceActiveTimes.put(serviceToken(service.getServiceGroup(), service.getServiceId()), service.getRegisterTime());
 		}
 		
 		//任务开始前需要先进行文件扫描，确定需要转移的文件
+		List<FileNode> invalidNodes = new ArrayList<FileNode>();
 		for(FileNode fileNode : fileStorer.listFileNodes(new IdentityFileNodeFilter())) {
 			long serviceAddTime = serviceActiveTimes.getOrDefault(serviceToken(fileNode.getServiceGroup(), fileNode.getServiceId()), Long.MAX_VALUE);
 			if(serviceAddTime > fileNode.getServiceTime()) {
-				LOG.info("transfer file node[{}]", fileNode.getName());
-				transferFileNode(fileNode);
+				invalidNodes.add(fileNode);
+			}
+		}
+		
+		transferFileNodes("invalid nodes", invalidNodes);
+	}
+	
+	/**
+	 * 为文件节点选择新的服务，然后分批并行地进行转移，所有文件处理完成后返回
+	 */
+	private void transferFileNodes(String source, List<FileNode> fileNodes) throws InterruptedException {
+		if(fileNodes.isEmpty()) {
+			return;
+		}
+		
+		TransferProgress progress = new TransferProgress(source, fileNodes.size());
+		List<Service> services = serviceManager.getServiceListByGroup(Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_SERVICE_GROUP_NAME));
+		
+		List<Future<?>> batchResults = new ArrayList<Future<?>>();
+		List<FileNode> batch = new ArrayList<FileNode>(batchSize);
+		for(FileNode fileNode : fileNodes) {
+			Service target = serviceSelector.selectWith(fileNode, services);
+			if(target == null) {
+				LOG.error("no service to accept file node[{}]", fileNode.getName());
+				progress.failed(1);
+				continue;
+			}
+			
+			//文件节点可能来自文件仓库的缓存，需要复制后再修改
+			FileNode transferNode = JsonUtils.toObject(JsonUtils.toJsonBytes(fileNode), FileNode.class);
+			transferNode.setServiceId(target.getServiceId());
+			transferNode.setServiceTime(target.getRegisterTime());
+			batch.add(transferNode);
+			
+			if(batch.size() >= batchSize) {
+				batchResults.add(submitBatch(batch, progress));
+				batch = new ArrayList<FileNode>(batchSize);
+			}
+		}
+		
+		if(!batch.isEmpty()) {
+			batchResults.add(submitBatch(batch, progress));
+		}
+		
+		for(Future<?> result : batchResults) {
+			try {
+				result.get();
+			} catch (ExecutionException e) {
+				LOG.error("transfer file node batch error", e.getCause());
+			}
+		}
+		
+		progress.finish();
+	}
+	
+	private Future<?> submitBatch(List<FileNode> batch, TransferProgress progress) {
+		return transferExecutor.submit(new Runnable() {
+			
+			@Override
+			public void run() {
+				transferBatch(batch, progress);
+			}
+		});
+	}
+	
+	/**
+	 * 通过文件仓库批量更新文件节点，再在一个事务中把文件节点放入目标服务的Sink，
+	 * 批量操作失败时逐个文件进行处理
+	 */
+	private void transferBatch(List<FileNode> batch, TransferProgress progress) {
+		if(batch.size() == 1) {
+			transferOneByOne(batch, progress);
+			return;
+		}
+		
+		try {
+			fileStorer.update(batch);
+		} catch (Exception e) {
+			LOG.warn("update [{}] file nodes failed, transfer one by one", batch.size(), e);
+			transferOneByOne(batch, progress);
+			return;
+		}
+		
+		try {
+			putToSinks(batch);
+			progress.transferred(batch.size());
+			return;
+		} catch (Exception e) {
+			LOG.warn("put [{}] file nodes to sinks in transaction failed, put one by one", batch.size(), e);
+		}
+		
+		for(FileNode fileNode : batch) {
+			if(putToSink(fileNode)) {
+				progress.transferred(1);
+			} else {
+				progress.failed(1);
+			}
+		}
+	}
+	
+	private void transferOneByOne(List<FileNode> batch, TransferProgress progress) {
+		for(FileNode fileNode : batch) {
+			if(transferFileNode(fileNode)) {
+				progress.transferred(1);
+			} else {
+				progress.failed(1);
 			}
 		}
 	}
 	
-	private void transferFileNode(FileNode fileNode) {
-		Service target = serviceSelector.selectWith(fileNode,
-				serviceManager.getServiceListByGroup(Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_SERVICE_GROUP_NAME)));
-		LOG.info("transfer fileNode[{}] to service[{}]", fileNode.getName(), target.getServiceId());
+	@SuppressWarnings("deprecation")
+	private void putToSinks(List<FileNode> batch) throws Exception {
+		CuratorTransactionFinal transaction = null;
+		for(FileNode fileNode : batch) {
+			CuratorTransaction current = transaction == null ? client.inTransaction() : transaction;
+			transaction = current.create().forPath(ZkFileCoordinatorPaths.buildSinkFileNodePath(fileNode), JsonUtils.toJsonBytes(fileNode)).and();
+		}
+		
+		transaction.commit();
+	}
+	
+	private boolean transferFileNode(FileNode fileNode) {
+		LOG.info("transfer fileNode[{}] to service[{}]", fileNode.getName(), fileNode.getServiceId());
 		
 		try {
-			fileNode.setServiceId(target.getServiceId());
-			fileNode.setServiceTime(target.getRegisterTime());
 			fileStorer.update(fileNode);
-
-			// 在Sink中放入分配的文件名
-			client.create().creatingParentsIfNeeded().forPath(ZkFileCoordinatorPaths.buildSinkFileNodePath(fileNode), JsonUtils.toJsonBytes(fileNode));
 		} catch(Exception e) {
 			//TODO 处理转移失败的文件
-			LOG.error("transfer file[{}] error", fileNode.getName());
+			LOG.error("transfer file[{}] error", fileNode.getName(), e);
+			return false;
+		}
+		
+		return putToSink(fileNode);
+	}
+	
+	/**
+	 * 在Sink中放入分配的文件节点，Sink中已经存在时认为放入成功
+	 */
+	private boolean putToSink(FileNode fileNode) {
+		try {
+			client.create().creatingParentsIfNeeded().forPath(ZkFileCoordinatorPaths.buildSinkFileNodePath(fileNode), JsonUtils.toJsonBytes(fileNode));
+			return true;
+		} catch(NodeExistsException e) {
+			return true;
+		} catch(Exception e) {
+			LOG.error("put file[{}] to sink error", fileNode.getName(), e);
+			return false;
 		}
 	}
+	
+	/**
+	 * 已成功转移的文件节点总数
+	 */
+	public long getTransferredCount() {
+		return transferredCount.get();
+	}
+	
+	/**
+	 * 转移失败的文件节点总数
+	 */
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+	
+	/**
+	 * 正在转移中还未处理完的文件节点数量
+	 */
+	public int getPendingCount() {
+		return pendingCount.get();
+	}
 
 	@Override
 	public void run() {
@@ -104,17 +274,19 @@ class FileNodeDistributor implements Runnable, ServiceStateListener {
 		LOG.info("starting...");
 		currentThread = Thread.currentThread();
 		
-		//先对所有失效文件进行处理
-		handleInvalidFileNode();
-		
 		try {
+			//先对所有失效文件进行处理
+			try {
+				handleInvalidFileNode();
+			} catch (Exception e) {
+				LOG.error("transfer invalid files error", e);
+			}
+			
 			while(!isQuit) {
 				try {
 					Service service = downServiceList.take();
 					
-					for (FileNode node : fileStorer.listFileNodes(new ServiceFileNodeFilter(service))) {
-						transferFileNode(node);
-					}
+					transferFileNodes(service.getServiceId(), fileStorer.listFileNodes(new ServiceFileNodeFilter(service)));
 				} catch (Exception e) {
 					LOG.error("transfer files error", e);
 				}
@@ -159,4 +331,50 @@ class FileNodeDistributor implements Runnable, ServiceStateListener {
 			LOG.error("put down service error", e);
 		}
 	}
+	
+	/**
+	 * 一次文件转移的进度统计，同时累加到转移器的统计数据中
+	 */
+	private class TransferProgress {
+		//每转移多少个文件输出一次进度
+		private static final int REPORT_INTERVAL = 1000;
+		
+		private final String source;
+		private final int total;
+		private final long startTime = System.currentTimeMillis();
+		
+		private final AtomicInteger transferred = new AtomicInteger();
+		private final AtomicInteger failed = new AtomicInteger();
+		
+		TransferProgress(String source, int total) {
+			this.source = source;
+			this.total = total;
+			pendingCount.addAndGet(total);
+			LOG.info("start to transfer [{}] file nodes of [{}]", total, source);
+		}
+		
+		void transferred(int count) {
+			transferredCount.addAndGet(count);
+			pendingCount.addAndGet(-count);
+			report(transferred.addAndGet(count) + failed.get(), count);
+		}
+		
+		void failed(int count) {
+			failedCount.addAndGet(count);
+			pendingCount.addAndGet(-count);
+			report(transferred.get() + failed.addAndGet(count), count);
+		}
+		
+		private void report(int handled, int count) {
+			if(handled / REPORT_INTERVAL != (handled - count) / REPORT_INTERVAL) {
+				LOG.info("transfer file nodes of [{}] progress: [{}/{}], failed[{}], elapsed [{}]ms",
+						source, handled, total, failed.get(), System.currentTimeMillis() - startTime);
+			}
+		}
+		
+		void finish() {
+			LOG.info("transfer file nodes of [{}] finished, transferred[{}], failed[{}], total[{}], took [{}]ms",
+					source, transferred.get(), failed.get(), total, System.currentTimeMillis() - startTime);
+		}
+	}
 }
@@ -0,0 +1,84 @@
+package com.bonree.brfs.duplication.coordinator.zk;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.bonree.brfs.common.service.Service;
+import com.bonree.brfs.duplication.coordinator.FileNode;
+import com.bonree.brfs.duplication.coordinator.FileNodeSinkSelector;
+import com.bonree.brfs.duplication.coordinator.FileNodeStorer;
+
+/**
+ * 选择当前管理文件数量最少的服务
+ * 
+ * 每个服务的负载为其管理的文件节点数量加上之后分配给它的文件数量，
+ * 文件节点数量定期从文件仓库中重新统计
+ * 
+ * @author yupeng
+ * 
+ */
+public class LeastLoadFileNodeServiceSelector implements FileNodeSinkSelector {
+	//重新统计服务负载的时间间隔
+	private static final long LOAD_REFRESH_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+	
+	private FileNodeStorer storer;
+	
+	private Map<String, Integer> serviceLoads = new HashMap<String, Integer>();
+	private long lastRefreshTime = 0;
+	
+	public LeastLoadFileNodeServiceSelector(FileNodeStorer storer) {
+		this.storer = storer;
+	}
+	
+	@Override
+	public synchronized Service selectWith(FileNode fileNode, List<Service> serviceList) {
+		if(serviceList.isEmpty()) {
+			return null;
+		}
+		
+		long now = System.currentTimeMillis();
+		if(now - lastRefreshTime > LOAD_REFRESH_INTERVAL_MILLIS) {
+			refreshLoads();
+			lastRefreshTime = now;
+		}
+		
+		//文件会从原来的服务中移走，不再计入原服务的负载
+		Integer ownerLoad = serviceLoads.get(fileNode.getServiceId());
+		if(ownerLoad != null && ownerLoad > 0) {
+			serviceLoads.put(fileNode.getServiceId(), ownerLoad - 1);
+		}
+		
+		//负载相同的服务中随机选择一个
+		Random random = ThreadLocalRandom.current();
+		Service selected = null;
+		int minLoad = Integer.MAX_VALUE;
+		int sameLoadCount = 0;
+		for(Service service : serviceList) {
+			int load = serviceLoads.getOrDefault(service.getServiceId(), 0);
+			if(load < minLoad) {
+				selected = service;
+				minLoad = load;
+				sameLoadCount = 1;
+			} else if(load == minLoad && random.nextInt(++sameLoadCount) == 0) {
+				selected = service;
+			}
+		}
+		
+		serviceLoads.put(selected.getServiceId(), minLoad + 1);
+		return selected;
+	}
+	
+	private void refreshLoads() {
+		Map<String, Integer> loads = new HashMap<String, Integer>();
+		for(FileNode node : storer.listFileNodes(null)) {
+			loads.merge(node.getServiceId(), 1, Integer::sum);
+		}
+		
+		serviceLoads = loads;
+	}
+	
+}
@@ -42,6 +42,11 @@ public class ZkFileNodeSinkManager implements FileNodeSinkManager {
 	private FileNodeDistributor distributor;
 	private static final String DISTRIBUTOR_THREAD_NAME = "file_distributor";
 	private ExecutorService threadPool = Executors.newFixedThreadPool(2, new PooledThreadFactory(DISTRIBUTOR_THREAD_NAME));
+	
+	private static final String TRANSFER_THREAD_NAME = "file_transfer";
+	private ExecutorService transferPool = Executors.newFixedThreadPool(
+			Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_FILE_TRANSFER_THREADS),
+			new PooledThreadFactory(TRANSFER_THREAD_NAME));
 
 	public ZkFileNodeSinkManager(CuratorFramework client,
 			ServiceManager serviceManager,
@@ -49,7 +54,8 @@ public class ZkFileNodeSinkManager implements FileNodeSinkManager {
 			FileNodeSinkSelector selector) {
 		this.client = client;
 		this.serviceManager = serviceManager;
-		this.distributor = new FileNodeDistributor(client, storer, serviceManager, selector);
+		this.distributor = new FileNodeDistributor(client, storer, serviceManager, selector, transferPool,
+				Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_FILE_TRANSFER_BATCH_SIZE));
 		this.selector = new LeaderSelector(client, ZKPaths.makePath(
 				ZkFileCoordinatorPaths.COORDINATOR_ROOT, ZkFileCoordinatorPaths.COORDINATOR_LEADER),
 				new SinkManagerLeaderListener());
@@ -71,6 +77,7 @@ public class ZkFileNodeSinkManager implements FileNodeSinkManager {
 				Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_SERVICE_GROUP_NAME), distributor);
 		selector.close();
 		threadPool.shutdown();
+		transferPool.shutdown();
 	}
 
 	@Override
@@ -147,8 +154,8 @@ public class ZkFileNodeSinkManager implements FileNodeSinkManager {
 			case CHILD_ADDED:
 				FileNode fileNode = JsonUtils.toObject(data.getData(), FileNode.class);
 				sink.fill(fileNode);
-				//如果节点接受成功则删除sink中的节点
-				client.delete().quietly().forPath(data.getPath());
+				//如果节点接受成功则删除sink中的节点，不阻塞后续文件节点的接收
+				client.delete().quietly().inBackground().forPath(data.getPath());
 				break;
 			default:
 				break;
@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
 import org.apache.curator.utils.ZKPaths;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,6 +73,26 @@ public class ZkFileNodeStorer implements FileNodeStorer {
 		}
 	}
 
+	@SuppressWarnings("deprecation")
+	@Override
+	public void update(List<FileNode> fileNodes) {
+		if(fileNodes.isEmpty()) {
+			return;
+		}
+		
+		try {
+			CuratorTransactionFinal transaction = null;
+			for(FileNode fileNode : fileNodes) {
+				CuratorTransaction current = transaction == null ? client.inTransaction() : transaction;
+				transaction = current.setData().forPath(ZKPaths.makePath(storePath, fileNode.getName()), JsonUtils.toJsonBytes(fileNode)).and();
+			}
+			
+			transaction.commit();
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
 	@Override
 	public List<FileNode> listFileNodes(FileNodeFilter filter) {
 		List<FileNode> fileNodes = new ArrayList<FileNode>();
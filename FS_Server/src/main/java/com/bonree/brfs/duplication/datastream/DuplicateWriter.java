@@ -4,20 +4,18 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.bonree.brfs.common.asynctask.AsyncExecutor;
-import com.bonree.brfs.common.asynctask.AsyncTaskGroup;
-import com.bonree.brfs.common.asynctask.AsyncTaskGroupCallback;
-import com.bonree.brfs.common.asynctask.AsyncTaskResult;
 import com.bonree.brfs.common.service.Service;
 import com.bonree.brfs.common.utils.PooledThreadFactory;
 import com.bonree.brfs.common.write.data.DataItem;
@@ -47,10 +45,8 @@ import com.bonree.brfs.server.identification.ServerIDManager;
 public class DuplicateWriter {
 	private static final Logger LOG = LoggerFactory.getLogger(DuplicateWriter.class);
 	
-	private AsyncExecutor multiTaskExecutor = new AsyncExecutor(
-			Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_WRITER_CONCURRENT_FILE_NUM),
-			new PooledThreadFactory("writer_files"));
-	private AsyncExecutor writeTaskExecutor = new AsyncExecutor(
+	//只用于获取磁盘节点连接和发送写请求，不等待磁盘节点的响应
+	private ExecutorService writeTaskExecutor = Executors.newFixedThreadPool(
 			Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_WRITER_WORKER_NUM),
 			new PooledThreadFactory("write_workers"));
 	private ExecutorService resultExecutor = Executors.newFixedThreadPool(
@@ -120,7 +116,7 @@ public class DuplicateWriter {
 		return fileLounge;
 	}
 	
-	public void write(int storageId, DataItem[] items, DataHandleCallback<DataWriteResult> callback) {
+	public void write(int storageId, int compress, DataItem[] items, DataHandleCallback<DataWriteResult> callback) {
 		FileLounge fileLounge = getFileLoungeByStorageId(storageId);
 		if(fileLounge == null) {
 			callback.error(new StorageNameNonexistentException(storageId));
@@ -144,53 +140,53 @@ public class DuplicateWriter {
 		
 		FileLimiter[] fileList = fileLounge.getFileLimiterList(sizes);
 		
-		AsyncTaskGroup<ResultItem[]> taskGroup = new AsyncTaskGroup<ResultItem[]>();
-		FileWriteCallback taskCallback = new FileWriteCallback(callback);
+		List<FileWriteTask> taskList = new ArrayList<FileWriteTask>();
 		for(int i = 0; i < fileList.length; i++) {
 			FileLimiter file = fileList[i];
 			if(file == null) {
-				ResultItem item = new ResultItem();
-				item.setSequence(items[i].getUserSequence());
-				item.setFid(null);
-				taskCallback.addResultItem(null);
 				continue;
 			}
 			
 			FileWriteTask task = (FileWriteTask) file.attach();
 			if(task == null) {
-				task = new FileWriteTask(file, idManager, connectionPool, writeTaskExecutor, resultExecutor);
+				task = new FileWriteTask(file, compress, idManager, connectionPool, writeTaskExecutor, resultExecutor);
 				file.attach(task);
-				taskGroup.addTask(task);
+				taskList.add(task);
 			}
 			
 			task.addDataItem(items[i]);
 		}
 		
-		multiTaskExecutor.submit(taskGroup, new FileWriteCallback(callback), resultExecutor);
+		//所有文件的数据都添加完成后才能开始写入
+		List<CompletableFuture<ResultItem[]>> futureList = new ArrayList<CompletableFuture<ResultItem[]>>(taskList.size());
+		for(FileWriteTask task : taskList) {
+			futureList.add(task.start());
+		}
+		
+		CompletableFuture.allOf(futureList.toArray(new CompletableFuture<?>[futureList.size()]))
+		.whenCompleteAsync(new FileWriteCallback(futureList, callback), resultExecutor);
 	}
 	
-	private class FileWriteCallback implements AsyncTaskGroupCallback<ResultItem[]> {
-		private List<ResultItem> resultList = new ArrayList<ResultItem>();
+	private class FileWriteCallback implements BiConsumer<Void, Throwable> {
+		private List<CompletableFuture<ResultItem[]>> futureList;
 		private DataHandleCallback<DataWriteResult> callback;
 		
-		public FileWriteCallback(DataHandleCallback<DataWriteResult> callback) {
+		public FileWriteCallback(List<CompletableFuture<ResultItem[]>> futureList, DataHandleCallback<DataWriteResult> callback) {
+			this.futureList = futureList;
 			this.callback = callback;
 		}
-		
-		public void addResultItem(ResultItem item) {
-			resultList.add(item);
-		}
 
 		@Override
-		public void completed(AsyncTaskResult<ResultItem[]>[] results) {
-			//每个taskResult代表一个文件的数据写入结果
-			for(AsyncTaskResult<ResultItem[]> taskResult : results) {
-				if(taskResult.getError() != null) {
+		public void accept(Void ignore, Throwable cause) {
+			List<ResultItem> resultList = new ArrayList<ResultItem>();
+			//每个future代表一个文件的数据写入结果
+			for(CompletableFuture<ResultItem[]> future : futureList) {
+				if(future.isCompletedExceptionally()) {
 					//有异常的返回结果不处理
 					continue;
 				}
 				
-				for(ResultItem item : taskResult.getResult()) {
+				for(ResultItem item : future.join()) {
 					//把数据汇总到统一的集合中
 					resultList.add(item);
 				}
@@ -206,15 +202,31 @@ public class DuplicateWriter {
 		
 	}
 	
+	private void closeFileNodes(List<FileLimiter> fileLimiters) {
+		for(FileLimiter fileLimiter : fileLimiters) {
+			FileNode fileNode = fileLimiter.getFileNode();
+			try {
+				fileCloser.closeFileNode(fileNode);
+			} catch (Exception e) {
+				LOG.warn("clean to close file[{}] error", fileNode.getName());
+			}
+		}
+	}
+	
 	private class FileInvalidator implements FileNodeInvalidListener {
 
 		@Override
 		public void invalid() {
 			LOG.warn("File Lounge is going to be cleaned!!");
-			fileLoungeList.clear();
 			for(ScheduledFuture<?> f : fileLoungeCleaners) {
 				f.cancel(false);
 			}
+			
+			//停止文件预创建，未使用的预创建文件需要关闭
+			for(FileLounge fileLounge : fileLoungeList.values()) {
+				closeFileNodes(fileLounge.close());
+			}
+			fileLoungeList.clear();
 		}
 		
 	}
@@ -233,14 +245,8 @@ public class DuplicateWriter {
 		public void storageNameRemoved(StorageNameNode node) {
 			FileLounge fileLounge = fileLoungeList.remove(node.getId());
 			if(fileLounge != null) {
-				for(FileLimiter fileLimiter : fileLounge.listFileLimiters()) {
-					FileNode fileNode = fileLimiter.getFileNode();
-					try {
-						fileCloser.closeFileNode(fileNode);
-					} catch (Exception e) {
-						LOG.warn("clean to close file[{}] error", fileNode.getName());
-					}
-				}
+				closeFileNodes(fileLounge.close());
+				closeFileNodes(fileLounge.listFileLimiters());
 				
 				fileLounge.clean();
 			}
@@ -0,0 +1,77 @@
+package com.bonree.brfs.duplication.datastream.connection.tcp;
+
+import io.netty.channel.EventLoopGroup;
+
+import java.io.IOException;
+
+import com.bonree.brfs.common.net.http.client.ClientConfig;
+import com.bonree.brfs.common.utils.CloseUtils;
+import com.bonree.brfs.configuration.Configs;
+import com.bonree.brfs.configuration.units.DuplicateNodeConfigs;
+import com.bonree.brfs.disknode.client.DiskNodeClient;
+import com.bonree.brfs.disknode.client.HttpDiskNodeClient;
+import com.bonree.brfs.disknode.client.TcpDiskNodeClient;
+import com.bonree.brfs.disknode.server.tcp.WriteProtocol;
+import com.bonree.brfs.duplication.datastream.connection.DiskNodeConnection;
+
+public class TcpDiskNodeConnection implements DiskNodeConnection {
+	
+	private static final int DEFAULT_RESPONSE_TIMEOUT_MILLIS = 15 * 1000;
+	private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 5 * 1000;
+	
+	private static final int MAX_CONNECTION_RER_ROUTE = Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_WRITER_WORKER_NUM);
+	
+	private String address;
+	private int port;
+	private TcpDiskNodeClient client;
+	
+	public TcpDiskNodeConnection(String address, int port) {
+		this.address = address;
+		this.port = port;
+	}
+	
+	public void connect(EventLoopGroup group) throws IOException {
+		ClientConfig clientConfig = ClientConfig.builder()
+				.setResponseTimeout(DEFAULT_RESPONSE_TIMEOUT_MILLIS)
+				.setMaxConnectionPerRoute(MAX_CONNECTION_RER_ROUTE)
+				.setMaxConnection(MAX_CONNECTION_RER_ROUTE * 3)
+				.build();
+				
+		TcpDiskNodeClient tcpClient = new TcpDiskNodeClient(address, WriteProtocol.tcpPort(port),
+				DEFAULT_RESPONSE_TIMEOUT_MILLIS, new HttpDiskNodeClient(address, port, clientConfig));
+		try {
+			tcpClient.connect(group, DEFAULT_CONNECT_TIMEOUT_MILLIS);
+		} catch (IOException e) {
+			CloseUtils.closeQuietly(tcpClient);
+			throw e;
+		}
+		
+		client = tcpClient;
+	}
+	
+	@Override
+	public String getRemoteAddress() {
+		return address;
+	}
+	
+	@Override
+	public int getRemotePort() {
+		return port;
+	}
+	
+	@Override
+	public boolean isValid() {
+		return client != null && client.ping();
+	}
+	
+	@Override
+	public DiskNodeClient getClient() {
+		return client;
+	}
+	
+	@Override
+	public void close() {
+		CloseUtils.closeQuietly(client);
+	}
+	
+}
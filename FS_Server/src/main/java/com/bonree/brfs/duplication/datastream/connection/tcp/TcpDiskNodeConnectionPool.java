@@ -0,0 +1,133 @@
+package com.bonree.brfs.duplication.datastream.connection.tcp;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bonree.brfs.common.service.Service;
+import com.bonree.brfs.common.service.ServiceManager;
+import com.bonree.brfs.common.utils.CloseUtils;
+import com.bonree.brfs.common.utils.PooledThreadFactory;
+import com.bonree.brfs.duplication.coordinator.DuplicateNode;
+import com.bonree.brfs.duplication.datastream.connection.DiskNodeConnection;
+import com.bonree.brfs.duplication.datastream.connection.DiskNodeConnectionPool;
+
+/**
+ * 基于二进制写数据协议的连接池，每个磁盘节点只维护一个写数据长连接，
+ * 多个写请求在同一个连接上并发传输
+ * 
+ * 连接在缓存锁之外建立，同一个节点的并发请求等待同一个连接结果，
+ * 不会阻塞获取其他节点连接的线程
+ * 
+ * @author chen
+ * 
+ */
+public class TcpDiskNodeConnectionPool implements DiskNodeConnectionPool {
+	private static final Logger LOG = LoggerFactory.getLogger(TcpDiskNodeConnectionPool.class);
+	
+	private static final int DEFAULT_CONNECTION_STATE_CHECK_INTERVAL = 3;
+	private ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor(new PooledThreadFactory("connection_checker"));
+	private ConcurrentHashMap<DuplicateNode, CompletableFuture<TcpDiskNodeConnection>> connectionCache =
+			new ConcurrentHashMap<DuplicateNode, CompletableFuture<TcpDiskNodeConnection>>();
+	
+	private ServiceManager serviceManager;
+	private EventLoopGroup group;
+	
+	public TcpDiskNodeConnectionPool(ServiceManager serviceManager, int ioThreadNum) {
+		this.serviceManager = serviceManager;
+		this.group = new NioEventLoopGroup(ioThreadNum, new PooledThreadFactory("disk_write_channel"));
+		exec.scheduleAtFixedRate(new ConnectionStateChecker(), 0, DEFAULT_CONNECTION_STATE_CHECK_INTERVAL, TimeUnit.SECONDS);
+	}
+	
+	@Override
+	public void close() {
+		exec.shutdown();
+		connectionCache.values().forEach(new Consumer<CompletableFuture<TcpDiskNodeConnection>>() {
+			
+			@Override
+			public void accept(CompletableFuture<TcpDiskNodeConnection> future) {
+				CloseUtils.closeQuietly(future.getNow(null));
+			}
+		});
+		connectionCache.clear();
+		group.shutdownGracefully();
+	}
+	
+	@Override
+	public DiskNodeConnection getConnection(DuplicateNode duplicateNode) {
+		CompletableFuture<TcpDiskNodeConnection> future = connectionCache.get(duplicateNode);
+		if(future == null) {
+			CompletableFuture<TcpDiskNodeConnection> newFuture = new CompletableFuture<TcpDiskNodeConnection>();
+			future = connectionCache.putIfAbsent(duplicateNode, newFuture);
+			if(future == null) {
+				//只有放入缓存的线程负责建立连接
+				future = newFuture;
+				connect(duplicateNode, newFuture);
+			}
+		}
+		
+		return future.join();
+	}
+	
+	private void connect(DuplicateNode duplicateNode, CompletableFuture<TcpDiskNodeConnection> future) {
+		TcpDiskNodeConnection connection = null;
+		try {
+			Service service = serviceManager.getServiceById(duplicateNode.getGroup(), duplicateNode.getId());
+			if(service != null) {
+				connection = new TcpDiskNodeConnection(service.getHost(), service.getPort());
+				connection.connect(group);
+			}
+		} catch (Exception e) {
+			LOG.error("connect to node{} error", duplicateNode, e);
+			connection = null;
+		} finally {
+			if(connection == null) {
+				//连接失败时不缓存结果，下次获取时重新连接
+				connectionCache.remove(duplicateNode, future);
+			}
+			
+			future.complete(connection);
+		}
+	}
+	
+	@Override
+	public DiskNodeConnection[] getConnections(DuplicateNode[] duplicateNodes) {
+		DiskNodeConnection[] connections = new DiskNodeConnection[duplicateNodes.length];
+		
+		for(int i = 0; i < connections.length; i++) {
+			connections[i] = getConnection(duplicateNodes[i]);
+		}
+		
+		return connections;
+	}
+	
+	private class ConnectionStateChecker implements Runnable {
+		
+		@Override
+		public void run() {
+			for(Entry<DuplicateNode, CompletableFuture<TcpDiskNodeConnection>> entry : connectionCache.entrySet()) {
+				//正在建立的连接不检查
+				TcpDiskNodeConnection connection = entry.getValue().getNow(null);
+				if(connection == null || connection.isValid()) {
+					continue;
+				}
+				
+				LOG.info("Connection to node{} is invalid!", entry.getKey());
+				if(connectionCache.remove(entry.getKey(), entry.getValue())) {
+					CloseUtils.closeQuietly(connection);
+				}
+			}
+		}
+		
+	}
+}
@@ -1,11 +1,10 @@
 package com.bonree.brfs.duplication.datastream.file;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -37,8 +36,10 @@ public class DefaultFileLounge implements FileLounge {
 	//对文件节点进行清理的集合大小阈值
 	private static final int FILE_SET_SIZE_CLEAN_THRESHOLD = Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_FILE_CLEAN_COUNT);
 	private static final double FILE_USAGE_RATIO_THRESHOLD = Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_FILE_CLEAN_USAGE_RATE);
+	//预先创建的文件数量
+	private static final int FILE_PREALLOCATE_COUNT = Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_FILE_PREALLOCATE_COUNT);
 	
-	private TimedObjectCollection<List<FileLimiter>> timedWritableFileContainer;
+	private TimedObjectCollection<FileLimiterBuckets> timedWritableFileContainer;
 	private LinkedList<FileLimiter> removedFileList = new LinkedList<FileLimiter>();
 	
 	private TimedObjectCollection<List<FileLimiter>> suspendFileContainer;
@@ -46,6 +47,8 @@ public class DefaultFileLounge implements FileLounge {
 	private FileCloseListener fileCloseListener;
 	
 	private FileLimiterFactory fileLimiterFactory;
+	//预先创建好的文件，为null时在写入时创建文件
+	private FileLimiterPool fileLimiterPool;
 	
 	private FileSynchronizer fileSynchronizer;
 	private FileLimiterStateRebuilder fileRebuilder;
@@ -56,23 +59,33 @@ public class DefaultFileLounge implements FileLounge {
 	private int storageId;
 	
 	public DefaultFileLounge(int storageId, FileLimiterFactory fileLimiterFactory, FileSynchronizer fileSynchronizer, FileLimiterStateRebuilder fileRebuilder) {
+		this(storageId, fileLimiterFactory, fileSynchronizer, fileRebuilder, null);
+	}
+	
+	public DefaultFileLounge(int storageId, FileLimiterFactory fileLimiterFactory, FileSynchronizer fileSynchronizer, FileLimiterStateRebuilder fileRebuilder, ScheduledExecutorService preallocateExecutor) {
 		this(storageId, fileLimiterFactory, fileSynchronizer, fileRebuilder,
-				TimeUnit.MINUTES.toMillis(Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_FILE_PATITION_INTERVAL_MINUTES)));
+				TimeUnit.MINUTES.toMillis(Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_FILE_PATITION_INTERVAL_MINUTES)),
+				preallocateExecutor);
 	}
 	
 	public DefaultFileLounge(int storageId, FileLimiterFactory fileLimiterFactory, FileSynchronizer fileSynchronizer, FileLimiterStateRebuilder fileRebuilder, long timeIntervalMillis) {
+		this(storageId, fileLimiterFactory, fileSynchronizer, fileRebuilder, timeIntervalMillis, null);
+	}
+	
+	public DefaultFileLounge(int storageId, FileLimiterFactory fileLimiterFactory, FileSynchronizer fileSynchronizer, FileLimiterStateRebuilder fileRebuilder,
+			long timeIntervalMillis, ScheduledExecutorService preallocateExecutor) {
 		this.storageId = storageId;
 		this.fileLimiterFactory = fileLimiterFactory;
 		this.fileSynchronizer = fileSynchronizer;
 		this.fileRebuilder = fileRebuilder;
 		this.patitionTimeInterval = timeIntervalMillis;
 		
-		this.timedWritableFileContainer = new TimedObjectCollection<List<FileLimiter>>(
-				patitionTimeInterval, TimeUnit.MILLISECONDS, new ObjectBuilder<List<FileLimiter>>() {
+		this.timedWritableFileContainer = new TimedObjectCollection<FileLimiterBuckets>(
+				patitionTimeInterval, TimeUnit.MILLISECONDS, new ObjectBuilder<FileLimiterBuckets>() {
 
 					@Override
-					public List<FileLimiter> build() {
-						return new LinkedList<FileLimiter>();
+					public FileLimiterBuckets build() {
+						return new FileLimiterBuckets();
 					}
 					
 				});
@@ -86,6 +99,11 @@ public class DefaultFileLounge implements FileLounge {
 					}
 					
 				});
+				
+		if(preallocateExecutor != null && FILE_PREALLOCATE_COUNT > 0) {
+			this.fileLimiterPool = new FileLimiterPool(storageId, fileLimiterFactory, FILE_PREALLOCATE_COUNT,
+					patitionTimeInterval, preallocateExecutor);
+		}
 	}
 	
 	private void addFileLimiter(List<FileLimiter> list, FileLimiter file) {
@@ -96,7 +114,48 @@ public class DefaultFileLounge implements FileLounge {
 	
 	@Override
 	public void addFileLimiter(FileLimiter file) {
-		addFileLimiter(timedWritableFileContainer.get(file.getFileNode().getCreateTime()), file);
+		FileLimiterBuckets buckets = timedWritableFileContainer.get(file.getFileNode().getCreateTime());
+		addWritableFile(buckets, file);
+		buckets.release(file);
+	}
+	
+	/**
+	 * 把文件加入可写集合，文件解除锁定时会自动回到空闲级别中
+	 * 
+	 * @param buckets
+	 * @param file
+	 */
+	private void addWritableFile(FileLimiterBuckets buckets, FileLimiter file) {
+		buckets.add(file);
+		file.setUnlockListener(new FileLimiter.UnlockListener() {
+			
+			@Override
+			public void unlocked(FileLimiter file) {
+				if(file.isSync()) {
+					suspend(buckets, file);
+					return;
+				}
+				
+				buckets.release(file);
+			}
+		});
+	}
+	
+	/**
+	 * 把需要同步的文件移出可写集合
+	 * 
+	 * @param buckets
+	 * @param file
+	 */
+	private void suspend(FileLimiterBuckets buckets, FileLimiter file) {
+		if(!buckets.remove(file)) {
+			return;
+		}
+		
+		LOG.info("suspend file[{}] because it's syncing", file.getFileNode().getName());
+		file.setUnlockListener(null);
+		addFileLimiter(suspendFileContainer.get(file.getFileNode().getCreateTime()), file);
+		fileSynchronizer.synchronize(file.getFileNode(), new FileLimiterSyncCallback(file));
 	}
 
 	@Override
@@ -109,8 +168,9 @@ public class DefaultFileLounge implements FileLounge {
 		FileLimiter[] results = new FileLimiter[requestSizes.length];
 		
 		long currentTime = System.currentTimeMillis();
-		Set<FileLimiter> selected = new HashSet<FileLimiter>();
-		List<FileLimiter> fileList = timedWritableFileContainer.get(currentTime);
+		List<FileLimiter> selected = new ArrayList<FileLimiter>();
+		List<FileLimiter> rejected = new ArrayList<FileLimiter>();
+		FileLimiterBuckets buckets = timedWritableFileContainer.get(currentTime);
 		
 		for(int i = 0; i < requestSizes.length; i++) {
 			if(requestSizes[i] > DuplicationEnvironment.DEFAULT_MAX_AVAILABLE_FILE_SPACE) {
@@ -120,58 +180,104 @@ public class DefaultFileLounge implements FileLounge {
 				continue;
 			}
 			
-			synchronized (fileList) {
-				Iterator<FileLimiter> iterator = fileList.iterator();
-				while(iterator.hasNext()) {
-					FileLimiter file = iterator.next();
-					if(file.isSync()) {
-						LOG.info("skip selecting file[{}] because it's syncing", file.getFileNode().getName());
-						fileSynchronizer.synchronize(file.getFileNode(), new FileLimiterSyncCallback(file));
-						iterator.remove();
-						
-						addFileLimiter(suspendFileContainer.get(file.getFileNode().getCreateTime()), file);
-						continue;
-					}
-					
-					if(!file.lock(requestSizes)) {
-						LOG.debug("can not lock file[{}]", file.getFileNode().getName());
-						continue;
-					}
-					
-					if(file.apply(requestSizes[i])) {
-						results[i] = file;
-						selected.add(file);
-						break;
-					}
-					
-					if(!selected.contains(file)) {
-						file.unlock();
-					}
+			//优先使用本次请求已经锁定的文件
+			for(FileLimiter file : selected) {
+				if(file.apply(requestSizes[i])) {
+					results[i] = file;
+					break;
+				}
+			}
+			
+			int probed = 0;
+			while(results[i] == null) {
+				FileLimiter file = buckets.poll(requestSizes[i], probed);
+				if(file == null) {
+					break;
+				}
+				
+				if(file.isSync()) {
+					suspend(buckets, file);
+					continue;
 				}
+				
+				if(!file.lock(requestSizes)) {
+					//文件已被其他操作（如清理）锁定，锁定者负责文件的后续处理
+					LOG.debug("can not lock file[{}]", file.getFileNode().getName());
+					continue;
+				}
+				
+				if(file.apply(requestSizes[i])) {
+					results[i] = file;
+					selected.add(file);
+					break;
+				}
+				
+				if(FileLimiterBuckets.inSameBucket(file, requestSizes[i])) {
+					probed++;
+				}
+				
+				rejected.add(file);
 			}
 			
+			//解锁后文件会回到空闲级别中
+			for(FileLimiter file : rejected) {
+				file.unlock();
+			}
+			rejected.clear();
+			
 			if(results[i] == null) {
-				FileLimiter newFile = fileLimiterFactory.create(currentTime, storageId);
+				FileLimiter newFile = createFileLimiter(currentTime);
 				if(newFile == null) {
 					throw new RuntimeException("can not create FileLimiter???");
 				}
 				
-				LOG.info("create new FileLimiter--->{}", newFile.getFileNode().getName());
 				newFile.lock(requestSizes);
 				newFile.apply(requestSizes[i]);
 				results[i] = newFile;
+				selected.add(newFile);
 				
 				//不直接使用上面获取fileContainer是为了防止因为FileCleaner清理导致的fileContainer为null
-				addFileLimiter(timedWritableFileContainer.get(currentTime), newFile);
+				addWritableFile(timedWritableFileContainer.get(currentTime), newFile);
 			}
 		}
 		
 		return results;
 	}
 	
+	/**
+	 * 优先使用预先创建好的文件，没有可用的文件时才创建新文件
+	 * 
+	 * @param currentTime
+	 * @return
+	 */
+	private FileLimiter createFileLimiter(long currentTime) {
+		if(fileLimiterPool != null) {
+			FileLimiter file = fileLimiterPool.take(currentTime);
+			if(file != null) {
+				LOG.info("use preallocated FileLimiter--->{}", file.getFileNode().getName());
+				return file;
+			}
+		}
+		
+		FileLimiter file = fileLimiterFactory.create(currentTime, storageId);
+		if(file != null) {
+			LOG.info("create new FileLimiter--->{}", file.getFileNode().getName());
+		}
+		
+		return file;
+	}
+	
 	@Override
 	public void clean() {
-		List<TimedObject<List<FileLimiter>>> timedObjects = timedWritableFileContainer.allObjects();
+		if(fileLimiterPool != null) {
+			//过期的预创建文件放入对应时间段的集合中，和历史文件一起被清理
+			for(FileLimiter file : fileLimiterPool.drainExpired(System.currentTimeMillis())) {
+				LOG.info("preallocated file[{}] is expired", file.getFileNode().getName());
+				addFileLimiter(file);
+			}
+		}
+		
+		List<TimedObject<FileLimiterBuckets>> timedObjects = timedWritableFileContainer.allObjects();
 		long currentTimeInterval = timedWritableFileContainer.getTimeInterval(System.currentTimeMillis());
 		
 		List<TimedObject<List<FileLimiter>>> syncingFiles = suspendFileContainer.allObjects();
@@ -192,66 +298,57 @@ public class DefaultFileLounge implements FileLounge {
 			}
 		}
 		
-		for(TimedObject<List<FileLimiter>> obj : timedObjects) {
-			List<FileLimiter> fileList = obj.getObj();
-			LOG.info("container[{}] FILE CLEANER---- at {} >>> size[{}]", timedWritableFileContainer, obj.getTimeInterval(), fileList.size());
+		for(TimedObject<FileLimiterBuckets> obj : timedObjects) {
+			FileLimiterBuckets buckets = obj.getObj();
+			LOG.info("container[{}] FILE CLEANER---- at {} >>> size[{}]", timedWritableFileContainer, obj.getTimeInterval(), buckets.size());
 			
 			if(obj.getTimeInterval() < currentTimeInterval) {
 				LOG.info("clean historical file list!");
 				//历史时刻文件，清理所有能清理的文件
-				synchronized (fileList) {
-					Iterator<FileLimiter> iterator = fileList.iterator();
-					while(iterator.hasNext()) {
-						FileLimiter file = iterator.next();
-						if(!file.lock(this)) {
-							LOG.info("can not remove HISTORICAL locked file[{}]", file.getFileNode().getName());
-							continue;
-						}
-						
-						LOG.info("CLOSE historical file ---{}", file.getFileNode().getName());
-						removedFileList.add(file);
-						iterator.remove();
+				for(FileLimiter file : buckets.files()) {
+					if(!file.lock(this)) {
+						LOG.info("can not remove HISTORICAL locked file[{}]", file.getFileNode().getName());
+						continue;
 					}
+					
+					LOG.info("CLOSE historical file ---{}", file.getFileNode().getName());
+					buckets.remove(file);
+					removedFileList.add(file);
 				}
 				
-				if(fileList.isEmpty()) {
+				if(buckets.isEmpty()) {
 					timedWritableFileContainer.remove(obj.getTimeInterval());
 				}
 			} else {
 				//当前时刻的文件集合，只对有clean标记的文件做处理
-				synchronized (fileList) {
-					boolean cleanOverSize = fileList.size() >= FILE_SET_SIZE_CLEAN_THRESHOLD;
-					
-					if(!cleanOverSize) {
-						//文件数量没达到阈值，不进行清理
-						LOG.info("file list size[{}] is smaller than threshold[{}], don't clean list.", fileList.size(),  FILE_SET_SIZE_CLEAN_THRESHOLD);
+				boolean cleanOverSize = buckets.size() >= FILE_SET_SIZE_CLEAN_THRESHOLD;
+				
+				if(!cleanOverSize) {
+					//文件数量没达到阈值，不进行清理
+					LOG.info("file list size[{}] is smaller than threshold[{}], don't clean list.", buckets.size(),  FILE_SET_SIZE_CLEAN_THRESHOLD);
+					continue;
+				}
+				
+				for(FileLimiter file : buckets.files()) {
+					if(Double.compare(file.getLength(), file.capacity() * FILE_USAGE_RATIO_THRESHOLD) < 0) {
+						//文件大小没达到指定阈值，不进行清理
+						LOG.info("ignore current file[{}] contains [{}] bytes, not reach [{} * {}]",
+								file.getFileNode().getName(),
+								file.getLength(),
+								file.capacity(),
+								FILE_USAGE_RATIO_THRESHOLD);
 						continue;
 					}
 					
-					Iterator<FileLimiter> iterator = fileList.iterator();
-					while(iterator.hasNext()) {
-						FileLimiter file = iterator.next();
-						
-						if(Double.compare(file.getLength(), file.capacity() * FILE_USAGE_RATIO_THRESHOLD) < 0) {
-							//文件大小没达到指定阈值，不进行清理
-							LOG.info("ignore current file[{}] contains [{}] bytes, not reach [{} * {}]",
-									file.getFileNode().getName(),
-									file.getLength(),
-									file.capacity(),
-									FILE_USAGE_RATIO_THRESHOLD);
-							continue;
-						}
-						
-						if(!file.lock(this)) {
-							//无法锁定文件，说明当前文件还有写入操作，不进行清理
-							LOG.info("can not remove CURRENT locked file[{}]", file.getFileNode().getName());
-							continue;
-						}
-						
-						LOG.info("close current file ---{}", file.getFileNode().getName());
-						removedFileList.add(file);
-						iterator.remove();
+					if(!file.lock(this)) {
+						//无法锁定文件，说明当前文件还有写入操作，不进行清理
+						LOG.info("can not remove CURRENT locked file[{}]", file.getFileNode().getName());
+						continue;
 					}
+					
+					LOG.info("close current file ---{}", file.getFileNode().getName());
+					buckets.remove(file);
+					removedFileList.add(file);
 				}
 			}
 		}
@@ -277,19 +374,35 @@ public class DefaultFileLounge implements FileLounge {
 	@Override
 	public void setFileCloseListener(FileCloseListener listener) {
 		this.fileCloseListener = listener;
+		if(fileLimiterPool != null) {
+			fileLimiterPool.setFileCloseListener(listener);
+		}
 	}
 
 	@Override
 	public List<FileLimiter> listFileLimiters() {
 		List<FileLimiter> result = new ArrayList<FileLimiter>();
-		List<TimedObject<List<FileLimiter>>> timedObjects = timedWritableFileContainer.allObjects();
-		for(TimedObject<List<FileLimiter>> obj : timedObjects) {
-			result.addAll(obj.getObj());
+		List<TimedObject<FileLimiterBuckets>> timedObjects = timedWritableFileContainer.allObjects();
+		for(TimedObject<FileLimiterBuckets> obj : timedObjects) {
+			result.addAll(obj.getObj().files());
+		}
+		
+		if(fileLimiterPool != null) {
+			result.addAll(fileLimiterPool.files());
 		}
 		
 		return result;
 	}
 	
+	@Override
+	public List<FileLimiter> close() {
+		if(fileLimiterPool != null) {
+			return fileLimiterPool.close();
+		}
+		
+		return new ArrayList<FileLimiter>();
+	}
+	
 	private class FileLimiterSyncCallback implements FileSynchronizeCallback {
 		private FileLimiter fileLimiter;
 		
@@ -1,5 +1,7 @@
 package com.bonree.brfs.duplication.datastream.file;
 
+import java.util.concurrent.ScheduledExecutorService;
+
 import com.bonree.brfs.common.service.Service;
 import com.bonree.brfs.duplication.DuplicationNodeSelector;
 import com.bonree.brfs.duplication.coordinator.FileCoordinator;
@@ -14,6 +16,7 @@ public class DefaultFileLoungeFactory implements FileLoungeFactory {
 	private StorageNameManager storageNameManager;
 	private FileSynchronizer fileSynchronizer;
 	private FileLimiterStateRebuilder fileRebuilder;
+	private ScheduledExecutorService preallocateExecutor;
 	
 	public DefaultFileLoungeFactory(Service service,
 			FileCoordinator fileCoordinator,
@@ -22,11 +25,13 @@ public class DefaultFileLoungeFactory implements FileLoungeFactory {
 			ServerIDManager idManager,
 			DiskNodeConnectionPool connectionPool,
 			FileSynchronizer fileSynchronizer,
-			FileLimiterStateRebuilder fileRebuilder) {
+			FileLimiterStateRebuilder fileRebuilder,
+			ScheduledExecutorService preallocateExecutor) {
 		this.storageNameManager = storageNameManager;
 		this.fileSynchronizer = fileSynchronizer;
 		this.fileFactory = new DefaultFileLimiterFactory(fileCoordinator, nodeSelector, storageNameManager, service, idManager, connectionPool);
 		this.fileRebuilder = fileRebuilder;
+		this.preallocateExecutor = preallocateExecutor;
 	}
 
 	@Override
@@ -36,7 +41,7 @@ public class DefaultFileLoungeFactory implements FileLoungeFactory {
 			return null;
 		}
 		
-		FileLounge fileLounge = new DefaultFileLounge(storageId, fileFactory, fileSynchronizer, fileRebuilder);
+		FileLounge fileLounge = new DefaultFileLounge(storageId, fileFactory, fileSynchronizer, fileRebuilder, preallocateExecutor);
 		
 		return fileLounge;
 	}
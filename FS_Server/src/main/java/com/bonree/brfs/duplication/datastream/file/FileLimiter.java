@@ -22,6 +22,8 @@ public class FileLimiter {
 	private AtomicReference<Object> lockObject = new AtomicReference<Object>();
 	private Object attached;
 	
+	private volatile UnlockListener unlockListener;
+	
 	public FileLimiter(FileNode fileNode, int capacity) {
 		this(fileNode, capacity, 0, 0);
 	}
@@ -62,6 +64,15 @@ public class FileLimiter {
 		return realLength;
 	}
 	
+	/**
+	 * 文件当前剩余的可用空间
+	 * 
+	 * @return
+	 */
+	public long remaining() {
+		return capacity - realLength;
+	}
+	
 	public boolean lock(Object lock) {
 		if(lockObject.get() == lock) {
 			return true;
@@ -76,7 +87,19 @@ public class FileLimiter {
 	}
 	
 	public void unlock() {
-		lockObject.set(null);
+		if(lockObject.getAndSet(null) == null) {
+			//文件没有被锁定，重复解锁不通知
+			return;
+		}
+		
+		UnlockListener listener = unlockListener;
+		if(listener != null) {
+			listener.unlocked(this);
+		}
+	}
+	
+	public void setUnlockListener(UnlockListener listener) {
+		this.unlockListener = listener;
 	}
 	
 	public void setSync(boolean isSync) {
@@ -109,4 +132,11 @@ public class FileLimiter {
 		logicLength += size;
 		return true;
 	}
+	
+	/**
+	 * 文件解除锁定时的通知接口
+	 */
+	public static interface UnlockListener {
+		void unlocked(FileLimiter file);
+	}
 }
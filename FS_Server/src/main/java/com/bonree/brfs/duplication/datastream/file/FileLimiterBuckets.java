@@ -0,0 +1,125 @@
+package com.bonree.brfs.duplication.datastream.file;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 按剩余空间分级保存空闲文件的集合。
+ * 
+ * 第k级保存剩余空间在[2^k, 2^(k+1))范围内的空闲文件，申请空间时从能容纳
+ * 请求大小的最小级别开始查找，高于请求大小所在级别的文件一定能容纳请求的数据。
+ * 
+ * 文件被取出后处于锁定状态，不在任何级别中，解除锁定后再按剩余空间放回对应的级别。
+ * 
+ * @author yupeng
+ * 
+ */
+class FileLimiterBuckets {
+	private static final int BUCKET_NUM = Long.SIZE;
+	
+	//最小级别中查找的文件数，超过后直接查找更高级别
+	private static final int MAX_PROBE_IN_SAME_BUCKET = 8;
+	
+	//集合中所有的文件，包括正在被使用的文件
+	private final Set<FileLimiter> files = Collections.newSetFromMap(new ConcurrentHashMap<FileLimiter, Boolean>());
+	private final ConcurrentLinkedQueue<FileLimiter>[] buckets;
+	
+	@SuppressWarnings("unchecked")
+	FileLimiterBuckets() {
+		buckets = new ConcurrentLinkedQueue[BUCKET_NUM];
+		for(int i = 0; i < buckets.length; i++) {
+			buckets[i] = new ConcurrentLinkedQueue<FileLimiter>();
+		}
+	}
+	
+	static int bucketOf(long space) {
+		if(space <= 0) {
+			return 0;
+		}
+		
+		return BUCKET_NUM - 1 - Long.numberOfLeadingZeros(space);
+	}
+	
+	/**
+	 * 把文件加入集合，文件需要在解除锁定后通过{@link #release(FileLimiter)}放回空闲级别
+	 * 
+	 * @param file
+	 */
+	void add(FileLimiter file) {
+		files.add(file);
+	}
+	
+	/**
+	 * 把空闲文件按剩余空间放回对应的级别，已经移除的文件不会被放回
+	 * 
+	 * @param file
+	 */
+	void release(FileLimiter file) {
+		if(!files.contains(file)) {
+			return;
+		}
+		
+		buckets[bucketOf(file.remaining())].offer(file);
+	}
+	
+	/**
+	 * 取出一个可能容纳指定大小数据的空闲文件，取出的文件需要调用者锁定并检查剩余空间
+	 * 
+	 * @param size
+	 * @param probed 已经在请求大小所在级别中取出的文件数
+	 * @return 没有可用文件时返回null
+	 */
+	FileLimiter poll(long size, int probed) {
+		int start = bucketOf(size);
+		if(probed < MAX_PROBE_IN_SAME_BUCKET) {
+			FileLimiter file = buckets[start].poll();
+			if(file != null) {
+				return file;
+			}
+		}
+		
+		for(int i = start + 1; i < buckets.length; i++) {
+			FileLimiter file = buckets[i].poll();
+			if(file != null) {
+				return file;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * 判断取出的文件是否来自请求大小所在的级别
+	 * 
+	 * @param file
+	 * @param size
+	 * @return
+	 */
+	static boolean inSameBucket(FileLimiter file, long size) {
+		return bucketOf(file.remaining()) == bucketOf(size);
+	}
+	
+	boolean remove(FileLimiter file) {
+		if(!files.remove(file)) {
+			return false;
+		}
+		
+		buckets[bucketOf(file.remaining())].remove(file);
+		return true;
+	}
+	
+	Collection<FileLimiter> files() {
+		return files;
+	}
+	
+	int size() {
+		return files.size();
+	}
+	
+	boolean isEmpty() {
+		return files.isEmpty();
+	}
+}
@@ -0,0 +1,205 @@
+package com.bonree.brfs.duplication.datastream.file;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 预先创建好的文件节点池
+ * 
+ * 文件的创建需要在所有副本上打开文件并把文件信息存入zookeeper，比较耗时，
+ * 所以在后台预先为当前时间段创建一定数量的文件，在时间段快要结束时也会为
+ * 下一个时间段提前创建文件，避免写入请求等待文件创建。
+ * 
+ * 过了时间段还没被使用的文件会交给文件集合，由文件清理程序关闭。
+ * 
+ * @author yupeng
+ * 
+ */
+public class FileLimiterPool {
+	private static final Logger LOG = LoggerFactory.getLogger(FileLimiterPool.class);
+	
+	//检查文件数量的时间间隔
+	private static final long CHECK_INTERVAL_MILLIS = 1000;
+	//为下一个时间段提前创建文件的时间
+	private static final long PREPARE_NEXT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+	
+	private final int storageId;
+	private final FileLimiterFactory fileFactory;
+	private final int poolSize;
+	private final long patitionTimeInterval;
+	
+	private LinkedList<FileLimiter> readyFiles = new LinkedList<FileLimiter>();
+	private List<FileLimiter> expiredFiles = new ArrayList<FileLimiter>();
+	
+	private final ScheduledFuture<?> refillFuture;
+	private volatile boolean closed = false;
+	private volatile FileCloseListener closeListener;
+	
+	public FileLimiterPool(int storageId, FileLimiterFactory fileFactory, int poolSize,
+			long patitionTimeInterval, ScheduledExecutorService executor) {
+		this.storageId = storageId;
+		this.fileFactory = fileFactory;
+		this.poolSize = poolSize;
+		this.patitionTimeInterval = patitionTimeInterval;
+		this.refillFuture = executor.scheduleWithFixedDelay(new Runnable() {
+			
+			@Override
+			public void run() {
+				try {
+					refill(System.currentTimeMillis());
+				} catch (Exception e) {
+					LOG.error("preallocate file for storage[{}] error", storageId, e);
+				}
+			}
+		}, 0, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * 获取一个属于指定时间所在时间段的文件
+	 * 
+	 * @param time
+	 * @return 没有可用的文件时返回null
+	 */
+	public synchronized FileLimiter take(long time) {
+		long timeInterval = time / patitionTimeInterval;
+		Iterator<FileLimiter> iterator = readyFiles.iterator();
+		while(iterator.hasNext()) {
+			FileLimiter file = iterator.next();
+			long fileInterval = file.getFileNode().getCreateTime() / patitionTimeInterval;
+			if(fileInterval < timeInterval) {
+				iterator.remove();
+				expiredFiles.add(file);
+			} else if(fileInterval == timeInterval) {
+				iterator.remove();
+				return file;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * 获取已经过期的文件
+	 * 
+	 * @param time 当前时间
+	 * @return
+	 */
+	public synchronized List<FileLimiter> drainExpired(long time) {
+		long timeInterval = time / patitionTimeInterval;
+		Iterator<FileLimiter> iterator = readyFiles.iterator();
+		while(iterator.hasNext()) {
+			FileLimiter file = iterator.next();
+			if(file.getFileNode().getCreateTime() / patitionTimeInterval < timeInterval) {
+				iterator.remove();
+				expiredFiles.add(file);
+			}
+		}
+		
+		List<FileLimiter> result = expiredFiles;
+		expiredFiles = new ArrayList<FileLimiter>();
+		return result;
+	}
+	
+	public synchronized List<FileLimiter> files() {
+		List<FileLimiter> result = new ArrayList<FileLimiter>(readyFiles);
+		result.addAll(expiredFiles);
+		return result;
+	}
+	
+	private synchronized int count(long timeInterval) {
+		int count = 0;
+		for(FileLimiter file : readyFiles) {
+			if(file.getFileNode().getCreateTime() / patitionTimeInterval == timeInterval) {
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
+	private boolean add(FileLimiter file) {
+		synchronized(this) {
+			if(!closed) {
+				readyFiles.add(file);
+				return true;
+			}
+		}
+		
+		//文件池关闭后才创建完成的文件，直接交给关闭程序处理
+		LOG.info("pool of storage[{}] is closed, close preallocated file[{}]", storageId, file.getFileNode().getName());
+		FileCloseListener listener = closeListener;
+		if(listener != null) {
+			try {
+				listener.close(file);
+			} catch (Exception e) {
+				LOG.warn("close preallocated file[{}] error", file.getFileNode().getName(), e);
+			}
+		}
+		
+		return false;
+	}
+	
+	private void refill(long currentTime) {
+		long timeInterval = currentTime / patitionTimeInterval;
+		fill(timeInterval, currentTime);
+		
+		//快到下一个时间段时，以下一个时间段的起始时间创建文件
+		long nextPatitionTime = (timeInterval + 1) * patitionTimeInterval;
+		if(nextPatitionTime - currentTime <= Math.min(PREPARE_NEXT_MILLIS, patitionTimeInterval / 2)) {
+			fill(timeInterval + 1, nextPatitionTime);
+		}
+	}
+	
+	private void fill(long timeInterval, long createTime) {
+		int lack = poolSize - count(timeInterval);
+		for(int i = 0; i < lack && !closed; i++) {
+			FileLimiter file = fileFactory.create(createTime, storageId);
+			if(file == null) {
+				LOG.warn("can not preallocate file for storage[{}]", storageId);
+				return;
+			}
+			
+			if(!add(file)) {
+				return;
+			}
+			
+			LOG.info("preallocated file[{}]", file.getFileNode().getName());
+		}
+	}
+	
+	/**
+	 * 设置文件池关闭后才创建完成的文件的处理接口
+	 * 
+	 * @param listener
+	 */
+	public void setFileCloseListener(FileCloseListener listener) {
+		this.closeListener = listener;
+	}
+	
+	/**
+	 * 停止预先创建文件
+	 * 
+	 * @return 池中还未被使用的文件，需要由调用者关闭
+	 */
+	public List<FileLimiter> close() {
+		refillFuture.cancel(false);
+		
+		synchronized(this) {
+			closed = true;
+			List<FileLimiter> result = new ArrayList<FileLimiter>(readyFiles);
+			result.addAll(expiredFiles);
+			readyFiles.clear();
+			expiredFiles.clear();
+			
+			return result;
+		}
+	}
+}
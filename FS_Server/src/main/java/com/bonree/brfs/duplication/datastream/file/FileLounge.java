@@ -59,4 +59,10 @@ public interface FileLounge {
 	 * @param listener
 	 */
 	void setFileCloseListener(FileCloseListener listener);
+	/**
+	 * 停止文件集合的后台操作，不会关闭已有的文件
+	 * 
+	 * @return 预先创建但还未使用的文件，需要由调用者关闭
+	 */
+	List<FileLimiter> close();
 }
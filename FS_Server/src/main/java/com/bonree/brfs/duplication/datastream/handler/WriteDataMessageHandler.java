@@ -7,19 +7,18 @@ import com.bonree.brfs.common.net.http.HandleResult;
 import com.bonree.brfs.common.net.http.HandleResultCallback;
 import com.bonree.brfs.common.net.http.HttpMessage;
 import com.bonree.brfs.common.net.http.MessageHandler;
-import com.bonree.brfs.common.proto.FileDataProtos.FileContent;
 import com.bonree.brfs.common.utils.JsonUtils;
 import com.bonree.brfs.common.utils.ProtoStuffUtils;
 import com.bonree.brfs.common.write.data.DataItem;
 import com.bonree.brfs.common.write.data.FileEncoder;
 import com.bonree.brfs.common.write.data.WriteDataMessage;
+import com.bonree.brfs.common.write.data.WriteResponseCodec;
 import com.bonree.brfs.duplication.datastream.DataHandleCallback;
 import com.bonree.brfs.duplication.datastream.DataWriteResult;
 import com.bonree.brfs.duplication.datastream.DuplicateWriter;
 import com.bonree.brfs.duplication.datastream.tasks.ResultItem;
 import com.bonree.brfs.duplication.storagename.StorageNameManager;
 import com.bonree.brfs.duplication.storagename.StorageNameNode;
-import com.google.protobuf.ByteString;
 
 public class WriteDataMessageHandler implements MessageHandler {
 	private static final Logger LOG = LoggerFactory.getLogger(WriteDataMessageHandler.class);
@@ -34,7 +33,7 @@ public class WriteDataMessageHandler implements MessageHandler {
 
 	@Override
 	public void handle(HttpMessage msg, HandleResultCallback callback) {
-		WriteDataMessage writeMsg = ProtoStuffUtils.deserialize(msg.getContent(), WriteDataMessage.class);
+		WriteDataMessage writeMsg = ProtoStuffUtils.readFrom(msg.getContentStream(), WriteDataMessage.class);
 		StorageNameNode node = storageNameManager.findStorageName(writeMsg.getStorageNameId());
 		
 		if(node == null || !node.isEnable()) {
@@ -50,32 +49,33 @@ public class WriteDataMessageHandler implements MessageHandler {
 			return;
 		}
 		
+		//按照storage name的配置压缩数据，压缩方式会记录在FID中
+		int compress = node.getCompress();
 		for(DataItem item : items) {
-			FileContent content = FileContent.newBuilder()
-					.setCompress(0)
-					.setDescription("")
-					.setData(ByteString.copyFrom(item.getBytes()))
-					.setCrcFlag(false)
-					.setCrcCheckCode(0)
-					.build();
-			
 			try {
-				byte[] bytes = FileEncoder.contents(content);
+				//直接编码原始数据，不经过FileContent中转
+				byte[] bytes = FileEncoder.contents(compress, null, item.getBytes(), false, 0);
 				item.setBytes(bytes);
 			} catch (Exception e) {
 				LOG.error("encode file content error", e);
 			}
 		}
 		
-		duplicateWriter.write(writeMsg.getStorageNameId(), items, new DataWriteCallback(callback));
+		boolean binary = WriteResponseCodec.acceptBinary(msg.getHeader(WriteResponseCodec.HEADER_ACCEPT));
+		duplicateWriter.write(writeMsg.getStorageNameId(), compress, items, new DataWriteCallback(callback, binary, items.length));
 	}
 
 	private class DataWriteCallback implements DataHandleCallback<DataWriteResult> {
 		
 		private HandleResultCallback callback;
+		//客户端是否接受二进制结果，旧的客户端只能解析JSON
+		private boolean binary;
+		private int itemCount;
 		
-		public DataWriteCallback(HandleResultCallback callback) {
+		public DataWriteCallback(HandleResultCallback callback, boolean binary, int itemCount) {
 			this.callback = callback;
+			this.binary = binary;
+			this.itemCount = itemCount;
 		}
 
 		@Override
@@ -84,7 +84,19 @@ public class WriteDataMessageHandler implements MessageHandler {
 			result.setSuccess(true);
 			
 			ResultItem[] resultItems = writeResult.getItems();
-			result.setData(JsonUtils.toJsonBytes(resultItems));
+			if(binary) {
+				//按数据的序号排列fid，写入失败的数据没有结果
+				String[] fids = new String[itemCount];
+				for(ResultItem item : resultItems) {
+					if(item.getSequence() >= 0 && item.getSequence() < itemCount) {
+						fids[item.getSequence()] = item.getFid();
+					}
+				}
+				
+				result.setData(WriteResponseCodec.encode(fids));
+			} else {
+				result.setData(JsonUtils.toJsonBytes(resultItems));
+			}
 			
 			callback.completed(result);
 		}
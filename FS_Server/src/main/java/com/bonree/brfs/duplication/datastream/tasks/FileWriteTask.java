@@ -2,17 +2,15 @@ package com.bonree.brfs.duplication.datastream.tasks;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.function.BiConsumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.bonree.brfs.common.asynctask.AsyncExecutor;
-import com.bonree.brfs.common.asynctask.AsyncTask;
-import com.bonree.brfs.common.asynctask.AsyncTaskGroup;
-import com.bonree.brfs.common.asynctask.AsyncTaskGroupCallback;
-import com.bonree.brfs.common.asynctask.AsyncTaskResult;
 import com.bonree.brfs.common.write.data.DataItem;
 import com.bonree.brfs.disknode.server.handler.data.WriteData;
 import com.bonree.brfs.disknode.server.handler.data.WriteResult;
@@ -20,33 +18,45 @@ import com.bonree.brfs.duplication.DuplicationEnvironment;
 import com.bonree.brfs.duplication.FidBuilder;
 import com.bonree.brfs.duplication.coordinator.DuplicateNode;
 import com.bonree.brfs.duplication.coordinator.FilePathBuilder;
-import com.bonree.brfs.duplication.datastream.connection.DiskNodeConnection;
 import com.bonree.brfs.duplication.datastream.connection.DiskNodeConnectionPool;
 import com.bonree.brfs.duplication.datastream.file.FileLimiter;
 import com.bonree.brfs.server.identification.ServerIDManager;
 
-public class FileWriteTask extends AsyncTask<ResultItem[]> {
+/**
+ * 向文件的所有副本节点写入数据
+ * 
+ * 写入过程是异步的，请求发送后不等待副本节点的响应，
+ * 所有副本节点的写入结果在回调中统一处理
+ * 
+ * @author chen
+ * 
+ */
+public class FileWriteTask {
 	private static Logger LOG = LoggerFactory.getLogger(FileWriteTask.class);
 	
 	private FileLimiter file;
+	//数据的压缩方式
+	private int compress;
 	private List<DataItem> dataList = new ArrayList<DataItem>();
 	
 	private DiskNodeConnectionPool connectionPool;
-	private AsyncExecutor taskRunner;
+	private Executor connectExecutor;
 	private ExecutorService resultHandleExecutor;
 	private ServerIDManager idManager;
 	
-	private ArrayBlockingQueue<ResultItem[]> resultGetter = new ArrayBlockingQueue<ResultItem[]>(1);
+	private CompletableFuture<ResultItem[]> resultFuture = new CompletableFuture<ResultItem[]>();
 	
 	public FileWriteTask(FileLimiter file,
+			int compress,
 			ServerIDManager idManager,
 			DiskNodeConnectionPool connectionPool,
-			AsyncExecutor executor,
+			Executor connectExecutor,
 			ExecutorService resultExecutor) {
 		this.file = file;
+		this.compress = compress;
 		this.idManager = idManager;
 		this.connectionPool = connectionPool;
-		this.taskRunner = executor;
+		this.connectExecutor = connectExecutor;
 		this.resultHandleExecutor = resultExecutor;
 	}
 	
@@ -62,8 +72,12 @@ public class FileWriteTask extends AsyncTask<ResultItem[]> {
 		return dataList;
 	}
 
-	@Override
-	public ResultItem[] run() throws Exception {
+	/**
+	 * 提交数据到各个副本节点，所有副本节点返回结果后完成返回的future
+	 * 
+	 * @return 数据的写入结果
+	 */
+	public CompletableFuture<ResultItem[]> start() {
 		WriteData[] datas = new WriteData[dataList.size()];
 		int sequence = file.getSequence();
 		for(int i = 0; i < datas.length; i++) {
@@ -72,31 +86,47 @@ public class FileWriteTask extends AsyncTask<ResultItem[]> {
 			datas[i].setBytes(dataList.get(i).getBytes());
 		}
 		
-		AsyncTaskGroup<WriteResult[]> taskGroup = new AsyncTaskGroup<WriteResult[]>();
-		for(DuplicateNode node : file.getFileNode().getDuplicateNodes()) {
-			if(node.getGroup().equals(DuplicationEnvironment.VIRTUAL_SERVICE_GROUP)) {
-				continue;
+		List<NodeWriteTask> taskList = new ArrayList<NodeWriteTask>();
+		try {
+			for(DuplicateNode node : file.getFileNode().getDuplicateNodes()) {
+				if(node.getGroup().equals(DuplicationEnvironment.VIRTUAL_SERVICE_GROUP)) {
+					continue;
+				}
+				
+				String serverID = idManager.getOtherSecondID(node.getId(), file.getFileNode().getStorageId());
+				String filePath = FilePathBuilder.buildFilePath(file.getFileNode().getStorageName(),
+						serverID, file.getFileNode().getCreateTime(), file.getFileNode().getName());
+						
+				taskList.add(new NodeWriteTask(filePath, node, connectionPool, datas));
 			}
-			
-			String serverID = idManager.getOtherSecondID(node.getId(), file.getFileNode().getStorageId());
-			DiskNodeConnection connection = connectionPool.getConnection(node);
-			String filePath = FilePathBuilder.buildFilePath(file.getFileNode().getStorageName(),
-					serverID, file.getFileNode().getCreateTime(), file.getFileNode().getName());
-			
-			taskGroup.addTask(new NodeWriteTask(filePath, connection, datas));
+		} catch (Exception e) {
+			LOG.error("build writing tasks for file[{}] error", file.getFileNode().getName(), e);
+			file.attach(null);
+			file.unlock();
+			resultFuture.completeExceptionally(e);
+			return resultFuture;
+		}
+		
+		List<CompletableFuture<WriteResult[]>> futureList = new ArrayList<CompletableFuture<WriteResult[]>>(taskList.size());
+		for(NodeWriteTask task : taskList) {
+			futureList.add(task.start(connectExecutor));
 		}
 		
-		DataWriteResultCallback callback = new DataWriteResultCallback();
-		taskRunner.submit(taskGroup, callback, resultHandleExecutor);
+		CompletableFuture.allOf(futureList.toArray(new CompletableFuture<?>[futureList.size()]))
+		.whenCompleteAsync(new DataWriteResultCallback(futureList), resultHandleExecutor);
 		
-		ResultItem[] result = resultGetter.take();
-		return result;
+		return resultFuture;
 	}
 	
-	private class DataWriteResultCallback implements AsyncTaskGroupCallback<WriteResult[]> {
+	private class DataWriteResultCallback implements BiConsumer<Void, Throwable> {
+		private List<CompletableFuture<WriteResult[]>> futureList;
+		
+		public DataWriteResultCallback(List<CompletableFuture<WriteResult[]>> futureList) {
+			this.futureList = futureList;
+		}
 
 		@Override
-		public void completed(AsyncTaskResult<WriteResult[]>[] results) {
+		public void accept(Void ignore, Throwable cause) {
 			LOG.debug("handle Writing result for file[{}]", file.getFileNode().getName());
 			
 			ResultItem[] resultItems = new ResultItem[dataList.size()];
@@ -108,19 +138,23 @@ public class FileWriteTask extends AsyncTask<ResultItem[]> {
 				}
 				
 				int validIndex = -1;
-				for(AsyncTaskResult<WriteResult[]> taskResult : results) {
-					//每个taskResult对象代表一个磁盘节点的数据写入结果
-					if(taskResult.getError() != null || taskResult.getResult() == null) {
+				for(CompletableFuture<WriteResult[]> future : futureList) {
+					//每个future代表一个磁盘节点的数据写入结果
+					WriteResult[] writeResults = null;
+					try {
+						writeResults = future.join();
+					} catch (CompletionException e) {
+						LOG.warn("writing task is failed--{}", e.getCause());
+					}
+					
+					if(writeResults == null) {
 						//如果有异常，说明某个磁盘节点写入数据失败
-						LOG.warn("writing task is failed--{}", taskResult.getError());
-						
 						LOG.info("set file[{}] to sync", file.getFileNode().getName());
 						file.setSync(true);
 						continue;
 					}
 					
 					//磁盘节点写入结果正常返回
-					WriteResult[] writeResults = taskResult.getResult();
 					for(int i = 0; i < writeResults.length; i++) {
 						//遍历每条数据的返回结果，如果结果中的size大于0，说明写入成功
 						WriteResult writeResult = writeResults[i];
@@ -142,22 +176,22 @@ public class FileWriteTask extends AsyncTask<ResultItem[]> {
 					//更新文件的逻辑长度信息
 					file.setLength(offset + size);
 					
-					String fid = FidBuilder.getFid(file.getFileNode(), offset, size);
+					String fid = FidBuilder.getFid(file.getFileNode(), compress, offset, size);
 					LOG.debug("get FID-->{}", fid);
 					resultItems[i].setFid(fid);
 				}
 				
 				file.incrementSequenceBy(validIndex + 1);
+			} catch (Exception e) {
+				LOG.error("handle writing result of file[{}] error", file.getFileNode().getName(), e);
+				resultFuture.completeExceptionally(e);
+				return;
 			} finally {
 				file.attach(null);
 				file.unlock();
 			}
 			
-			try {
-				resultGetter.put(resultItems);
-			} catch (InterruptedException e) {
-				LOG.error("put result error", e);
-			}
+			resultFuture.complete(resultItems);
 		}
 	}
 
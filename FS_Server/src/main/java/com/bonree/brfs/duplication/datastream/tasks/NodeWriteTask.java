@@ -1,47 +1,81 @@
 package com.bonree.brfs.duplication.datastream.tasks;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.bonree.brfs.common.asynctask.AsyncTask;
 import com.bonree.brfs.disknode.client.DiskNodeClient;
 import com.bonree.brfs.disknode.server.handler.data.WriteData;
 import com.bonree.brfs.disknode.server.handler.data.WriteResult;
+import com.bonree.brfs.duplication.coordinator.DuplicateNode;
 import com.bonree.brfs.duplication.datastream.connection.DiskNodeConnection;
+import com.bonree.brfs.duplication.datastream.connection.DiskNodeConnectionPool;
 
-public class NodeWriteTask extends AsyncTask<WriteResult[]> {
+/**
+ * 向一个磁盘节点写入数据
+ * 
+ * 执行线程只负责获取连接和发送请求，不等待磁盘节点的响应
+ * 
+ * @author chen
+ * 
+ */
+public class NodeWriteTask {
 	private static final Logger LOG = LoggerFactory.getLogger(NodeWriteTask.class);
 	
-	private DiskNodeConnection connection;
+	private DuplicateNode node;
+	private DiskNodeConnectionPool connectionPool;
 	private String filePath;
 	private WriteData[] datas;
 	
-	public NodeWriteTask(String path, DiskNodeConnection connection, WriteData[] datas) {
-		this.connection = connection;
+	public NodeWriteTask(String path, DuplicateNode node, DiskNodeConnectionPool connectionPool, WriteData[] datas) {
+		this.node = node;
+		this.connectionPool = connectionPool;
 		this.filePath = path;
 		this.datas = datas;
 	}
-
-	@Override
-	public WriteResult[] run() throws Exception {
-		if(connection == null) {
-			LOG.error("file[{}] connection is null!!!", filePath);
-			return null;
-		}
-		
-		DiskNodeClient client = connection.getClient();
-		if(client == null) {
-			LOG.error("file[{}] DiskNodeClient is null!!!", filePath);
-			return null;
-		}
-		
-		LOG.debug("write {} data to {}:{}", filePath, connection.getRemoteAddress(), connection.getRemotePort());
-		WriteResult[] result = client.writeDatas(filePath, datas);
-		
-		LOG.debug("file[{}] write task from {}:{} get result---{}", filePath,
-				connection.getRemoteAddress(), connection.getRemotePort(), result);
-		
-		return result;
+	
+	/**
+	 * 开始写入数据
+	 * 
+	 * @param executor 获取连接的线程，获取连接可能需要建立新的连接
+	 * @return 写入结果，无法获取连接或者写入失败时结果为null
+	 */
+	public CompletableFuture<WriteResult[]> start(Executor executor) {
+		return CompletableFuture.supplyAsync(new Supplier<DiskNodeClient>() {
+			
+			@Override
+			public DiskNodeClient get() {
+				DiskNodeConnection connection = connectionPool.getConnection(node);
+				if(connection == null) {
+					LOG.error("file[{}] connection is null!!!", filePath);
+					return null;
+				}
+				
+				DiskNodeClient client = connection.getClient();
+				if(client == null) {
+					LOG.error("file[{}] DiskNodeClient is null!!!", filePath);
+					return null;
+				}
+				
+				LOG.debug("write {} data to {}:{}", filePath, connection.getRemoteAddress(), connection.getRemotePort());
+				return client;
+			}
+		}, executor).thenCompose(new Function<DiskNodeClient, CompletionStage<WriteResult[]>>() {
+			
+			@Override
+			public CompletionStage<WriteResult[]> apply(DiskNodeClient client) {
+				if(client == null) {
+					return CompletableFuture.completedFuture(null);
+				}
+				
+				return client.writeDatasAsync(filePath, datas);
+			}
+		});
 	}
 	
 }
@@ -1,5 +1,7 @@
 package com.bonree.brfs.duplication.storagename;
 
+import com.bonree.brfs.common.data.utils.CompressUtils;
+
 
 public class StorageNameNode {
 	/**
@@ -10,12 +12,16 @@ public class StorageNameNode {
 	//数据有效期属性名
 	public static final String ATTR_TTL = "ttl";
 	public static final String ATTR_ENABLE = "enable";
+	//数据压缩方式属性名
+	public static final String ATTR_COMPRESS = "compress";
 	
 	private String name;
 	private int id;
 	private int replicateCount;
 	private int ttl;
 	private long createTime;
+	//数据压缩方式，取值见CompressUtils
+	private int compress;
 	
 	private boolean enable = true;
 	
@@ -69,6 +75,14 @@ public class StorageNameNode {
 		this.createTime = createTime;
 	}
 	
+	public int getCompress() {
+		return compress;
+	}
+	
+	public void setCompress(int compress) {
+		this.compress = compress;
+	}
+	
 	public boolean isEnable() {
         return enable;
     }
@@ -103,6 +117,7 @@ public class StorageNameNode {
 		       .append(id).append(",")
 		       .append(replicateCount).append(",")
 		       .append(ttl).append(",")
+		       .append(CompressUtils.nameOf(compress)).append(",")
 		       .append(enable).append("]");
 		
 		return builder.toString();
@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bonree.brfs.common.ReturnCode;
+import com.bonree.brfs.common.data.utils.CompressUtils;
 import com.bonree.brfs.common.net.http.HandleResult;
 import com.bonree.brfs.common.net.http.HandleResultCallback;
 import com.bonree.brfs.common.utils.Attributes;
@@ -53,6 +54,13 @@ public class CreateStorageNameMessageHandler extends StorageNameMessageHandler {
                     callback.completed(result);
                     return;
                 }
+            } else if (StorageNameNode.ATTR_COMPRESS.equals(name)) {
+                if (!CompressUtils.isValid(atts.getInt(name))) {
+                    result.setSuccess(false);
+                    result.setData(BrStringUtils.toUtf8Bytes(ReturnCode.STORAGE_COMPRESS_ERROR.name()));
+                    callback.completed(result);
+                    return;
+                }
             }
         }
 
@@ -5,6 +5,7 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.bonree.brfs.common.data.utils.CompressUtils;
 import com.bonree.brfs.common.net.http.HandleResultCallback;
 import com.bonree.brfs.common.net.http.HttpMessage;
 import com.bonree.brfs.common.net.http.MessageHandler;
@@ -17,6 +18,7 @@ public abstract class StorageNameMessageHandler implements MessageHandler {
 	private static final String PARAM_REPLICATION = "replicas";
 	private static final String PARAM_TTL = "ttl";
 	private static final String PARAM_ENABLE = "enable";
+	private static final String PARAM_COMPRESS = "compress";
 
 	@Override
 	public void handle(HttpMessage msg, HandleResultCallback callback) {
@@ -39,6 +41,11 @@ public abstract class StorageNameMessageHandler implements MessageHandler {
 			message.addAttribute(StorageNameNode.ATTR_ENABLE, Boolean.parseBoolean(params.get(PARAM_ENABLE)));
 		}
 		
+		if(params.containsKey(PARAM_COMPRESS)) {
+			//支持压缩方式的名称和数字，无法识别时为-1
+			message.addAttribute(StorageNameNode.ATTR_COMPRESS, CompressUtils.parse(params.get(PARAM_COMPRESS)));
+		}
+		
 		handleMessage(message, callback);
 	}
 	
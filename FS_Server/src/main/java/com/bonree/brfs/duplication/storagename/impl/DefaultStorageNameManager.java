@@ -18,6 +18,7 @@ import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.bonree.brfs.common.data.utils.CompressUtils;
 import com.bonree.brfs.common.utils.Attributes;
 import com.bonree.brfs.common.utils.JsonUtils;
 import com.bonree.brfs.configuration.Configs;
@@ -130,6 +131,7 @@ public class DefaultStorageNameManager implements StorageNameManager {
         int replicateCount = attrs.getInt(StorageNameNode.ATTR_REPLICATION, getDefaultStorageDataTtl());
         int dataTtl = attrs.getInt(StorageNameNode.ATTR_TTL, getDefaultStorageReplicateCount());
         StorageNameNode node = new StorageNameNode(storageName, storageId, replicateCount, dataTtl);
+        node.setCompress(attrs.getInt(StorageNameNode.ATTR_COMPRESS, CompressUtils.NONE));
         String storageNamePath = buildStorageNamePath(storageName);
 
         String path = null;
@@ -244,6 +246,8 @@ public class DefaultStorageNameManager implements StorageNameManager {
                     node.setTtl(attrs.getInt(StorageNameNode.ATTR_TTL, node.getTtl()));
                 } else if (StorageNameNode.ATTR_ENABLE.equals(name)) {
                     node.setEnable(attrs.getBoolean(StorageNameNode.ATTR_ENABLE));
+                } else if (StorageNameNode.ATTR_COMPRESS.equals(name)) {
+                    node.setCompress(attrs.getInt(StorageNameNode.ATTR_COMPRESS, node.getCompress()));
                 }
             }
         }
@@ -7,7 +7,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
@@ -40,9 +43,13 @@ import com.bonree.brfs.server.identification.ServerIDManager;
 public class DefaultFileSynchronier implements FileSynchronizer {
 	private static final Logger LOG = LoggerFactory.getLogger(DefaultFileSynchronier.class);
 	
-	private static final int DEFAULT_THREAD_NUM = 1;
 	private ExecutorService threadPool;
 	private ScheduledExecutorService scheduledPool;
+	//并行获取文件序列号和进行文件恢复的线程池
+	private ExecutorService requestPool;
+	
+	//同一个文件的同步不能同时进行，每个磁盘节点上同时进行同步的文件数量有上限
+	private SynchronizePermits<FileSynchronizeTask> permits;
 	
 	private DiskNodeConnectionPool connectionPool;
 	
@@ -60,7 +67,8 @@ public class DefaultFileSynchronier implements FileSynchronizer {
 	private SynchronierErrorRecorder errorRecorder;
 	
 	public DefaultFileSynchronier(DiskNodeConnectionPool connectionPool, ServiceManager serviceManager, ServerIDManager idManager) {
-		this(DEFAULT_THREAD_NUM, connectionPool, serviceManager, idManager);
+		this(Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_FILE_SYNC_THREADS),
+				connectionPool, serviceManager, idManager);
 	}
 	
 	public DefaultFileSynchronier(int threadNum, DiskNodeConnectionPool connectionPool, ServiceManager serviceManager, ServerIDManager idManager) {
@@ -77,6 +85,10 @@ public class DefaultFileSynchronier implements FileSynchronizer {
                 new PooledThreadFactory("file_synchronize"));
 		this.scheduledPool = new ScheduledThreadPoolExecutor(1,
 				new PooledThreadFactory("delayed_file_sync"));
+		this.requestPool = Executors.newFixedThreadPool(threadNum * 2,
+				new PooledThreadFactory("file_synchronize_request"));
+		this.permits = new SynchronizePermits<FileSynchronizeTask>(
+				Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_FILE_SYNC_NODE_CONCURRENCY));
 	}
 
 	@Override
@@ -92,6 +104,7 @@ public class DefaultFileSynchronier implements FileSynchronizer {
 		taskActivator.interrupt();
 		threadPool.shutdown();
 		scheduledPool.shutdown();
+		requestPool.shutdown();
 	}
 	
 	@Override
@@ -119,7 +132,39 @@ public class DefaultFileSynchronier implements FileSynchronizer {
 	
 	private void addDelayedTask(FileSynchronizeTask task) {
 		LOG.info("add to delayed task list for filnode[{}]", task.fileNode().getName());
-		delayedTaskList.add(task);
+		synchronized (delayedTaskList) {
+			delayedTaskList.add(task);
+		}
+	}
+	
+	/**
+	 * 重新提交等待许可的任务，如果文件已经有新的同步任务则放弃此任务
+	 */
+	private void resubmit(FileSynchronizeTask task) {
+		String fileName = task.fileNode().getName();
+		synchronized(syncTasks) {
+			if(syncTasks.containsKey(fileName)) {
+				return;
+			}
+			
+			syncTasks.put(fileName, threadPool.submit(task));
+		}
+	}
+	
+	private static String nodeToken(DuplicateNode node) {
+		StringBuilder builder = new StringBuilder();
+		builder.append(node.getGroup()).append("_").append(node.getId());
+		
+		return builder.toString();
+	}
+	
+	private static List<String> nodeTokens(List<DuplicateNode> nodeList) {
+		List<String> tokens = new ArrayList<String>();
+		for(DuplicateNode node : nodeList) {
+			tokens.add(nodeToken(node));
+		}
+		
+		return tokens;
 	}
 	
 	public class FileSynchronizeTask implements Runnable {
@@ -150,14 +195,29 @@ public class DefaultFileSynchronier implements FileSynchronizer {
 				syncTasks.remove(target.getName());
 			}
 			
+			List<DuplicateNode> nodeList = getActiveDuplicateNodes(target);
+			List<String> nodeTokens = nodeTokens(nodeList);
+			if(!permits.acquire(target.getName(), nodeTokens, this)) {
+				LOG.debug("file[{}] is synchronizing or its duplicate nodes are busy, wait for permits", target.getName());
+				return;
+			}
+			
+			try {
+				synchronizeFile(nodeList);
+			} finally {
+				for(FileSynchronizeTask task : permits.release(target.getName(), nodeTokens)) {
+					resubmit(task);
+				}
+			}
+		}
+		
+		private void synchronizeFile(List<DuplicateNode> nodeList) {
 			LOG.info("start synchronize file[{}]", target.getName());
 			
 			/**
 			 * 文件之间的内容协调是通过写入文件的序列号实现的，只要当前存活的磁盘节点包含
 			 * 所有写入序列号就能保证文件的完整性
 			 */
-			List<DuplicateNode> nodeList = getActiveDuplicateNodes(target);
-			
 			List<DuplicateNodeSequence> seqNumberList = getAllDuplicateNodeSequence(nodeList);
 			
 			if(seqNumberList.size() != nodeList.size()) {
@@ -221,38 +281,70 @@ public class DefaultFileSynchronier implements FileSynchronizer {
 			return nodeList;
 		}
 		
+		/**
+		 * 并行获取每个副本节点上的文件序列号
+		 */
 		private List<DuplicateNodeSequence> getAllDuplicateNodeSequence(List<DuplicateNode> nodeList) {
-			List<DuplicateNodeSequence> seqNumberList = new ArrayList<DuplicateNodeSequence>();
-			
+			List<Future<DuplicateNodeSequence>> results = new ArrayList<Future<DuplicateNodeSequence>>();
 			for(DuplicateNode node : nodeList) {
-				DiskNodeConnection connection = connectionPool.getConnection(node);
-				if(connection == null || connection.getClient() == null) {
-					LOG.error("duplication node[{}, {}] of [{}] is not available, that's maybe a trouble!", node.getGroup(), node.getId(), target.getName());
-					continue;
-				}
-				
-				String serverId = idManager.getOtherSecondID(node.getId(), target.getStorageId());
-				String filePath =FilePathBuilder.buildFilePath(target.getStorageName(), serverId, target.getCreateTime(), target.getName());
-				LOG.info("checking---{}", filePath);
-				BitSet seqNumbers = connection.getClient().getWritingSequence(filePath);
-				
-				if(seqNumbers == null) {
-					LOG.error("duplication node[{}, {}] of [{}] can not get file sequences, that's maybe a trouble!", node.getGroup(), node.getId(), target.getName());
-					continue;
+				results.add(requestPool.submit(new Callable<DuplicateNodeSequence>() {
+					
+					@Override
+					public DuplicateNodeSequence call() throws Exception {
+						return getDuplicateNodeSequence(node);
+					}
+				}));
+			}
+			
+			List<DuplicateNodeSequence> seqNumberList = new ArrayList<DuplicateNodeSequence>();
+			for(Future<DuplicateNodeSequence> result : results) {
+				DuplicateNodeSequence nodeSequence = waitFor(result);
+				if(nodeSequence != null) {
+					seqNumberList.add(nodeSequence);
 				}
-				
-				LOG.info("server{} -- {}", node.getId(), seqNumbers.cardinality());
-				
-				DuplicateNodeSequence nodeSequence = new DuplicateNodeSequence();
-				nodeSequence.setNode(node);
-				nodeSequence.setSequenceNumbers(seqNumbers);
-				
-				seqNumberList.add(nodeSequence);
 			}
 			
 			return seqNumberList;
 		}
 		
+		private DuplicateNodeSequence getDuplicateNodeSequence(DuplicateNode node) {
+			DiskNodeConnection connection = connectionPool.getConnection(node);
+			if(connection == null || connection.getClient() == null) {
+				LOG.error("duplication node[{}, {}] of [{}] is not available, that's maybe a trouble!", node.getGroup(), node.getId(), target.getName());
+				return null;
+			}
+			
+			String serverId = idManager.getOtherSecondID(node.getId(), target.getStorageId());
+			String filePath =FilePathBuilder.buildFilePath(target.getStorageName(), serverId, target.getCreateTime(), target.getName());
+			LOG.info("checking---{}", filePath);
+			BitSet seqNumbers = connection.getClient().getWritingSequence(filePath);
+			
+			if(seqNumbers == null) {
+				LOG.error("duplication node[{}, {}] of [{}] can not get file sequences, that's maybe a trouble!", node.getGroup(), node.getId(), target.getName());
+				return null;
+			}
+			
+			LOG.info("server{} -- {}", node.getId(), seqNumbers.cardinality());
+			
+			DuplicateNodeSequence nodeSequence = new DuplicateNodeSequence();
+			nodeSequence.setNode(node);
+			nodeSequence.setSequenceNumbers(seqNumbers);
+			
+			return nodeSequence;
+		}
+		
+		private <T> T waitFor(Future<T> future) {
+			try {
+				return future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				LOG.error("synchronize request of file[{}] error", target.getName(), e.getCause());
+			}
+			
+			return null;
+		}
+		
 		private void doSynchronize(List<DuplicateNodeSequence> seqNumberList, BitSet union, BitSet intersection) {
 			List<AvailableSequenceInfo> infos = new ArrayList<AvailableSequenceInfo>();
 			for(DuplicateNodeSequence sequence : seqNumberList) {
@@ -274,6 +366,8 @@ public class DefaultFileSynchronier implements FileSynchronizer {
 			RecoverInfo recoverInfo = new RecoverInfo();
 			recoverInfo.setMaxSeq(union.cardinality() - 1);
 			recoverInfo.setInfoList(infos);
+			//缺少数据的副本节点并行进行恢复
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
 			for(DuplicateNodeSequence sequence : seqNumberList) {
 				BitSet lack = BitSetUtils.minus(union, sequence.getSequenceNumbers());
 				if(lack.isEmpty()) {
@@ -281,25 +375,48 @@ public class DefaultFileSynchronier implements FileSynchronizer {
 					continue;
 				}
 				
-				DiskNodeConnection connection = connectionPool.getConnection(sequence.getNode());
-				if(connection == null || connection.getClient() == null) {
-					LOG.error("can not recover file[{}], because of lack of connection to duplication node[{}]", target.getName(), sequence.getNode());
-					continue;
-				}
-				
-				DiskNodeClient client = connection.getClient();
-				String serverId = idManager.getOtherSecondID(sequence.getNode().getId(), target.getStorageId());
-				LOG.info("start synchronize file[{}] at duplicate node[{}]", target.getName(), sequence.getNode());
-				if(!client.recover(FilePathBuilder.buildFilePath(target.getStorageName(), serverId, target.getCreateTime(), target.getName()), recoverInfo)) {
-					LOG.error("can not synchronize file[{}] at duplicate node[{}]", target.getName(), sequence.getNode());
-					addDelayedTask(this);
-					return;
+				results.add(requestPool.submit(new Callable<Boolean>() {
+					
+					@Override
+					public Boolean call() throws Exception {
+						return recover(sequence.getNode(), recoverInfo);
+					}
+				}));
+			}
+			
+			boolean success = true;
+			for(Future<Boolean> result : results) {
+				if(!Boolean.TRUE.equals(waitFor(result))) {
+					success = false;
 				}
-				LOG.info("file synchronizition completed successfully!");
+			}
+			
+			if(!success) {
+				addDelayedTask(this);
+				return;
 			}
 			
 			triggerCallbackComplete();
 		}
+		
+		private boolean recover(DuplicateNode node, RecoverInfo recoverInfo) {
+			DiskNodeConnection connection = connectionPool.getConnection(node);
+			if(connection == null || connection.getClient() == null) {
+				LOG.error("can not recover file[{}], because of lack of connection to duplication node[{}]", target.getName(), node);
+				return true;
+			}
+			
+			DiskNodeClient client = connection.getClient();
+			String serverId = idManager.getOtherSecondID(node.getId(), target.getStorageId());
+			LOG.info("start synchronize file[{}] at duplicate node[{}]", target.getName(), node);
+			if(!client.recover(FilePathBuilder.buildFilePath(target.getStorageName(), serverId, target.getCreateTime(), target.getName()), recoverInfo)) {
+				LOG.error("can not synchronize file[{}] at duplicate node[{}]", target.getName(), node);
+				return false;
+			}
+			
+			LOG.info("file synchronizition completed successfully!");
+			return true;
+		}
 	}
 	
 	private class DiskNodeServiceStateListener implements ServiceStateListener {
@@ -332,13 +449,6 @@ public class DefaultFileSynchronier implements FileSynchronizer {
 			}
 		}
 		
-		private String nodeToken(DuplicateNode node) {
-			StringBuilder builder = new StringBuilder();
-			builder.append(node.getGroup()).append("_").append(node.getId());
-			
-			return builder.toString();
-		}
-		
 		public void quit() {
 			isQuit = true;
 		}
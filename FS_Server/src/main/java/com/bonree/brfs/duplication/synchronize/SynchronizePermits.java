@@ -0,0 +1,107 @@
+package com.bonree.brfs.duplication.synchronize;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 文件同步的许可管理
+ * 
+ * 同一个文件同时只能有一个同步任务，每个磁盘节点上同时同步的文件数量有上限。
+ * 无法获取许可的任务进入所等待的文件或节点的等待队列，在许可释放时返回给
+ * 调用者重新提交，不需要定时重试。
+ * 
+ * @author yupeng
+ * 
+ */
+class SynchronizePermits<T> {
+	private final int nodeConcurrency;
+	
+	private final Set<String> runningFiles = new HashSet<String>();
+	//等待文件当前的同步任务结束的任务
+	private final Map<String, List<T>> fileWaiters = new HashMap<String, List<T>>();
+	private final Map<String, NodePermit> nodePermits = new HashMap<String, NodePermit>();
+	
+	SynchronizePermits(int nodeConcurrency) {
+		this.nodeConcurrency = nodeConcurrency;
+	}
+	
+	/**
+	 * 获取文件和所有节点的许可，有一个无法获取时不占用任何许可，
+	 * 任务进入第一个无法获取许可的等待队列
+	 * 
+	 * @return 是否获取到许可
+	 */
+	synchronized boolean acquire(String fileName, List<String> nodes, T task) {
+		if(runningFiles.contains(fileName)) {
+			List<T> waiters = fileWaiters.get(fileName);
+			if(waiters == null) {
+				waiters = new ArrayList<T>();
+				fileWaiters.put(fileName, waiters);
+			}
+			
+			waiters.add(task);
+			return false;
+		}
+		
+		for(String node : nodes) {
+			NodePermit permit = nodePermit(node);
+			if(permit.available == 0) {
+				permit.waiters.add(task);
+				return false;
+			}
+		}
+		
+		runningFiles.add(fileName);
+		for(String node : nodes) {
+			nodePermit(node).available--;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * 释放文件和节点的许可
+	 * 
+	 * @return 等待这些许可的任务
+	 */
+	synchronized List<T> release(String fileName, List<String> nodes) {
+		List<T> readyTasks = new ArrayList<T>();
+		runningFiles.remove(fileName);
+		List<T> waiters = fileWaiters.remove(fileName);
+		if(waiters != null) {
+			readyTasks.addAll(waiters);
+		}
+		
+		for(String node : nodes) {
+			NodePermit permit = nodePermit(node);
+			permit.available++;
+			readyTasks.addAll(permit.waiters);
+			permit.waiters.clear();
+		}
+		
+		return readyTasks;
+	}
+	
+	private NodePermit nodePermit(String node) {
+		NodePermit permit = nodePermits.get(node);
+		if(permit == null) {
+			permit = new NodePermit(nodeConcurrency);
+			nodePermits.put(node, permit);
+		}
+		
+		return permit;
+	}
+	
+	private class NodePermit {
+		private int available;
+		private final List<T> waiters = new ArrayList<T>();
+		
+		NodePermit(int available) {
+			this.available = available;
+		}
+	}
+}
@@ -15,6 +15,7 @@ import com.bonree.brfs.configuration.Configs;
 import com.bonree.brfs.configuration.units.CommonConfigs;
 import com.bonree.brfs.configuration.units.DiskNodeConfigs;
 import com.bonree.brfs.configuration.units.RebalanceConfigs;
+import com.bonree.brfs.disknode.DiskContext;
 import com.bonree.brfs.duplication.storagename.StorageNameManager;
 import com.bonree.brfs.rebalance.task.TaskDispatcher;
 import com.bonree.brfs.rebalance.task.TaskOperation;
@@ -30,7 +31,7 @@ public class RebalanceManager implements Closeable {
     ExecutorService simpleFileServer = Executors.newSingleThreadExecutor();
     private CuratorClient curatorClient = null;
 
-    public RebalanceManager(ZookeeperPaths zkPaths, ServerIDManager idManager, StorageNameManager snManager, ServiceManager serviceManager) {
+    public RebalanceManager(ZookeeperPaths zkPaths, ServerIDManager idManager, StorageNameManager snManager, ServiceManager serviceManager, DiskContext diskContext) {
     	String zkAddresses = Configs.getConfiguration().GetConfig(CommonConfigs.CONFIG_ZOOKEEPER_ADDRESSES);
         curatorClient = CuratorClient.getClientInstance(zkAddresses, 500, 500);
         dispatch = new TaskDispatcher(curatorClient, zkPaths.getBaseRebalancePath(),
@@ -39,13 +40,12 @@ public class RebalanceManager implements Closeable {
         		Configs.getConfiguration().GetConfig(RebalanceConfigs.CONFIG_VIRTUAL_DELAY),
         		Configs.getConfiguration().GetConfig(RebalanceConfigs.CONFIG_NORMAL_DELAY));
         
-        String dataPath = Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_DATA_ROOT);
         opt = new TaskOperation(curatorClient, zkPaths.getBaseRebalancePath(), zkPaths.getBaseRoutePath(), idManager,
-        		dataPath, snManager, serviceManager);
+        		diskContext, snManager, serviceManager);
         
 		int port = Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_PORT);
         try {
-            fileServer = new SimpleFileServer(port + 20, dataPath, 10);
+            fileServer = new SimpleFileServer(port + 20, diskContext, 10);
         } catch (IOException e) {
             LOG.info("fileServer launch error!!!", e);
         }
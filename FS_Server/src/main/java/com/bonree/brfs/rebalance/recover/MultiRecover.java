@@ -4,8 +4,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -31,6 +33,7 @@ import com.bonree.brfs.common.zookeeper.curator.cache.CuratorCacheFactory;
 import com.bonree.brfs.common.zookeeper.curator.cache.CuratorNodeCache;
 import com.bonree.brfs.configuration.Configs;
 import com.bonree.brfs.configuration.units.DiskNodeConfigs;
+import com.bonree.brfs.disknode.DiskContext;
 import com.bonree.brfs.disknode.client.LocalDiskNodeClient;
 import com.bonree.brfs.rebalance.DataRecover;
 import com.bonree.brfs.rebalance.task.BalanceTaskSummary;
@@ -60,11 +63,17 @@ public class MultiRecover implements DataRecover {
 
     private Map<String, VirtualRoute> virtualRoutes = null;
 
+    // 任务期间存活的server不变，用于快速判断是否存活
+    private Set<String> aliveServers = null;
+
+    // 同一个失效server在排除相同server时可选择的server列表相同，缓存起来避免每个文件重复计算
+    private Map<String, List<String>> selectableServers = new HashMap<>();
+
     private SimpleFileClient fileClient;
 
     private final String storageName;
 
-    private final String dataDir;
+    private final DiskContext diskContext;
 
     private final ServiceManager serviceManager;
 
@@ -124,14 +133,14 @@ public class MultiRecover implements DataRecover {
 
     }
 
-    public MultiRecover(BalanceTaskSummary summary, ServerIDManager idManager, ServiceManager serviceManager, String taskNode, CuratorClient client, String dataDir, String storageName, String baseRoutesPath) {
+    public MultiRecover(BalanceTaskSummary summary, ServerIDManager idManager, ServiceManager serviceManager, String taskNode, CuratorClient client, DiskContext diskContext, String storageName, String baseRoutesPath) {
         this.balanceSummary = summary;
         this.idManager = idManager;
         this.serviceManager = serviceManager;
         this.taskNode = taskNode;
         this.baseRoutesPath = baseRoutesPath;
         this.client = client;
-        this.dataDir = dataDir;
+        this.diskContext = diskContext;
         this.storageName = storageName;
         this.fileClient = new SimpleFileClient();
         // 开启监控
@@ -234,16 +243,18 @@ public class MultiRecover implements DataRecover {
         LOG.info("update:" + selfNode + "-------------" + detail);
         updateDetail(selfNode, detail);
 
-        String snDataDir = dataDir + FileUtils.FILE_SEPARATOR + storageName;
-        if (!FileUtils.isExist(snDataDir)) {
+        // storageName的目录可能分布在多块磁盘中
+        List<String> snDataDirs = diskContext.getConcreteFilePaths(storageName);
+        if (snDataDirs.isEmpty()) {
             finishTask();
             return;
         }
         int timeFileCounts = 0;
-        List<String> replicasNames = FileUtils.listFileNames(snDataDir);
-        for (String replicasName : replicasNames) {
-            String replicasPath = snDataDir + FileUtils.FILE_SEPARATOR + replicasName;
-            timeFileCounts += FileUtils.listFileNames(replicasPath).size();
+        for (String snDataDir : snDataDirs) {
+            for (String replicasName : FileUtils.listFileNames(snDataDir)) {
+                String replicasPath = snDataDir + FileUtils.FILE_SEPARATOR + replicasName;
+                timeFileCounts += FileUtils.listFileNames(replicasPath).size();
+            }
         }
 
         // 启动消费队列
@@ -256,7 +267,9 @@ public class MultiRecover implements DataRecover {
         LOG.info("deal the local server:" + idManager.getSecondServerID(balanceSummary.getStorageIndex()));
 
         // 遍历副本文件
-        dealReplicas(replicasNames, snDataDir);
+        for (String snDataDir : snDataDirs) {
+            dealReplicas(FileUtils.listFileNames(snDataDir), snDataDir);
+        }
 
         overFlag = true;
         LOG.info("wait cosumer !!");
@@ -360,25 +373,25 @@ public class MultiRecover implements DataRecover {
 
         while (RebalanceUtils.needRecover(fileServerIds, replica, getAliveMultiIds())) {
             for (String deadServer : fileServerIds) {
-                if (!getAliveMultiIds().contains(deadServer)) {
-                    LOG.info("deadServer:" + deadServer);
+                if (!isAlive(deadServer)) {
+                    LOG.debug("deadServer:" + deadServer);
                     int pot = fileServerIds.indexOf(deadServer);
                     if (!StringUtils.equals(deadServer, balanceSummary.getServerId())) {
                         recoverableServerList = getRecoverRoleList(deadServer);
                     } else {
                         recoverableServerList = balanceSummary.getInputServers();
                     }
-                    LOG.info("recoverableServerList:" + recoverableServerList);
+                    LOG.debug("recoverableServerList:" + recoverableServerList);
                     exceptionServerIds = new ArrayList<>();
                     exceptionServerIds.addAll(fileServerIds);
                     exceptionServerIds.remove(deadServer);
-                    selectableServerList = getSelectedList(recoverableServerList, exceptionServerIds);
+                    selectableServerList = getSelectableList(deadServer, recoverableServerList, exceptionServerIds);
                     int index = RebalanceUtils.hashFileName(namePart, selectableServerList.size());
                     selectMultiId = selectableServerList.get(index);
                     fileServerIds.set(pot, selectMultiId);
 
                     // 判断选取的新节点是否存活
-                    if (isAlive(getAliveMultiIds(), selectMultiId)) {
+                    if (isAlive(selectMultiId)) {
                         // 判断选取的新节点是否为本节点
                         if (!idManager.getSecondServerID(balanceSummary.getStorageIndex()).equals(selectMultiId)) {
                             String firstID = idManager.getOtherFirstID(selectMultiId, balanceSummary.getStorageIndex());
@@ -413,7 +426,7 @@ public class MultiRecover implements DataRecover {
                             if (fileRecover != null) {
                                 String localDir = storageName + FileUtils.FILE_SEPARATOR + fileRecover.getReplica() + FileUtils.FILE_SEPARATOR + fileRecover.getTime();
                                 String remoteDir = storageName + FileUtils.FILE_SEPARATOR + fileRecover.getPot() + FileUtils.FILE_SEPARATOR + fileRecover.getTime();
-                                String localFilePath = dataDir + FileUtils.FILE_SEPARATOR + localDir + FileUtils.FILE_SEPARATOR + fileRecover.getFileName();
+                                String localFilePath = diskContext.getConcreteFilePath(localDir + FileUtils.FILE_SEPARATOR + fileRecover.getFileName());
                                 Service service = serviceManager.getServiceById(Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_SERVICE_GROUP_NAME), fileRecover.getFirstServerID());
                                 boolean success = false;
                                 while (true) {
@@ -461,6 +474,25 @@ public class MultiRecover implements DataRecover {
         return balanceSummary.getAliveServer();
     }
 
+    private List<String> getSelectableList(String deadServer, List<String> recoverableServerList, List<String> excludeServers) {
+        String key = deadServer + NAME_SEPARATOR + StringUtils.join(excludeServers, NAME_SEPARATOR);
+        List<String> selectableList = selectableServers.get(key);
+        if (selectableList == null) {
+            selectableList = getSelectedList(recoverableServerList, excludeServers);
+            selectableServers.put(key, selectableList);
+        }
+
+        return selectableList;
+    }
+
+    private boolean isAlive(String serverId) {
+        if (aliveServers == null) {
+            aliveServers = new HashSet<>(getAliveMultiIds());
+        }
+
+        return aliveServers.contains(serverId);
+    }
+
     private List<String> getSelectedList(List<String> aliveServerList, List<String> excludeServers) {
         List<String> selectedList = new ArrayList<>();
         for (String tmp : aliveServerList) {
@@ -472,14 +504,6 @@ public class MultiRecover implements DataRecover {
         return selectedList;
     }
 
-    private boolean isAlive(List<String> aliveServers, String serverId) {
-        if (aliveServers.contains(serverId)) {
-            return true;
-        } else {
-            return false;
-        }
-    }
-
     /** 概述：更新任务信息
      * @param node
      * @param status
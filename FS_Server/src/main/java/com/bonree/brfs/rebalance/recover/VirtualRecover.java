@@ -23,6 +23,7 @@ import com.bonree.brfs.common.zookeeper.curator.cache.CuratorCacheFactory;
 import com.bonree.brfs.common.zookeeper.curator.cache.CuratorNodeCache;
 import com.bonree.brfs.configuration.Configs;
 import com.bonree.brfs.configuration.units.DiskNodeConfigs;
+import com.bonree.brfs.disknode.DiskContext;
 import com.bonree.brfs.rebalance.DataRecover;
 import com.bonree.brfs.rebalance.task.BalanceTaskSummary;
 import com.bonree.brfs.rebalance.task.TaskDetail;
@@ -44,7 +45,7 @@ public class VirtualRecover implements DataRecover {
 
     private static final String NAME_SEPARATOR = "_";
 
-    private final String dataDir;
+    private final DiskContext diskContext;
 
     private final String storageName;
 
@@ -108,13 +109,13 @@ public class VirtualRecover implements DataRecover {
 
     }
 
-    public VirtualRecover(CuratorClient client, BalanceTaskSummary balanceSummary, String taskNode, String dataDir, String storageName, ServerIDManager idManager, ServiceManager serviceManager) {
+    public VirtualRecover(CuratorClient client, BalanceTaskSummary balanceSummary, String taskNode, DiskContext diskContext, String storageName, ServerIDManager idManager, ServiceManager serviceManager) {
         this.balanceSummary = balanceSummary;
         this.taskNode = taskNode;
         this.client = client;
         this.idManager = idManager;
         this.serviceManager = serviceManager;
-        this.dataDir = dataDir;
+        this.diskContext = diskContext;
         this.storageName = storageName;
         this.fileClient = new SimpleFileClient();
         // 恢复需要对节点进行监听
@@ -172,17 +173,19 @@ public class VirtualRecover implements DataRecover {
         updateDetail(selfNode, detail);
 
         int timeFileCounts = 0;
-        String snDataDir = dataDir + FileUtils.FILE_SEPARATOR + storageName;
+        // storageName的目录可能分布在多块磁盘中
+        List<String> snDataDirs = diskContext.getConcreteFilePaths(storageName);
 
-        if (!FileUtils.isExist(snDataDir)) {
+        if (snDataDirs.isEmpty()) {
             finishTask();
             return;
         }
 
-        List<String> replicasNames = FileUtils.listFileNames(snDataDir);
-        for (String replicasName : replicasNames) {
-            String replicasPath = snDataDir + FileUtils.FILE_SEPARATOR + replicasName;
-            timeFileCounts += FileUtils.listFileNames(replicasPath).size();
+        for (String snDataDir : snDataDirs) {
+            for (String replicasName : FileUtils.listFileNames(snDataDir)) {
+                String replicasPath = snDataDir + FileUtils.FILE_SEPARATOR + replicasName;
+                timeFileCounts += FileUtils.listFileNames(replicasPath).size();
+            }
         }
 
         Thread cosumerThread = new Thread(consumerQueue());
@@ -195,39 +198,41 @@ public class VirtualRecover implements DataRecover {
         String remoteFirstID = idManager.getOtherFirstID(remoteSecondId, balanceSummary.getStorageIndex());
         String virtualID = balanceSummary.getServerId();
         LOG.info("balance virtual serverId:" + virtualID);
-        QUIT: for (String replicasName : replicasNames) { // 处理的副本编号
-            String replicaPath = snDataDir + FileUtils.FILE_SEPARATOR + replicasName;
-            List<String> timeFileNames = FileUtils.listFileNames(replicaPath);
-            for (String timeFileName : timeFileNames) {// 时间文件
-                String timeFilePath = replicaPath + FileUtils.FILE_SEPARATOR + timeFileName;
-                // String recordPath = timeFilePath + FileUtils.FILE_SEPARATOR + "xxoo.rd";
-                try {
-                    // simpleWriter = new SimpleRecordWriter(recordPath);
-                    List<String> fileNames = FileUtils.listFileNames(timeFilePath, ".rd");
-                    for (String fileName : fileNames) {
-
-                        if (status.get().equals(TaskStatus.CANCEL)) {
-                            break QUIT;
-                        }
+        QUIT: for (String snDataDir : snDataDirs) {
+            for (String replicasName : FileUtils.listFileNames(snDataDir)) { // 处理的副本编号
+                String replicaPath = snDataDir + FileUtils.FILE_SEPARATOR + replicasName;
+                List<String> timeFileNames = FileUtils.listFileNames(replicaPath);
+                for (String timeFileName : timeFileNames) {// 时间文件
+                    String timeFilePath = replicaPath + FileUtils.FILE_SEPARATOR + timeFileName;
+                    // String recordPath = timeFilePath + FileUtils.FILE_SEPARATOR + "xxoo.rd";
+                    try {
+                        // simpleWriter = new SimpleRecordWriter(recordPath);
+                        List<String> fileNames = FileUtils.listFileNames(timeFilePath, ".rd");
+                        for (String fileName : fileNames) {
+
+                            if (status.get().equals(TaskStatus.CANCEL)) {
+                                break QUIT;
+                            }
 
-                        int replicaPot = 0;
-                        String[] metaArr = fileName.split(NAME_SEPARATOR);
-                        List<String> fileServerIds = new ArrayList<>();
-                        for (int j = 1; j < metaArr.length; j++) {
-                            fileServerIds.add(metaArr[j]);
-                        }
-                        if (fileServerIds.contains(virtualID)) {
-                            // 此处位置需要加1，副本数从1开始
-                            replicaPot = fileServerIds.indexOf(virtualID) + 1;
-                            FileRecoverMeta fileMeta = new FileRecoverMeta(fileName, storageName, timeFileName, Integer.parseInt(replicasName), replicaPot, remoteFirstID);
-                            try {
-                                fileRecoverQueue.put(fileMeta);
-                            } catch (InterruptedException e) {
-                                LOG.error("put file: " + fileMeta, e);
+                            int replicaPot = 0;
+                            String[] metaArr = fileName.split(NAME_SEPARATOR);
+                            List<String> fileServerIds = new ArrayList<>();
+                            for (int j = 1; j < metaArr.length; j++) {
+                                fileServerIds.add(metaArr[j]);
+                            }
+                            if (fileServerIds.contains(virtualID)) {
+                                // 此处位置需要加1，副本数从1开始
+                                replicaPot = fileServerIds.indexOf(virtualID) + 1;
+                                FileRecoverMeta fileMeta = new FileRecoverMeta(fileName, storageName, timeFileName, Integer.parseInt(replicasName), replicaPot, remoteFirstID);
+                                try {
+                                    fileRecoverQueue.put(fileMeta);
+                                } catch (InterruptedException e) {
+                                    LOG.error("put file: " + fileMeta, e);
+                                }
                             }
                         }
-                    }
-                } finally {}
+                    } finally {}
+                }
             }
         }
 
@@ -278,7 +283,7 @@ public class VirtualRecover implements DataRecover {
                         if (fileRecover != null) {
                             String logicPath = storageName + FileUtils.FILE_SEPARATOR + fileRecover.getReplica() + FileUtils.FILE_SEPARATOR + fileRecover.getTime();
                             String remoteDir = storageName + FileUtils.FILE_SEPARATOR + fileRecover.getPot() + FileUtils.FILE_SEPARATOR + fileRecover.getTime();
-                            String localFilePath = dataDir + FileUtils.FILE_SEPARATOR + logicPath + FileUtils.FILE_SEPARATOR + fileRecover.getFileName();
+                            String localFilePath = diskContext.getConcreteFilePath(logicPath + FileUtils.FILE_SEPARATOR + fileRecover.getFileName());
                             boolean success = false;
                             LOG.info("transfer :" + fileRecover);
                             String firstID = fileRecover.getFirstServerID();
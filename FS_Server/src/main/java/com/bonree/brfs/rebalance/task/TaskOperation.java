@@ -16,6 +16,7 @@ import com.bonree.brfs.common.service.ServiceManager;
 import com.bonree.brfs.common.zookeeper.curator.CuratorClient;
 import com.bonree.brfs.common.zookeeper.curator.cache.CuratorCacheFactory;
 import com.bonree.brfs.common.zookeeper.curator.cache.CuratorTreeCache;
+import com.bonree.brfs.disknode.DiskContext;
 import com.bonree.brfs.duplication.storagename.StorageNameManager;
 import com.bonree.brfs.duplication.storagename.StorageNameNode;
 import com.bonree.brfs.rebalance.DataRecover;
@@ -41,7 +42,7 @@ public class TaskOperation implements Closeable {
     private ServerIDManager idManager;
     private CuratorTreeCache treeCache;
     private String tasksPath;
-    private String dataDir;
+    private DiskContext diskContext;
     private StorageNameManager snManager;
     private ServiceManager serviceManager;
     private String baseRoutesPath;
@@ -52,12 +53,12 @@ public class TaskOperation implements Closeable {
         }
     });
 
-    public TaskOperation(final CuratorClient client, final String baseBalancePath, String baseRoutesPath, ServerIDManager idManager, String dataDir, StorageNameManager snManager, ServiceManager serviceManager) {
+    public TaskOperation(final CuratorClient client, final String baseBalancePath, String baseRoutesPath, ServerIDManager idManager, DiskContext diskContext, StorageNameManager snManager, ServiceManager serviceManager) {
         this.client = client;
         this.idManager = idManager;
         this.tasksPath = baseBalancePath + Constants.SEPARATOR + Constants.TASKS_NODE;
         this.baseRoutesPath = baseRoutesPath;
-        this.dataDir = dataDir;
+        this.diskContext = diskContext;
         treeCache = CuratorCacheFactory.getTreeCache();
         this.snManager = snManager;
         this.serviceManager = serviceManager;
@@ -80,7 +81,7 @@ public class TaskOperation implements Closeable {
                     return;
                 }
                 String storageName = snManager.findStorageName(taskSummary.getStorageIndex()).getName();
-                recover = new MultiRecover(taskSummary, idManager, serviceManager, taskPath, client, dataDir, storageName, baseRoutesPath);
+                recover = new MultiRecover(taskSummary, idManager, serviceManager, taskPath, client, diskContext, storageName, baseRoutesPath);
             } else if (taskSummary.getTaskType() == RecoverType.VIRTUAL) { // 虚拟迁移任务
                 StorageNameNode node = snManager.findStorageName(taskSummary.getStorageIndex());
                 if (node == null) {
@@ -88,7 +89,7 @@ public class TaskOperation implements Closeable {
                     return;
                 }
                 String storageName = snManager.findStorageName(taskSummary.getStorageIndex()).getName();
-                recover = new VirtualRecover(client, taskSummary, taskPath, dataDir, storageName, idManager, serviceManager);
+                recover = new VirtualRecover(client, taskSummary, taskPath, diskContext, storageName, idManager, serviceManager);
             }
 
             updateTaskStatus(taskSummary, TaskStatus.RUNNING);
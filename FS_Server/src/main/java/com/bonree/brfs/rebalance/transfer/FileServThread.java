@@ -9,16 +9,17 @@ import java.net.Socket;
 import org.slf4j.Logger;
 
 import com.bonree.brfs.common.utils.FileUtils;
+import com.bonree.brfs.disknode.DiskContext;
 
 class FileServThread implements Runnable {
 
     private Socket sock;
-    private String dataDir;
+    private DiskContext diskContext;
     private Logger LOG;
 
-    FileServThread(Socket sock, String dataDir, Logger LOG) {
+    FileServThread(Socket sock, DiskContext diskContext, Logger LOG) {
         this.sock = sock;
-        this.dataDir = dataDir;
+        this.diskContext = diskContext;
         this.LOG = LOG;
     }
 
@@ -68,7 +69,8 @@ class FileServThread implements Runnable {
         lenInfo = sockIn.read(bufName);  // 获取文件名
         String fileName = new String(bufName, 0, lenInfo);
 
-        String filePath = dataDir + FileUtils.FILE_SEPARATOR + fileName;
+        // 已存在的文件返回所在磁盘的路径，新文件由磁盘上下文选择磁盘
+        String filePath = diskContext.allocateFilePath(fileName);
 
         File file = new File(filePath);  //保存到相应的位置
         if (file.isDirectory()) {
@@ -16,17 +16,19 @@ import javax.security.auth.callback.Callback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.bonree.brfs.disknode.DiskContext;
+
 public class SimpleFileServer implements Closeable {
 
     private static final Logger LOG = LoggerFactory.getLogger(SimpleFileServer.class);
 
     private ServerSocket serverSocket;
-    private String dataDir;
+    private DiskContext diskContext;
     private ExecutorService es = null;
 
-    public SimpleFileServer(int port, String dataDir, int threadCount) throws IOException {
+    public SimpleFileServer(int port, DiskContext diskContext, int threadCount) throws IOException {
         serverSocket = new ServerSocket(port);
-        this.dataDir = dataDir;
+        this.diskContext = diskContext;
         es = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
             @Override
             public Thread newThread(Runnable r) {
@@ -41,7 +43,7 @@ public class SimpleFileServer implements Closeable {
             Socket sock = null;
             try {
                 sock = serverSocket.accept();
-                es.execute(new FileServThread(sock, dataDir, LOG));// 当成功连接客户端后开启新线程接收文件
+                es.execute(new FileServThread(sock, diskContext, LOG));// 当成功连接客户端后开启新线程接收文件
             } catch (IOException e) {
                 e.printStackTrace();
             }
@@ -25,6 +25,7 @@ import com.bonree.brfs.configuration.Configs;
 import com.bonree.brfs.configuration.ResourceTaskConfig;
 import com.bonree.brfs.configuration.units.CommonConfigs;
 import com.bonree.brfs.configuration.units.DiskNodeConfigs;
+import com.bonree.brfs.disknode.DiskContext;
 import com.bonree.brfs.duplication.storagename.StorageNameManager;
 import com.bonree.brfs.resourceschedule.commons.GatherResource;
 import com.bonree.brfs.resourceschedule.model.BaseMetaServerModel;
@@ -69,7 +70,7 @@ public class InitTaskManager {
 	 * @throws ParamsErrorException 
 	 * @user <a href=mailto:zhucg@bonree.com>朱成岗</a>
 	 */
-	public static void initManager(ResourceTaskConfig managerConfig,ZookeeperPaths zkPath, ServiceManager sm,StorageNameManager snm, ServerIDManager sim) throws Exception {
+	public static void initManager(ResourceTaskConfig managerConfig,ZookeeperPaths zkPath, ServiceManager sm,StorageNameManager snm, ServerIDManager sim, DiskContext diskContext) throws Exception {
 		ManagerContralFactory mcf = ManagerContralFactory.getInstance();
 		String serverId = sim.getFirstServerID();
 		mcf.setServerId(serverId);
@@ -101,6 +102,7 @@ public class InitTaskManager {
 		mcf.setRt(run);
 		mcf.setZkPath(zkPath);
 		mcf.setSim(sim);
+		mcf.setDiskContext(diskContext);
 		
 		Map<String, Boolean> switchMap = managerConfig.getTaskPoolSwitchMap();
 		Map<String, Integer> sizeMap = managerConfig.getTaskPoolSizeMap();
@@ -122,7 +124,7 @@ public class InitTaskManager {
 						TaskType.SYSTEM_COPY_CHECK.name(), serverId,
 						CopyRecoveryJob.class.getCanonicalName(), zkAddresses,
 						zkPath.getBaseRoutePath(),
-						Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_DATA_ROOT));
+						JobDataMapConstract.joinDataPaths(diskContext.getRootDirs()));
 				manager.addTask(TaskType.SYSTEM_COPY_CHECK.name(), copyJob);
 			}
 			mcf.setTaskOn(tasks);
@@ -187,7 +189,8 @@ public class InitTaskManager {
 			switchMap = recoveryTask(switchList, release, serverId);
 			LOG.info("========================================================================================");
 		}
-		dataMap = JobDataMapConstract.createRebootTaskOpertionDataMap(Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_DATA_ROOT), switchMap);
+		String dataPaths = JobDataMapConstract.joinDataPaths(mcf.getDiskContext().getRootDirs());
+		dataMap = JobDataMapConstract.createRebootTaskOpertionDataMap(dataPaths, switchMap);
 		SumbitTaskInterface task = QuartzSimpleInfo.createCycleTaskInfo(TASK_OPERATION_MANAGER, confg.getExecuteTaskIntervalTime(), 60000, dataMap, OperationTaskJob.class);
 		boolean sumbitFlag = manager.addTask(TASK_OPERATION_MANAGER, task);
 		if(sumbitFlag){
@@ -201,8 +204,7 @@ public class InitTaskManager {
 		if(sumbitFlag){
 			LOG.info("watch task sumbit complete !!!");
 		}
-		Map<String,String> watchDogMap = JobDataMapConstract.createWatchDogDataMap(zkAddresses, zkPath.getBaseRoutePath(),
-				Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_DATA_ROOT));
+		Map<String,String> watchDogMap = JobDataMapConstract.createWatchDogDataMap(zkAddresses, zkPath.getBaseRoutePath(), dataPaths);
 		LOG.info("watch dog map {}",watchDogMap);
 		if(watchDogMap == null|| watchDogMap.isEmpty()) {
 			System.exit(1);
@@ -304,7 +306,8 @@ public class InitTaskManager {
 		// 2.采集基本信息上传到 zk
 		ServiceManager sm = ManagerContralFactory.getInstance().getSm();
 		String serverId = ManagerContralFactory.getInstance().getServerId();
-		BaseMetaServerModel base = GatherResource.gatherBase(serverId, Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_DATA_ROOT));
+		List<String> dataPaths = ManagerContralFactory.getInstance().getDiskContext().getRootDirs();
+		BaseMetaServerModel base = GatherResource.gatherBase(serverId, dataPaths);
 		ServerModel smodel = new ServerModel();
 		smodel.setBase(base);
 		String str = JsonUtils.toJsonString(smodel);
@@ -318,7 +321,7 @@ public class InitTaskManager {
 			LOG.error("{} start fail !!!", RESOURCE_MANAGER);
 		}
 		// 4.创建采集任务信息
-		Map<String, String> gatherMap = JobDataMapConstract.createGatherResourceDataMap(config, serverId);
+		Map<String, String> gatherMap = JobDataMapConstract.createGatherResourceDataMap(config, serverId, JobDataMapConstract.joinDataPaths(dataPaths));
 		SumbitTaskInterface gatherInterface = QuartzSimpleInfo.createCycleTaskInfo(GatherResourceJob.class.getSimpleName(), config.getGatherResourceInveralTime(), 2000, gatherMap, GatherResourceJob.class);
 		boolean taskFlag = manager.addTask(RESOURCE_MANAGER, gatherInterface);
 		if(!taskFlag){
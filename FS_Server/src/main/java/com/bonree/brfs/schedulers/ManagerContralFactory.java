@@ -6,6 +6,7 @@ import java.util.List;
 import com.bonree.brfs.common.ZookeeperPaths;
 import com.bonree.brfs.common.service.ServiceManager;
 import com.bonree.brfs.common.task.TaskType;
+import com.bonree.brfs.disknode.DiskContext;
 import com.bonree.brfs.duplication.storagename.StorageNameManager;
 import com.bonree.brfs.resourceschedule.service.AvailableServerInterface;
 import com.bonree.brfs.schedulers.task.manager.MetaTaskManagerInterface;
@@ -41,6 +42,10 @@ public class ManagerContralFactory {
 	 */
 	private List<TaskType> taskOn = new ArrayList<TaskType>();
 	private ZookeeperPaths zkPath = null;
+	/**
+	 * 磁盘管理上下文
+	 */
+	private DiskContext diskContext;
 	
 	
 	String serverId;
@@ -125,4 +130,10 @@ public class ManagerContralFactory {
 	public void setZkPath(ZookeeperPaths zkPath) {
 		this.zkPath = zkPath;
 	}
+	public DiskContext getDiskContext() {
+		return diskContext;
+	}
+	public void setDiskContext(DiskContext diskContext) {
+		this.diskContext = diskContext;
+	}
 }
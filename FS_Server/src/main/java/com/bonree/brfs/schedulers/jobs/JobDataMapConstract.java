@@ -7,16 +7,18 @@ import java.util.Map;
 
 import com.bonree.brfs.common.task.TaskState;
 import com.bonree.brfs.common.task.TaskType;
+import com.bonree.brfs.common.utils.BrStringUtils;
 import com.bonree.brfs.common.utils.JsonUtils;
 import com.bonree.brfs.configuration.Configs;
 import com.bonree.brfs.configuration.ResourceTaskConfig;
-import com.bonree.brfs.configuration.units.DiskNodeConfigs;
 import com.bonree.brfs.configuration.units.DuplicateNodeConfigs;
 import com.bonree.brfs.resourceschedule.service.impl.RandomAvailable;
 import com.bonree.brfs.schedulers.task.model.AtomTaskModel;
 import com.bonree.brfs.schedulers.task.model.BatchAtomModel;
 import com.bonree.brfs.schedulers.task.model.TaskModel;
 import com.bonree.brfs.schedulers.task.model.TaskRunPattern;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
 
 public class JobDataMapConstract {
 	/**
@@ -81,6 +83,25 @@ public class JobDataMapConstract {
 	public static final String CHECK_TIME_RANGE = "CHECK_TIME_RANGE";
 	
 	
+	/**
+	 * 概述：多个数据目录以逗号分隔保存在任务参数中
+	 * @param dataPaths
+	 * @return
+	 */
+	public static String joinDataPaths(List<String> dataPaths){
+		return Joiner.on(',').join(dataPaths);
+	}
+	/**
+	 * 概述：解析任务参数中的数据目录
+	 * @param dataPaths
+	 * @return
+	 */
+	public static List<String> splitDataPaths(String dataPaths){
+		if(BrStringUtils.isEmpty(dataPaths)){
+			return new ArrayList<String>();
+		}
+		return Splitter.on(',').omitEmptyStrings().trimResults().splitToList(dataPaths);
+	}
 	/**
 	 * 概述：生成采集job需要的参数
 	 * @param server
@@ -88,9 +109,9 @@ public class JobDataMapConstract {
 	 * @return
 	 * @user <a href=mailto:zhucg@bonree.com>朱成岗</a>
 	 */
-	public static Map<String,String> createGatherResourceDataMap(ResourceTaskConfig resource, String serverId){
+	public static Map<String,String> createGatherResourceDataMap(ResourceTaskConfig resource, String serverId, String dataPaths){
 		Map<String, String>  dataMap = new HashMap<>();
-		dataMap.put(DATA_PATH, Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_DATA_ROOT));
+		dataMap.put(DATA_PATH, dataPaths);
 		String host = Configs.getConfiguration().GetConfig(DuplicateNodeConfigs.CONFIG_HOST);
 		dataMap.put(IP, host);
 		dataMap.put(GATHER_INVERAL_TIME, resource.getGatherResourceInveralTime() + "");
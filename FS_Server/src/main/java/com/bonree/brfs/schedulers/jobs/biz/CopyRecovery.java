@@ -16,6 +16,7 @@ import com.bonree.brfs.common.utils.JsonUtils;
 import com.bonree.brfs.common.zookeeper.curator.CuratorClient;
 import com.bonree.brfs.configuration.Configs;
 import com.bonree.brfs.configuration.units.DiskNodeConfigs;
+import com.bonree.brfs.disknode.DiskContext;
 import com.bonree.brfs.disknode.client.DiskNodeClient;
 import com.bonree.brfs.disknode.client.LocalDiskNodeClient;
 import com.bonree.brfs.duplication.storagename.StorageNameManager;
@@ -39,7 +40,7 @@ public class CopyRecovery {
 	 * @return
 	 * @user <a href=mailto:zhucg@bonree.com>朱成岗</a>
 	 */
-	public static TaskResultModel recoveryDirs(String content, String zkHosts, String baseRoutesPath,String dataPath) {
+	public static TaskResultModel recoveryDirs(String content, String zkHosts, String baseRoutesPath,List<String> dataPaths) {
 		TaskResultModel result = new TaskResultModel();
 		BatchAtomModel batch = converStringToBatch(content);
 		if(batch == null){
@@ -86,7 +87,7 @@ public class CopyRecovery {
 			snSId = sim.getSecondServerID(snId);
 			parser = new SecondIDParser(curatorClient, snId, baseRoutesPath);
 			parser.updateRoute();
-			errors = recoveryFiles(sm, sim, parser, sn, atom,dataPath);
+			errors = recoveryFiles(sm, sim, parser, sn, atom,dataPaths);
 			if(errors == null || errors.isEmpty()){
 				result.add(atomR);
 				LOG.debug("<recoveryDirs> result is empty snName:{}", snName);
@@ -129,7 +130,7 @@ public class CopyRecovery {
 	 * @return
 	 * @user <a href=mailto:zhucg@bonree.com>朱成岗</a>
 	 */
-	public static List<String> recoveryFiles(ServiceManager sm,ServerIDManager sim, SecondIDParser parser, StorageNameNode snNode,AtomTaskModel atom, String dataPath) {
+	public static List<String> recoveryFiles(ServiceManager sm,ServerIDManager sim, SecondIDParser parser, StorageNameNode snNode,AtomTaskModel atom, List<String> dataPaths) {
 
 		String snName = atom.getStorageName();
 		String dirName = atom.getDirName();
@@ -145,7 +146,7 @@ public class CopyRecovery {
 		boolean isSuccess = false;
 		List<String> errors = new ArrayList<String>();
 		for (String fileName : fileNames) {
-			isSuccess = recoveryFileByName( sm, sim, parser, snNode, fileName, dirName, dataPath);
+			isSuccess = recoveryFileByName( sm, sim, parser, snNode, fileName, dirName, dataPaths);
 			if(!isSuccess){
 				errors.add(fileName);
 			}
@@ -164,7 +165,7 @@ public class CopyRecovery {
 	 * @return
 	 * @user <a href=mailto:zhucg@bonree.com>朱成岗</a>
 	 */
-	public static boolean recoveryFileByName(ServiceManager sm,ServerIDManager sim, SecondIDParser parser, StorageNameNode snNode, String fileName,String dirName, String dataPath){
+	public static boolean recoveryFileByName(ServiceManager sm,ServerIDManager sim, SecondIDParser parser, StorageNameNode snNode, String fileName,String dirName, List<String> dataPaths){
 		String[] sss = null;
 		String remoteName = null;
 		Service remoteService = null;
@@ -195,17 +196,20 @@ public class CopyRecovery {
 		
 		localPath = "/"+snName + "/" + localIndex + "/" + dirName + "/" + fileName;
 		String localDir = "/"+snName + "/" + localIndex + "/" + dirName+"/";
-		File dir = new File(dataPath + localDir);
+		// 文件可能在任意一个数据目录中
+		for(String dataPath : dataPaths) {
+			if(new File(dataPath + localPath).exists()){
+				LOG.warn("<recoveryFile> {} {} is exists, skip",snName, fileName);
+				return true;
+			}
+		}
+		String filePath = allocateFilePath(dataPaths, localPath);
+		File dir = new File(filePath).getParentFile();
 		if(!dir.exists()) {
 			boolean createFlag = dir.mkdirs();
-			LOG.debug("<recoveryFile> create dir :{}, stat:{}",localDir,createFlag);
+			LOG.debug("<recoveryFile> create dir :{}, stat:{}",dir.getAbsolutePath(),createFlag);
 		}
 		
-		File file = new File(dataPath + localPath);
-		if(file.exists()){
-			LOG.warn("<recoveryFile> {} {} is exists, skip",snName, fileName);
-			return true;
-		}
 		remoteIndex = 0;
 		for (String snsid : sss) {
 			remoteIndex ++;
@@ -226,7 +230,7 @@ public class CopyRecovery {
 				continue;
 			}
 			remotePath = "/"+snName + "/" + remoteIndex + "/" + dirName + "/" + fileName;
-			isSuccess = recoveryFile(remoteService, dataPath + localPath, remotePath);
+			isSuccess = recoveryFile(remoteService, filePath, remotePath);
 			LOG.debug("<recoveryFile> recovery file sn:{},localsnId {}, remoteIndex:{}, fileName :{},stat {}", snName,snsid,remoteIndex,fileName,isSuccess);
 			if(isSuccess){
 				return true;
@@ -234,6 +238,19 @@ public class CopyRecovery {
 		}
 		return false;
 	}
+	/**
+	 * 概述：为恢复的文件选择数据目录，优先使用DiskContext的分配策略
+	 * @param dataPaths
+	 * @param localPath
+	 * @return
+	 */
+	private static String allocateFilePath(List<String> dataPaths, String localPath) {
+		DiskContext diskContext = ManagerContralFactory.getInstance().getDiskContext();
+		if(diskContext != null) {
+			return diskContext.allocateFilePath(localPath);
+		}
+		return dataPaths.get(0) + localPath;
+	}
 	/***
 	 * 概述：批量恢复任务
 	 * @param service
@@ -1,5 +1,7 @@
 package com.bonree.brfs.schedulers.jobs.biz;
 
+import java.util.List;
+
 import org.quartz.JobDataMap;
 import org.quartz.JobExecutionContext;
 import org.quartz.UnableToInterruptJobException;
@@ -18,10 +20,10 @@ public class CopyRecoveryJob extends CycleJobWithZKTask {
 		String currentIndex = data.getString(JobDataMapConstract.CURRENT_INDEX);
 		String zkHosts = data.getString(JobDataMapConstract.ZOOKEEPER_ADDRESS);
 		String baseRoutPath = data.getString(JobDataMapConstract.BASE_ROUTE_PATH);
-		String dataPath = data.getString(JobDataMapConstract.DATA_PATH);
+		List<String> dataPaths = JobDataMapConstract.splitDataPaths(data.getString(JobDataMapConstract.DATA_PATH));
 		TaskResultModel result = null;
 		String content = data.getString(currentIndex);
-		result = CopyRecovery.recoveryDirs(content,zkHosts, baseRoutPath,dataPath);
+		result = CopyRecovery.recoveryDirs(content,zkHosts, baseRoutPath,dataPaths);
 		TaskStateLifeContral.updateMapTaskMessage(context, result);
 	}
 
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.zip.CRC32;
 
@@ -59,7 +60,7 @@ public class SystemCheckJob extends QuartzOperationStateWithZKTask {
 		LOG.info("----------> check task work");
 		JobDataMap data = context.getJobDetail().getJobDataMap();
 		String currentIndex = data.getString(JobDataMapConstract.CURRENT_INDEX);
-		String dataPath = data.getString(JobDataMapConstract.DATA_PATH);
+		List<String> dataPaths = JobDataMapConstract.splitDataPaths(data.getString(JobDataMapConstract.DATA_PATH));
 		String content = data.getString(currentIndex);
 		LOG.info("batch data :{}", content);
 		if(BrStringUtils.isEmpty(content)){
@@ -92,14 +93,26 @@ public class SystemCheckJob extends QuartzOperationStateWithZKTask {
 				LOG.warn("dir is empty !!!");
 				continue;
 			}
-			batchResult = checkFiles(snName, dirName, dataPath);
-			if(batchResult == null){
-				continue;
+			// 校验所有存在该目录的数据目录，都不存在时按主数据目录校验
+			List<String> checkPaths = new ArrayList<String>();
+			for(String dataPath : dataPaths){
+				if(FileUtils.isExist(dataPath + File.separator + dirName)){
+					checkPaths.add(dataPath);
+				}
+			}
+			if(checkPaths.isEmpty() && !dataPaths.isEmpty()){
+				checkPaths.add(dataPaths.get(0));
 			}
-			if(!batchResult.isSuccess()){
-				result.setSuccess(batchResult.isSuccess());
+			for(String dataPath : checkPaths){
+				batchResult = checkFiles(snName, dirName, dataPath);
+				if(batchResult == null){
+					continue;
+				}
+				if(!batchResult.isSuccess()){
+					result.setSuccess(batchResult.isSuccess());
+				}
+				result.addAll(batchResult.getAtoms());
 			}
-			result.addAll(batchResult.getAtoms());
 		}
 		//更新任务状态
 		TaskStateLifeContral.updateMapTaskMessage(context, result);
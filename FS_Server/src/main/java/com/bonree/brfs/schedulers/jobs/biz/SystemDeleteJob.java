@@ -18,6 +18,8 @@ import com.bonree.brfs.common.utils.BrStringUtils;
 import com.bonree.brfs.common.utils.FileUtils;
 import com.bonree.brfs.common.utils.JsonUtils;
 import com.bonree.brfs.common.utils.Pair;
+import com.bonree.brfs.disknode.DiskContext;
+import com.bonree.brfs.schedulers.ManagerContralFactory;
 import com.bonree.brfs.schedulers.jobs.JobDataMapConstract;
 import com.bonree.brfs.schedulers.task.model.AtomTaskModel;
 import com.bonree.brfs.schedulers.task.model.AtomTaskResultModel;
@@ -54,7 +56,7 @@ public class SystemDeleteJob extends QuartzOperationStateWithZKTask {
 		LOG.info("----------> system delete work");
 		JobDataMap data = context.getJobDetail().getJobDataMap();
 		String currentIndex = data.getString(JobDataMapConstract.CURRENT_INDEX);
-		String dataPath = data.getString(JobDataMapConstract.DATA_PATH);
+		List<String> dataPaths = JobDataMapConstract.splitDataPaths(data.getString(JobDataMapConstract.DATA_PATH));
 		String content = data.getString(currentIndex);
 		LOG.info("batch {}",content);
 		// 获取当前执行的任务类型
@@ -76,7 +78,6 @@ public class SystemDeleteJob extends QuartzOperationStateWithZKTask {
 		TaskResultModel result = new TaskResultModel();
 		TaskResultModel batchResult = null;
 		AtomTaskResultModel usrResult = null;
-		String path = null;
 		for(AtomTaskModel atom : atoms){
 			snName = atom.getStorageName();
 			dirName = atom.getDirName();
@@ -88,25 +89,27 @@ public class SystemDeleteJob extends QuartzOperationStateWithZKTask {
 				LOG.warn("dir is empty !!!");
 				continue;
 			}
-			path = dataPath + File.separator+ dirName;
-			if(isuser){
-				usrResult = deleteFiles(snName, dirName, dataPath);
-				if(usrResult == null){
-					continue;
+			// 数据分布在多个数据目录中，每个目录都需要删除
+			for(String dataPath : dataPaths){
+				if(isuser){
+					usrResult = deleteFiles(snName, dirName, dataPath);
+					if(usrResult == null){
+						continue;
+					}
+					if(!usrResult.isSuccess()){
+						result.setSuccess(false);
+					}
+					result.add(usrResult);
+				}else{
+					batchResult = deleteDirs(snName, dirName, dataPath);
+					if(batchResult == null){
+						continue;
+					}
+					if(!batchResult.isSuccess()){
+						result.setSuccess(false);
+					}
+					result.addAll(batchResult.getAtoms());
 				}
-				if(!usrResult.isSuccess()){
-					result.setSuccess(false);
-				}
-				result.add(usrResult);
-			}else{
-				batchResult = deleteDirs(snName, dirName, dataPath);
-				if(batchResult == null){
-					continue;
-				}
-				if(!batchResult.isSuccess()){
-					result.setSuccess(false);
-				}
-				result.addAll(batchResult.getAtoms());
 			}
 		}
 		//更新任务状态
@@ -212,6 +215,11 @@ public class SystemDeleteJob extends QuartzOperationStateWithZKTask {
 		AtomTaskResultModel atomR = new AtomTaskResultModel();
 		boolean isSuccess = false;
 		isSuccess = FileUtils.deleteDir(path,true);
+		// 清除已删除文件的位置缓存
+		DiskContext diskContext = ManagerContralFactory.getInstance().getDiskContext();
+		if(diskContext != null){
+			diskContext.evict(dirName);
+		}
 		atomR.setSn(snName);
 		atomR.setDir(dirName);
 		atomR.setSuccess(isSuccess);
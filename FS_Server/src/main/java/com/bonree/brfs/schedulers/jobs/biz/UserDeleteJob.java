@@ -18,6 +18,8 @@ import com.bonree.brfs.common.utils.BrStringUtils;
 import com.bonree.brfs.common.utils.FileUtils;
 import com.bonree.brfs.common.utils.JsonUtils;
 import com.bonree.brfs.common.utils.Pair;
+import com.bonree.brfs.disknode.DiskContext;
+import com.bonree.brfs.schedulers.ManagerContralFactory;
 import com.bonree.brfs.schedulers.jobs.JobDataMapConstract;
 import com.bonree.brfs.schedulers.task.model.AtomTaskModel;
 import com.bonree.brfs.schedulers.task.model.AtomTaskResultModel;
@@ -55,7 +57,7 @@ public class UserDeleteJob extends QuartzOperationStateWithZKTask {
 	public void operation(JobExecutionContext context) throws Exception {
 		JobDataMap data = context.getJobDetail().getJobDataMap();
 		String currentIndex = data.getString(JobDataMapConstract.CURRENT_INDEX);
-		String dataPath = data.getString(JobDataMapConstract.DATA_PATH);
+		List<String> dataPaths = JobDataMapConstract.splitDataPaths(data.getString(JobDataMapConstract.DATA_PATH));
 		String content = data.getString(currentIndex);
 		LOG.info("user delete batch {}",content);
 		// 获取当前执行的任务类型
@@ -97,19 +99,27 @@ public class UserDeleteJob extends QuartzOperationStateWithZKTask {
 				LOG.warn("dir is empty !!!");
 				continue;
 			}
-			usrResult = deleteFiles(snName, dirName, dataPath);
-			if (usrResult == null) {
-				continue;
-			}
-			if (!usrResult.isSuccess()) {
-				result.setSuccess(false);
+			// 数据分布在多个数据目录中，每个目录都需要删除
+			for(String dataPath : dataPaths) {
+				usrResult = deleteFiles(snName, dirName, dataPath);
+				if (usrResult == null) {
+					continue;
+				}
+				if (!usrResult.isSuccess()) {
+					result.setSuccess(false);
+				}
+				result.add(usrResult);
 			}
-			result.add(usrResult);
 			
 		}
 		if("1".equals(currentIndex)) {
 			for(String sn : dSns) {
-				if(FileUtils.deleteDir(dataPath+"/"+sn, true)) {
+				boolean isSuccess = true;
+				for(String dataPath : dataPaths) {
+					isSuccess &= FileUtils.deleteDir(dataPath+"/"+sn, true);
+				}
+				evict(sn);
+				if(isSuccess) {
 					LOG.info("deltete {} successfull", sn);
 				}else {
 					result.setSuccess(false);
@@ -135,12 +145,23 @@ public class UserDeleteJob extends QuartzOperationStateWithZKTask {
 		AtomTaskResultModel atomR = new AtomTaskResultModel();
 		boolean isSuccess = false;
 		isSuccess = FileUtils.deleteDir(path,true);
+		evict(dirName);
 		atomR.setSn(snName);
 		atomR.setDir(dirName);
 		atomR.setSuccess(isSuccess);
 		atomR.setOperationFileCount(1);
 		return atomR;
 	}
+	/**
+	 * 概述：清除已删除文件的位置缓存
+	 * @param logicPath
+	 */
+	private void evict(String logicPath){
+		DiskContext diskContext = ManagerContralFactory.getInstance().getDiskContext();
+		if(diskContext != null){
+			diskContext.evict(logicPath);
+		}
+	}
 	public static String coveryPath(String path){
 		String paths = new String(path);
 		int index = paths.lastIndexOf("/");
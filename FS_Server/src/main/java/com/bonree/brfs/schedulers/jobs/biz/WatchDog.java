@@ -14,11 +14,12 @@ import java.util.concurrent.Executors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.bonree.brfs.common.utils.BrStringUtils;
 import com.bonree.brfs.common.utils.FileUtils;
 import com.bonree.brfs.common.zookeeper.curator.CuratorClient;
+import com.bonree.brfs.disknode.DiskContext;
 import com.bonree.brfs.duplication.storagename.StorageNameNode;
 import com.bonree.brfs.rebalance.route.SecondIDParser;
+import com.bonree.brfs.schedulers.ManagerContralFactory;
 import com.bonree.brfs.schedulers.jobs.system.CopyCountCheck;
 import com.bonree.brfs.server.identification.ServerIDManager;
 
@@ -42,13 +43,13 @@ public class WatchDog{
 	 * @param sim
 	 * @param parser
 	 * @param sns
-	 * @param dataPath
+	 * @param dataPaths
 	 * @param limitTime
 	 * @param granule
 	 * @user <a href=mailto:zhucg@bonree.com>朱成岗</a>
 	 */
-	public static void searchPreys(ServerIDManager sim, Collection<StorageNameNode> sns,String zkHosts,String baseRoutesPath, String dataPath, long limitTime, long granule) {
-		if(sns == null || sns.isEmpty() || BrStringUtils.isEmpty(dataPath)) {
+	public static void searchPreys(ServerIDManager sim, Collection<StorageNameNode> sns,String zkHosts,String baseRoutesPath, Collection<String> dataPaths, long limitTime, long granule) {
+		if(sns == null || sns.isEmpty() || dataPaths == null || dataPaths.isEmpty()) {
 			LOG.info("<searchPreys> SKip search data because is empty");
 			return;
 		}
@@ -76,7 +77,7 @@ public class WatchDog{
 				continue;
 			}
 			// 收集sn文件信息
-			files = collectFood(dataPath, sn, limitTime, granule);
+			files = collectFood(dataPaths, sn, limitTime, granule);
 			// 找到多余的文件 猎物
 			partPreys = FileCollection.crimeFiles(files, snId, sim,parser);
 			LOG.info("{},{}",sn.getName(),partPreys);
@@ -106,6 +107,7 @@ public class WatchDog{
 							if(!deleteFlag) {
 								LOG.info("file : {} cann't delete !!!",path);
 							}
+							evict(path);
 							count ++;
 							if(count%100 == 0) {
 								Thread.sleep(1000l);
@@ -122,6 +124,21 @@ public class WatchDog{
 		//关闭zookeeper连接
 		curatorClient.close();
 	}
+	/**
+	 * 概述：清除已删除文件的位置缓存
+	 * @param path
+	 */
+	private static void evict(String path) {
+		DiskContext diskContext = ManagerContralFactory.getInstance().getDiskContext();
+		if(diskContext == null) {
+			return;
+		}
+		try {
+			diskContext.evict(diskContext.getLogicFilePath(path));
+		} catch (IllegalArgumentException e) {
+			LOG.warn("file : {} is not in data disks", path);
+		}
+	}
 	public static long getLastTime() {
 		return lastTime;
 	}
@@ -130,16 +147,16 @@ public class WatchDog{
 	}
 	/**
 	 * 概述：采集文件
-	 * @param datapath
+	 * @param dataPaths
 	 * @param sn
 	 * @param limitTime
 	 * @param granule
 	 * @return
 	 * @user <a href=mailto:zhucg@bonree.com>朱成岗</a>
 	 */
-	private static Map<String,List<String>> collectFood(String datapath,StorageNameNode sn,long limitTime, long granule){
+	private static Map<String,List<String>> collectFood(Collection<String> dataPaths,StorageNameNode sn,long limitTime, long granule){
 		Map<String,List<String>> foods = new ConcurrentHashMap<String,List<String>>();
-		if(sn == null || BrStringUtils.isEmpty(datapath)) {
+		if(sn == null || dataPaths == null || dataPaths.isEmpty()) {
 			LOG.info("<collectFood> sn or dataPath is empty !!! ");
 			return foods;
 		}
@@ -147,14 +164,16 @@ public class WatchDog{
 		String snName = sn.getName();
 		String dirPath = null;
 		Map<String,List<String>> part = null;
-		for(int i = 1; i<=copyCount; i++) {
-			dirPath = datapath + "/" + snName + "/" + i;
-			part = FileCollection.collectLocalFiles(dirPath, limitTime, granule);
-			if(part == null || part.isEmpty()) {
-				LOG.info("<collectFood> part is empty !!!");
-				continue;
+		for(String datapath : dataPaths) {
+			for(int i = 1; i<=copyCount; i++) {
+				dirPath = datapath + "/" + snName + "/" + i;
+				part = FileCollection.collectLocalFiles(dirPath, limitTime, granule);
+				if(part == null || part.isEmpty()) {
+					LOG.info("<collectFood> part is empty !!!");
+					continue;
+				}
+				foods.putAll(part);
 			}
-			foods.putAll(part);
 		}
 		return foods;
 	}
@@ -38,8 +38,8 @@ public class WatchDogJob extends QuartzOperationStateTask {
 		JobDataMap data = context.getJobDetail().getJobDataMap();
 		String zkHosts = data.getString(JobDataMapConstract.ZOOKEEPER_ADDRESS);
 		String baseRoutPath = data.getString(JobDataMapConstract.BASE_ROUTE_PATH);
-		String dataPath = data.getString(JobDataMapConstract.DATA_PATH);
-		if(BrStringUtils.isEmpty(dataPath) || BrStringUtils.isEmpty(baseRoutPath)|| BrStringUtils.isEmpty(zkHosts)) {
+		List<String> dataPaths = JobDataMapConstract.splitDataPaths(data.getString(JobDataMapConstract.DATA_PATH));
+		if(dataPaths.isEmpty() || BrStringUtils.isEmpty(baseRoutPath)|| BrStringUtils.isEmpty(zkHosts)) {
 			LOG.warn("config is empty !! skip watchdog");
 			return;
 		}
@@ -52,7 +52,7 @@ public class WatchDogJob extends QuartzOperationStateTask {
 		long preTime = System.currentTimeMillis();
 		preTime = preTime - preTime%3600000 - 3600000;
 		LOG.info("Scan {} below data !!!",TimeUtils.formatTimeStamp(preTime));
-		WatchDog.searchPreys(sim, sns, zkHosts, dataPath, dataPath, preTime, 3600000);
+		WatchDog.searchPreys(sim, sns, zkHosts, baseRoutPath, dataPaths, preTime, 3600000);
 	}
 
 }
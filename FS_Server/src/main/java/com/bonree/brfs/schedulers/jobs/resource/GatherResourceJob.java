@@ -62,12 +62,12 @@ public class GatherResourceJob extends QuartzOperationStateTask {
 		if (data == null || data.isEmpty()) {
 			throw new NullPointerException("job data map is empty");
 		}
-		String dataDir = data.getString(JobDataMapConstract.DATA_PATH);
+		List<String> dataDirs = JobDataMapConstract.splitDataPaths(data.getString(JobDataMapConstract.DATA_PATH));
 		// TODO:若是设置的为host，此处需要进行host转ip
 		String ip = data.getString(JobDataMapConstract.IP);
 		long gatherInveral = data.getLongValueFromString(JobDataMapConstract.GATHER_INVERAL_TIME);
 		int count = data.getIntFromString(JobDataMapConstract.CALC_RESOURCE_COUNT);
-		StateMetaServerModel metaSource = GatherResource.gatherResource(dataDir, ip);
+		StateMetaServerModel metaSource = GatherResource.gatherResource(dataDirs, ip);
 		if (metaSource != null) {
 			queue.add(metaSource);
 			LOG.info("gather stat info !!! {}", queue.size());
@@ -75,7 +75,7 @@ public class GatherResourceJob extends QuartzOperationStateTask {
 		}
 		int queueSize = queue.size();
 		if (queueSize >= count) {
-			updateResource(dataDir, gatherInveral);
+			updateResource(dataDirs, gatherInveral);
 
 		}
 	}
@@ -109,14 +109,14 @@ public class GatherResourceJob extends QuartzOperationStateTask {
 	 * @param zkUrl
 	 * @param groupName
 	 * @param serverId
-	 * @param dataDir
+	 * @param dataDirs
 	 * @param inverTime
 	 * @throws Exception
 	 * @user <a href=mailto:zhucg@bonree.com>朱成岗</a>
 	 */
-	private void updateResource(String dataDir, long inverTime) throws Exception {
+	private void updateResource(List<String> dataDirs, long inverTime) throws Exception {
 
-		StatServerModel sum = calcStateServer(inverTime,dataDir);
+		StatServerModel sum = calcStateServer(inverTime,dataDirs);
 		if(sum == null){
 			return;
 		}
@@ -144,7 +144,7 @@ public class GatherResourceJob extends QuartzOperationStateTask {
 		if(server == null){
 			LOG.warn("server model is null !!");
 			server = new ServerModel();
-			BaseMetaServerModel lBase = GatherResource.gatherBase(mcf.getServerId(), dataDir);
+			BaseMetaServerModel lBase = GatherResource.gatherBase(mcf.getServerId(), dataDirs);
 			server.setBase(lBase);
 		}
 		server.setResource(resource);
@@ -188,11 +188,11 @@ public class GatherResourceJob extends QuartzOperationStateTask {
 	/**
 	 * 概述：计算队列的状态信息
 	 * @param inverTime
-	 * @param dataDir
+	 * @param dataDirs
 	 * @return
 	 * @user <a href=mailto:zhucg@bonree.com>朱成岗</a>
 	 */
-	private StatServerModel calcStateServer(long inverTime, String dataDir) {
+	private StatServerModel calcStateServer(long inverTime, List<String> dataDirs) {
 		StatServerModel sum = null;
 		// 0.计算原始状态信息
 		List<StatServerModel> lists = GatherResource.calcState(queue);
@@ -214,7 +214,7 @@ public class GatherResourceJob extends QuartzOperationStateTask {
 		List<StorageNameNode> storageNames = snManager.getStorageNameNodeList();
 		List<String> storagenameList = getStorageNames(storageNames);
 		// 3.计算状态值
-		sum = GatherResource.calcStatServerModel(lists, storagenameList, inverTime, dataDir);
+		sum = GatherResource.calcStatServerModel(lists, storagenameList, inverTime, dataDirs);
 		return sum;
 	}
 
@@ -222,11 +222,11 @@ public class GatherResourceJob extends QuartzOperationStateTask {
 	 * 概述：检查并创建服务信息
 	 * @param content
 	 * @param serverId
-	 * @param dataDir
+	 * @param dataDirs
 	 * @return
 	 * @user <a href=mailto:zhucg@bonree.com>朱成岗</a>
 	 */
-	private ServerModel checkAndCreateServerModel(String content, String serverId, String dataDir) {
+	private ServerModel checkAndCreateServerModel(String content, String serverId, List<String> dataDirs) {
 		ServerModel sinfo = null;
 		if (BrStringUtils.isEmpty(content)) {
 			sinfo = new ServerModel();
@@ -235,7 +235,7 @@ public class GatherResourceJob extends QuartzOperationStateTask {
 		if (sinfo == null) {
 			sinfo = new ServerModel();
 		}
-		BaseMetaServerModel tmpbase = GatherResource.gatherBase(serverId, dataDir);
+		BaseMetaServerModel tmpbase = GatherResource.gatherBase(serverId, dataDirs);
 		sinfo.setBase(tmpbase);
 		return sinfo;
 	}
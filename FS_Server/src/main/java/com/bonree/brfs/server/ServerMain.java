@@ -94,7 +94,7 @@ public class ServerMain {
             		new ServerChangeTaskGenetor(leaderClient, client, sm, idManager, zookeeperPaths.getBaseRebalancePath(), 3000, snManager));
            
             @SuppressWarnings("resource")
-            RebalanceManager rebalanceServer = new RebalanceManager(zookeeperPaths, idManager, snManager, sm);
+            RebalanceManager rebalanceServer = new RebalanceManager(zookeeperPaths, idManager, snManager, sm, diskMain.getDiskContext());
             rebalanceServer.start();
             
             String host = Configs.getConfiguration().GetConfig(DiskNodeConfigs.CONFIG_HOST);
@@ -127,7 +127,7 @@ public class ServerMain {
 			});
             
          // 资源管理模块
-            InitTaskManager.initManager(resourceConfig, zookeeperPaths, sm, snManager, idManager);
+            InitTaskManager.initManager(resourceConfig, zookeeperPaths, sm, snManager, idManager, diskMain.getDiskContext());
         } catch (Exception e) {
             LOG.error("launch server error!!!",e);
             System.exit(1);
@@ -0,0 +1,98 @@
+package com.bonree.brfs.server.identification;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 其他服务的1级serverID和2级serverID的双向索引，按SN分组
+ * 
+ * 创建之后不再修改，有变化时生成新的索引替换旧的
+ * 
+ * @author yupeng
+ * 
+ */
+final class ServerIDIndex {
+	static final ServerIDIndex EMPTY = new ServerIDIndex(
+			Collections.<Integer, Map<String, String>>emptyMap(),
+			Collections.<Integer, Map<String, String>>emptyMap());
+			
+	//snIndex -> (firstID -> secondID)
+	private final Map<Integer, Map<String, String>> firstToSecond;
+	//snIndex -> (secondID -> firstID)
+	private final Map<Integer, Map<String, String>> secondToFirst;
+	
+	private ServerIDIndex(Map<Integer, Map<String, String>> firstToSecond, Map<Integer, Map<String, String>> secondToFirst) {
+		this.firstToSecond = firstToSecond;
+		this.secondToFirst = secondToFirst;
+	}
+	
+	/**
+	 * 根据1级serverID到2级serverID的映射创建索引
+	 */
+	static ServerIDIndex of(Map<Integer, Map<String, String>> firstToSecond) {
+		Map<Integer, Map<String, String>> secondToFirst = new HashMap<Integer, Map<String, String>>();
+		for(Map.Entry<Integer, Map<String, String>> entry : firstToSecond.entrySet()) {
+			Map<String, String> ids = new HashMap<String, String>();
+			for(Map.Entry<String, String> idEntry : entry.getValue().entrySet()) {
+				ids.put(idEntry.getValue(), idEntry.getKey());
+			}
+			secondToFirst.put(entry.getKey(), ids);
+		}
+		
+		return new ServerIDIndex(firstToSecond, secondToFirst);
+	}
+	
+	String secondID(int snIndex, String firstID) {
+		Map<String, String> ids = firstToSecond.get(snIndex);
+		return ids == null ? null : ids.get(firstID);
+	}
+	
+	String firstID(int snIndex, String secondID) {
+		Map<String, String> ids = secondToFirst.get(snIndex);
+		return ids == null ? null : ids.get(secondID);
+	}
+	
+	/**
+	 * 生成添加了一组对应关系的新索引
+	 */
+	ServerIDIndex with(int snIndex, String firstID, String secondID) {
+		Map<Integer, Map<String, String>> newFirstToSecond = copy(firstToSecond, snIndex);
+		Map<Integer, Map<String, String>> newSecondToFirst = copy(secondToFirst, snIndex);
+		
+		String oldSecondID = newFirstToSecond.get(snIndex).put(firstID, secondID);
+		if(oldSecondID != null) {
+			newSecondToFirst.get(snIndex).remove(oldSecondID);
+		}
+		newSecondToFirst.get(snIndex).put(secondID, firstID);
+		
+		return new ServerIDIndex(newFirstToSecond, newSecondToFirst);
+	}
+	
+	/**
+	 * 生成删除了某个服务在某个SN下对应关系的新索引
+	 */
+	ServerIDIndex without(int snIndex, String firstID) {
+		if(secondID(snIndex, firstID) == null) {
+			return this;
+		}
+		
+		Map<Integer, Map<String, String>> newFirstToSecond = copy(firstToSecond, snIndex);
+		Map<Integer, Map<String, String>> newSecondToFirst = copy(secondToFirst, snIndex);
+		
+		String secondID = newFirstToSecond.get(snIndex).remove(firstID);
+		newSecondToFirst.get(snIndex).remove(secondID);
+		
+		return new ServerIDIndex(newFirstToSecond, newSecondToFirst);
+	}
+	
+	/**
+	 * 只复制需要修改的SN的映射，其他SN的映射在新旧索引间共享
+	 */
+	private static Map<Integer, Map<String, String>> copy(Map<Integer, Map<String, String>> source, int snIndex) {
+		Map<Integer, Map<String, String>> result = new HashMap<Integer, Map<String, String>>(source);
+		Map<String, String> ids = source.get(snIndex);
+		result.put(snIndex, ids == null ? new HashMap<String, String>() : new HashMap<String, String>(ids));
+		return result;
+	}
+}
@@ -1,10 +1,10 @@
 package com.bonree.brfs.server.identification;
 
 import java.io.File;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.cache.TreeCacheEvent;
@@ -15,6 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bonree.brfs.common.ZookeeperPaths;
+import com.bonree.brfs.common.exception.BRFSException;
 import com.bonree.brfs.common.zookeeper.curator.cache.CuratorCacheFactory;
 import com.bonree.brfs.common.zookeeper.curator.cache.CuratorTreeCache;
 import com.bonree.brfs.configuration.SystemProperties;
@@ -44,30 +45,50 @@ public class ServerIDManager {
 
     private final static String SINGLE_FILE_DIR = new File(System.getProperty(SystemProperties.PROP_SERVER_ID_DIR), "disknode_id").getAbsolutePath();
 
-    private Map<String, String> otherServerIDCache = null;
+    // 其他服务的serverID索引，变化时整体替换
+    private volatile ServerIDIndex otherServerIDIndex = ServerIDIndex.EMPTY;
 
-    private final static String SEPARATOR = ":";
+    // 等待其他服务2级serverID出现的最长时间
+    private final static long SECOND_ID_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(30);
 
     private class SecondIDCacheListener implements TreeCacheListener {
+        private final String serverIDsPath;
+
+        SecondIDCacheListener(String serverIDsPath) {
+            this.serverIDsPath = serverIDsPath;
+        }
 
         @Override
         public void childEvent(CuratorFramework client, TreeCacheEvent event) throws Exception {
-            if (event.getType() == Type.NODE_ADDED && event.getData() != null && event.getData().getData() != null) {
-                String path = event.getData().getPath();
-                String data = new String(event.getData().getData());
-                if (!"".equals(data)) {
-                    otherServerIDCache.put(extractSnIndex(path) + SEPARATOR + data, extractFirstID(path));
-                }
+            if (event.getData() == null) {
+                return;
             }
-        }
 
-        private String extractFirstID(String path) {
-            String tmp = path.substring(0, path.lastIndexOf('/'));
-            return tmp.substring(tmp.lastIndexOf('/') + 1, tmp.length());
-        }
+            // 只处理 serverIDsPath/firstID/snIndex 节点
+            String path = event.getData().getPath();
+            if (!path.startsWith(serverIDsPath + '/')) {
+                return;
+            }
+            String[] parts = path.substring(serverIDsPath.length() + 1).split("/");
+            if (parts.length != 2) {
+                return;
+            }
+
+            int snIndex;
+            try {
+                snIndex = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                return;
+            }
 
-        private String extractSnIndex(String path) {
-            return path.substring(path.lastIndexOf('/') + 1, path.length());
+            if (event.getType() == Type.NODE_ADDED || event.getType() == Type.NODE_UPDATED) {
+                byte[] data = event.getData().getData();
+                if (data != null && data.length > 0) {
+                    updateOtherServerID(snIndex, parts[0], new String(data));
+                }
+            } else if (event.getType() == Type.NODE_REMOVED) {
+                removeOtherServerID(snIndex, parts[0]);
+            }
         }
 
     }
@@ -75,10 +96,9 @@ public class ServerIDManager {
     public ServerIDManager(CuratorFramework client, ZookeeperPaths zkBasePaths) {
         firstLevelServerID = new FirstLevelServerIDImpl(client, zkBasePaths.getBaseServerIdPath(), SINGLE_FILE_DIR, zkBasePaths.getBaseServerIdSeqPath());
         virtualServerID = new VirtualServerIDImpl(client, zkBasePaths.getBaseServerIdSeqPath());
-        otherServerIDCache = new ConcurrentHashMap<>();
         loadSecondServerIDCache(client, zkBasePaths.getBaseServerIdPath());
         secondIDCache = CuratorCacheFactory.getTreeCache();
-        secondIDCache.addListener(zkBasePaths.getBaseServerIdPath(), new SecondIDCacheListener());
+        secondIDCache.addListener(zkBasePaths.getBaseServerIdPath(), new SecondIDCacheListener(zkBasePaths.getBaseServerIdPath()));
         
         firstServerId = firstLevelServerID.initOrLoadServerID();
         
@@ -87,6 +107,7 @@ public class ServerIDManager {
     }
 
     private void loadSecondServerIDCache(CuratorFramework client, String serverIDsPath) {
+    	Map<Integer, Map<String, String>> firstToSecond = new HashMap<Integer, Map<String, String>>();
     	try {
     		List<String> firstServerIDs = client.getChildren().forPath(serverIDsPath);
             if (firstServerIDs != null) {
@@ -97,7 +118,12 @@ public class ServerIDManager {
                             for (String sn : sns) {
                             	try {
                             		byte[] secondServerID = client.getData().forPath(ZKPaths.makePath(serverIDsPath, firstServerID, sn));
-                                    otherServerIDCache.put(sn + SEPARATOR + new String(secondServerID), firstServerID);
+                            		Map<String, String> ids = firstToSecond.get(Integer.parseInt(sn));
+                            		if (ids == null) {
+                            			ids = new HashMap<String, String>();
+                            			firstToSecond.put(Integer.parseInt(sn), ids);
+                            		}
+                            		ids.put(firstServerID, new String(secondServerID));
 								} catch (Exception e) {
 									LOG.error("get second server id error", e);
 								}
@@ -111,6 +137,16 @@ public class ServerIDManager {
 		} catch (Exception e) {
 			LOG.error("get server id list error", e);
 		}
+		
+    	otherServerIDIndex = ServerIDIndex.of(firstToSecond);
+    }
+
+    private synchronized void updateOtherServerID(int snIndex, String firstID, String secondID) {
+        otherServerIDIndex = otherServerIDIndex.with(snIndex, firstID, secondID);
+    }
+
+    private synchronized void removeOtherServerID(int snIndex, String firstID) {
+        otherServerIDIndex = otherServerIDIndex.without(snIndex, firstID);
     }
 
     /** 概述：获取本服务的1级serverID
@@ -204,7 +240,7 @@ public class ServerIDManager {
      * @user <a href=mailto:weizheng@bonree.com>魏征</a>
      */
     public String getOtherFirstID(String secondID, int snIndex) {
-        return otherServerIDCache.get(snIndex + SEPARATOR + secondID);
+        return otherServerIDIndex.firstID(snIndex, secondID);
     }
 
     /** 概述：获取其他服务的2级serverID
@@ -214,25 +250,21 @@ public class ServerIDManager {
      * @user <a href=mailto:weizheng@bonree.com>魏征</a>
      */
     public String getOtherSecondID(String firstID, int snIndex) {
-        String secondID = null;
-        while (true) {
-            for (Entry<String, String> entry : otherServerIDCache.entrySet()) {
-                if (entry.getValue().equals(firstID)) {
-                    String[] arr = entry.getKey().split(SEPARATOR);
-                    String sn = arr[0];
-                    if (sn.equals(String.valueOf(snIndex))) {
-                        secondID = arr[1];
-                    }
-                }
-            }
-            if (secondID != null) {
-                break;
+        String secondID = otherServerIDIndex.secondID(snIndex, firstID);
+        // 其他服务新建的2级serverID可能还没有同步过来，等待一段时间
+        long deadline = System.currentTimeMillis() + SECOND_ID_WAIT_MILLIS;
+        while (secondID == null) {
+            if (System.currentTimeMillis() >= deadline) {
+                throw new BRFSException("can not find second server id of server[" + firstID + "] in sn[" + snIndex + "]");
             }
+
             try {
                 Thread.sleep(100);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                Thread.currentThread().interrupt();
+                throw new BRFSException("interrupted while waiting second server id of server[" + firstID + "]", e);
             }
+            secondID = otherServerIDIndex.secondID(snIndex, firstID);
         }
         return secondID;
     }
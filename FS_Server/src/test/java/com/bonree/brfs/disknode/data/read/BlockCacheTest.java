@@ -0,0 +1,98 @@
+package com.bonree.brfs.disknode.data.read;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+public class BlockCacheTest extends TestCase {
+	private static final int BLOCK_SIZE = 16;
+	
+	private File dataFile;
+	private byte[] content;
+	private FileChannelCache channelCache;
+	private BlockCache blockCache;
+	
+	@Override
+	protected void setUp() throws Exception {
+		//最后一块不满
+		content = new byte[BLOCK_SIZE * 20 + 5];
+		new Random(7).nextBytes(content);
+		dataFile = File.createTempFile("block_cache", ".data");
+		Files.write(dataFile.toPath(), content);
+		
+		channelCache = new FileChannelCache(16);
+		blockCache = new BlockCache(BLOCK_SIZE * 4, BLOCK_SIZE, channelCache);
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		blockCache.stop();
+		channelCache.stop();
+		dataFile.delete();
+	}
+	
+	private void assertRead(int offset, int length) {
+		int end = Math.min(offset + length, content.length);
+		byte[] expected = Arrays.copyOfRange(content, offset, end);
+		assertTrue(Arrays.equals(expected, blockCache.read(dataFile.getAbsolutePath(), offset, length)));
+	}
+	
+	public void testReadAcrossBlocks() throws Exception {
+		assertRead(0, BLOCK_SIZE);
+		assertRead(3, BLOCK_SIZE * 2);
+		assertRead(BLOCK_SIZE * 19 + 7, 100);
+		assertRead(content.length - 1, 10);
+		assertEquals(0, blockCache.read(dataFile.getAbsolutePath(), content.length, 10).length);
+	}
+	
+	public void testEvictedBlocksReused() throws Exception {
+		//容量只有4块，依次读取所有块会淘汰前面的块
+		for(int i = 0; i < 20; i++) {
+			assertRead(i * BLOCK_SIZE, BLOCK_SIZE);
+		}
+		assertTrue(blockCache.freeBlockCount() > 0);
+		
+		//淘汰后重新读取使用空闲的数据块，内容仍然正确
+		int free = blockCache.freeBlockCount();
+		assertRead(0, BLOCK_SIZE);
+		assertTrue(blockCache.freeBlockCount() <= free);
+		for(int i = 0; i < 20; i++) {
+			assertRead(i * BLOCK_SIZE + 1, BLOCK_SIZE);
+		}
+		
+		blockCache.invalidate(dataFile.getAbsolutePath());
+		assertRead(5, BLOCK_SIZE * 3);
+	}
+	
+	public void testConcurrentReadWithEviction() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for(int i = 0; i < 8; i++) {
+			final long seed = i;
+			futures.add(executor.submit(new Runnable() {
+				
+				@Override
+				public void run() {
+					//被淘汰的数据块在读取结束前不能被重用
+					Random random = new Random(seed);
+					for(int j = 0; j < 2000; j++) {
+						assertRead(random.nextInt(content.length), 1 + random.nextInt(BLOCK_SIZE * 3));
+					}
+				}
+			}));
+		}
+		
+		for(Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+	}
+}
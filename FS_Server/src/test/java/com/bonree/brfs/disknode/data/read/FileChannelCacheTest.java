@@ -0,0 +1,66 @@
+package com.bonree.brfs.disknode.data.read;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import com.bonree.brfs.disknode.data.read.FileChannelCache.ChannelRef;
+
+import junit.framework.TestCase;
+
+public class FileChannelCacheTest extends TestCase {
+	private File dataFile;
+	private FileChannelCache channelCache;
+	
+	@Override
+	protected void setUp() throws Exception {
+		dataFile = File.createTempFile("channel_cache", ".data");
+		Files.write(dataFile.toPath(), new byte[100]);
+		
+		channelCache = new FileChannelCache(16, 50, TimeUnit.MILLISECONDS);
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		channelCache.stop();
+		dataFile.delete();
+	}
+	
+	private FileChannel acquireAndRelease() throws Exception {
+		ChannelRef ref = channelCache.acquire(dataFile.getAbsolutePath());
+		ref.release();
+		return ref.channel();
+	}
+	
+	public void testIdleChannelClosed() throws Exception {
+		FileChannel channel = acquireAndRelease();
+		assertTrue(channel.isOpen());
+		
+		Thread.sleep(100);
+		channelCache.cleanUp();
+		
+		//没有读取的句柄过期后关闭，再次读取重新打开文件
+		assertFalse(channel.isOpen());
+		assertNotSame(channel, acquireAndRelease());
+	}
+	
+	public void testIdleChannelInUseNotClosed() throws Exception {
+		ChannelRef ref = channelCache.acquire(dataFile.getAbsolutePath());
+		
+		Thread.sleep(100);
+		channelCache.cleanUp();
+		
+		//正在读取的句柄过期后等读取结束才关闭
+		assertTrue(ref.channel().isOpen());
+		ref.release();
+		assertFalse(ref.channel().isOpen());
+	}
+	
+	public void testInvalidateDirectory() throws Exception {
+		FileChannel channel = acquireAndRelease();
+		
+		channelCache.invalidate(dataFile.getParent());
+		assertFalse(channel.isOpen());
+	}
+}
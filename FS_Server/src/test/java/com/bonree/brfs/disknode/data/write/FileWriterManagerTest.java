@@ -0,0 +1,109 @@
+package com.bonree.brfs.disknode.data.write;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import com.bonree.brfs.common.utils.FileUtils;
+import com.bonree.brfs.common.write.data.FileEncoder;
+import com.bonree.brfs.configuration.SystemProperties;
+import com.bonree.brfs.disknode.DiskContext;
+import com.bonree.brfs.disknode.DiskContext.EvictListener;
+import com.bonree.brfs.disknode.data.read.BlockCache;
+import com.bonree.brfs.disknode.data.read.FileChannelCache;
+import com.bonree.brfs.disknode.data.write.record.RecordCollectionManager;
+import com.bonree.brfs.disknode.data.write.worker.WriteWorker;
+import com.bonree.brfs.disknode.utils.Pair;
+
+import junit.framework.TestCase;
+
+public class FileWriterManagerTest extends TestCase {
+	private static final int BLOCK_SIZE = 16;
+	private static final int RECORD_COUNT = 4;
+	private static final int DATA_SIZE = 40;
+	
+	static {
+		if(System.getProperty(SystemProperties.PROP_CONFIGURATION_FILE) == null) {
+			System.setProperty(SystemProperties.PROP_CONFIGURATION_FILE, "../config/server.properties.example");
+		}
+	}
+	
+	private File rootDir;
+	private FileWriterManager writerManager;
+	private FileChannelCache channelCache;
+	private BlockCache blockCache;
+	private String filePath;
+	
+	@Override
+	protected void setUp() throws Exception {
+		rootDir = Files.createTempDirectory("writer_manager").toFile();
+		DiskContext diskContext = new DiskContext(rootDir.getAbsolutePath());
+		writerManager = new FileWriterManager(diskContext, new RecordCollectionManager());
+		writerManager.start();
+		
+		channelCache = new FileChannelCache(16);
+		blockCache = new BlockCache(BLOCK_SIZE * 64, BLOCK_SIZE, channelCache);
+		diskContext.addEvictListener(new EvictListener() {
+			
+			@Override
+			public void evicted(String path) {
+				channelCache.invalidate(path);
+			}
+		});
+		
+		filePath = diskContext.allocateFilePath("/sn/1/2018/file");
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		writerManager.close(filePath);
+		writerManager.stop();
+		blockCache.stop();
+		channelCache.stop();
+		FileUtils.deleteDir(rootDir.getAbsolutePath(), true);
+	}
+	
+	private static byte[] record(int sequence, int value) throws Exception {
+		byte[] data = new byte[DATA_SIZE];
+		Arrays.fill(data, (byte) (sequence * 16 + value));
+		return FileEncoder.contents(0, null, data, false, 0);
+	}
+	
+	private void assertCachedContent() throws Exception {
+		byte[] content = Files.readAllBytes(new File(filePath).toPath());
+		assertTrue(Arrays.equals(content, blockCache.read(filePath, 0, content.length)));
+	}
+	
+	public void testReadAfterAdjustRewrite() throws Exception {
+		Pair<RecordFileWriter, WriteWorker> binding = writerManager.getBinding(filePath, true);
+		binding.first().updateSequence(0);
+		binding.first().write(new byte[] {1, 2});
+		for(int seq = 1; seq <= RECORD_COUNT; seq++) {
+			binding.first().updateSequence(seq);
+			binding.first().write(record(seq, 0));
+		}
+		binding.first().flush();
+		
+		//最后一条记录的数据损坏，协调时会被截断
+		long lastOffset = binding.first().position() - record(RECORD_COUNT, 0).length;
+		try(RandomAccessFile file = new RandomAccessFile(filePath, "rw")) {
+			file.seek(lastOffset + DATA_SIZE / 2);
+			file.write(0xFF);
+		}
+		
+		//缓存截断之前的数据块
+		assertCachedContent();
+		
+		writerManager.adjustFileWriter(filePath);
+		assertEquals(lastOffset, binding.first().position());
+		assertEquals(lastOffset, new File(filePath).length());
+		
+		//在截断的位置写入长度相同、内容不同的数据
+		binding.first().updateSequence(RECORD_COUNT);
+		binding.first().write(record(RECORD_COUNT, 1));
+		binding.first().flush();
+		
+		assertCachedContent();
+	}
+}
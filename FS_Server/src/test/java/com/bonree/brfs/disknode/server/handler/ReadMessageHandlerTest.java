@@ -0,0 +1,71 @@
+package com.bonree.brfs.disknode.server.handler;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import com.bonree.brfs.common.net.http.FileRegionData;
+import com.bonree.brfs.disknode.data.read.FileChannelCache;
+
+import junit.framework.TestCase;
+
+public class ReadMessageHandlerTest extends TestCase {
+	private File dataFile;
+	private FileChannelCache channelCache;
+	private ReadMessageHandler handler;
+	
+	@Override
+	protected void setUp() throws Exception {
+		dataFile = File.createTempFile("read_region", ".data");
+		Files.write(dataFile.toPath(), new byte[100]);
+		
+		channelCache = new FileChannelCache(16);
+		handler = new ReadMessageHandler(null, true, null, channelCache);
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		channelCache.stop();
+		dataFile.delete();
+	}
+	
+	public void testRegionUsesCachedChannel() throws Exception {
+		FileRegionData first = handler.getFileRegion(dataFile.getAbsolutePath(), 10, 20);
+		FileRegionData second = handler.getFileRegion(dataFile.getAbsolutePath(), 90, 20);
+		
+		//同一个文件的读取共用缓存的句柄，不再每次打开文件
+		assertNotNull(first.getChannel());
+		assertSame(first.getChannel(), second.getChannel());
+		assertEquals(1, channelCache.stats().loadCount());
+		
+		assertEquals(10, first.getOffset());
+		assertEquals(20, first.getLength());
+		assertEquals(10, second.getLength());
+		
+		first.release();
+		second.release();
+		assertTrue(first.getChannel().isOpen());
+	}
+	
+	public void testChannelClosedAfterRegionReleased() throws Exception {
+		FileRegionData region = handler.getFileRegion(dataFile.getAbsolutePath(), 0, 50);
+		
+		//文件失效后正在发送的数据仍然可以读取
+		channelCache.invalidate(dataFile.getAbsolutePath());
+		assertTrue(region.getChannel().isOpen());
+		assertEquals(50, region.getChannel().read(ByteBuffer.allocate(50), region.getOffset()));
+		
+		region.release();
+		assertFalse(region.getChannel().isOpen());
+	}
+	
+	public void testOffsetBeyondFile() throws Exception {
+		assertNull(handler.getFileRegion(dataFile.getAbsolutePath(), 100, 10));
+		
+		//没有返回数据时不能占用句柄
+		FileRegionData region = handler.getFileRegion(dataFile.getAbsolutePath(), 0, 10);
+		channelCache.invalidate(dataFile.getAbsolutePath());
+		region.release();
+		assertFalse(region.getChannel().isOpen());
+	}
+}
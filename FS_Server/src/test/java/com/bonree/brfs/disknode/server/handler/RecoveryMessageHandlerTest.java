@@ -0,0 +1,86 @@
+package com.bonree.brfs.disknode.server.handler;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.bonree.brfs.disknode.client.DiskNodeClient;
+import com.bonree.brfs.disknode.server.handler.data.WriteData;
+
+import junit.framework.TestCase;
+
+public class RecoveryMessageHandlerTest extends TestCase {
+	
+	/**
+	 * 只能批量获取到指定序列号的客户端
+	 */
+	private static DiskNodeClient rangeClient(BitSet existed, List<Integer> rangeStarts) {
+		return (DiskNodeClient) Proxy.newProxyInstance(DiskNodeClient.class.getClassLoader(),
+				new Class<?>[] { DiskNodeClient.class }, new InvocationHandler() {
+					
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if(!method.getName().equals("getBytesBySequenceRange")) {
+							throw new UnsupportedOperationException(method.getName());
+						}
+						
+						int start = (Integer) args[1];
+						int count = (Integer) args[2];
+						rangeStarts.add(start);
+						List<WriteData> datas = new ArrayList<WriteData>();
+						for(int seq = existed.nextSetBit(start); seq != -1 && seq < start + count; seq = existed.nextSetBit(seq + 1)) {
+							WriteData data = new WriteData();
+							data.setDiskSequence(seq);
+							data.setBytes(new byte[] { (byte) seq });
+							datas.add(data);
+						}
+						
+						return datas.toArray(new WriteData[datas.size()]);
+					}
+				});
+	}
+	
+	public void testEmptyRangeSkipsToNextRun() {
+		BitSet available = new BitSet();
+		available.set(0, 4);
+		available.set(10, 13);
+		BitSet lack = (BitSet) available.clone();
+		
+		//对方没有第一段序列号的数据
+		BitSet existed = new BitSet();
+		existed.set(10, 13);
+		List<Integer> rangeStarts = new ArrayList<Integer>();
+		SortedMap<Integer, byte[]> datas = new TreeMap<Integer, byte[]>();
+		RecoveryMessageHandler.fetchSequences(rangeClient(existed, rangeStarts), "/file", available, lack, datas);
+		
+		assertEquals(3, datas.size());
+		assertEquals((byte) 11, datas.get(11)[0]);
+		assertEquals(4, lack.cardinality());
+		assertEquals(0, lack.nextSetBit(0));
+		assertEquals(-1, lack.nextSetBit(4));
+		assertEquals(2, rangeStarts.size());
+	}
+	
+	public void testPartialRangeContinuesAfterMaxSequence() {
+		BitSet available = new BitSet();
+		available.set(0, 6);
+		BitSet lack = (BitSet) available.clone();
+		
+		BitSet existed = new BitSet();
+		existed.set(0, 2);
+		existed.set(4, 6);
+		List<Integer> rangeStarts = new ArrayList<Integer>();
+		SortedMap<Integer, byte[]> datas = new TreeMap<Integer, byte[]>();
+		RecoveryMessageHandler.fetchSequences(rangeClient(existed, rangeStarts), "/file", available, lack, datas);
+		
+		assertEquals(4, datas.size());
+		assertTrue(lack.get(2));
+		assertTrue(lack.get(3));
+		assertEquals(2, lack.cardinality());
+	}
+}
@@ -0,0 +1,80 @@
+package com.bonree.brfs.disknode.server.handler;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.bonree.brfs.disknode.data.read.FileChannelCache;
+import com.bonree.brfs.disknode.data.write.record.RecordElement;
+import com.bonree.brfs.disknode.server.handler.data.WriteData;
+
+import junit.framework.TestCase;
+
+public class WritingRangeBytesMessageHandlerTest extends TestCase {
+	private File dataFile;
+	private byte[] content;
+	private FileChannelCache channelCache;
+	private WritingRangeBytesMessageHandler handler;
+	
+	@Override
+	protected void setUp() throws Exception {
+		content = new byte[100];
+		for(int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		
+		dataFile = File.createTempFile("range_bytes", ".data");
+		Files.write(dataFile.toPath(), content);
+		
+		channelCache = new FileChannelCache(16);
+		handler = new WritingRangeBytesMessageHandler(null, null, channelCache);
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		channelCache.stop();
+		dataFile.delete();
+	}
+	
+	public void testReadElements() throws Exception {
+		WriteData[] datas = handler.readElements(dataFile.getAbsolutePath(), Arrays.asList(
+				new RecordElement(1, 0, 10, 0),
+				new RecordElement(3, 40, 20, 0)));
+				
+		assertEquals(2, datas.length);
+		assertEquals(1, datas[0].getDiskSequence());
+		assertTrue(Arrays.equals(Arrays.copyOfRange(content, 0, 10), datas[0].getBytes()));
+		assertEquals(3, datas[1].getDiskSequence());
+		assertTrue(Arrays.equals(Arrays.copyOfRange(content, 40, 60), datas[1].getBytes()));
+	}
+	
+	public void testRecordsBeyondFileLength() throws Exception {
+		//索引中的记录可能还没有写入数据文件
+		WriteData[] datas = handler.readElements(dataFile.getAbsolutePath(), Arrays.asList(
+				new RecordElement(0, 0, 10, 0),
+				new RecordElement(1, 10, 80, 0),
+				new RecordElement(2, 90, 20, 0)));
+				
+		assertEquals(2, datas.length);
+		assertEquals(1, datas[1].getDiskSequence());
+		assertTrue(Arrays.equals(Arrays.copyOfRange(content, 10, 90), datas[1].getBytes()));
+		
+		datas = handler.readElements(dataFile.getAbsolutePath(), Arrays.asList(new RecordElement(5, 100, 10, 0)));
+		assertEquals(0, datas.length);
+	}
+	
+	public void testReadAppendedDataWithCachedChannel() throws Exception {
+		handler.readElements(dataFile.getAbsolutePath(), Arrays.asList(new RecordElement(1, 0, 10, 0)));
+		
+		//文件正在写入，追加的数据通过缓存的句柄也能读到
+		byte[] appended = new byte[20];
+		Arrays.fill(appended, (byte) 7);
+		Files.write(dataFile.toPath(), appended, StandardOpenOption.APPEND);
+		
+		WriteData[] datas = handler.readElements(dataFile.getAbsolutePath(), Arrays.asList(new RecordElement(2, 100, 20, 0)));
+		assertEquals(1, datas.length);
+		assertTrue(Arrays.equals(appended, datas[0].getBytes()));
+		assertEquals(1, channelCache.stats().loadCount());
+	}
+}
@@ -0,0 +1,156 @@
+package com.bonree.brfs.duplication.coordinator.zk;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryNTimes;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+
+import com.bonree.brfs.common.utils.FileUtils;
+import com.bonree.brfs.common.utils.JsonUtils;
+import com.bonree.brfs.duplication.coordinator.FileNode;
+
+import junit.framework.TestCase;
+
+public class BatchedZkFileNodeStorerTest extends TestCase {
+	private static final String STORE_NODE = "test_store";
+	
+	private File dataDir;
+	private ServerCnxnFactory serverFactory;
+	private CuratorFramework client;
+	private BatchedZkFileNodeStorer storer;
+	private String storePath;
+	
+	@Override
+	protected void setUp() throws Exception {
+		dataDir = Files.createTempDirectory("zk_storer").toFile();
+		serverFactory = ServerCnxnFactory.createFactory(new InetSocketAddress("127.0.0.1", 0), 100);
+		serverFactory.startup(new ZooKeeperServer(dataDir, dataDir, 2000));
+		
+		client = CuratorFrameworkFactory.builder()
+				.connectString("127.0.0.1:" + serverFactory.getLocalPort())
+				.retryPolicy(new RetryNTimes(3, 1000))
+				.namespace("brfs_test")
+				.build();
+		client.start();
+		client.blockUntilConnected();
+		
+		storePath = ZKPaths.makePath(ZkFileCoordinatorPaths.COORDINATOR_ROOT, STORE_NODE);
+		storer = new BatchedZkFileNodeStorer(client, STORE_NODE);
+		storer.start();
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		storer.stop();
+		client.close();
+		serverFactory.shutdown();
+		FileUtils.deleteDir(dataDir.getAbsolutePath(), true);
+	}
+	
+	private static FileNode newFileNode(String name) {
+		FileNode node = new FileNode(System.currentTimeMillis());
+		node.setName(name);
+		node.setStorageName("sn");
+		node.setServiceId("service_1");
+		return node;
+	}
+	
+	private boolean existsInZk(String name) throws Exception {
+		return client.checkExists().forPath(ZKPaths.makePath(storePath, name)) != null;
+	}
+	
+	private void waitUntilRemoved(String name) throws Exception {
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+		while(existsInZk(name) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+	}
+	
+	public void testConcurrentSaveWithMissingDeletes() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for(int i = 0; i < 8; i++) {
+			final int thread = i;
+			futures.add(executor.submit(new Runnable() {
+				
+				@Override
+				public void run() {
+					for(int j = 0; j < 20; j++) {
+						//删除不存在的节点不能影响同一批中的创建操作
+						storer.delete("missing_" + thread + "_" + j);
+						storer.save(newFileNode("file_" + thread + "_" + j));
+					}
+				}
+			}));
+		}
+		
+		for(Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		
+		assertEquals(160, storer.listFileNodes(null).size());
+		for(int i = 0; i < 8; i++) {
+			for(int j = 0; j < 20; j++) {
+				assertTrue(existsInZk("file_" + i + "_" + j));
+			}
+		}
+	}
+	
+	public void testSaveExistingNode() throws Exception {
+		FileNode node = newFileNode("existing");
+		client.create().creatingParentsIfNeeded().forPath(ZKPaths.makePath(storePath, node.getName()), JsonUtils.toJsonBytes(node));
+		
+		//数据相同的节点已经存在时认为保存成功
+		storer.save(node);
+		
+		FileNode other = newFileNode("existing");
+		other.setServiceId("service_2");
+		try {
+			storer.save(other);
+			fail("save a different node with the same name should fail");
+		} catch(RuntimeException e) {
+			//expected
+		}
+	}
+	
+	public void testDeletedNodeNotListed() throws Exception {
+		storer.save(newFileNode("deleted"));
+		storer.save(newFileNode("kept"));
+		
+		storer.delete("deleted");
+		assertNull(storer.getFileNode("deleted"));
+		
+		waitUntilRemoved("deleted");
+		assertFalse(existsInZk("deleted"));
+		
+		//等待缓存事件处理完成后仍然不会出现已删除的节点
+		Thread.sleep(200);
+		List<FileNode> nodes = storer.listFileNodes(null);
+		assertEquals(1, nodes.size());
+		assertEquals("kept", nodes.get(0).getName());
+	}
+	
+	public void testSubmitAfterStop() throws Exception {
+		storer.stop();
+		
+		storer.save(newFileNode("after_stop"));
+		assertTrue(existsInZk("after_stop"));
+		
+		storer.delete("after_stop");
+		waitUntilRemoved("after_stop");
+		assertFalse(existsInZk("after_stop"));
+	}
+}
@@ -0,0 +1,109 @@
+package com.bonree.brfs.duplication.coordinator.zk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bonree.brfs.common.service.Service;
+import com.bonree.brfs.duplication.coordinator.FileNode;
+import com.bonree.brfs.duplication.coordinator.FileNodeFilter;
+import com.bonree.brfs.duplication.coordinator.FileNodeStorer;
+
+import junit.framework.TestCase;
+
+public class LeastLoadFileNodeServiceSelectorTest extends TestCase {
+	
+	/**
+	 * 只提供文件节点列表的仓库
+	 */
+	private static class ListFileNodeStorer implements FileNodeStorer {
+		private List<FileNode> fileNodes = new ArrayList<FileNode>();
+		
+		void add(String serviceId, int count) {
+			for(int i = 0; i < count; i++) {
+				fileNodes.add(fileNode(serviceId + "_file_" + i, serviceId));
+			}
+		}
+		
+		@Override
+		public void save(FileNode fileNode) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void delete(String fileName) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public FileNode getFileNode(String fileName) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void update(FileNode fileNode) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void update(List<FileNode> fileNodes) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public List<FileNode> listFileNodes(FileNodeFilter filter) {
+			return new ArrayList<FileNode>(fileNodes);
+		}
+	}
+	
+	private static FileNode fileNode(String name, String serviceId) {
+		FileNode node = new FileNode(System.currentTimeMillis());
+		node.setName(name);
+		node.setServiceId(serviceId);
+		return node;
+	}
+	
+	private static Service service(String serviceId) {
+		return new Service(serviceId, "group", "127.0.0.1", 8880);
+	}
+	
+	public void testSelectLeastLoadedService() {
+		ListFileNodeStorer storer = new ListFileNodeStorer();
+		storer.add("dead", 6);
+		storer.add("service_1", 3);
+		storer.add("service_2", 1);
+		storer.add("service_3", 2);
+		
+		LeastLoadFileNodeServiceSelector selector = new LeastLoadFileNodeServiceSelector(storer);
+		List<Service> services = Arrays.asList(service("service_1"), service("service_2"), service("service_3"));
+		
+		//选择之后分配的文件也计入负载，转移完成后各服务的负载趋于平均
+		Map<String, Integer> selected = new HashMap<String, Integer>();
+		for(int i = 0; i < 6; i++) {
+			Service service = selector.selectWith(fileNode("dead_file_" + i, "dead"), services);
+			selected.merge(service.getServiceId(), 1, Integer::sum);
+		}
+		
+		assertEquals(Integer.valueOf(1), selected.get("service_1"));
+		assertEquals(Integer.valueOf(3), selected.get("service_2"));
+		assertEquals(Integer.valueOf(2), selected.get("service_3"));
+	}
+	
+	public void testFirstSelectionPrefersIdleService() {
+		ListFileNodeStorer storer = new ListFileNodeStorer();
+		storer.add("service_1", 5);
+		storer.add("service_2", 5);
+		
+		LeastLoadFileNodeServiceSelector selector = new LeastLoadFileNodeServiceSelector(storer);
+		List<Service> services = Arrays.asList(service("service_1"), service("service_2"), service("service_3"));
+		
+		assertEquals("service_3", selector.selectWith(fileNode("file", "dead"), services).getServiceId());
+	}
+	
+	public void testEmptyServiceList() {
+		LeastLoadFileNodeServiceSelector selector = new LeastLoadFileNodeServiceSelector(new ListFileNodeStorer());
+		assertNull(selector.selectWith(fileNode("file", "dead"), new ArrayList<Service>()));
+	}
+}
@@ -0,0 +1,97 @@
+package com.bonree.brfs.duplication.datastream.file;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.bonree.brfs.configuration.SystemProperties;
+import com.bonree.brfs.duplication.coordinator.FileNode;
+
+/**
+ * DefaultFileLounge分配文件的吞吐量测试，观察写线程数增加时的扩展情况
+ * 
+ * 运行时通过-Dconfiguration.file指定配置文件，默认使用config/server.properties.example
+ * 
+ * @author yupeng
+ * 
+ */
+public class FileLoungeBenchmark {
+	private static final int[] THREAD_NUMS = {1, 2, 4, 8, 16, 32, 64};
+	private static final long RUN_MILLIS = 3000;
+	private static final int FILE_CAPACITY = 64 * 1024 * 1024;
+	
+	public static void main(String[] args) throws Exception {
+		if(System.getProperty(SystemProperties.PROP_CONFIGURATION_FILE) == null) {
+			System.setProperty(SystemProperties.PROP_CONFIGURATION_FILE, "../config/server.properties.example");
+		}
+		
+		for(int threadNum : THREAD_NUMS) {
+			run(threadNum);
+		}
+	}
+	
+	private static void run(int threadNum) throws Exception {
+		AtomicInteger fileCount = new AtomicInteger();
+		FileLimiterFactory factory = new FileLimiterFactory() {
+			
+			@Override
+			public FileLimiter create(long time, int storageId) {
+				FileNode node = new FileNode(time);
+				node.setName("file_" + fileCount.getAndIncrement());
+				node.setStorageId(storageId);
+				return new FileLimiter(node, FILE_CAPACITY);
+			}
+		};
+		
+		DefaultFileLounge lounge = new DefaultFileLounge(0, factory, null, null, TimeUnit.HOURS.toMillis(1));
+		
+		AtomicLong ops = new AtomicLong();
+		CountDownLatch startLatch = new CountDownLatch(1);
+		CountDownLatch endLatch = new CountDownLatch(threadNum);
+		long deadline = System.currentTimeMillis() + RUN_MILLIS;
+		for(int i = 0; i < threadNum; i++) {
+			new Thread(new Runnable() {
+				
+				@Override
+				public void run() {
+					try {
+						startLatch.await();
+						long count = 0;
+						int[] sizes = new int[4];
+						while(System.currentTimeMillis() < deadline) {
+							for(int j = 0; j < sizes.length; j++) {
+								sizes[j] = ThreadLocalRandom.current().nextInt(64, 4096);
+							}
+							
+							FileLimiter[] files = lounge.getFileLimiterList(sizes.clone());
+							//模拟FileWriteTask写入完成后更新长度并解锁文件
+							for(int j = 0; j < files.length; j++) {
+								files[j].setLength(files[j].getLength() + sizes[j]);
+							}
+							
+							for(FileLimiter file : files) {
+								file.unlock();
+							}
+							
+							count++;
+						}
+						
+						ops.addAndGet(count);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						endLatch.countDown();
+					}
+				}
+			}).start();
+		}
+		
+		startLatch.countDown();
+		endLatch.await();
+		
+		System.out.println(String.format("threads[%2d] requests/s[%,12d] files[%d]",
+				threadNum, ops.get() * 1000 / RUN_MILLIS, fileCount.get()));
+	}
+}
@@ -0,0 +1,52 @@
+package com.bonree.brfs.duplication.synchronize;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class SynchronizePermitsTest extends TestCase {
+	
+	public void testNodeConcurrency() {
+		SynchronizePermits<String> permits = new SynchronizePermits<String>(2);
+		List<String> nodes = Arrays.asList("group_1", "group_2");
+		
+		assertTrue(permits.acquire("file_1", nodes, "task_1"));
+		assertTrue(permits.acquire("file_2", nodes, "task_2"));
+		//节点的许可已经用完
+		assertFalse(permits.acquire("file_3", Arrays.asList("group_3", "group_2"), "task_3"));
+		//未获取成功时不占用其他节点的许可
+		assertTrue(permits.acquire("file_4", Arrays.asList("group_3"), "task_4"));
+		assertTrue(permits.acquire("file_5", Arrays.asList("group_3"), "task_5"));
+		
+		assertEquals(Arrays.asList("task_3"), permits.release("file_1", nodes));
+		assertTrue(permits.acquire("file_3", Arrays.asList("group_2"), "task_3"));
+		assertTrue(permits.release("file_2", nodes).isEmpty());
+	}
+	
+	public void testSameFileWaits() {
+		SynchronizePermits<String> permits = new SynchronizePermits<String>(4);
+		List<String> nodes = Arrays.asList("group_1");
+		
+		assertTrue(permits.acquire("file", nodes, "task_1"));
+		assertFalse(permits.acquire("file", nodes, "task_2"));
+		assertFalse(permits.acquire("file", nodes, "task_3"));
+		
+		assertEquals(Arrays.asList("task_2", "task_3"), permits.release("file", nodes));
+		//等待的任务只返回一次
+		assertTrue(permits.acquire("file", nodes, "task_2"));
+		assertTrue(permits.release("file", nodes).isEmpty());
+	}
+	
+	public void testTaskWaitsForFirstBusyNode() {
+		SynchronizePermits<String> permits = new SynchronizePermits<String>(1);
+		
+		assertTrue(permits.acquire("file_1", Arrays.asList("group_1"), "task_1"));
+		assertTrue(permits.acquire("file_2", Arrays.asList("group_2"), "task_2"));
+		assertFalse(permits.acquire("file_3", Arrays.asList("group_1", "group_2"), "task_3"));
+		
+		//任务只在第一个繁忙节点上等待
+		assertTrue(permits.release("file_2", Arrays.asList("group_2")).isEmpty());
+		assertEquals(Arrays.asList("task_3"), permits.release("file_1", Arrays.asList("group_1")));
+	}
+}